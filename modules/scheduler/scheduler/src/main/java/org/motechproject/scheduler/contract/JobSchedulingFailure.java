@@ -0,0 +1,34 @@
+package org.motechproject.scheduler.contract;
+
+/**
+ * Describes a job which could not be scheduled by a bulk scheduling call, together with the reason.
+ */
+public class JobSchedulingFailure {
+
+    private SchedulableJob job;
+    private String message;
+
+    /**
+     * Constructor.
+     *
+     * @param job  the job which could not be scheduled
+     * @param message  the reason why the job could not be scheduled
+     */
+    public JobSchedulingFailure(SchedulableJob job, String message) {
+        this.job = job;
+        this.message = message;
+    }
+
+    public SchedulableJob getJob() {
+        return job;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JobSchedulingFailure{job=%s, message='%s'}", job, message);
+    }
+}
@@ -4,6 +4,7 @@ import org.motechproject.commons.api.TasksEventParser;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
 import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.service.impl.ScheduledEventPublisher;
 import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
@@ -19,9 +20,9 @@ import java.util.Map;
 /**
  * Represents a MOTECH job scheduled with quartz. This class implements the {@code org.quartz.Job} interface -
  * its execute method will be called when a MOTECH job in quartz triggers. Since jobs in MOTECH are basically {@link org.motechproject.event.MotechEvent}s
- * getting published on a quartz schedule, upon execution this class retrieves the {@link org.motechproject.event.listener.EventRelay}
- * from the application context and uses it to immediately publish the event scheduled with this job. For every execution
- * a new copy of the event is constructed.
+ * getting published on a quartz schedule, upon execution this class hands the event scheduled with this job to the
+ * {@link ScheduledEventPublisher} kept in the scheduler context, which publishes it without blocking the Quartz thread.
+ * For every execution a new copy of the event is constructed.
  */
 public class MotechScheduledJob implements Job {
 
@@ -35,9 +36,6 @@ public class MotechScheduledJob implements Job {
     @Override
     @SuppressWarnings("unchecked")
     public void execute(JobExecutionContext jobExecutionContext) {
-
-        LOGGER.info("executing...");
-
         try {
             JobDetail jobDetail = jobExecutionContext.getJobDetail();
             JobDataMap jobDataMap = jobDetail.getJobDataMap();
@@ -51,7 +49,9 @@ public class MotechScheduledJob implements Job {
             motechEvent.getParameters().put(MotechSchedulerService.JOB_ID_KEY, jobId);
             motechEvent.getParameters().put(TasksEventParser.CUSTOM_PARSER_EVENT_KEY, SchedulerConstants.PARSER_NAME);
 
-            LOGGER.info("Sending Motech Event Message: " + motechEvent);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Sending Motech Event Message: " + motechEvent);
+            }
 
             SchedulerContext schedulerContext;
             try {
@@ -61,9 +61,16 @@ public class MotechScheduledJob implements Job {
                 return;
             }
 
-            ApplicationContext applicationContext = (ApplicationContext) schedulerContext.get("applicationContext");
-            EventRelay eventRelay = applicationContext.getBean(EventRelay.class);
-            eventRelay.sendEventMessage(motechEvent);
+            ScheduledEventPublisher publisher = (ScheduledEventPublisher) schedulerContext.get(ScheduledEventPublisher.CONTEXT_KEY);
+
+            if (publisher != null) {
+                publisher.publish(motechEvent, jobExecutionContext.getScheduledFireTime(), jobExecutionContext.getFireTime());
+            } else {
+                // the job has fired before the publisher was started
+                ApplicationContext applicationContext = (ApplicationContext) schedulerContext.get("applicationContext");
+                EventRelay eventRelay = applicationContext.getBean(EventRelay.class);
+                eventRelay.sendEventMessage(motechEvent);
+            }
         } catch (RuntimeException e) {
             LOGGER.error("Job execution failed.", e);
         }
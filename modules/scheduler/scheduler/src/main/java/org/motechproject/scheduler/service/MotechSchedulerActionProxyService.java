@@ -63,6 +63,17 @@ public interface MotechSchedulerActionProxyService {
      */
     void scheduleRunOnceJob(String subject, Map<Object, Object> parameters, DateTime startDate);
 
+    /**
+     * Schedules jobs, which will be fired only once at date given by user, one for every given external ID. The jobs
+     * are scheduled with a single bulk call, see {@link MotechSchedulerService#scheduleJobs(java.util.Collection)}.
+     *
+     * @param subject  the subject for {@code MotechEvent} fired, when job is triggered, not null
+     * @param parameters  the parameters for {@code MotechEvent}, not null
+     * @param externalIds  the external IDs of jobs, passed as the "JobID" parameter of {@code MotechEvent}, not null
+     * @param startDate  the {@code DateTime} at which should become ACTIVE, not null
+     */
+    void scheduleRunOnceJobs(String subject, Map<Object, Object> parameters, List<Object> externalIds, DateTime startDate);
+
     /**
      * Schedules job, which will be fired at given time on days of week provided by user.
      *
@@ -5,11 +5,13 @@ import org.motechproject.scheduler.contract.CronSchedulableJob;
 import org.motechproject.scheduler.contract.DayOfWeekSchedulableJob;
 import org.motechproject.scheduler.contract.JobBasicInfo;
 import org.motechproject.scheduler.contract.JobId;
+import org.motechproject.scheduler.contract.JobSchedulingFailure;
 import org.motechproject.scheduler.contract.RepeatingPeriodSchedulableJob;
 import org.motechproject.scheduler.contract.RepeatingSchedulableJob;
 import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
 import org.motechproject.scheduler.contract.SchedulableJob;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -134,6 +136,18 @@ public interface MotechSchedulerService {
      */
     void scheduleDayOfWeekJob(DayOfWeekSchedulableJob dayOfWeekSchedulableJob);
 
+    /**
+     * Schedules all given jobs, replacing the jobs with the same IDs. Valid jobs are stored in chunks, each of them
+     * in a single job store transaction. The size of the chunks is set by the
+     * <code>scheduler.bulk.chunk.size</code> property. Jobs which fail the validation are not scheduled. When a chunk
+     * cannot be stored, none of its jobs are scheduled, but the following chunks are still stored.
+     *
+     * @param jobs  the jobs to be scheduled, not null
+     * @return the jobs which failed the validation or belonged to a chunk which could not be stored, together with
+     * the reasons
+     */
+    List<JobSchedulingFailure> scheduleJobs(Collection<? extends SchedulableJob> jobs);
+
     /**
      * Unschedules a job with the given job ID
      *
@@ -149,6 +163,15 @@ public interface MotechSchedulerService {
      */
     void unscheduleJob(JobId job);
 
+    /**
+     * Unschedules all jobs with given IDs. The jobs are unscheduled in chunks, each of them in a single job store
+     * transaction. Jobs which do not exist are ignored. If a chunk cannot be unscheduled, the following chunks are
+     * still unscheduled and an exception is thrown at the end.
+     *
+     * @param jobIds  the {@code JobId}s of jobs which should be unscheduled, not null
+     */
+    void unscheduleJobs(Collection<? extends JobId> jobIds);
+
     /**
      * Returns last fire date of job with given ID.
      *
@@ -0,0 +1,286 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.joda.time.Period;
+import org.motechproject.scheduler.trigger.PeriodIntervalTrigger;
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronTrigger;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.TriggerUtils;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the fire times of triggers within given date windows and remembers them.
+ * <p>
+ * The cache is bounded and keeps the most recently used triggers. Computed fire times are stored together with the
+ * state of the trigger they were computed from - its schedule, its start, end and next fire times and the number of
+ * times it has fired. Once the trigger fires or gets rescheduled, its state changes and the fire times are computed
+ * again. Triggers unscheduled or rescheduled through the scheduler service are also removed explicitly.
+ * <p>
+ * Fire times of simple triggers and of period triggers with fixed length periods are computed directly from their
+ * intervals, without iterating over the fires which happen before the requested window.
+ */
+class FireTimeCache {
+
+    private static final int MAX_WINDOWS_PER_TRIGGER = 8;
+
+    private final Map<TriggerKey, CachedTrigger> triggers;
+
+    FireTimeCache(final int maxTriggers) {
+        triggers = new LinkedHashMap<TriggerKey, CachedTrigger>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TriggerKey, CachedTrigger> eldest) {
+                return size() > maxTriggers;
+            }
+        };
+    }
+
+    /**
+     * Returns the times at which the given trigger fires between the given dates, both inclusive.
+     *
+     * @param trigger the trigger
+     * @param from the start of the window
+     * @param to the end of the window
+     * @return the fire times within the window
+     */
+    List<Date> getFireTimes(OperableTrigger trigger, Date from, Date to) {
+        List<Object> state = getState(trigger);
+        if (state == null) {
+            return computeFireTimes(trigger, from, to);
+        }
+
+        Window window = new Window(from, to);
+        TriggerKey key = trigger.getKey();
+
+        synchronized (triggers) {
+            CachedTrigger cached = triggers.get(key);
+            List<Date> fireTimes = cached != null && cached.state.equals(state) ? cached.windows.get(window) : null;
+            if (fireTimes != null) {
+                return fireTimes;
+            }
+        }
+
+        List<Date> fireTimes = Collections.unmodifiableList(computeFireTimes(trigger, from, to));
+
+        synchronized (triggers) {
+            CachedTrigger cached = triggers.get(key);
+            if (cached == null || !cached.state.equals(state)) {
+                cached = new CachedTrigger(state);
+                triggers.put(key, cached);
+            }
+            cached.windows.put(window, fireTimes);
+        }
+
+        return fireTimes;
+    }
+
+    /**
+     * Removes the fire times of the triggers with the given keys.
+     *
+     * @param keys the keys of the triggers
+     */
+    void invalidate(Collection<TriggerKey> keys) {
+        synchronized (triggers) {
+            for (TriggerKey key : keys) {
+                triggers.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes the fire times of the trigger with the given key.
+     *
+     * @param key the key of the trigger
+     */
+    void invalidate(TriggerKey key) {
+        invalidate(Collections.singleton(key));
+    }
+
+    /**
+     * Computes the times at which the given trigger fires between the given dates, the same way
+     * {@link TriggerUtils#computeFireTimesBetween(OperableTrigger, org.quartz.Calendar, Date, Date)} does.
+     *
+     * @param trigger the trigger
+     * @param from the start of the window
+     * @param to the end of the window
+     * @return the fire times within the window
+     */
+    static List<Date> computeFireTimes(OperableTrigger trigger, Date from, Date to) {
+        List<Date> fireTimes = null;
+
+        if (trigger.getNextFireTime() != null) {
+            if (trigger instanceof SimpleTrigger) {
+                fireTimes = computeSimpleFireTimes((SimpleTrigger) trigger, from, to);
+            } else if (trigger instanceof PeriodIntervalTrigger) {
+                fireTimes = computePeriodFireTimes((PeriodIntervalTrigger) trigger, from, to);
+            }
+        }
+
+        return fireTimes != null
+                ? fireTimes
+                : TriggerUtils.computeFireTimesBetween(trigger, new BaseCalendar(), from, to);
+    }
+
+    private static List<Date> computeSimpleFireTimes(SimpleTrigger trigger, Date from, Date to) {
+        long start = trigger.getStartTime().getTime();
+        long next = trigger.getNextFireTime().getTime();
+        long interval = trigger.getRepeatInterval();
+        int repeatCount = trigger.getRepeatCount();
+
+        if (interval <= 0 || next < start) {
+            return null;
+        }
+
+        List<Date> fireTimes = new ArrayList<>();
+        if (next >= from.getTime() && next <= to.getTime()) {
+            fireTimes.add(new Date(next));
+        }
+
+        // the next fire time is the first fire, the following ones lie on the grid of intervals counted from the start
+        long base = (next - start) / interval;
+        long firstInWindow = from.getTime() > start ? ceilDiv(from.getTime() - start, interval) : 0;
+        long end = trigger.getEndTime() == null ? Long.MAX_VALUE : trigger.getEndTime().getTime();
+        // the trigger stops firing after it has fired more than repeatCount times
+        long maxIndex = repeatCount == SimpleTrigger.REPEAT_INDEFINITELY
+                ? Long.MAX_VALUE
+                : (long) repeatCount - trigger.getTimesTriggered();
+
+        for (long n = Math.max(base + 1, firstInWindow); ; ++n) {
+            long time = start + n * interval;
+
+            if (n - base > maxIndex || (repeatCount != SimpleTrigger.REPEAT_INDEFINITELY && n > repeatCount)
+                    || time >= end || time > to.getTime()) {
+                break;
+            }
+
+            fireTimes.add(new Date(time));
+        }
+
+        return fireTimes;
+    }
+
+    private static List<Date> computePeriodFireTimes(PeriodIntervalTrigger trigger, Date from, Date to) {
+        Period period = trigger.getRepeatPeriod();
+
+        // only periods of a fixed length can be multiplied, adding months or days depends on the date
+        if (period == null || period.getYears() != 0 || period.getMonths() != 0 || period.getWeeks() != 0
+                || period.getDays() != 0) {
+            return null;
+        }
+
+        long interval = period.toStandardDuration().getMillis();
+        if (interval <= 0) {
+            return null;
+        }
+
+        long next = trigger.getNextFireTime().getTime();
+        long end = trigger.getEndTime() == null ? Long.MAX_VALUE : trigger.getEndTime().getTime();
+
+        List<Date> fireTimes = new ArrayList<>();
+        if (next >= from.getTime() && next <= to.getTime()) {
+            fireTimes.add(new Date(next));
+        }
+
+        for (long n = Math.max(1, from.getTime() > next ? ceilDiv(from.getTime() - next, interval) : 0); ; ++n) {
+            long time = next + n * interval;
+
+            if (time > end || time > to.getTime()) {
+                break;
+            }
+
+            fireTimes.add(new Date(time));
+        }
+
+        return fireTimes;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private static List<Object> getState(Trigger trigger) {
+        Object schedule;
+
+        if (trigger instanceof CronTrigger) {
+            CronTrigger cronTrigger = (CronTrigger) trigger;
+            schedule = Arrays.asList(cronTrigger.getCronExpression(), cronTrigger.getTimeZone());
+        } else if (trigger instanceof SimpleTrigger) {
+            SimpleTrigger simpleTrigger = (SimpleTrigger) trigger;
+            schedule = Arrays.asList(simpleTrigger.getRepeatInterval(), simpleTrigger.getRepeatCount(),
+                    simpleTrigger.getTimesTriggered());
+        } else if (trigger instanceof CalendarIntervalTrigger) {
+            CalendarIntervalTrigger calendarTrigger = (CalendarIntervalTrigger) trigger;
+            schedule = Arrays.asList(calendarTrigger.getRepeatIntervalUnit(), calendarTrigger.getRepeatInterval(),
+                    calendarTrigger.getTimeZone(), calendarTrigger.isPreserveHourOfDayAcrossDaylightSavings(),
+                    calendarTrigger.isSkipDayIfHourDoesNotExist());
+        } else if (trigger instanceof PeriodIntervalTrigger) {
+            schedule = ((PeriodIntervalTrigger) trigger).getRepeatPeriod();
+        } else {
+            // the schedule of other triggers is unknown, so their fire times are not cached
+            return null;
+        }
+
+        return Arrays.asList(trigger.getClass(), schedule, trigger.getStartTime(), trigger.getEndTime(),
+                trigger.getNextFireTime());
+    }
+
+    private static final class CachedTrigger {
+
+        private final List<Object> state;
+
+        private final Map<Window, List<Date>> windows = new LinkedHashMap<Window, List<Date>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Window, List<Date>> eldest) {
+                return size() > MAX_WINDOWS_PER_TRIGGER;
+            }
+        };
+
+        private CachedTrigger(List<Object> state) {
+            this.state = state;
+        }
+    }
+
+    private static final class Window {
+
+        private final long from;
+        private final long to;
+
+        private Window(Date from, Date to) {
+            this.from = from.getTime();
+            this.to = to.getTime();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Window)) {
+                return false;
+            }
+
+            Window other = (Window) o;
+            return from == other.from && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(from) + Long.hashCode(to);
+        }
+    }
+}
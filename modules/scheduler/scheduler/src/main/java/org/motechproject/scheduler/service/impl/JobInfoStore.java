@@ -0,0 +1,207 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.commons.sql.util.Drivers;
+import org.motechproject.scheduler.constants.SchedulerConstants;
+import org.motechproject.scheduler.contract.JobBasicInfo;
+import org.motechproject.scheduler.contract.RepeatingJobId;
+import org.motechproject.scheduler.contract.RepeatingPeriodJobId;
+import org.motechproject.scheduler.contract.RunOnceJobId;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Writes the ui-defined flag of scheduled jobs to the <code>MOTECH_JOB_INFO</code> table, from which it is read when
+ * jobs are listed, so that the job data does not have to be deserialized. The job type is not stored, it is derived
+ * from the job name. The rows are written right after the jobs are stored by Quartz, since they reference the job
+ * details rows, and are removed together with the jobs through a cascading foreign key. Jobs scheduled before the
+ * table existed get their rows when they are listed for the first time.
+ */
+@Component
+public class JobInfoStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobInfoStore.class);
+
+    private static final String DATA_SOURCE = "org.quartz.jobStore.dataSource";
+    private static final String DRIVER = "org.quartz.dataSource.motechDS.driver";
+    private static final String JOB_INFO = "MOTECH_JOB_INFO";
+    private static final String UI_DEFINED = "uiDefined";
+
+    private Properties sqlProperties;
+
+    private MotechSchedulerFactoryBean motechSchedulerFactoryBean;
+
+    /**
+     * Writes the info of the given jobs, replacing the info written for them before.
+     *
+     * @param jobDetails the details of the stored jobs
+     * @see #save(Map)
+     */
+    public void save(Collection<JobDetail> jobDetails) {
+        Map<JobKey, Boolean> uiDefinedByJob = new LinkedHashMap<>();
+        for (JobDetail jobDetail : jobDetails) {
+            uiDefinedByJob.put(jobDetail.getKey(), isUiDefined(jobDetail.getJobDataMap()));
+        }
+
+        save(uiDefinedByJob);
+    }
+
+    /**
+     * Writes the ui-defined flags of the given jobs, replacing the ones written for them before. The existing rows
+     * are updated and the missing ones inserted with two batched statements committed together. Failures are only
+     * logged, jobs without info are still listed, with their info read from the job data.
+     *
+     * @param uiDefinedByJob the ui-defined flags by the keys of the stored jobs
+     */
+    public void save(Map<JobKey, Boolean> uiDefinedByJob) {
+        if (uiDefinedByJob.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE))) {
+            String schedulerName = motechSchedulerFactoryBean.getQuartzScheduler().getSchedulerName();
+
+            try {
+                saveJobInfos(conn, schedulerName, uiDefinedByJob);
+            } catch (SQLException e) {
+                // some of the jobs were scheduled concurrently and their info has been inserted in the meantime,
+                // the second attempt updates them
+                rollback(conn);
+                LOGGER.debug("Info of some of {} jobs already exists, updating it", uiDefinedByJob.size(), e);
+                saveJobInfos(conn, schedulerName, uiDefinedByJob);
+            }
+        } catch (SQLException | SchedulerException e) {
+            LOGGER.warn("Unable to save the info of {} jobs", uiDefinedByJob.size(), e);
+        }
+    }
+
+    /**
+     * Returns the type of the job with the given name, which is determined by the suffix of its ID.
+     *
+     * @param jobName the name of the job
+     * @return the type of the job
+     */
+    public static String getJobType(String jobName) {
+        if (jobName.endsWith(RunOnceJobId.SUFFIX_RUNONCEJOBID)) {
+            return JobBasicInfo.JOBTYPE_RUNONCE;
+        } else if (jobName.endsWith(RepeatingJobId.SUFFIX_REPEATJOBID)) {
+            return JobBasicInfo.JOBTYPE_REPEATING;
+        } else if (jobName.endsWith(RepeatingPeriodJobId.SUFFIX_REPEATPERIODJOBID)) {
+            return JobBasicInfo.JOBTYPE_PERIOD;
+        } else {
+            return JobBasicInfo.JOBTYPE_CRON;
+        }
+    }
+
+    /**
+     * Checks whether the job with the given data was defined through the UI.
+     *
+     * @param jobDataMap the data of the job
+     * @return true if the job was defined through the UI
+     */
+    public static boolean isUiDefined(JobDataMap jobDataMap) {
+        Map<String, Object> metadata = (Map<String, Object>) jobDataMap.get(SchedulerConstants.EVENT_METADATA);
+        return metadata != null && Boolean.TRUE.equals(metadata.get(UI_DEFINED));
+    }
+
+    private void saveJobInfos(Connection conn, String schedulerName, Map<JobKey, Boolean> uiDefinedByJob)
+            throws SQLException {
+        Map<JobKey, Boolean> missing = updateJobInfos(conn, schedulerName, uiDefinedByJob);
+        if (!missing.isEmpty()) {
+            insertJobInfos(conn, schedulerName, missing);
+        }
+        commit(conn);
+    }
+
+    private Map<JobKey, Boolean> updateJobInfos(Connection conn, String schedulerName,
+                                                Map<JobKey, Boolean> uiDefinedByJob) throws SQLException {
+        String query = new StringBuilder("UPDATE ")
+                .append(getCorrectNameRepresentation(JOB_INFO))
+                .append(" SET UI_DEFINED = ? WHERE SCHED_NAME = ? AND JOB_NAME = ? AND JOB_GROUP = ?")
+                .toString();
+
+        Map<JobKey, Boolean> missing = new LinkedHashMap<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (Map.Entry<JobKey, Boolean> entry : uiDefinedByJob.entrySet()) {
+                stmt.setBoolean(1, entry.getValue());
+                stmt.setString(2, schedulerName);
+                stmt.setString(3, entry.getKey().getName());
+                stmt.setString(4, entry.getKey().getGroup());
+                stmt.addBatch();
+            }
+
+            int[] updateCounts = stmt.executeBatch();
+
+            int i = 0;
+            for (Map.Entry<JobKey, Boolean> entry : uiDefinedByJob.entrySet()) {
+                if (updateCounts[i++] == 0) {
+                    missing.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return missing;
+    }
+
+    private void insertJobInfos(Connection conn, String schedulerName, Map<JobKey, Boolean> uiDefinedByJob)
+            throws SQLException {
+        String query = new StringBuilder("INSERT INTO ")
+                .append(getCorrectNameRepresentation(JOB_INFO))
+                .append(" (SCHED_NAME, JOB_NAME, JOB_GROUP, UI_DEFINED) VALUES (?, ?, ?, ?)")
+                .toString();
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (Map.Entry<JobKey, Boolean> entry : uiDefinedByJob.entrySet()) {
+                stmt.setString(1, schedulerName);
+                stmt.setString(2, entry.getKey().getName());
+                stmt.setString(3, entry.getKey().getGroup());
+                stmt.setBoolean(4, entry.getValue());
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+        }
+    }
+
+    private void commit(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.commit();
+        }
+    }
+
+    private void rollback(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.rollback();
+        }
+    }
+
+    private String getCorrectNameRepresentation(String name) {
+        return Drivers.MYSQL_DRIVER.equals(sqlProperties.get(DRIVER)) ? name : "\"" + name.toLowerCase() + "\"";
+    }
+
+    @Autowired
+    public void setSqlProperties(Properties sqlProperties) {
+        this.sqlProperties = sqlProperties;
+    }
+
+    @Autowired
+    public void setMotechSchedulerFactoryBean(MotechSchedulerFactoryBean motechSchedulerFactoryBean) {
+        this.motechSchedulerFactoryBean = motechSchedulerFactoryBean;
+    }
+}
@@ -7,11 +7,15 @@ import org.motechproject.commons.date.model.Time;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.scheduler.contract.CronSchedulableJob;
 import org.motechproject.scheduler.contract.DayOfWeekSchedulableJob;
+import org.motechproject.scheduler.contract.JobSchedulingFailure;
 import org.motechproject.scheduler.contract.RepeatingSchedulableJob;
 import org.motechproject.scheduler.contract.RepeatingPeriodSchedulableJob;
 import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
+import org.motechproject.scheduler.exception.MotechSchedulerException;
 import org.motechproject.scheduler.service.MotechSchedulerActionProxyService;
 import org.motechproject.scheduler.service.MotechSchedulerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -22,6 +26,9 @@ import java.util.Map;
 
 @Service("schedulerActionProxyService")
 public class MotechSchedulerActionProxyServiceImpl implements MotechSchedulerActionProxyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MotechSchedulerActionProxyServiceImpl.class);
+
     private MotechSchedulerService scheduler;
 
     @Autowired
@@ -63,6 +70,28 @@ public class MotechSchedulerActionProxyServiceImpl implements MotechSchedulerAct
         scheduler.scheduleRunOnceJob(job);
     }
 
+    @Override
+    public void scheduleRunOnceJobs(String subject, Map<Object, Object> parameters, List<Object> externalIds, DateTime startDate) {
+        List<RunOnceSchedulableJob> jobs = new ArrayList<>(externalIds.size());
+
+        for (Object externalId : externalIds) {
+            Map<String, Object> eventParameters = createMotechEventParameters(parameters);
+            eventParameters.put(MotechSchedulerService.JOB_ID_KEY, externalId.toString());
+
+            jobs.add(new RunOnceSchedulableJob(new MotechEvent(subject, eventParameters), startDate));
+        }
+
+        List<JobSchedulingFailure> failures = scheduler.scheduleJobs(jobs);
+
+        if (!failures.isEmpty()) {
+            for (JobSchedulingFailure failure : failures) {
+                LOGGER.error("Unable to schedule run once job {}: {}", failure.getJob(), failure.getMessage());
+            }
+            throw new MotechSchedulerException(String.format("Unable to schedule %d of %d run once jobs",
+                    failures.size(), jobs.size()));
+        }
+    }
+
     @Override
     public void scheduleDayOfWeekJob(String subject, Map<Object, Object> parameters, DateTime start, DateTime end, List<Object> days, DateTime time, Boolean ignorePastFiresAtStart) {
         MotechEvent motechEvent = new MotechEvent(subject, createMotechEventParameters(parameters));
@@ -9,24 +9,19 @@ import org.motechproject.scheduler.contract.EventInfo;
 import org.motechproject.scheduler.contract.JobBasicInfo;
 import org.motechproject.scheduler.contract.JobDetailedInfo;
 import org.motechproject.scheduler.contract.JobsSearchSettings;
-import org.motechproject.scheduler.contract.RepeatingJobId;
-import org.motechproject.scheduler.contract.RepeatingPeriodJobId;
-import org.motechproject.scheduler.contract.RunOnceJobId;
 import org.motechproject.scheduler.exception.MotechSchedulerJobRetrievalException;
 import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
 import org.motechproject.scheduler.service.MotechSchedulerDatabaseService;
-import org.quartz.CalendarIntervalTrigger;
-import org.quartz.CronScheduleBuilder;
-import org.quartz.CronTrigger;
+import org.quartz.DateBuilder;
 import org.quartz.JobDataMap;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
-import org.quartz.SimpleTrigger;
 import org.quartz.Trigger;
-import org.quartz.TriggerKey;
 import org.quartz.TriggerUtils;
 import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.triggers.CalendarIntervalTriggerImpl;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.utils.DBConnectionManager;
 import org.slf4j.Logger;
@@ -40,21 +35,30 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TimeZone;
 
 import static org.apache.commons.lang.StringUtils.isBlank;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 
 /**
  * Motech Scheduler Database Service implementation
+ * <p>
+ * Jobs are listed with a single query, which reads everything displayed about a job straight from the Quartz tables.
+ * The job type is derived from the job name and the ui-defined flag of a job is kept in the <code>MOTECH_JOB_INFO</code>
+ * table, which is written by the {@link JobInfoStore} when the job is scheduled. For jobs without a row in this table,
+ * such as the ones scheduled before it was created, the flag is read from the job data and written to the table, so
+ * that their job data is deserialized only once.
  *
  * @see MotechSchedulerDatabaseService
  */
@@ -65,16 +69,35 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
     private static final String DATE_FORMAT_PATTERN = "Y-MM-dd HH:mm:ss";
     private static final String DATA_SOURCE = "org.quartz.jobStore.dataSource";
     private static final String TABLE_PREFIX = "org.quartz.jobStore.tablePrefix";
-    private static final String UI_DEFINED = "uiDefined";
+    private static final String JOB_NAME = "JOB_NAME";
+    private static final String JOB_GROUP = "JOB_GROUP";
     private static final String START_TIME = "START_TIME";
     private static final String END_TIME = "END_TIME";
+    private static final String NEXT_FIRE_TIME = "NEXT_FIRE_TIME";
     private static final String TRIGGER_NAME = "TRIGGER_NAME";
-    private static final String TRIGGER_GROUP = "TRIGGER_GROUP";
     private static final String TRIGGER_STATE = "TRIGGER_STATE";
     private static final String TRIGGER_TYPE = "TRIGGER_TYPE";
+    private static final String REPEAT_COUNT = "REPEAT_COUNT";
+    private static final String REPEAT_INTERVAL = "REPEAT_INTERVAL";
+    private static final String TIMES_TRIGGERED = "TIMES_TRIGGERED";
+    private static final String CRON_EXPRESSION = "CRON_EXPRESSION";
+    private static final String INTERVAL_UNIT = "STR_PROP_1";
+    private static final String TIME_ZONE = "STR_PROP_2";
+    private static final String CALENDAR_INTERVAL = "INT_PROP_1";
+    private static final String CALENDAR_TIMES_TRIGGERED = "INT_PROP_2";
+    private static final String PRESERVE_HOUR = "BOOL_PROP_1";
+    private static final String SKIP_DAY = "BOOL_PROP_2";
+    private static final String UI_DEFINED_COLUMN = "UI_DEFINED";
     private static final String WAITING = "WAITING";
+    private static final String PAUSED_BLOCKED = "PAUSED_BLOCKED";
+    private static final String TYPE_SIMPLE = "SIMPLE";
+    private static final String TYPE_CALENDAR_INTERVAL = "CAL_INT";
     private static final String TRIGGERS = "TRIGGERS";
+    private static final String SIMPLE_TRIGGERS = "SIMPLE_TRIGGERS";
+    private static final String CRON_TRIGGERS = "CRON_TRIGGERS";
+    private static final String SIMPROP_TRIGGERS = "SIMPROP_TRIGGERS";
     private static final String JOB_DETAILS = "JOB_DETAILS";
+    private static final String JOB_INFO = "MOTECH_JOB_INFO";
     private static final String JOB_DATA = "JOB_DATA";
     private static final String OR = " OR ";
     private static final String AND = " AND ";
@@ -87,6 +110,9 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
     @Autowired
     private MotechSchedulerFactoryBean motechSchedulerFactoryBean;
 
+    @Autowired
+    private JobInfoStore jobInfoStore;
+
     @PostConstruct
     public void init() {
         scheduler = motechSchedulerFactoryBean.getQuartzScheduler();
@@ -94,10 +120,11 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
 
     @Override
     public int countJobs(JobsSearchSettings jobsSearchSettings) throws MotechSchedulerJobRetrievalException {
-        String query = buildJobsCountSqlQuery(jobsSearchSettings);
+        List<Object> parameters = new ArrayList<>();
+        String query = buildJobsCountSqlQuery(jobsSearchSettings, parameters);
         int rowCount;
         try {
-            rowCount = executeCountQuery(query);
+            rowCount = executeCountQuery(query, parameters);
             LOGGER.debug("Executing {}", query);
             return rowCount;
         } catch (SQLException e) {
@@ -105,72 +132,39 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         }
     }
 
-    private String getQuery(JobsSearchSettings jobsSearchSettings){
-        String query;
-        if (isBlank(jobsSearchSettings.getName()) &&  isBlank(jobsSearchSettings.getActivity()) && isBlank(jobsSearchSettings.getStatus()) && isBlank(jobsSearchSettings.getTimeFrom()) && isBlank(jobsSearchSettings.getTimeTo())) { //NO CHECKSTYLE BooleanExpressionComplexity
-            query = buildJobsAllSqlQuery();
-        } else if (isBlank(jobsSearchSettings.getActivity()) || isBlank(jobsSearchSettings.getStatus())) {
-            query = null;
-        } else {
-            query = buildJobsBasicInfoSqlQuery(jobsSearchSettings);
-        }
-        return query;
+    private boolean hasNoFilters(JobsSearchSettings jobsSearchSettings) {
+        return isBlank(jobsSearchSettings.getName()) && isBlank(jobsSearchSettings.getActivity()) && isBlank(jobsSearchSettings.getStatus()) && isBlank(jobsSearchSettings.getTimeFrom()) && isBlank(jobsSearchSettings.getTimeTo()); //NO CHECKSTYLE BooleanExpressionComplexity
     }
-    
+
     @Override
     public List<JobBasicInfo> getScheduledJobsBasicInfo(JobsSearchSettings jobsSearchSettings) throws MotechSchedulerJobRetrievalException {
         List<JobBasicInfo> jobBasicInfos = new LinkedList<>();
-        String query = getQuery(jobsSearchSettings);
-        if(query == null) {
+        if (!hasNoFilters(jobsSearchSettings) &&
+                (isBlank(jobsSearchSettings.getActivity()) || isBlank(jobsSearchSettings.getStatus()))) {
             return jobBasicInfos;
         }
 
+        List<Object> parameters = new ArrayList<>();
+        String query = buildJobsBasicInfoSqlQuery(jobsSearchSettings, parameters);
+
         LOGGER.debug("Executing {}", query);
 
-        List<String> columnNames = new LinkedList<>();
-        columnNames.add(TRIGGER_NAME);
-        columnNames.add(TRIGGER_GROUP);
-        columnNames.add(JOB_DATA);
-        List<List<Object>> objects;
+        Map<JobKey, Boolean> missingJobInfos = new LinkedHashMap<>();
 
-        try {
-            objects = executeQuery(query, columnNames);
-
-            for (List<Object> row : objects) {
-                JobKey jobKey = new JobKey(row.get(0).toString(), row.get(1).toString());
-                Trigger trigger = scheduler.getTriggersOfJob(jobKey).get(0);
-                String jobName = jobKey.getName();
-                String jobGroup = jobKey.getGroup();
-                String jobType = getJobType(jobKey);
-                String activity = getJobActivity(trigger);
-                String info = getJobInfo(trigger, jobType);
-                String status = getJobStatus(trigger.getKey());
-                String startDate = getStartDate(trigger);
-                String nextFireDate = "";
-                if (trigger.getNextFireTime() != null) {
-                    nextFireDate = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(trigger.getNextFireTime().getTime());
-                }
-                String endDate = getEndDate(trigger, jobType);
-                boolean uiDefined = getUiDefined((byte[]) row.get(2));
-
-                jobBasicInfos.add(new JobBasicInfo(
-                        activity,
-                        status,
-                        jobName,
-                        jobGroup,
-                        startDate,
-                        nextFireDate,
-                        endDate,
-                        jobType,
-                        info,
-                        uiDefined
-                ));
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = prepareStatement(conn, query, parameters);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                jobBasicInfos.add(getJobBasicInfo(rs, missingJobInfos));
             }
-
-            return jobBasicInfos;
-        } catch (SQLException | SchedulerException | ClassNotFoundException | IOException e) {
+        } catch (SQLException | ClassNotFoundException | IOException e) {
             throw new MotechSchedulerJobRetrievalException("Retrieval of scheduled jobs failed.", e);
         }
+
+        // jobs scheduled before the job info table existed get their rows now
+        jobInfoStore.save(missingJobInfos);
+
+        return jobBasicInfos;
     }
 
     @Override
@@ -212,31 +206,61 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         }
     }
 
-    private List<List<Object>> executeQuery(String query, List<String> columns) throws SQLException {
-        List<List<Object>> rows = new LinkedList<>();
+    private JobBasicInfo getJobBasicInfo(ResultSet rs, Map<JobKey, Boolean> missingJobInfos)
+            throws SQLException, IOException, ClassNotFoundException {
+        String jobName = rs.getString(JOB_NAME);
+        String jobGroup = rs.getString(JOB_GROUP);
+        String jobType = JobInfoStore.getJobType(jobName);
 
-        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
-                Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery(query);
+        boolean uiDefined = rs.getBoolean(UI_DEFINED_COLUMN);
+        if (rs.wasNull()) {
+            uiDefined = getUiDefined(rs.getBytes(JOB_DATA));
+            missingJobInfos.put(new JobKey(jobName, jobGroup), uiDefined);
+        }
 
-            while (rs.next()) {
-                List<Object> row = new LinkedList<>();
-                if (columns != null) {
-                    for (String name : columns) {
-                        row.add(rs.getObject(name));
-                    }
-                }
-                rows.add(row);
-            }
+        Date startTime = new Date(rs.getLong(START_TIME));
+        // Quartz stores missing times as 0 or -1
+        Date endTime = getTime(rs.getLong(END_TIME));
+        Date nextFireTime = getTime(rs.getLong(NEXT_FIRE_TIME));
+
+        String nextFireDate = "";
+        if (nextFireTime != null) {
+            nextFireDate = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(nextFireTime.getTime());
         }
-        return rows;
+
+        return new JobBasicInfo(
+                getJobActivity(startTime, endTime),
+                getJobStatus(rs.getString(TRIGGER_STATE)),
+                jobName,
+                jobGroup,
+                getStartDate(startTime),
+                nextFireDate,
+                getEndDate(startTime, endTime, jobType),
+                jobType,
+                getJobInfo(rs, jobType, startTime, endTime, nextFireTime),
+                uiDefined
+        );
+    }
+
+    private Connection getConnection() throws SQLException {
+        return DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
     }
 
-    private int executeCountQuery(String query) throws SQLException {
+    private PreparedStatement prepareStatement(Connection conn, String query, List<Object> parameters) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(query);
+
+        for (int i = 0; i < parameters.size(); ++i) {
+            stmt.setObject(i + 1, parameters.get(i));
+        }
+
+        return stmt;
+    }
+
+    private int executeCountQuery(String query, List<Object> parameters) throws SQLException {
         int rowConut = 0;
-        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
-                Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery(query);
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepareStatement(conn, query, parameters);
+                ResultSet rs = stmt.executeQuery()) {
             rs.next();
             rowConut = rs.getInt(1);
         }
@@ -249,7 +273,7 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         }
     }
 
-    private String buildDateRangeFilter(JobsSearchSettings jobsSearchSettings) {
+    private String buildDateRangeFilter(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
         StringBuilder dateRangeSb = new StringBuilder();
         boolean addAnd = false;
         DateTime dateFrom;
@@ -257,7 +281,8 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         if (StringUtils.isNotBlank(jobsSearchSettings.getTimeFrom())) {
             dateFrom = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN)
                     .parseDateTime(jobsSearchSettings.getTimeFrom());
-            dateRangeSb.append(getCorrectNameRepresentation(START_TIME)).append(" >= ").append(dateFrom.getMillis());
+            dateRangeSb.append(getColumn(START_TIME)).append(" >= ?");
+            parameters.add(dateFrom.getMillis());
             addAnd = true;
         }
 
@@ -265,30 +290,35 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
             dateTo = DateTimeFormat.forPattern(DATE_FORMAT_PATTERN)
                     .parseDateTime(jobsSearchSettings.getTimeTo());
             checkAndAddElement(dateRangeSb, AND, addAnd);
-            dateRangeSb.append(getCorrectNameRepresentation(START_TIME)).append(" <= ").append(dateTo.getMillis());
+            dateRangeSb.append(getColumn(START_TIME)).append(" <= ?");
+            parameters.add(dateTo.getMillis());
         }
         return dateRangeSb.toString();
     }
 
-    private String buildActivityFilter(JobsSearchSettings jobsSearchSettings) {
+    private String buildActivityFilter(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
         StringBuilder activitySb = new StringBuilder();
         if (jobsSearchSettings.getActivity() != null) {
             String[] activityElements = jobsSearchSettings.getActivity().split(",");
             boolean addOr = false;
             if (activityElements.length < 3) {
+                long now = DateTime.now().getMillis();
                 for (String element : activityElements) {
                     checkAndAddElement(activitySb, OR, addOr);
                     if (JobBasicInfo.ACTIVITY_NOTSTARTED.equals(element)) {
-                        activitySb.append(getCorrectNameRepresentation(START_TIME)).append(" > ").append(DateTime.now().getMillis());
+                        activitySb.append(getColumn(START_TIME)).append(" > ?");
+                        parameters.add(now);
                     } else if (JobBasicInfo.ACTIVITY_FINISHED.equals(element)) {
-                        activitySb.append(getCorrectNameRepresentation(END_TIME)).append(" < ").append(DateTime.now().getMillis())
-                                .append(AND).append(getCorrectNameRepresentation(END_TIME)).append(" != 0");
+                        activitySb.append(getColumn(END_TIME)).append(" < ?")
+                                .append(AND).append(getColumn(END_TIME)).append(" != 0");
+                        parameters.add(now);
                     } else {
-                        activitySb.append(" (").append(getCorrectNameRepresentation(START_TIME)).append(" <= ")
-                                .append(DateTime.now().getMillis()).append(" AND (")
-                                .append(getCorrectNameRepresentation(END_TIME)).append(" >= ")
-                                .append(DateTime.now().getMillis()).append(OR)
-                                .append(getCorrectNameRepresentation(END_TIME)).append(" = 0))");
+                        activitySb.append(" (").append(getColumn(START_TIME)).append(" <= ?")
+                                .append(" AND (")
+                                .append(getColumn(END_TIME)).append(" >= ?").append(OR)
+                                .append(getColumn(END_TIME)).append(" = 0))");
+                        parameters.add(now);
+                        parameters.add(now);
                     }
                     addOr = true;
                 }
@@ -297,7 +327,7 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return activitySb.toString();
     }
 
-    private String buildStatusFilter(JobsSearchSettings jobsSearchSettings) {
+    private String buildStatusFilter(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
         StringBuilder statusSb = new StringBuilder();
         if (jobsSearchSettings.getStatus() != null) {
             String[] statusElements = jobsSearchSettings.getStatus().split(",");
@@ -305,19 +335,19 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
             if (statusElements.length < 4) {
                 for (String element : statusElements) {
                     checkAndAddElement(statusSb, OR, addOr);
-                    statusSb.append(getCorrectNameRepresentation(TRIGGER_STATE)).append(" = ");
+                    statusSb.append(getColumn(TRIGGER_STATE)).append(" = ?");
                     if (Trigger.TriggerState.ERROR.toString().equals(element)) {
-                        statusSb.append("\'").append(Trigger.TriggerState.ERROR.toString()).append("\'");
+                        parameters.add(Trigger.TriggerState.ERROR.toString());
                     } else if (Trigger.TriggerState.BLOCKED.toString().equals(element)) {
-                        statusSb.append("\'").append(Trigger.TriggerState.BLOCKED.toString()).append("\'");
+                        parameters.add(Trigger.TriggerState.BLOCKED.toString());
                     } else if (Trigger.TriggerState.PAUSED.toString().equals(element)) {
-                        statusSb.append("\'").append(Trigger.TriggerState.PAUSED.toString()).append("\'");
+                        parameters.add(Trigger.TriggerState.PAUSED.toString());
                     } else {
-                        statusSb.append("\'").append(Trigger.TriggerState.NORMAL.toString()).append("\'")
-                            .append(OR).append(getCorrectNameRepresentation(TRIGGER_STATE)).append(" = ")
-                            .append("\'").append(Trigger.TriggerState.COMPLETE.toString()).append("\'")
-                            .append(OR).append(getCorrectNameRepresentation(TRIGGER_STATE)).append(" = ")
-                            .append("\'").append(WAITING).append("\'");
+                        statusSb.append(OR).append(getColumn(TRIGGER_STATE)).append(" = ?")
+                            .append(OR).append(getColumn(TRIGGER_STATE)).append(" = ?");
+                        parameters.add(Trigger.TriggerState.NORMAL.toString());
+                        parameters.add(Trigger.TriggerState.COMPLETE.toString());
+                        parameters.add(WAITING);
                     }
                     addOr = true;
                 }
@@ -326,25 +356,23 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return statusSb.toString();
     }
 
-    private List<String> buildFilters(JobsSearchSettings jobsSearchSettings) {
+    private List<String> buildFilters(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
         List<String> filters = new ArrayList<>();
-        String dateRangeFilter = buildDateRangeFilter(jobsSearchSettings);
+        String dateRangeFilter = buildDateRangeFilter(jobsSearchSettings, parameters);
         if (isNotBlank(dateRangeFilter)) {
             filters.add(dateRangeFilter);
         }
-        String activityFilter = buildActivityFilter(jobsSearchSettings);
+        String activityFilter = buildActivityFilter(jobsSearchSettings, parameters);
         if (isNotBlank(activityFilter)) {
             filters.add(activityFilter);
         }
-        String statusFilter = buildStatusFilter(jobsSearchSettings);
+        String statusFilter = buildStatusFilter(jobsSearchSettings, parameters);
         if (isNotBlank(statusFilter)) {
             filters.add(statusFilter);
         }
-        StringBuilder nameSb = new StringBuilder();
         if (isNotBlank(jobsSearchSettings.getName())) {
-            nameSb.append(getCorrectNameRepresentation(TRIGGER_NAME)).append(" LIKE ").append("\'%")
-                    .append(jobsSearchSettings.getName()).append("%\'");
-            filters.add(nameSb.toString());
+            filters.add(getColumn(TRIGGER_NAME) + " LIKE ?");
+            parameters.add("%" + jobsSearchSettings.getName() + "%");
         }
 
         return filters;
@@ -354,8 +382,16 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return sqlProperties.get("org.quartz.dataSource.motechDS.driver").equals(Drivers.MYSQL_DRIVER) ? name : "\"" + name.toLowerCase() + "\"";
     }
 
-    private String buildWhereCondition(JobsSearchSettings jobsSearchSettings) {
-        List<String> filters = buildFilters(jobsSearchSettings);
+    private String getTable(String name) {
+        return getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + name);
+    }
+
+    private String getColumn(String name) {
+        return "A." + getCorrectNameRepresentation(name);
+    }
+
+    private String buildWhereCondition(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
+        List<String> filters = buildFilters(jobsSearchSettings, parameters);
 
         StringBuilder sb = new StringBuilder();
         boolean addAnd = false;
@@ -372,42 +408,45 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return sb.toString();
     }
 
-    private String buildJobsBasicInfoSqlQuery(JobsSearchSettings jobsSearchSettings) {
-
-        StringBuilder sb = new StringBuilder("SELECT A.TRIGGER_NAME, A.TRIGGER_GROUP, B.JOB_DATA FROM ")
-                .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + TRIGGERS))
-                .append(" AS A JOIN ")
-                .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + JOB_DETAILS))
-                .append(" AS B")
-                .append(" ON A.TRIGGER_NAME = B.JOB_NAME AND A.TRIGGER_GROUP = B.JOB_GROUP")
-                .append(buildWhereCondition(jobsSearchSettings));
+    private String buildJobsBasicInfoSqlQuery(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
+        StringBuilder sb = new StringBuilder("SELECT A.SCHED_NAME, A.JOB_NAME, A.JOB_GROUP, A.TRIGGER_TYPE, A.TRIGGER_STATE,")
+                .append(" A.START_TIME, A.END_TIME, A.NEXT_FIRE_TIME,")
+                .append(" S.REPEAT_COUNT, S.REPEAT_INTERVAL, S.TIMES_TRIGGERED, C.CRON_EXPRESSION,")
+                .append(" P.STR_PROP_1, P.STR_PROP_2, P.INT_PROP_1, P.INT_PROP_2, P.BOOL_PROP_1, P.BOOL_PROP_2,")
+                .append(" I.UI_DEFINED, CASE WHEN I.UI_DEFINED IS NULL THEN B.JOB_DATA END AS JOB_DATA")
+                .append(" FROM ").append(getTable(TRIGGERS)).append(" AS A")
+                .append(" JOIN ").append(getTable(JOB_DETAILS)).append(" AS B")
+                .append(" ON A.SCHED_NAME = B.SCHED_NAME AND A.JOB_NAME = B.JOB_NAME AND A.JOB_GROUP = B.JOB_GROUP")
+                .append(" LEFT JOIN ").append(getTable(SIMPLE_TRIGGERS)).append(" AS S")
+                .append(" ON A.SCHED_NAME = S.SCHED_NAME AND A.TRIGGER_NAME = S.TRIGGER_NAME AND A.TRIGGER_GROUP = S.TRIGGER_GROUP")
+                .append(" LEFT JOIN ").append(getTable(CRON_TRIGGERS)).append(" AS C")
+                .append(" ON A.SCHED_NAME = C.SCHED_NAME AND A.TRIGGER_NAME = C.TRIGGER_NAME AND A.TRIGGER_GROUP = C.TRIGGER_GROUP")
+                .append(" LEFT JOIN ").append(getTable(SIMPROP_TRIGGERS)).append(" AS P")
+                .append(" ON A.SCHED_NAME = P.SCHED_NAME AND A.TRIGGER_NAME = P.TRIGGER_NAME AND A.TRIGGER_GROUP = P.TRIGGER_GROUP")
+                .append(" LEFT JOIN ").append(getCorrectNameRepresentation(JOB_INFO)).append(" AS I")
+                .append(" ON A.SCHED_NAME = I.SCHED_NAME AND A.JOB_NAME = I.JOB_NAME AND A.JOB_GROUP = I.JOB_GROUP")
+                .append(buildWhereCondition(jobsSearchSettings, parameters));
 
         if (isNotBlank(jobsSearchSettings.getSortColumn()) && isNotBlank(jobsSearchSettings.getSortDirection())) {
             sb.append(" ORDER BY ")
-                    .append("A.")
-                    .append(getCorrectNameRepresentation(getSortColumn(jobsSearchSettings.getSortColumn())))
-                    .append(" ")
-                    .append(jobsSearchSettings.getSortDirection().toUpperCase());
+                    .append(getColumn(getSortColumn(jobsSearchSettings.getSortColumn())))
+                    .append("desc".equalsIgnoreCase(jobsSearchSettings.getSortDirection()) ? " DESC" : " ASC");
         }
         if (jobsSearchSettings.getRows() != null && jobsSearchSettings.getPage() != null) {
             int offset = (jobsSearchSettings.getPage() == 0) ? 0 : (jobsSearchSettings.getPage() - 1) * jobsSearchSettings.getRows();
-            sb.append(" LIMIT ").append(jobsSearchSettings.getRows()).append(" OFFSET ").append(offset);
+            sb.append(" LIMIT ? OFFSET ?");
+            parameters.add(jobsSearchSettings.getRows());
+            parameters.add(offset);
         }
 
         return sb.toString();
     }
 
-    private String buildJobsCountSqlQuery(JobsSearchSettings jobsSearchSettings) {
+    private String buildJobsCountSqlQuery(JobsSearchSettings jobsSearchSettings, List<Object> parameters) {
         StringBuilder sb = new StringBuilder("SELECT COUNT(*) FROM ")
-            .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + TRIGGERS))
-            .append(buildWhereCondition(jobsSearchSettings));
-        return sb.toString();
-    }
-
-    private String buildJobsAllSqlQuery() {
-        StringBuilder sb = new StringBuilder("SELECT A. TRIGGER_NAME, A.TRIGGER_GROUP, B.JOB_DATA FROM ")
-            .append(getCorrectNameRepresentation(sqlProperties.get(TABLE_PREFIX).toString() + TRIGGERS))
-            .append(" AS A JOIN QRTZ_JOB_DETAILS AS B ON A.TRIGGER_NAME = B.JOB_NAME AND A.TRIGGER_GROUP = B.JOB_GROUP");
+            .append(getTable(TRIGGERS))
+            .append(" AS A")
+            .append(buildWhereCondition(jobsSearchSettings, parameters));
         return sb.toString();
     }
 
@@ -429,58 +468,75 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return sortColumn;
     }
 
-    private String getJobInfo(Trigger trigger, String jobType) throws SchedulerException {
+    private String getJobInfo(ResultSet rs, String jobType, Date startTime, Date endTime, Date nextFireTime)
+            throws SQLException {
         if (jobType.equals(JobBasicInfo.JOBTYPE_REPEATING)) {
+            OperableTrigger trigger = getRepeatingTrigger(rs);
             Integer timesTriggered = 0;
             String repeatMaxCount = "-";
 
-            if (trigger instanceof CalendarIntervalTrigger) {
-                CalendarIntervalTrigger calendarIntervalTrigger = (CalendarIntervalTrigger) trigger;
-
-                timesTriggered = calendarIntervalTrigger.getTimesTriggered();
-            } else if (trigger instanceof SimpleTrigger) {
-                SimpleTrigger simpleTrigger = (SimpleTrigger) trigger;
-
-                timesTriggered = simpleTrigger.getTimesTriggered();
+            if (trigger instanceof SimpleTriggerImpl) {
+                timesTriggered = ((SimpleTriggerImpl) trigger).getTimesTriggered();
+            } else if (trigger instanceof CalendarIntervalTriggerImpl) {
+                timesTriggered = ((CalendarIntervalTriggerImpl) trigger).getTimesTriggered();
             }
 
-            if (trigger.getEndTime() != null) {
+            if (trigger != null && endTime != null && !endTime.before(startTime)) {
+                // the trigger is rebuilt from the selected columns, so computing fire times needs no queries
+                trigger.setStartTime(startTime);
+                trigger.setEndTime(endTime);
+                trigger.setNextFireTime(nextFireTime);
+
                 repeatMaxCount = Integer.toString(TriggerUtils.computeFireTimesBetween(
-                        (OperableTrigger) trigger, null, trigger.getStartTime(), trigger.getEndTime()
+                        trigger, null, startTime, endTime
                 ).size() + timesTriggered);
             }
 
             return String.format("%d/%s", timesTriggered, repeatMaxCount);
         } else if (jobType.equals(JobBasicInfo.JOBTYPE_CRON)) {
-            CronScheduleBuilder cronScheduleBuilder = (CronScheduleBuilder) trigger.getScheduleBuilder();
-
-            CronTrigger cronTrigger = (CronTrigger) cronScheduleBuilder.build();
-
-            return cronTrigger.getCronExpression();
+            String cronExpression = rs.getString(CRON_EXPRESSION);
+            return cronExpression == null ? "-" : cronExpression;
         } else {
             return "-";
         }
     }
 
-    private String getJobType(JobKey jobKey) throws SchedulerException {
-        if (jobKey.getName().endsWith(RunOnceJobId.SUFFIX_RUNONCEJOBID)) {
-            return JobBasicInfo.JOBTYPE_RUNONCE;
-        } else if (jobKey.getName().endsWith(RepeatingJobId.SUFFIX_REPEATJOBID)) {
-            return JobBasicInfo.JOBTYPE_REPEATING;
-        } else if (jobKey.getName().endsWith(RepeatingPeriodJobId.SUFFIX_REPEATPERIODJOBID)) {
-            return JobBasicInfo.JOBTYPE_PERIOD;
+    private OperableTrigger getRepeatingTrigger(ResultSet rs) throws SQLException {
+        String triggerType = rs.getString(TRIGGER_TYPE);
+
+        if (TYPE_SIMPLE.equals(triggerType)) {
+            SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+            trigger.setRepeatCount(rs.getInt(REPEAT_COUNT));
+            trigger.setRepeatInterval(rs.getLong(REPEAT_INTERVAL));
+            trigger.setTimesTriggered(rs.getInt(TIMES_TRIGGERED));
+            return trigger;
+        } else if (TYPE_CALENDAR_INTERVAL.equals(triggerType)) {
+            CalendarIntervalTriggerImpl trigger = new CalendarIntervalTriggerImpl();
+            trigger.setRepeatIntervalUnit(DateBuilder.IntervalUnit.valueOf(rs.getString(INTERVAL_UNIT)));
+            trigger.setRepeatInterval(rs.getInt(CALENDAR_INTERVAL));
+            trigger.setTimesTriggered(rs.getInt(CALENDAR_TIMES_TRIGGERED));
+            if (rs.getString(TIME_ZONE) != null) {
+                trigger.setTimeZone(TimeZone.getTimeZone(rs.getString(TIME_ZONE)));
+            }
+            trigger.setPreserveHourOfDayAcrossDaylightSavings(rs.getBoolean(PRESERVE_HOUR));
+            trigger.setSkipDayIfHourDoesNotExist(rs.getBoolean(SKIP_DAY));
+            return trigger;
         } else {
-            return JobBasicInfo.JOBTYPE_CRON;
+            return null;
         }
     }
 
-    private String getStartDate(Trigger trigger) throws SchedulerException {
-        return DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(trigger.getStartTime().getTime());
+    private Date getTime(long millis) {
+        return millis > 0 ? new Date(millis) : null;
     }
 
-    private String getEndDate(Trigger trigger, String jobType) throws SchedulerException {
-        DateTime endDateTime = new DateTime(trigger.getEndTime());
-        String startDate = getStartDate(trigger);
+    private String getStartDate(Date startTime) {
+        return DateTimeFormat.forPattern(DATE_FORMAT_PATTERN).print(startTime.getTime());
+    }
+
+    private String getEndDate(Date startTime, Date endTime, String jobType) {
+        DateTime endDateTime = new DateTime(endTime);
+        String startDate = getStartDate(startTime);
         String endDate;
 
         if (!endDateTime.isAfterNow()) {
@@ -496,26 +552,25 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
         return endDate;
     }
 
-    private String getJobActivity(Trigger trigger) throws SchedulerException {
-        DateTime startDateTime = new DateTime(trigger.getStartTime());
-        DateTime endDateTime = new DateTime(trigger.getEndTime());
+    private String getJobActivity(Date startTime, Date endTime) {
+        DateTime startDateTime = new DateTime(startTime);
 
         if (startDateTime.isAfterNow()) {
             return JobBasicInfo.ACTIVITY_NOTSTARTED;
-        } else if (endDateTime.isBeforeNow()) {
+        } else if (endTime != null && new DateTime(endTime).isBeforeNow()) {
             return  JobBasicInfo.ACTIVITY_FINISHED;
         } else {
             return JobBasicInfo.ACTIVITY_ACTIVE;
         }
     }
 
-    private String getJobStatus(TriggerKey triggerKey) throws SchedulerException {
-        Trigger.TriggerState currentTriggerState = scheduler.getTriggerState(triggerKey);
-        if (currentTriggerState == Trigger.TriggerState.ERROR) {
+    private String getJobStatus(String triggerState) {
+        // the states stored by Quartz, mapped the same way Scheduler#getTriggerState maps them
+        if (Trigger.TriggerState.ERROR.toString().equals(triggerState)) {
             return JobBasicInfo.STATUS_ERROR;
-        } else if (currentTriggerState == Trigger.TriggerState.BLOCKED) {
+        } else if (Trigger.TriggerState.BLOCKED.toString().equals(triggerState)) {
             return JobBasicInfo.STATUS_BLOCKED;
-        } else if (currentTriggerState == Trigger.TriggerState.PAUSED) {
+        } else if (Trigger.TriggerState.PAUSED.toString().equals(triggerState) || PAUSED_BLOCKED.equals(triggerState)) {
             return JobBasicInfo.STATUS_PAUSED;
         } else {
             return JobBasicInfo.STATUS_OK;
@@ -523,14 +578,14 @@ public class MotechSchedulerDatabaseServiceImpl implements MotechSchedulerDataba
     }
 
     private boolean getUiDefined(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (bytes == null) {
+            return false;
+        }
+
         try (InputStream is = new ByteArrayInputStream(bytes);
              ObjectInputStream ois = new ObjectInputStream(is)) {
             JobDataMap jobDataMap = (JobDataMap) ois.readObject();
-            return isUiDefined(jobDataMap);
+            return JobInfoStore.isUiDefined(jobDataMap);
         }
     }
-
-    private boolean isUiDefined(JobDataMap jobDataMap) {
-        return jobDataMap.get(SchedulerConstants.EVENT_METADATA) != null &&  (Boolean) ((Map<String, Object>) jobDataMap.get(SchedulerConstants.EVENT_METADATA)).get(UI_DEFINED);
-    }
-}
\ No newline at end of file
+}
@@ -12,6 +12,7 @@ import org.motechproject.scheduler.contract.CronSchedulableJob;
 import org.motechproject.scheduler.contract.DayOfWeekSchedulableJob;
 import org.motechproject.scheduler.contract.JobBasicInfo;
 import org.motechproject.scheduler.contract.JobId;
+import org.motechproject.scheduler.contract.JobSchedulingFailure;
 import org.motechproject.scheduler.contract.MisfireSchedulableJob;
 import org.motechproject.scheduler.contract.RepeatingJobId;
 import org.motechproject.scheduler.contract.RepeatingPeriodJobId;
@@ -39,8 +40,6 @@ import org.quartz.SimpleTrigger;
 import org.quartz.Trigger;
 import org.quartz.TriggerKey;
 import org.quartz.TriggerUtils;
-import org.quartz.impl.calendar.BaseCalendar;
-import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.triggers.CronTriggerImpl;
 import org.quartz.spi.OperableTrigger;
 import org.slf4j.Logger;
@@ -50,9 +49,12 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,6 +62,7 @@ import java.util.Set;
 import static java.lang.String.format;
 import static org.motechproject.commons.date.util.DateUtil.newDateTime;
 import static org.motechproject.commons.date.util.DateUtil.now;
+import static org.motechproject.config.SettingsUtils.getIntProperty;
 import static org.motechproject.scheduler.constants.SchedulerConstants.EVENT_METADATA;
 import static org.motechproject.scheduler.constants.SchedulerConstants.EVENT_TYPE_KEY_NAME;
 import static org.motechproject.scheduler.constants.SchedulerConstants.IGNORE_PAST_FIRES_AT_START;
@@ -90,20 +93,34 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     private static final int MAX_REPEAT_COUNT = 999999;
     private static final int MILLISECOND = 1000;
     private static final String LOG_SUBJECT_EXTERNAL_ID = "subject: %s, externalId: %s";
+    private static final String BULK_CHUNK_SIZE = "scheduler.bulk.chunk.size";
+    private static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+    private static final String FIRE_TIMES_CACHE_SIZE = "scheduler.fire.times.cache.size";
+    private static final int DEFAULT_FIRE_TIMES_CACHE_SIZE = 1000;
 
     private SettingsFacade schedulerSettings;
 
     private Scheduler scheduler;
 
+    private TriggerKeyFinder triggerKeyFinder;
+
+    private JobInfoStore jobInfoStore;
+
+    private FireTimeCache fireTimeCache;
+
     private Map<String, Integer> cronTriggerMisfirePolicies;
     private Map<String, Integer> simpleTriggerMisfirePolicies;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MotechSchedulerServiceImpl.class);
 
     @Autowired
-    public MotechSchedulerServiceImpl(MotechSchedulerFactoryBean motechSchedulerFactoryBean, SettingsFacade schedulerSettings) {
+    public MotechSchedulerServiceImpl(MotechSchedulerFactoryBean motechSchedulerFactoryBean, SettingsFacade schedulerSettings,
+                                      TriggerKeyFinder triggerKeyFinder, JobInfoStore jobInfoStore) {
         this.schedulerSettings = schedulerSettings;
         this.scheduler = motechSchedulerFactoryBean.getQuartzScheduler();
+        this.triggerKeyFinder = triggerKeyFinder;
+        this.jobInfoStore = jobInfoStore;
+        this.fireTimeCache = new FireTimeCache(getPositiveIntProperty(FIRE_TIMES_CACHE_SIZE, DEFAULT_FIRE_TIMES_CACHE_SIZE));
         constructMisfirePoliciesMaps();
     }
 
@@ -137,6 +154,36 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         scheduleJob(job, false);
     }
 
+    @Override
+    public List<JobSchedulingFailure> scheduleJobs(Collection<? extends SchedulableJob> jobs) {
+        List<JobSchedulingFailure> failures = new ArrayList<>();
+        // keyed by job, so that a job repeated in the same chunk is scheduled once, with its last definition
+        Map<JobKey, QuartzJob> chunk = new LinkedHashMap<>();
+        int chunkSize = getBulkChunkSize();
+
+        for (SchedulableJob job : jobs) {
+            try {
+                QuartzJob quartzJob = buildJob(job);
+                chunk.remove(quartzJob.getJobDetail().getKey());
+                chunk.put(quartzJob.getJobDetail().getKey(), quartzJob);
+            } catch (MotechSchedulerException | IllegalArgumentException e) {
+                LOGGER.debug("Job {} failed the validation", job, e);
+                failures.add(new JobSchedulingFailure(job, e.getMessage()));
+            }
+
+            if (chunk.size() >= chunkSize) {
+                storeChunk(chunk.values(), failures);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            storeChunk(chunk.values(), failures);
+        }
+
+        return failures;
+    }
+
     @Override
     public void safeScheduleJob(CronSchedulableJob cronSchedulableJob) {
         logObjectIfNotNull(cronSchedulableJob);
@@ -246,6 +293,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                 .build();
 
         try {
+            fireTimeCache.invalidate(newTrigger.getKey());
             scheduler.rescheduleJob(triggerKey(jobId.value(), JOB_GROUP_NAME), newTrigger);
         } catch (SchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not reschedule the job: %s %s", jobId, e.getMessage()), e);
@@ -290,20 +338,32 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         unscheduleJob(jobId.value());
     }
 
+    @Override
+    public void unscheduleJobs(Collection<? extends JobId> jobIds) {
+        List<TriggerKey> triggerKeys = new ArrayList<>(jobIds.size());
+        for (JobId jobId : jobIds) {
+            assertArgumentNotNull("ScheduledJobID", jobId);
+            triggerKeys.add(triggerKey(jobId.value(), JOB_GROUP_NAME));
+        }
+
+        try {
+            unscheduleJobs(triggerKeys);
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(String.format("Can not unschedule %d jobs: %s",
+                    triggerKeys.size(), e.getMessage()), e);
+        }
+    }
+
     @Override
     public void unscheduleAllJobs(String jobIdPrefix) {
         try {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Unscheduling jobs with prefix: ", jobIdPrefix);
             }
-            List<TriggerKey> triggerKeys = new ArrayList<>(scheduler.getTriggerKeys(GroupMatcher.triggerGroupContains(JOB_GROUP_NAME)));
-            List<String> triggerNames = extractTriggerNames(triggerKeys);
-            for (String triggerName : triggerNames) {
-                if (StringUtils.isNotEmpty(jobIdPrefix) && triggerName.contains(jobIdPrefix)) {
-                    unscheduleJob(triggerName);
-                }
+            if (StringUtils.isNotEmpty(jobIdPrefix)) {
+                unscheduleJobs(triggerKeyFinder.findTriggerKeys(jobIdPrefix, JOB_GROUP_NAME));
             }
-        } catch (SchedulerException e) {
+        } catch (SchedulerException | MotechSchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not unschedule jobs given jobIdPrefix: %s %s",
                     jobIdPrefix, e.getMessage()), e);
         }
@@ -349,19 +409,29 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
     @Override
     public void safeUnscheduleAllJobs(String jobIdPrefix) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(format("Safe unscheduling the Jobs given jobIdPrefix: %s", jobIdPrefix));
+        }
+        if (StringUtils.isEmpty(jobIdPrefix)) {
+            return;
+        }
+
+        List<TriggerKey> triggerKeys;
         try {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(format("Safe unscheduling the Jobs given jobIdPrefix: %s", jobIdPrefix));
-            }
-            List<TriggerKey> triggerKeys = new ArrayList<>(scheduler.getTriggerKeys(GroupMatcher.triggerGroupContains(JOB_GROUP_NAME)));
-            List<String> triggerNames = extractTriggerNames(triggerKeys);
-            for (String triggerName : triggerNames) {
-                if (StringUtils.isNotEmpty(jobIdPrefix) && triggerName.contains(jobIdPrefix)) {
-                    safeUnscheduleJob(triggerName);
-                }
-            }
-        } catch (SchedulerException e) {
+            triggerKeys = triggerKeyFinder.findTriggerKeys(jobIdPrefix, JOB_GROUP_NAME);
+        } catch (MotechSchedulerException e) {
             LOGGER.error("Unable to unschedule all jobs with jobIdPrefix {}", jobIdPrefix, e);
+            return;
+        }
+
+        try {
+            unscheduleJobs(triggerKeys);
+        } catch (SchedulerException e) {
+            LOGGER.error("Unable to unschedule jobs with jobIdPrefix {} in batches, unscheduling them one by one",
+                    jobIdPrefix, e);
+            for (TriggerKey triggerKey : triggerKeys) {
+                safeUnscheduleJob(triggerKey.getName());
+            }
         }
     }
 
@@ -398,6 +468,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         try {
             JobKey key = new JobKey(info.getName(), info.getGroup());
             validateJob(key);
+            fireTimeCache.invalidate(triggerKey(info.getName(), info.getGroup()));
             scheduler.deleteJob(key);
         } catch (MotechSchedulerException | SchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not delete the job:\n %s\n%s\n%s",
@@ -458,8 +529,11 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         Trigger trigger;
         try {
             trigger = scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
-            return DateUtil.datesToDateTimes(TriggerUtils.computeFireTimesBetween(
-                    (OperableTrigger) trigger, new BaseCalendar(), DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
+            if (trigger == null) {
+                return new ArrayList<>();
+            }
+            return DateUtil.datesToDateTimes(fireTimeCache.getFireTimes(
+                    (OperableTrigger) trigger, DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
 
         } catch (SchedulerException e) {
             throw new MotechSchedulerException(String.format(
@@ -469,8 +543,8 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     }
 
     /*
-     * Loads all triggers and then loops over them to find the applicable trigger using string comparison. This
-     * will work regardless of the jobId being cron or repeating.
+     * Finds the triggers whose names start with the job ID prefix, so this will work regardless of the jobId being
+     * cron or repeating.
      */
     @Override
     public List<DateTime> getScheduledJobTimingsWithPrefix(
@@ -479,17 +553,18 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         JobId jobId = new CronJobId(subject, externalJobIdPrefix);
         List<Date> messageTimings = new ArrayList<>();
         try {
-            List<TriggerKey> triggerKeys = new ArrayList<TriggerKey>(
-                    scheduler.getTriggerKeys(GroupMatcher.triggerGroupContains(JOB_GROUP_NAME)));
-            for (TriggerKey triggerKey : triggerKeys) {
-                if (StringUtils.isNotEmpty(externalJobIdPrefix) && triggerKey.getName().contains(jobId.value())) {
+            if (StringUtils.isNotEmpty(externalJobIdPrefix)) {
+                for (TriggerKey triggerKey : triggerKeyFinder.findTriggerKeys(jobId.value(), JOB_GROUP_NAME)) {
                     Trigger trigger = scheduler.getTrigger(triggerKey);
-                    messageTimings.addAll(TriggerUtils.computeFireTimesBetween(
-                            (OperableTrigger) trigger, new BaseCalendar(), DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
+                    // the trigger could have been unscheduled after its key was found
+                    if (trigger != null) {
+                        messageTimings.addAll(fireTimeCache.getFireTimes(
+                                (OperableTrigger) trigger, DateUtil.toDate(startDate), DateUtil.toDate(endDate)));
+                    }
                 }
             }
 
-        } catch (SchedulerException e) {
+        } catch (SchedulerException | MotechSchedulerException e) {
             throw new MotechSchedulerException(String.format(
                     "Can not get scheduled job timings given subject and externalJobIdPrefix for dates : %s %s %s %s %s",
                     subject, externalJobIdPrefix, startDate.toString(), endDate.toString(), e.getMessage()), e);
@@ -523,6 +598,24 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     }
 
     private void scheduleCronJob(CronSchedulableJob job, boolean isDayOfWeek, boolean update) {
+        QuartzJob quartzJob = buildCronJob(job, isDayOfWeek);
+        String jobId = quartzJob.getJobDetail().getKey().getName();
+
+        Trigger existingTrigger;
+        try {
+            existingTrigger = scheduler.getTrigger(triggerKey(jobId, JOB_GROUP_NAME));
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
+                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId, e.getMessage()), e);
+        }
+        if (existingTrigger != null) {
+            unscheduleJob(jobId);
+        }
+
+        scheduleJob(quartzJob.getJobDetail(), quartzJob.getTrigger(), update);
+    }
+
+    private QuartzJob buildCronJob(CronSchedulableJob job, boolean isDayOfWeek) {
         logObjectIfNotNull(job);
 
         validateCronSchedulableJob(job);
@@ -556,17 +649,6 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                 .endAt(DateUtil.toDate(job.getEndDate()))
                 .build();
 
-        Trigger existingTrigger;
-        try {
-            existingTrigger = scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME));
-        } catch (SchedulerException e) {
-            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
-                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
-        }
-        if (existingTrigger != null) {
-            unscheduleJob(jobId.value());
-        }
-
         DateTime now = now();
 
         if (job.isIgnorePastFiresAtStart() && (job.getStartDate() == null || job.getStartDate().isBefore(now))) {
@@ -585,10 +667,26 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                     .build();
         }
 
-        scheduleJob(jobDetail, trigger, update);
+        return new QuartzJob(jobDetail, trigger);
     }
 
     private void scheduleRepeatingJob(RepeatingSchedulableJob job, boolean update) {
+        QuartzJob quartzJob = buildRepeatingJob(job);
+        JobId jobId = new RepeatingJobId(job.getMotechEvent());
+
+        try {
+            if (scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME)) != null) {
+                unscheduleJob(jobId);
+            }
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
+                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
+        }
+
+        scheduleJob(quartzJob.getJobDetail(), quartzJob.getTrigger(), update);
+    }
+
+    private QuartzJob buildRepeatingJob(RepeatingSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateRepeatingSchedulableJob(job);
@@ -614,15 +712,6 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         jobDetail.getJobDataMap().put(EVENT_METADATA, createMetadataForMisfireSchedulableJob(job, motechEvent));
 
-        try {
-            if (scheduler.getTrigger(triggerKey(jobId.value(), JOB_GROUP_NAME)) != null) {
-                unscheduleJob(jobId);
-            }
-        } catch (SchedulerException e) {
-            throw new MotechSchedulerException(format("Schedule or reschedule the job: %s.\n%s", jobId, e.getMessage()),
-                    "scheduler.error.cantRescheduleJob", Arrays.asList(jobId.value(), e.getMessage()), e);
-        }
-
         ScheduleBuilder scheduleBuilder;
         if (!job.isUseOriginalFireTimeAfterMisfire()) {
             SimpleScheduleBuilder simpleSchedule = simpleSchedule()
@@ -644,7 +733,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         Trigger trigger = buildJobDetail(job, DateUtil.toDate(jobStartTime),
                 DateUtil.toDate(jobEndTime), jobId, jobDetail, scheduleBuilder);
-        scheduleJob(jobDetail, trigger, update);
+        return new QuartzJob(jobDetail, trigger);
     }
 
     private Map<String, Object> createMetadataForMisfireSchedulableJob(MisfireSchedulableJob job, MotechEvent event) {
@@ -659,6 +748,11 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
     }
 
     private void scheduleRepeatingPeriodJob(RepeatingPeriodSchedulableJob job, boolean update) {
+        QuartzJob quartzJob = buildRepeatingPeriodJob(job);
+        scheduleJob(quartzJob.getJobDetail(), quartzJob.getTrigger(), update);
+    }
+
+    private QuartzJob buildRepeatingPeriodJob(RepeatingPeriodSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateRepeatingPeriodSchedulableJob(job);
@@ -680,10 +774,15 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
 
         Trigger trigger = buildJobDetail(job, DateUtil.toDate(job.getStartDate()),
                 DateUtil.toDate(job.getEndDate()), jobId, jobDetail, scheduleBuilder);
-        scheduleJob(jobDetail, trigger, update);
+        return new QuartzJob(jobDetail, trigger);
     }
 
     private void scheduleRunOnceJob(RunOnceSchedulableJob job, boolean update) {
+        QuartzJob quartzJob = buildRunOnceJob(job);
+        scheduleJob(quartzJob.getJobDetail(), quartzJob.getTrigger(), update);
+    }
+
+    private QuartzJob buildRunOnceJob(RunOnceSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateRunOnceSchedulableJob(job);
@@ -713,10 +812,14 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                 .startAt(DateUtil.toDate(job.getStartDate()))
                 .build();
 
-        scheduleJob(jobDetail, trigger, update);
+        return new QuartzJob(jobDetail, trigger);
     }
 
     private void scheduleDayOfWeekJob(DayOfWeekSchedulableJob job, boolean update) {
+        scheduleCronJob(toCronSchedulableJob(job), true, update);
+    }
+
+    private CronSchedulableJob toCronSchedulableJob(DayOfWeekSchedulableJob job) {
         logObjectIfNotNull(job);
 
         validateDayOfWeekSchedulableJob(job);
@@ -729,10 +832,8 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
                         .toArray(new Integer[job.getCronDays().size()]));
 
         CronTriggerImpl cronTrigger = (CronTriggerImpl) cronScheduleBuilder.build();
-        CronSchedulableJob cronSchedulableJob = new CronSchedulableJob(motechEvent, cronTrigger.getCronExpression(),
+        return new CronSchedulableJob(motechEvent, cronTrigger.getCronExpression(),
                 job.getStartDate(), job.getEndDate(), job.isIgnorePastFiresAtStart(), job.isUiDefined());
-
-        scheduleCronJob(cronSchedulableJob, true, update);
     }
 
     private void scheduleJob(SchedulableJob job, boolean update) {
@@ -749,6 +850,27 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         }
     }
 
+    private QuartzJob buildJob(SchedulableJob job) {
+        QuartzJob quartzJob;
+
+        if (job instanceof CronSchedulableJob) {
+            quartzJob = buildCronJob((CronSchedulableJob) job, false);
+        } else if (job instanceof DayOfWeekSchedulableJob) {
+            quartzJob = buildCronJob(toCronSchedulableJob((DayOfWeekSchedulableJob) job), true);
+        } else if (job instanceof RepeatingSchedulableJob) {
+            quartzJob = buildRepeatingJob((RepeatingSchedulableJob) job);
+        } else if (job instanceof RepeatingPeriodSchedulableJob) {
+            quartzJob = buildRepeatingPeriodJob((RepeatingPeriodSchedulableJob) job);
+        } else if (job instanceof RunOnceSchedulableJob) {
+            quartzJob = buildRunOnceJob((RunOnceSchedulableJob) job);
+        } else {
+            throw new IllegalArgumentException("Unsupported job type: " + (job == null ? null : job.getClass().getName()));
+        }
+
+        quartzJob.schedulableJob = job;
+        return quartzJob;
+    }
+
     private void scheduleJob(JobDetail jobDetail, Trigger trigger) {
         scheduleJob(jobDetail, trigger, false);
     }
@@ -760,12 +882,15 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         try {
             Set<Trigger> triggerSet = new HashSet<>();
             triggerSet.add(trigger);
+            fireTimeCache.invalidate(trigger.getKey());
             scheduler.scheduleJob(jobDetail, triggerSet, update);
         } catch (SchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not schedule the job:\n %s\n%s\n%s",
                     jobDetail.toString(), trigger.toString(), e.getMessage()),
                     "scheduler.error.schedulerError", Arrays.asList(e.getMessage()), e);
         }
+
+        jobInfoStore.save(Collections.singletonList(jobDetail));
     }
 
     private void unscheduleJob(String jobId) {
@@ -774,6 +899,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         }
         try {
             assertArgumentNotNull("ScheduledJobID", jobId);
+            fireTimeCache.invalidate(triggerKey(jobId, JOB_GROUP_NAME));
             scheduler.unscheduleJob(triggerKey(jobId, JOB_GROUP_NAME));
         } catch (SchedulerException e) {
             throw new MotechSchedulerException(String.format("Can not unschedule the job: %s %s",
@@ -787,6 +913,7 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         }
         try {
             assertArgumentNotNull("ScheduledJobID", jobId);
+            fireTimeCache.invalidate(triggerKey(jobId, JOB_GROUP_NAME));
             scheduler.unscheduleJob(triggerKey(jobId, JOB_GROUP_NAME));
         } catch (SchedulerException e) {
             LOGGER.error("Unable to unschedule job with ID {}", jobId, e);
@@ -919,12 +1046,74 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         jobDataMap.put(EVENT_TYPE_KEY_NAME, motechEvent.getSubject());
     }
 
-    private List<String> extractTriggerNames(List<TriggerKey> triggerKeys) {
-        List<String> names = new ArrayList<>();
-        for (TriggerKey key : triggerKeys) {
-            names.add(key.getName());
+    // a chunk which cannot be stored is rolled back as a whole, so all its jobs are reported as failed
+    private void storeChunk(Collection<QuartzJob> quartzJobs, List<JobSchedulingFailure> failures) {
+        try {
+            storeJobs(quartzJobs);
+        } catch (MotechSchedulerException e) {
+            LOGGER.error("Unable to store a chunk of {} jobs", quartzJobs.size(), e);
+            for (QuartzJob quartzJob : quartzJobs) {
+                failures.add(new JobSchedulingFailure(quartzJob.getSchedulableJob(), e.getMessage()));
+            }
+        }
+    }
+
+    private void storeJobs(Collection<QuartzJob> quartzJobs) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Scheduling {} jobs", quartzJobs.size());
+        }
+
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new LinkedHashMap<>();
+        List<TriggerKey> triggerKeys = new ArrayList<>(quartzJobs.size());
+        for (QuartzJob quartzJob : quartzJobs) {
+            triggersAndJobs.put(quartzJob.getJobDetail(), Collections.singleton(quartzJob.getTrigger()));
+            triggerKeys.add(quartzJob.getTrigger().getKey());
+        }
+        fireTimeCache.invalidate(triggerKeys);
+
+        try {
+            // the whole chunk is stored in a single job store transaction
+            scheduler.scheduleJobs(triggersAndJobs, true);
+        } catch (SchedulerException e) {
+            throw new MotechSchedulerException(String.format("Can not schedule %d jobs: %s",
+                    quartzJobs.size(), e.getMessage()),
+                    "scheduler.error.schedulerError", Arrays.asList(e.getMessage()), e);
+        }
+
+        jobInfoStore.save(triggersAndJobs.keySet());
+    }
+
+    private void unscheduleJobs(List<TriggerKey> triggerKeys) throws SchedulerException {
+        int chunkSize = getBulkChunkSize();
+        int failedCount = 0;
+        SchedulerException failure = null;
+
+        fireTimeCache.invalidate(triggerKeys);
+
+        // every chunk is removed in a single job store transaction, a failed chunk does not stop the following ones
+        for (int i = 0; i < triggerKeys.size(); i += chunkSize) {
+            List<TriggerKey> chunk = triggerKeys.subList(i, Math.min(i + chunkSize, triggerKeys.size()));
+            try {
+                scheduler.unscheduleJobs(chunk);
+            } catch (SchedulerException e) {
+                LOGGER.error("Unable to unschedule a chunk of {} jobs", chunk.size(), e);
+                failedCount += chunk.size();
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw new SchedulerException(String.format("%d of %d jobs were not unscheduled: %s",
+                    failedCount, triggerKeys.size(), failure.getMessage()), failure);
         }
-        return names;
+    }
+
+    private int getBulkChunkSize() {
+        return getPositiveIntProperty(BULK_CHUNK_SIZE, DEFAULT_BULK_CHUNK_SIZE);
+    }
+
+    private int getPositiveIntProperty(String key, int defaultValue) {
+        return Math.max(1, getIntProperty(schedulerSettings, key, defaultValue));
     }
 
     private void constructMisfirePoliciesMaps() {
@@ -941,4 +1130,31 @@ public class MotechSchedulerServiceImpl implements MotechSchedulerService {
         simpleTriggerMisfirePolicies.put("reschedule_now_with_existing_count", SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_EXISTING_REPEAT_COUNT);
         simpleTriggerMisfirePolicies.put("reschedule_now_with_remaining_count", SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_REMAINING_REPEAT_COUNT);
     }
+
+    /**
+     * A job detail together with its trigger, ready to be stored in the job store.
+     */
+    private static final class QuartzJob {
+
+        private final JobDetail jobDetail;
+        private final Trigger trigger;
+        private SchedulableJob schedulableJob;
+
+        private QuartzJob(JobDetail jobDetail, Trigger trigger) {
+            this.jobDetail = jobDetail;
+            this.trigger = trigger;
+        }
+
+        public JobDetail getJobDetail() {
+            return jobDetail;
+        }
+
+        public Trigger getTrigger() {
+            return trigger;
+        }
+
+        public SchedulableJob getSchedulableJob() {
+            return schedulableJob;
+        }
+    }
 }
@@ -0,0 +1,281 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.motechproject.config.SettingsUtils.getIntProperty;
+
+/**
+ * Publishes the events of fired jobs, so that Quartz worker threads do not wait for the event system. The events are
+ * put in a bounded queue, from which a single publisher thread sends them in batches through the
+ * {@link EventRelay}. When the queue is full, the event is sent by the firing thread, which slows down firing
+ * instead of dropping events. When a batch cannot be sent, its events are sent one by one, so that a single failure
+ * does not lose the whole batch.
+ * <p>
+ * The publisher registers itself in the scheduler context under {@link #CONTEXT_KEY}, where
+ * {@link org.motechproject.scheduler.service.MotechScheduledJob} finds it. It also keeps the fire lag of jobs, that is
+ * the difference between their scheduled and actual fire times, and counts the misfired triggers.
+ * <p>
+ * Setting <code>scheduler.fire.queue.capacity</code> to 0 sends the events in the firing threads. Events still queued
+ * when the module stops are sent before it stops, but events queued when the server crashes are lost. Events of jobs
+ * fired after the shutdown has started are sent by the firing threads.
+ */
+@Component
+public class ScheduledEventPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledEventPublisher.class);
+
+    public static final String CONTEXT_KEY = "scheduledEventPublisher";
+    public static final String QUEUE_CAPACITY_KEY = "scheduler.fire.queue.capacity";
+    public static final String BATCH_SIZE_KEY = "scheduler.fire.batch.size";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final long POLL_TIMEOUT_MILLIS = 1000L;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000L;
+    private static final String MISFIRE_LISTENER_NAME = "motechMisfireCounter";
+
+    private final EventRelay eventRelay;
+    private final MotechSchedulerFactoryBean motechSchedulerFactoryBean;
+    private final BlockingQueue<MotechEvent> queue;
+    private final int batchSize;
+
+    private final DurationStatistics fireLag = new DurationStatistics();
+    private final DurationStatistics publishTime = new DurationStatistics();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong inlineCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong misfireCount = new AtomicLong();
+
+    // held for reading while an event is queued, so that no event is queued after the shutdown has drained the queue
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread publisherThread;
+
+    @Autowired
+    public ScheduledEventPublisher(EventRelay eventRelay, MotechSchedulerFactoryBean motechSchedulerFactoryBean,
+                                   @Qualifier("schedulerSettings") SettingsFacade schedulerSettings) {
+        this.eventRelay = eventRelay;
+        this.motechSchedulerFactoryBean = motechSchedulerFactoryBean;
+
+        int queueCapacity = getIntProperty(schedulerSettings, QUEUE_CAPACITY_KEY, DEFAULT_QUEUE_CAPACITY);
+        this.queue = queueCapacity > 0 ? new ArrayBlockingQueue<MotechEvent>(queueCapacity) : null;
+        this.batchSize = Math.max(1, getIntProperty(schedulerSettings, BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE));
+    }
+
+    @PostConstruct
+    public void start() throws SchedulerException {
+        if (queue != null) {
+            running = true;
+            publisherThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    publishQueuedEvents();
+                }
+            }, "motech-scheduler-publisher");
+            publisherThread.setDaemon(true);
+            publisherThread.start();
+        }
+
+        Scheduler scheduler = motechSchedulerFactoryBean.getQuartzScheduler();
+        scheduler.getListenerManager().addTriggerListener(new TriggerListenerSupport() {
+            @Override
+            public String getName() {
+                return MISFIRE_LISTENER_NAME;
+            }
+
+            @Override
+            public void triggerMisfired(Trigger trigger) {
+                misfireCount.incrementAndGet();
+            }
+        });
+        scheduler.getContext().put(CONTEXT_KEY, this);
+    }
+
+    /**
+     * Publishes the event of a fired job.
+     *
+     * @param event the event to publish
+     * @param scheduledFireTime the time at which the job was scheduled to fire
+     * @param fireTime the time at which the job has actually fired
+     */
+    public void publish(MotechEvent event, Date scheduledFireTime, Date fireTime) {
+        if (scheduledFireTime != null && fireTime != null) {
+            fireLag.record(fireTime.getTime() - scheduledFireTime.getTime(), TimeUnit.MILLISECONDS);
+        }
+
+        if (!enqueue(event)) {
+            send(event);
+        }
+    }
+
+    /**
+     * Returns statistics of the differences between the scheduled and actual fire times of jobs.
+     *
+     * @return the fire lag statistics
+     */
+    public DurationStatistics getFireLag() {
+        return fireLag;
+    }
+
+    /**
+     * Returns statistics of time spent on sending batches of events.
+     *
+     * @return the publish time statistics
+     */
+    public DurationStatistics getPublishTime() {
+        return publishTime;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * Returns the number of events which were sent by the firing threads, because the queue was full.
+     *
+     * @return the number of events sent outside of the publisher thread
+     */
+    public long getInlineCount() {
+        return inlineCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getMisfireCount() {
+        return misfireCount.get();
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        try {
+            Scheduler scheduler = motechSchedulerFactoryBean.getQuartzScheduler();
+            scheduler.getContext().remove(CONTEXT_KEY);
+            scheduler.getListenerManager().removeTriggerListener(MISFIRE_LISTENER_NAME);
+        } catch (SchedulerException e) {
+            LOGGER.warn("Unable to unregister the scheduled event publisher", e);
+        }
+
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+
+        if (publisherThread != null) {
+            publisherThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            // events queued after the publisher thread has stopped, no more events are queued at this point
+            List<MotechEvent> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                send(remaining);
+            }
+        }
+    }
+
+    private boolean enqueue(MotechEvent event) {
+        if (queue == null) {
+            return false;
+        }
+
+        runningLock.readLock().lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            if (!queue.offer(event)) {
+                inlineCount.incrementAndGet();
+                return false;
+            }
+            return true;
+        } finally {
+            runningLock.readLock().unlock();
+        }
+    }
+
+    private void publishQueuedEvents() {
+        List<MotechEvent> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                MotechEvent event = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+
+                batch.add(event);
+                queue.drainTo(batch, batchSize - 1);
+
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(MotechEvent event) {
+        try {
+            eventRelay.sendEventMessage(event);
+            publishedCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            LOGGER.error("Unable to publish the event of a fired job: {}", event.getSubject(), e);
+        }
+    }
+
+    private void send(List<MotechEvent> events) {
+        long start = System.nanoTime();
+
+        try {
+            eventRelay.sendEventMessages(events);
+            publishedCount.addAndGet(events.size());
+        } catch (RuntimeException e) {
+            // the batch is rolled back as a whole, so its events are retried one by one
+            LOGGER.warn("Unable to publish the events of {} fired jobs in a batch, sending them one by one",
+                    events.size(), e);
+            for (MotechEvent event : events) {
+                send(event);
+            }
+        } finally {
+            publishTime.record(System.nanoTime() - start);
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Published the events of {} fired jobs", events.size());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.motechproject.commons.sql.util.Drivers;
+import org.motechproject.scheduler.exception.MotechSchedulerException;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.quartz.utils.DBConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Finds the keys of triggers whose names start with a given prefix. The lookup is done with a single
+ * <code>LIKE 'prefix%'</code> query, which is answered from the trigger name index, so that its cost depends on the
+ * number of matching triggers rather than on the number of all scheduled triggers.
+ */
+@Component
+public class TriggerKeyFinder {
+
+    private static final String DATA_SOURCE = "org.quartz.jobStore.dataSource";
+    private static final String TABLE_PREFIX = "org.quartz.jobStore.tablePrefix";
+    private static final String DRIVER = "org.quartz.dataSource.motechDS.driver";
+    private static final char ESCAPE = '!';
+
+    private Properties sqlProperties;
+
+    private MotechSchedulerFactoryBean motechSchedulerFactoryBean;
+
+    /**
+     * Returns the keys of all triggers from the given group, whose names start with the given prefix.
+     *
+     * @param prefix the prefix of trigger names, not empty
+     * @param group the trigger group
+     * @return the keys of the matching triggers
+     * @throws MotechSchedulerException if the query fails
+     */
+    public List<TriggerKey> findTriggerKeys(String prefix, String group) {
+        String query = new StringBuilder("SELECT TRIGGER_NAME FROM ")
+                .append(getCorrectNameRepresentation(sqlProperties.getProperty(TABLE_PREFIX) + "TRIGGERS"))
+                .append(" WHERE SCHED_NAME = ? AND TRIGGER_GROUP = ? AND TRIGGER_NAME LIKE ? ESCAPE '")
+                .append(ESCAPE).append('\'')
+                .toString();
+
+        List<TriggerKey> triggerKeys = new ArrayList<>();
+
+        try (Connection conn = DBConnectionManager.getInstance().getConnection(sqlProperties.getProperty(DATA_SOURCE));
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, motechSchedulerFactoryBean.getQuartzScheduler().getSchedulerName());
+            stmt.setString(2, group);
+            stmt.setString(3, escape(prefix) + '%');
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    triggerKeys.add(new TriggerKey(rs.getString(1), group));
+                }
+            }
+        } catch (SQLException | SchedulerException e) {
+            throw new MotechSchedulerException(String.format("Can not find triggers with prefix: %s %s",
+                    prefix, e.getMessage()), e);
+        }
+
+        return triggerKeys;
+    }
+
+    private String escape(String prefix) {
+        StringBuilder sb = new StringBuilder(prefix.length());
+
+        for (char c : prefix.toCharArray()) {
+            if (c == ESCAPE || c == '%' || c == '_') {
+                sb.append(ESCAPE);
+            }
+            sb.append(c);
+        }
+
+        return sb.toString();
+    }
+
+    private String getCorrectNameRepresentation(String name) {
+        return Drivers.MYSQL_DRIVER.equals(sqlProperties.get(DRIVER)) ? name : "\"" + name.toLowerCase() + "\"";
+    }
+
+    @Autowired
+    public void setSqlProperties(Properties sqlProperties) {
+        this.sqlProperties = sqlProperties;
+    }
+
+    @Autowired
+    public void setMotechSchedulerFactoryBean(MotechSchedulerFactoryBean motechSchedulerFactoryBean) {
+        this.motechSchedulerFactoryBean = motechSchedulerFactoryBean;
+    }
+}
@@ -0,0 +1,16 @@
+-- job type and ui-defined flag of jobs, read when listing jobs instead of deserializing their job data --
+CREATE TABLE motech_job_info
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    JOB_NAME  VARCHAR(200) NOT NULL,
+    JOB_GROUP VARCHAR(200) NOT NULL,
+    JOB_TYPE VARCHAR(16) NOT NULL,
+    UI_DEFINED BOOL NOT NULL,
+    PRIMARY KEY (SCHED_NAME,JOB_NAME,JOB_GROUP),
+    FOREIGN KEY (SCHED_NAME,JOB_NAME,JOB_GROUP)
+        REFERENCES qrtz_job_details(SCHED_NAME,JOB_NAME,JOB_GROUP) ON DELETE CASCADE
+);
+
+create index idx_motech_ji_type on motech_job_info(SCHED_NAME,JOB_TYPE);
+create index idx_motech_ji_ui on motech_job_info(SCHED_NAME,UI_DEFINED);
+create index idx_qrtz_t_st on qrtz_triggers(SCHED_NAME,START_TIME);
@@ -0,0 +1,2 @@
+-- allows prefix searches on trigger names with LIKE 'prefix%' regardless of the database collation --
+create index idx_qrtz_t_name_prefix on qrtz_triggers(SCHED_NAME,TRIGGER_GROUP,TRIGGER_NAME varchar_pattern_ops);
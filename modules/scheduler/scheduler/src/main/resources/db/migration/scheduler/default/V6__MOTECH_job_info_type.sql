@@ -0,0 +1,3 @@
+-- the job type is derived from the job name, it does not have to be stored --
+drop index idx_motech_ji_type;
+alter table motech_job_info drop column JOB_TYPE;
@@ -0,0 +1,15 @@
+-- job type and ui-defined flag of jobs, read when listing jobs instead of deserializing their job data --
+CREATE TABLE MOTECH_JOB_INFO (
+SCHED_NAME VARCHAR(120) NOT NULL,
+JOB_NAME VARCHAR(200) NOT NULL,
+JOB_GROUP VARCHAR(200) NOT NULL,
+JOB_TYPE VARCHAR(16) NOT NULL,
+UI_DEFINED BOOL NOT NULL,
+PRIMARY KEY (SCHED_NAME,JOB_NAME,JOB_GROUP),
+FOREIGN KEY (SCHED_NAME,JOB_NAME,JOB_GROUP)
+REFERENCES QRTZ_JOB_DETAILS(SCHED_NAME,JOB_NAME,JOB_GROUP) ON DELETE CASCADE)
+ENGINE=InnoDB;
+
+CREATE INDEX IDX_MOTECH_JI_TYPE ON MOTECH_JOB_INFO(SCHED_NAME,JOB_TYPE);
+CREATE INDEX IDX_MOTECH_JI_UI ON MOTECH_JOB_INFO(SCHED_NAME,UI_DEFINED);
+CREATE INDEX IDX_QRTZ_T_ST ON QRTZ_TRIGGERS(SCHED_NAME,START_TIME);
@@ -0,0 +1,2 @@
+-- allows prefix searches on trigger names with LIKE 'prefix%' within a single trigger group --
+CREATE INDEX IDX_QRTZ_T_G_N ON QRTZ_TRIGGERS(SCHED_NAME,TRIGGER_GROUP,TRIGGER_NAME);
@@ -0,0 +1,3 @@
+-- the job type is derived from the job name, it does not have to be stored --
+DROP INDEX IDX_MOTECH_JI_TYPE ON MOTECH_JOB_INFO;
+ALTER TABLE MOTECH_JOB_INFO DROP COLUMN JOB_TYPE;
@@ -474,6 +474,29 @@ public class MotechSchedulerDatabaseServiceImplBundleIT extends BasePaxIT {
         }
     }
 
+    @Test
+    public void shouldUpdateJobInfoWhenJobIsRescheduled() {
+        try {
+            fakeNow(newDateTime(CURRENT_YEAR + 6, 7, 15, 10, 0, 0));
+
+            Map<String, Object> params = new HashMap<>();
+            params.put(MotechSchedulerService.JOB_ID_KEY, "job_id8");
+            MotechEvent event = new MotechEvent("test_event_8", params);
+            DateTime startDate = newDateTime(CURRENT_YEAR + 6, 7, 15, 12, 0, 0);
+
+            schedulerService.scheduleRunOnceJob(new RunOnceSchedulableJob(event, startDate, true));
+            assertJobInfo("test_event_8-job_id8-runonce", JobBasicInfo.JOBTYPE_RUNONCE, true);
+
+            schedulerService.updateJob(new RunOnceSchedulableJob(event, startDate, false));
+            assertJobInfo("test_event_8-job_id8-runonce", JobBasicInfo.JOBTYPE_RUNONCE, false);
+
+            schedulerService.scheduleJobs(asList(new RunOnceSchedulableJob(event, startDate, true)));
+            assertJobInfo("test_event_8-job_id8-runonce", JobBasicInfo.JOBTYPE_RUNONCE, true);
+        } finally {
+            stopFakingTime();
+        }
+    }
+
     @Test
     public void shouldFilterJobsByActivity() {
         try {
@@ -609,6 +632,16 @@ public class MotechSchedulerDatabaseServiceImplBundleIT extends BasePaxIT {
 
     }
 
+    private void assertJobInfo(String jobName, String jobType, boolean uiDefined) {
+        JobsSearchSettings jobsSearchSettings = getGridSettings(null, null, "name", "asc");
+        jobsSearchSettings.setName(jobName);
+
+        List<JobBasicInfo> jobs = databaseService.getScheduledJobsBasicInfo(jobsSearchSettings);
+        assertEquals(1, jobs.size());
+        assertEquals(jobType, jobs.get(0).getJobType());
+        assertEquals(uiDefined, jobs.get(0).isUiDefined());
+    }
+
     private JobsSearchSettings getGridSettings(Integer page, Integer rows, String sortColumn, String direction) {
         JobsSearchSettings jobsSearchSettings = new JobsSearchSettings();
 
@@ -610,6 +610,29 @@ public class MotechSchedulerServiceImplBundleIT extends BasePaxIT {
         assertNull(scheduler.getTrigger(triggerKey("test_event3-job_id", "default")));
     }
 
+    @Test
+    public void shouldUnscheduleAllJobsWithAGivenJobIdPrefixContainingWildcards() throws SchedulerException {
+        Map<String, Object> params = new HashMap<>();
+        params.put(MotechSchedulerService.JOB_ID_KEY, "job_id");
+
+        // the last two jobs would match the prefix too, if its LIKE wildcards and escape character were not escaped
+        String prefix = "test_event_%_!";
+        for (String subject : asList(prefix, prefix + "!", "test_event_abc!", "testXeventX%_!")) {
+            schedulerService.scheduleJob(new CronSchedulableJob(new MotechEvent(subject, params), "0 0 12 * * ?"));
+        }
+
+        try {
+            schedulerService.unscheduleAllJobs(prefix);
+
+            assertNull(scheduler.getTrigger(triggerKey("test_event_%_!-job_id", "default")));
+            assertNull(scheduler.getTrigger(triggerKey("test_event_%_!!-job_id", "default")));
+            assertNotNull(scheduler.getTrigger(triggerKey("test_event_abc!-job_id", "default")));
+            assertNotNull(scheduler.getTrigger(triggerKey("testXeventX%_!-job_id", "default")));
+        } finally {
+            schedulerService.unscheduleJob("testXeventX%_!", "job_id");
+        }
+    }
+
     @Test
     public void shouldPauseJobIfItIsUiDefined() throws Exception {
         Map<String, Object> params = new HashMap<>();
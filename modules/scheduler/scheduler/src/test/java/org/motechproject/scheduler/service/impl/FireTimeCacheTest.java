@@ -0,0 +1,110 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+import org.junit.Test;
+import org.motechproject.scheduler.trigger.PeriodIntervalTriggerImpl;
+import org.quartz.SimpleTrigger;
+import org.quartz.TriggerKey;
+import org.quartz.TriggerUtils;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FireTimeCacheTest {
+
+    private static final DateTime START = new DateTime(2016, 3, 1, 10, 0);
+
+    @Test
+    public void shouldComputeSimpleTriggerFireTimesLikeQuartz() {
+        SimpleTriggerImpl trigger = simpleTrigger(10, null);
+        assertSameFireTimes(trigger);
+
+        fire(trigger, 4);
+        assertSameFireTimes(trigger);
+
+        trigger = simpleTrigger(SimpleTrigger.REPEAT_INDEFINITELY, START.plusHours(30).plusMinutes(30).toDate());
+        fire(trigger, 3);
+        assertSameFireTimes(trigger);
+    }
+
+    @Test
+    public void shouldComputePeriodTriggerFireTimesLikeQuartz() {
+        PeriodIntervalTriggerImpl trigger = periodTrigger(Period.hours(6).withMinutes(30), START.plusDays(5).toDate());
+        assertSameFireTimes(trigger);
+
+        fire(trigger, 3);
+        assertSameFireTimes(trigger);
+
+        // periods of variable length are computed by Quartz
+        trigger = periodTrigger(Period.months(1), null);
+        fire(trigger, 2);
+        assertSameFireTimes(trigger);
+    }
+
+    @Test
+    public void shouldCacheFireTimesUntilTriggerChanges() {
+        FireTimeCache cache = new FireTimeCache(10);
+        SimpleTriggerImpl trigger = simpleTrigger(100, null);
+        Date from = START.plusHours(20).toDate();
+        Date to = START.plusHours(40).toDate();
+
+        List<Date> fireTimes = cache.getFireTimes(trigger, from, to);
+        assertEquals(21, fireTimes.size());
+        assertSame(fireTimes, cache.getFireTimes(trigger, from, to));
+
+        fire(trigger, 1);
+        List<Date> afterFire = cache.getFireTimes(trigger, from, to);
+        assertNotSame(fireTimes, afterFire);
+        assertEquals(fireTimes, afterFire);
+
+        cache.invalidate(trigger.getKey());
+        assertNotSame(afterFire, cache.getFireTimes(trigger, from, to));
+    }
+
+    private void assertSameFireTimes(OperableTrigger trigger) {
+        for (int from = 0; from < 60; from += 7) {
+            for (int length = 0; length < 80; length += 13) {
+                Date fromDate = START.plusHours(from).toDate();
+                Date toDate = START.plusHours(from + length).toDate();
+
+                assertEquals(TriggerUtils.computeFireTimesBetween(trigger, new BaseCalendar(), fromDate, toDate),
+                        FireTimeCache.computeFireTimes(trigger, fromDate, toDate));
+            }
+        }
+    }
+
+    private SimpleTriggerImpl simpleTrigger(int repeatCount, Date endTime) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setKey(new TriggerKey("simple", "default"));
+        trigger.setStartTime(START.toDate());
+        trigger.setEndTime(endTime);
+        trigger.setRepeatInterval(60 * 60 * 1000L);
+        trigger.setRepeatCount(repeatCount);
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private PeriodIntervalTriggerImpl periodTrigger(Period period, Date endTime) {
+        PeriodIntervalTriggerImpl trigger = new PeriodIntervalTriggerImpl();
+        trigger.setKey(new TriggerKey("period", "default"));
+        trigger.setStartTime(START.toDate());
+        trigger.setEndTime(endTime);
+        trigger.setRepeatPeriod(period);
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private void fire(OperableTrigger trigger, int times) {
+        for (int i = 0; i < times; ++i) {
+            trigger.triggered(null);
+        }
+    }
+}
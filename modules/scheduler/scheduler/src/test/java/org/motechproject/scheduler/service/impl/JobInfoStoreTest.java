@@ -0,0 +1,130 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.commons.sql.util.Drivers;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.motechproject.scheduler.service.MotechScheduledJob;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.utils.ConnectionProvider;
+import org.quartz.utils.DBConnectionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JobInfoStoreTest {
+
+    private static final String DATA_SOURCE = "jobInfoStoreTestDS";
+
+    @Mock
+    private MotechSchedulerFactoryBean schedulerFactoryBean;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private ConnectionProvider connectionProvider;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement updateStatement;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    private JobInfoStore jobInfoStore = new JobInfoStore();
+
+    @Before
+    public void setUp() throws Exception {
+        Properties sqlProperties = new Properties();
+        sqlProperties.setProperty("org.quartz.jobStore.dataSource", DATA_SOURCE);
+        sqlProperties.setProperty("org.quartz.dataSource.motechDS.driver", Drivers.MYSQL_DRIVER);
+
+        jobInfoStore.setSqlProperties(sqlProperties);
+        jobInfoStore.setMotechSchedulerFactoryBean(schedulerFactoryBean);
+
+        when(schedulerFactoryBean.getQuartzScheduler()).thenReturn(scheduler);
+        when(scheduler.getSchedulerName()).thenReturn("scheduler");
+
+        DBConnectionManager.getInstance().addConnectionProvider(DATA_SOURCE, connectionProvider);
+        when(connectionProvider.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(false);
+        when(connection.prepareStatement(startsWith("UPDATE"))).thenReturn(updateStatement);
+        when(connection.prepareStatement(startsWith("INSERT"))).thenReturn(insertStatement);
+    }
+
+    @Test
+    public void shouldInsertMissingJobInfosWithSingleBatchAndCommit() throws Exception {
+        when(updateStatement.executeBatch()).thenReturn(new int[] {1, 0, 0});
+
+        jobInfoStore.save(asList(jobDetail("job1-runonce"), jobDetail("job2-repeat"), jobDetail("job3")));
+
+        verify(updateStatement, times(3)).addBatch();
+        verify(updateStatement).executeBatch();
+        verify(insertStatement, times(2)).addBatch();
+        verify(insertStatement).executeBatch();
+        verify(insertStatement, never()).executeUpdate();
+        verify(connection).commit();
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    public void shouldNotInsertWhenAllJobInfosExist() throws Exception {
+        when(updateStatement.executeBatch()).thenReturn(new int[] {1, 1});
+
+        jobInfoStore.save(asList(jobDetail("job1-runonce"), jobDetail("job2-repeat")));
+
+        verify(connection, never()).prepareStatement(startsWith("INSERT"));
+        verify(connection).commit();
+    }
+
+    @Test
+    public void shouldInsertUiDefinedFlagsOfListedJobs() throws Exception {
+        when(updateStatement.executeBatch()).thenReturn(new int[] {0, 0});
+
+        Map<JobKey, Boolean> uiDefinedByJob = new LinkedHashMap<>();
+        uiDefinedByJob.put(new JobKey("job1-runonce", "default"), true);
+        uiDefinedByJob.put(new JobKey("job2-repeat", "default"), false);
+
+        jobInfoStore.save(uiDefinedByJob);
+
+        verify(insertStatement).setString(2, "job1-runonce");
+        verify(insertStatement).setBoolean(4, true);
+        verify(insertStatement).setString(2, "job2-repeat");
+        verify(insertStatement).setBoolean(4, false);
+        verify(insertStatement).executeBatch();
+        verify(connection).commit();
+    }
+
+    @Test
+    public void shouldNotTouchDatabaseWhenThereAreNoJobs() throws Exception {
+        jobInfoStore.save(Collections.<JobDetail>emptyList());
+
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    private JobDetail jobDetail(String name) {
+        return JobBuilder.newJob(MotechScheduledJob.class).withIdentity(name, "default").build();
+    }
+}
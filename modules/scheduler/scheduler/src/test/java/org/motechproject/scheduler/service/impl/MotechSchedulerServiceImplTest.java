@@ -0,0 +1,154 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.scheduler.contract.JobId;
+import org.motechproject.scheduler.contract.JobSchedulingFailure;
+import org.motechproject.scheduler.contract.RunOnceJobId;
+import org.motechproject.scheduler.contract.RunOnceSchedulableJob;
+import org.motechproject.scheduler.exception.MotechSchedulerException;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.quartz.JobDetail;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MotechSchedulerServiceImplTest {
+
+    private static final String SUBJECT = "test_event";
+
+    @Mock
+    private MotechSchedulerFactoryBean schedulerFactoryBean;
+
+    @Mock
+    private SettingsFacade schedulerSettings;
+
+    @Mock
+    private TriggerKeyFinder triggerKeyFinder;
+
+    @Mock
+    private JobInfoStore jobInfoStore;
+
+    @Mock
+    private Scheduler scheduler;
+
+    private MotechSchedulerServiceImpl schedulerService;
+
+    @Before
+    public void setUp() {
+        when(schedulerFactoryBean.getQuartzScheduler()).thenReturn(scheduler);
+        when(schedulerSettings.getProperty("scheduler.bulk.chunk.size")).thenReturn("2");
+
+        schedulerService = new MotechSchedulerServiceImpl(schedulerFactoryBean, schedulerSettings, triggerKeyFinder,
+                jobInfoStore);
+    }
+
+    @Test
+    public void shouldScheduleValidJobsAndReportInvalidOnes() throws SchedulerException {
+        RunOnceSchedulableJob pastJob = runOnceJob("2", DateTime.now().minusDays(1));
+        List<RunOnceSchedulableJob> jobs = asList(runOnceJob("1"), pastJob, runOnceJob("3"), runOnceJob("4"));
+
+        List<JobSchedulingFailure> failures = schedulerService.scheduleJobs(jobs);
+
+        assertEquals(1, failures.size());
+        assertSame(pastJob, failures.get(0).getJob());
+
+        // the invalid job does not take a place in the chunk
+        assertEquals(asList(asList(jobName("1"), jobName("3")), asList(jobName("4"))), captureStoredChunks(2));
+    }
+
+    @Test
+    public void shouldReportJobsOfChunkWhichCouldNotBeStored() throws SchedulerException {
+        List<RunOnceSchedulableJob> jobs = asList(runOnceJob("1"), runOnceJob("2"), runOnceJob("3"),
+                runOnceJob("4"), runOnceJob("5"));
+        doNothing().doThrow(new SchedulerException("Database unavailable")).doNothing()
+                .when(scheduler).scheduleJobs(anyMap(), eq(true));
+
+        List<JobSchedulingFailure> failures = schedulerService.scheduleJobs(jobs);
+
+        // the failed chunk does not stop the next one, the job info is saved only for the stored chunks
+        assertEquals(3, captureStoredChunks(3).size());
+        verify(jobInfoStore, times(2)).save(anyCollectionOf(JobDetail.class));
+        assertEquals(2, failures.size());
+        assertSame(jobs.get(2), failures.get(0).getJob());
+        assertSame(jobs.get(3), failures.get(1).getJob());
+        assertTrue(failures.get(0).getMessage().contains("Database unavailable"));
+    }
+
+    @Test
+    public void shouldUnscheduleRemainingChunksWhenOneFails() throws SchedulerException {
+        List<JobId> jobIds = new ArrayList<>();
+        for (String id : asList("1", "2", "3", "4", "5")) {
+            jobIds.add(new RunOnceJobId(SUBJECT, id));
+        }
+        when(scheduler.unscheduleJobs(anyListOf(TriggerKey.class)))
+                .thenThrow(new SchedulerException("Database unavailable")).thenReturn(true);
+
+        try {
+            schedulerService.unscheduleJobs(jobIds);
+            fail("Expected the failed chunk to be reported");
+        } catch (MotechSchedulerException e) {
+            assertTrue(e.getMessage().contains("2 of 5 jobs were not unscheduled"));
+        }
+
+        verify(scheduler, times(3)).unscheduleJobs(anyListOf(TriggerKey.class));
+    }
+
+    private List<List<String>> captureStoredChunks(int count) throws SchedulerException {
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(scheduler, times(count)).scheduleJobs(captor.capture(), eq(true));
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (Map<JobDetail, Set<? extends Trigger>> chunk : captor.getAllValues()) {
+            List<String> names = new ArrayList<>();
+            for (JobDetail jobDetail : chunk.keySet()) {
+                names.add(jobDetail.getKey().getName());
+            }
+            chunks.add(names);
+        }
+        return chunks;
+    }
+
+    private RunOnceSchedulableJob runOnceJob(String id) {
+        return runOnceJob(id, DateTime.now().plusDays(1));
+    }
+
+    private RunOnceSchedulableJob runOnceJob(String id, DateTime startDate) {
+        Map<String, Object> params = new HashMap<>();
+        params.put(JobId.JOB_ID_KEY, id);
+        return new RunOnceSchedulableJob(new MotechEvent(SUBJECT, params), startDate);
+    }
+
+    private String jobName(String id) {
+        return new RunOnceJobId(SUBJECT, id).value();
+    }
+}
@@ -0,0 +1,156 @@
+package org.motechproject.scheduler.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.scheduler.factory.MotechSchedulerFactoryBean;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.TriggerListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduledEventPublisherTest {
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @Mock
+    private MotechSchedulerFactoryBean motechSchedulerFactoryBean;
+
+    @Mock
+    private SettingsFacade settings;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private ListenerManager listenerManager;
+
+    private SchedulerContext schedulerContext = new SchedulerContext();
+
+    private List<MotechEvent> published = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        when(motechSchedulerFactoryBean.getQuartzScheduler()).thenReturn(scheduler);
+        when(scheduler.getContext()).thenReturn(schedulerContext);
+        when(scheduler.getListenerManager()).thenReturn(listenerManager);
+
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                published.addAll((Collection<MotechEvent>) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(eventRelay).sendEventMessages(anyCollection());
+    }
+
+    @Test
+    public void shouldPublishQueuedEventsInBatches() throws Exception {
+        when(settings.getProperty(ScheduledEventPublisher.BATCH_SIZE_KEY)).thenReturn("10");
+
+        ScheduledEventPublisher publisher = new ScheduledEventPublisher(eventRelay, motechSchedulerFactoryBean, settings);
+        publisher.start();
+
+        assertSame(publisher, schedulerContext.get(ScheduledEventPublisher.CONTEXT_KEY));
+        verify(listenerManager).addTriggerListener(any(TriggerListener.class));
+
+        for (int i = 0; i < 25; ++i) {
+            publisher.publish(new MotechEvent("subject-" + i), new Date(1000), new Date(1500));
+        }
+
+        publisher.shutdown();
+
+        assertEquals(25, published.size());
+        assertEquals("subject-0", published.get(0).getSubject());
+        assertEquals("subject-24", published.get(24).getSubject());
+        assertEquals(25, publisher.getPublishedCount());
+        assertEquals(25, publisher.getFireLag().getCount());
+        assertEquals(500.0, publisher.getFireLag().getMaxMillis(), 0.001);
+        assertNull(schedulerContext.get(ScheduledEventPublisher.CONTEXT_KEY));
+        verify(eventRelay, never()).sendEventMessage(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldPublishInFiringThreadWithoutQueue() throws Exception {
+        when(settings.getProperty(ScheduledEventPublisher.QUEUE_CAPACITY_KEY)).thenReturn("0");
+        MotechEvent event = new MotechEvent("subject");
+
+        ScheduledEventPublisher publisher = new ScheduledEventPublisher(eventRelay, motechSchedulerFactoryBean, settings);
+        publisher.start();
+        publisher.publish(event, null, null);
+
+        verify(eventRelay).sendEventMessage(event);
+        assertEquals(1, publisher.getPublishedCount());
+        assertEquals(0, publisher.getInlineCount());
+        assertEquals(0, publisher.getFireLag().getCount());
+
+        publisher.shutdown();
+    }
+
+    @Test
+    public void shouldPublishInFiringThreadAfterShutdown() throws Exception {
+        MotechEvent event = new MotechEvent("subject");
+
+        ScheduledEventPublisher publisher = new ScheduledEventPublisher(eventRelay, motechSchedulerFactoryBean, settings);
+        publisher.start();
+        publisher.shutdown();
+
+        publisher.publish(event, null, null);
+
+        // the event is not left in the queue, which is no longer drained
+        verify(eventRelay).sendEventMessage(event);
+        assertEquals(0, publisher.getQueueDepth());
+        assertEquals(1, publisher.getPublishedCount());
+        assertEquals(0, publisher.getInlineCount());
+    }
+
+    @Test
+    public void shouldSendEventsOneByOneWhenBatchFails() throws Exception {
+        when(settings.getProperty(ScheduledEventPublisher.QUEUE_CAPACITY_KEY)).thenReturn("10");
+        doThrow(new IllegalStateException("batch failed")).when(eventRelay).sendEventMessages(anyCollection());
+        final MotechEvent failing = new MotechEvent("subject-1");
+        doThrow(new IllegalStateException("event failed")).when(eventRelay).sendEventMessage(failing);
+
+        ScheduledEventPublisher publisher = new ScheduledEventPublisher(eventRelay, motechSchedulerFactoryBean, settings);
+        publisher.start();
+
+        MotechEvent first = new MotechEvent("subject-0");
+        MotechEvent last = new MotechEvent("subject-2");
+        publisher.publish(first, null, null);
+        publisher.publish(failing, null, null);
+        publisher.publish(last, null, null);
+
+        publisher.shutdown();
+
+        verify(eventRelay).sendEventMessage(first);
+        verify(eventRelay).sendEventMessage(failing);
+        verify(eventRelay).sendEventMessage(last);
+        assertEquals(2, publisher.getPublishedCount());
+        assertEquals(1, publisher.getFailedCount());
+    }
+}
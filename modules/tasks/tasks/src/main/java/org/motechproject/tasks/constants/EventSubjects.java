@@ -18,9 +18,25 @@ public final class EventSubjects {
     public static final String CHANNEL_REGISTER_SUBJECT = CHANNEL_SUBJECT + "register";
     public static final String CHANNEL_DEREGISTER_SUBJECT = CHANNEL_SUBJECT + "deregister";
 
+    /**
+     * Broadcast to all nodes after a channel was updated, registered or removed, so that each of them drops
+     * the actions of the channel it has cached.
+     */
+    public static final String CHANNEL_CHANGED_SUBJECT = CHANNEL_SUBJECT + "changed";
+
     public static final String DATA_PROVIDER_SUBJECT = BASE_SUBJECT + "dataProvider.";
     public static final String DATA_PROVIDER_UPDATE_SUBJECT = DATA_PROVIDER_SUBJECT + "update";
 
+    /**
+     * Matches the MDS CRUD events sent after a task is created, updated or deleted.
+     */
+    public static final String TASK_CRUD_SUBJECT = "mds.crud.tasks.Task.*";
+
+    /**
+     * Broadcast to all nodes, so that each of them refreshes the changed task in its trigger index.
+     */
+    public static final String TRIGGER_INDEX_REFRESH_SUBJECT = BASE_SUBJECT + "triggerIndex.refresh";
+
     public static final String SCHEDULE_REPEATING_JOB = "scheduleRepeatingJob";
 
     /**
@@ -37,6 +37,14 @@ public final class KeyInformation {
      */
     public static final String POST_ACTION_PARAMETER_PREFIX = "pa";
 
+    /**
+     * Pattern matching the string representations of dragged fields, used by {@link #parseAll(String)}.
+     */
+    public static final Pattern KEY_PATTERN = Pattern.compile("\\{\\{((.*?))(\\}\\})(?![^(]*\\))");
+
+    private static final Pattern ADDITIONAL_DATA_PATTERN = Pattern.compile("([a-zA-Z0-9\\-_]+)\\.([\\.a-zA-Z0-9\\-_]+)#([a-zA-Z0-9]+)\\.(.+)");
+    private static final Pattern POST_ACTION_PARAMETER_PATTERN = Pattern.compile("([a-zA-Z0-9\\-_]+)\\.(.+)");
+
     private static final int DATA_PROVIDER_NAME_IDX = 1;
     private static final int OBJECT_TYPE_IDX = 2;
     private static final int OBJECT_ID_IDX = 3;
@@ -121,8 +129,7 @@ public final class KeyInformation {
         if (prefix.equalsIgnoreCase(TRIGGER_PREFIX)) {
             key = new KeyInformation(input, prefix, withoutManipulation, manipulations);
         } else if (prefix.equalsIgnoreCase(ADDITIONAL_DATA_PREFIX)) {
-            Pattern pattern = Pattern.compile("([a-zA-Z0-9\\-_]+)\\.([\\.a-zA-Z0-9\\-_]+)#([a-zA-Z0-9]+)\\.(.+)");
-            Matcher matcher = pattern.matcher(withoutManipulation);
+            Matcher matcher = ADDITIONAL_DATA_PATTERN.matcher(withoutManipulation);
 
             if (matcher.matches()) {
                 String dataProviderName = matcher.group(DATA_PROVIDER_NAME_IDX);
@@ -135,8 +142,7 @@ public final class KeyInformation {
                 throw new IllegalArgumentException("Incorrect format for key from additional data");
             }
         } else if (prefix.equalsIgnoreCase(POST_ACTION_PARAMETER_PREFIX)) {
-            Pattern pattern = Pattern.compile("([a-zA-Z0-9\\-_]+)\\.(.+)");
-            Matcher matcher = pattern.matcher(withoutManipulation);
+            Matcher matcher = POST_ACTION_PARAMETER_PATTERN.matcher(withoutManipulation);
 
             if (matcher.matches()) {
                 Long objectId = Long.valueOf(matcher.group(POST_ACTION_PARAM_ID_IDX));
@@ -189,8 +195,7 @@ public final class KeyInformation {
      */
     public static List<KeyInformation> parseAll(String input) {
         List<KeyInformation> keys = new ArrayList<>();
-        Pattern pattern = Pattern.compile("\\{\\{((.*?))(\\}\\})(?![^(]*\\))");
-        Matcher matcher = pattern.matcher(isEmpty(input) ? "" : input);
+        Matcher matcher = KEY_PATTERN.matcher(isEmpty(input) ? "" : input);
 
         while (matcher.find()) {
             keys.add(KeyInformation.parse(matcher.group(1)));
@@ -142,6 +142,32 @@ public class Task {
         this.days = days == null ? new ArrayList<String>() : days;
     }
 
+    /**
+     * Copy constructor. The collections of the task are copied, their elements, the trigger and the configuration
+     * are shared with the given task.
+     *
+     * @param task  the task to copy
+     */
+    public Task(Task task) {
+        this.id = task.id;
+        this.description = task.description;
+        this.name = task.name;
+        this.failuresInRow = task.failuresInRow;
+        this.actions = new ArrayList<>(task.getActions());
+        this.trigger = task.trigger;
+        this.enabled = task.enabled;
+        this.validationErrors = new HashSet<>(task.getValidationErrors());
+        this.taskConfig = task.taskConfig;
+        this.hasRegisteredChannel = task.hasRegisteredChannel;
+        this.numberOfRetries = task.numberOfRetries;
+        this.retryIntervalInMilliseconds = task.retryIntervalInMilliseconds;
+        this.retryTaskOnFailure = task.retryTaskOnFailure;
+        this.useTimeWindow = task.useTimeWindow;
+        this.startTime = task.startTime;
+        this.endTime = task.endTime;
+        this.days = task.days == null ? new ArrayList<String>() : new ArrayList<>(task.days);
+    }
+
     /**
      * Stores the given action.
      *
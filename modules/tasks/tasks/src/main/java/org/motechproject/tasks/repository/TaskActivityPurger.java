@@ -0,0 +1,119 @@
+package org.motechproject.tasks.repository;
+
+import org.joda.time.DateTime;
+import org.motechproject.mds.query.QueryExecution;
+import org.motechproject.mds.query.QueryExecutor;
+import org.motechproject.mds.util.InstanceSecurityRestriction;
+import org.motechproject.tasks.domain.enums.TaskActivityType;
+import org.motechproject.tasks.domain.mds.task.TaskActivity;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+import javax.jdo.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes task activities with delete queries, in chunks of a fixed size. Every chunk is deleted in a separate
+ * transaction, so the size of a transaction does not depend on the number of deleted activities.
+ * <p>
+ * The activities are deleted permanently - they are not moved to the trash and no CRUD events are sent.
+ */
+public class TaskActivityPurger {
+
+    private static final String TYPE_PARAMETER = TaskActivityType.class.getName() + " type";
+
+    private final TaskActivitiesDataService taskActivitiesDataService;
+    private final int chunkSize;
+
+    public TaskActivityPurger(TaskActivitiesDataService taskActivitiesDataService, int chunkSize) {
+        this.taskActivitiesDataService = taskActivitiesDataService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Deletes all activities of the given task.
+     *
+     * @param taskId the id of the task
+     * @return the number of deleted activities
+     */
+    public long deleteByTask(Long taskId) {
+        return deleteInChunks("task == taskId", "java.lang.Long taskId", taskId);
+    }
+
+    /**
+     * Deletes the activities of the given type created before the given date, except the activities of the
+     * given tasks.
+     *
+     * @param type the type of the activities
+     * @param before the date before which the activities are deleted
+     * @param excludedTasks the ids of the tasks whose activities are kept
+     * @return the number of deleted activities
+     */
+    public long deleteExpired(TaskActivityType type, DateTime before, List<Long> excludedTasks) {
+        if (excludedTasks.isEmpty()) {
+            return deleteInChunks("activityType == type && date < before",
+                    TYPE_PARAMETER + ", org.joda.time.DateTime before", type, before);
+        }
+
+        return deleteInChunks("activityType == type && date < before && !excludedTasks.contains(task)",
+                TYPE_PARAMETER + ", org.joda.time.DateTime before, java.util.Collection excludedTasks",
+                type, before, excludedTasks);
+    }
+
+    /**
+     * Deletes the activities of the given task and type created before the given date.
+     *
+     * @param taskId the id of the task
+     * @param type the type of the activities
+     * @param before the date before which the activities are deleted
+     * @return the number of deleted activities
+     */
+    public long deleteExpired(Long taskId, TaskActivityType type, DateTime before) {
+        return deleteInChunks("task == taskId && activityType == type && date < before",
+                "java.lang.Long taskId, " + TYPE_PARAMETER + ", org.joda.time.DateTime before",
+                taskId, type, before);
+    }
+
+    private long deleteInChunks(String filter, String parameters, Object... values) {
+        long deleted = 0;
+        long chunk;
+
+        do {
+            chunk = deleteChunk(filter, parameters, values);
+            deleted += chunk;
+        } while (chunk >= chunkSize);
+
+        return deleted;
+    }
+
+    private long deleteChunk(final String filter, final String parameters, final Object[] values) {
+        Long deleted = taskActivitiesDataService.doInTransaction(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                return taskActivitiesDataService.executeQuery(new QueryExecution<Long>() {
+                    @Override
+                    public Long execute(Query query, InstanceSecurityRestriction restriction) {
+                        query.setFilter(filter);
+                        query.declareParameters(parameters);
+                        query.setResult("id");
+                        query.setRange(0, chunkSize);
+
+                        List<Long> ids = new ArrayList<>((List<Long>) QueryExecutor.executeWithArray(query, values, restriction));
+                        if (ids.isEmpty()) {
+                            return 0L;
+                        }
+
+                        Query delete = query.getPersistenceManager().newQuery(TaskActivity.class);
+                        delete.setFilter("ids.contains(id)");
+                        delete.declareParameters("java.util.Collection ids");
+
+                        return QueryExecutor.executeDelete(delete, ids, restriction);
+                    }
+                });
+            }
+        });
+
+        return deleted == null ? 0 : deleted;
+    }
+}
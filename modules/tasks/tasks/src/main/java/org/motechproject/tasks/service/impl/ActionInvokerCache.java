@@ -0,0 +1,287 @@
+package org.motechproject.tasks.service.impl;
+
+import org.motechproject.tasks.domain.mds.channel.ActionEvent;
+import org.motechproject.tasks.domain.mds.channel.ActionParameter;
+import org.motechproject.tasks.domain.mds.task.TaskActionInformation;
+import org.motechproject.tasks.exception.ActionNotFoundException;
+import org.motechproject.tasks.service.TaskService;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches everything {@link TaskActionExecutor} has to look up before executing an action, so that executing it does
+ * not involve any channel queries, OSGi service registry lookups or reflection.
+ * <p>
+ * Actions are cached per channel module. A channel update or removal increments the version of the channel and drops
+ * its actions. Services are tracked by their interface names and methods are kept as method handles, which are
+ * dropped when the service whose class they belong to is unregistered.
+ */
+class ActionInvokerCache {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final ConcurrentMap<String, ResolvedAction> actions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> channelVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ServiceTracker<Object, Object>> services = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MethodKey, ServiceMethod> methods = new ConcurrentHashMap<>();
+
+    private BundleContext bundleContext;
+
+    /**
+     * Returns the action event matching the given task action, together with the parameters of the action.
+     *
+     * @param info the information about the task action
+     * @param taskService the service used for finding actions which are not cached yet
+     * @return the resolved action
+     * @throws ActionNotFoundException if the channel does not contain a matching action
+     */
+    ResolvedAction getAction(TaskActionInformation info, TaskService taskService) throws ActionNotFoundException {
+        String key = actionKey(info);
+        long version = getChannelVersion(info.getModuleName());
+        ResolvedAction resolved = actions.get(key);
+
+        if (resolved == null || resolved.channelVersion != version) {
+            resolved = new ResolvedAction(taskService.getActionEventFor(info), info.getModuleName(), version);
+
+            // the channel could have been updated while the action was being loaded
+            if (getChannelVersion(info.getModuleName()) == version) {
+                actions.put(key, resolved);
+            }
+        }
+
+        return resolved;
+    }
+
+    /**
+     * Drops the cached actions of the given channel.
+     *
+     * @param moduleName the module name of the channel, null drops the actions of all channels
+     */
+    void invalidateChannel(String moduleName) {
+        synchronized (channelVersions) {
+            if (moduleName == null) {
+                for (String module : channelVersions.keySet()) {
+                    channelVersions.put(module, channelVersions.get(module) + 1);
+                }
+                actions.clear();
+            } else {
+                channelVersions.put(moduleName, getChannelVersion(moduleName) + 1);
+            }
+        }
+
+        for (Iterator<ResolvedAction> it = actions.values().iterator(); it.hasNext();) {
+            ResolvedAction action = it.next();
+            if (action.channelVersion != getChannelVersion(action.moduleName)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the highest ranked service registered under the given interface name.
+     *
+     * @param serviceInterface the name of the service interface
+     * @return the service, null if there is none
+     */
+    Object getService(String serviceInterface) {
+        ServiceTracker<Object, Object> tracker = services.get(serviceInterface);
+
+        if (tracker == null) {
+            tracker = openTracker(serviceInterface);
+        }
+
+        return tracker == null ? null : tracker.getService();
+    }
+
+    /**
+     * Invokes the public method of the given service, matching the given name and parameter types.
+     *
+     * @param service the service
+     * @param methodName the name of the method
+     * @param parameterTypes the types of the method parameters
+     * @param args the arguments
+     * @return the value returned by the method, null for void methods
+     * @throws NoSuchMethodException if the service does not have a matching method
+     * @throws IllegalAccessException if the method is not accessible
+     * @throws InvocationTargetException if the method has thrown an exception
+     */
+    Object invoke(Object service, String methodName, Class[] parameterTypes, Object[] args)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        MethodKey key = new MethodKey(service.getClass(), methodName, parameterTypes);
+        ServiceMethod method = methods.get(key);
+
+        if (method == null) {
+            method = new ServiceMethod(service.getClass().getMethod(methodName, parameterTypes));
+            methods.putIfAbsent(key, method);
+        }
+
+        return method.invoke(service, args);
+    }
+
+    synchronized void setBundleContext(BundleContext bundleContext) {
+        close();
+        this.bundleContext = bundleContext;
+    }
+
+    /**
+     * Stops tracking the services and drops all cached actions and methods.
+     */
+    synchronized void close() {
+        for (ServiceTracker<Object, Object> tracker : services.values()) {
+            tracker.close();
+        }
+        services.clear();
+        methods.clear();
+        invalidateChannel(null);
+    }
+
+    private synchronized ServiceTracker<Object, Object> openTracker(String serviceInterface) {
+        ServiceTracker<Object, Object> tracker = services.get(serviceInterface);
+
+        if (tracker == null && bundleContext != null) {
+            tracker = new ServiceTracker<Object, Object>(bundleContext, serviceInterface, null) {
+                @Override
+                public void removedService(ServiceReference<Object> reference, Object service) {
+                    removeMethods(service.getClass());
+                    super.removedService(reference, service);
+                }
+            };
+            tracker.open();
+            services.put(serviceInterface, tracker);
+        }
+
+        return tracker;
+    }
+
+    private void removeMethods(Class<?> serviceClass) {
+        for (Iterator<MethodKey> it = methods.keySet().iterator(); it.hasNext();) {
+            if (it.next().serviceClass == serviceClass) {
+                it.remove();
+            }
+        }
+    }
+
+    private long getChannelVersion(String moduleName) {
+        Long version = moduleName == null ? null : channelVersions.get(moduleName);
+        return version == null ? 0 : version;
+    }
+
+    private static String actionKey(TaskActionInformation info) {
+        return info.getModuleName() + '|' + info.getName() + '|' + info.getServiceInterface() + '|'
+                + info.getServiceMethod() + '|' + info.getSubject();
+    }
+
+    /**
+     * An action event with its parameters, as found in a given version of its channel.
+     */
+    static final class ResolvedAction {
+
+        private final ActionEvent action;
+        private final String moduleName;
+        private final long channelVersion;
+        private final List<ActionParameter> actionParameters;
+        private final List<ActionParameter> postActionParameters;
+
+        private ResolvedAction(ActionEvent action, String moduleName, long channelVersion) {
+            this.action = action;
+            this.moduleName = moduleName;
+            this.channelVersion = channelVersion;
+            this.actionParameters = Collections.unmodifiableList(new ArrayList<>(action.getActionParameters()));
+            this.postActionParameters = Collections.unmodifiableList(new ArrayList<>(action.getPostActionParameters()));
+        }
+
+        ActionEvent getAction() {
+            return action;
+        }
+
+        List<ActionParameter> getActionParameters() {
+            return actionParameters;
+        }
+
+        List<ActionParameter> getPostActionParameters() {
+            return postActionParameters;
+        }
+    }
+
+    private static final class ServiceMethod {
+
+        private final Method method;
+        private final MethodHandle handle;
+
+        private ServiceMethod(Method method) {
+            this.method = method;
+            this.handle = createHandle(method);
+        }
+
+        private Object invoke(Object service, Object[] args) throws IllegalAccessException, InvocationTargetException {
+            if (handle == null) {
+                return method.invoke(service, args);
+            }
+
+            try {
+                // the exact invocation type has to match the type of the handle
+                return (Object) handle.invokeExact(service, args);
+            } catch (Throwable e) {
+                // reported the same way as exceptions thrown by a method invoked through reflection
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        private static MethodHandle createHandle(Method method) {
+            try {
+                return MethodHandles.lookup().unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterTypes().length)
+                        .asType(INVOKER_TYPE);
+            } catch (IllegalAccessException | SecurityException e) {
+                // the method will be invoked through reflection, which reports the problem
+                return null;
+            }
+        }
+    }
+
+    private static final class MethodKey {
+
+        private final Class<?> serviceClass;
+        private final String methodName;
+        private final Class[] parameterTypes;
+
+        private MethodKey(Class<?> serviceClass, String methodName, Class[] parameterTypes) {
+            this.serviceClass = serviceClass;
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodKey)) {
+                return false;
+            }
+
+            MethodKey other = (MethodKey) o;
+            return serviceClass == other.serviceClass && methodName.equals(other.methodName)
+                    && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * serviceClass.hashCode() + methodName.hashCode()) + Arrays.hashCode(parameterTypes);
+        }
+    }
+}
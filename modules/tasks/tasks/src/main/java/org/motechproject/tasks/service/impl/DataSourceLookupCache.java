@@ -0,0 +1,112 @@
+package org.motechproject.tasks.service.impl;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.motechproject.commons.api.DataProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the results of data provider lookups executed while handling a single trigger event, so that tasks
+ * handling the same event do not repeat lookups with the same provider, type, lookup name and lookup fields.
+ * <p>
+ * The cache is created for every handled event and shared by all tasks handling it. It is never used for more than
+ * one event, so the cached objects are as fresh as the event itself. The tasks are executed concurrently, so the
+ * cached objects are shared between threads; data providers return objects which are not bound to the persistence
+ * context of the thread that loaded them (MDS returns detached copies).
+ */
+class DataSourceLookupCache {
+
+    private final ConcurrentMap<Key, Object> results = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of the given lookup, executing it only if the same lookup was not executed before.
+     *
+     * @param provider the data provider
+     * @param type the type of the searched object
+     * @param lookupName the name of the lookup
+     * @param lookupFields the evaluated lookup fields
+     * @return the object matching the lookup, null if there is none
+     */
+    Object lookup(DataProvider provider, String type, String lookupName, Map<String, String> lookupFields) {
+        Key key = new Key(provider.getName(), type, lookupName, lookupFields);
+        Object result = results.get(key);
+
+        if (result == null) {
+            result = ObjectUtils.defaultIfNull(provider.lookup(type, lookupName, lookupFields), ObjectUtils.NULL);
+            results.putIfAbsent(key, result);
+        }
+
+        return result == ObjectUtils.NULL ? null : result;
+    }
+
+    /**
+     * Executes all the given lookups which were not executed before with a single
+     * {@link DataProvider#lookupAll(String, String, List)} call.
+     *
+     * @param provider the data provider
+     * @param type the type of the searched objects
+     * @param lookupName the name of the lookup
+     * @param lookupFields the list of evaluated lookup fields
+     */
+    void prefetch(DataProvider provider, String type, String lookupName, List<Map<String, String>> lookupFields) {
+        List<Key> keys = new ArrayList<>();
+        List<Map<String, String>> missing = new ArrayList<>();
+
+        for (Map<String, String> fields : lookupFields) {
+            Key key = new Key(provider.getName(), type, lookupName, fields);
+
+            if (!results.containsKey(key) && !keys.contains(key)) {
+                keys.add(key);
+                missing.add(fields);
+            }
+        }
+
+        if (missing.size() > 1) {
+            List<Object> objects = provider.lookupAll(type, lookupName, missing);
+
+            for (int i = 0; i < keys.size(); ++i) {
+                results.putIfAbsent(keys.get(i), ObjectUtils.defaultIfNull(objects.get(i), ObjectUtils.NULL));
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final String providerName;
+        private final String type;
+        private final String lookupName;
+        private final Map<String, String> lookupFields;
+
+        private Key(String providerName, String type, String lookupName, Map<String, String> lookupFields) {
+            this.providerName = providerName;
+            this.type = type;
+            this.lookupName = lookupName;
+            this.lookupFields = new HashMap<>(lookupFields);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return Objects.equals(providerName, other.providerName) && Objects.equals(type, other.type)
+                    && Objects.equals(lookupName, other.lookupName) && lookupFields.equals(other.lookupFields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(providerName, type, lookupName, lookupFields);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.common.collect.Multimap;
 import org.motechproject.commons.api.MotechException;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.listener.annotations.MotechListener;
 import org.motechproject.tasks.domain.KeyInformation;
 import org.motechproject.tasks.domain.enums.ParameterType;
 import org.motechproject.tasks.domain.mds.channel.ActionEvent;
@@ -16,23 +17,27 @@ import org.motechproject.tasks.service.TaskActivityService;
 import org.motechproject.tasks.service.TaskService;
 import org.motechproject.tasks.service.util.KeyEvaluator;
 import org.motechproject.tasks.service.util.TaskContext;
+import org.motechproject.tasks.service.util.TaskTemplate;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
 
+import static org.motechproject.tasks.constants.EventDataKeys.CHANNEL_MODULE_NAME;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_CHANGED_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_DEREGISTER_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_REGISTER_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_UPDATE_SUBJECT;
 import static org.motechproject.tasks.constants.TaskFailureCause.ACTION;
 import static org.motechproject.tasks.constants.TaskFailureCause.TRIGGER;
 import static org.motechproject.tasks.domain.enums.ParameterType.LIST;
@@ -41,11 +46,15 @@ import static org.motechproject.tasks.domain.enums.ParameterType.MAP;
 
 /**
  * Builds action parameters from  {@link TaskContext} and executes the action by invoking its service or raising its event.
+ * The actions, their services and service methods are cached, the cached actions of a channel are dropped once the
+ * channel is updated or removed.
  */
 @Component
 public class TaskActionExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskActionExecutor.class);
 
+    private final ActionInvokerCache invokerCache = new ActionInvokerCache();
+
     private BundleContext bundleContext;
     private EventRelay eventRelay;
 
@@ -68,13 +77,14 @@ public class TaskActionExecutor {
         LOGGER.info("Executing task action: {} from task: {}", actionInformation.getName(), task.getName());
         KeyEvaluator keyEvaluator = new KeyEvaluator(taskContext);
 
-        ActionEvent action = getActionEvent(actionInformation);
-        Map<String, Object> parameters = createParameters(actionInformation, action, keyEvaluator);
+        ActionInvokerCache.ResolvedAction resolved = getActionEvent(actionInformation);
+        ActionEvent action = resolved.getAction();
+        Map<String, Object> parameters = createParameters(actionInformation, resolved, keyEvaluator);
         addTriggerParameters(task, action, parameters, taskContext.getTriggerParameters());
 
         LOGGER.debug("Parameters created: {} for task action: {}", parameters.toString(), action.getName());
         if (action.hasService() && bundleContext != null) {
-            if (callActionServiceMethod(action, actionIndex, parameters, taskContext)) {
+            if (callActionServiceMethod(resolved, actionIndex, parameters, taskContext)) {
                 LOGGER.info("Action: {} from task: {} was executed through an OSGi service call", actionInformation.getName(), task.getName());
                 postExecutionHandler.handleActionExecuted(taskContext.getTriggerParameters(), taskContext.getMetadata(), activityId);
                 return;
@@ -91,12 +101,44 @@ public class TaskActionExecutor {
         }
     }
 
-    private ActionEvent getActionEvent(TaskActionInformation actionInformation)
+    /**
+     * Notifies all nodes about the channel which was updated, registered or removed. The channel events are
+     * queue events handled by a single node, so the change is broadcast for the caches of all nodes.
+     *
+     * @param event the channel event
+     */
+    @MotechListener(subjects = {CHANNEL_UPDATE_SUBJECT, CHANNEL_REGISTER_SUBJECT, CHANNEL_DEREGISTER_SUBJECT})
+    public void broadcastChannelChange(MotechEvent event) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(CHANNEL_MODULE_NAME, event.getParameters().get(CHANNEL_MODULE_NAME));
+
+        eventRelay.broadcastEventMessage(new MotechEvent(CHANNEL_CHANGED_SUBJECT, parameters));
+    }
+
+    /**
+     * Drops the cached actions of the channel which was updated, registered or removed.
+     *
+     * @param event the event broadcast after the channel has changed
+     */
+    @MotechListener(subjects = CHANNEL_CHANGED_SUBJECT)
+    public void handleChannelChange(MotechEvent event) {
+        Object moduleName = event.getParameters().get(CHANNEL_MODULE_NAME);
+
+        LOGGER.debug("Dropping cached actions after event: {} for module: {}", event.getSubject(), moduleName);
+        invokerCache.invalidateChannel(moduleName == null ? null : moduleName.toString());
+    }
+
+    @PreDestroy
+    public void closeServiceTrackers() {
+        invokerCache.close();
+    }
+
+    private ActionInvokerCache.ResolvedAction getActionEvent(TaskActionInformation actionInformation)
             throws TaskHandlerException {
-        ActionEvent action;
+        ActionInvokerCache.ResolvedAction action;
 
         try {
-            action = taskService.getActionEventFor(actionInformation);
+            action = invokerCache.getAction(actionInformation, taskService);
         } catch (ActionNotFoundException e) {
             throw new TaskHandlerException(TRIGGER, "task.error.actionNotFound", e);
         }
@@ -104,9 +146,10 @@ public class TaskActionExecutor {
         return action;
     }
 
-    private Map<String, Object> createParameters(TaskActionInformation info,
-                                         ActionEvent action, KeyEvaluator keyEvaluator) throws TaskHandlerException {
-        SortedSet<ActionParameter> actionParameters = action.getActionParameters();
+    private Map<String, Object> createParameters(TaskActionInformation info, ActionInvokerCache.ResolvedAction resolved,
+                                                 KeyEvaluator keyEvaluator) throws TaskHandlerException {
+        ActionEvent action = resolved.getAction();
+        List<ActionParameter> actionParameters = resolved.getActionParameters();
         Map<String, Object> parameters = new HashMap<>(actionParameters.size());
 
         for (ActionParameter actionParameter : actionParameters) {
@@ -205,7 +248,7 @@ public class TaskActionExecutor {
     }
 
     private Object getValue(String row, KeyEvaluator keyEvaluator) throws TaskHandlerException {
-        List<KeyInformation> keys = KeyInformation.parseAll(row);
+        List<KeyInformation> keys = TaskTemplate.compile(row).getKeys();
 
         Object result;
         if (keys.isEmpty()) {
@@ -218,24 +261,22 @@ public class TaskActionExecutor {
         return result;
     }
 
-    private boolean callActionServiceMethod(ActionEvent action, Integer actionIndex, Map<String, Object> parameters, TaskContext taskContext)
+    private boolean callActionServiceMethod(ActionInvokerCache.ResolvedAction resolved, Integer actionIndex,
+                                            Map<String, Object> parameters, TaskContext taskContext)
             throws TaskHandlerException {
-        ServiceReference reference = bundleContext.getServiceReference(
-                action.getServiceInterface()
-        );
-        boolean serviceAvailable = reference != null;
+        ActionEvent action = resolved.getAction();
+        Object service = invokerCache.getService(action.getServiceInterface());
+        boolean serviceAvailable = service != null;
         if (serviceAvailable) {
-            Object service = bundleContext.getService(reference);
             String serviceMethod = action.getServiceMethod();
             MethodHandler methodHandler = new MethodHandler(action, parameters);
             try {
-                Method method = service.getClass().getMethod(serviceMethod, methodHandler.getClasses());
-
                 try {
-                    Object object = method.invoke(service, methodHandler.getObjects());
+                    Object object = invokerCache.invoke(service, serviceMethod, methodHandler.getClasses(),
+                            methodHandler.getObjects());
 
                     if (object != null) {
-                        addPostActionParametersToTaskContext(action, actionIndex, taskContext, object);
+                        addPostActionParametersToTaskContext(resolved, actionIndex, taskContext, object);
                     }
                 } catch (IllegalAccessException | InvocationTargetException e) {
                     throw new TaskHandlerException(
@@ -264,8 +305,8 @@ public class TaskActionExecutor {
         }
     }
 
-    private void addPostActionParametersToTaskContext(ActionEvent action, Integer actionIndex, TaskContext taskContext, Object object) throws TaskHandlerException {
-        for (ActionParameter postActionParameter : action.getPostActionParameters()) {
+    private void addPostActionParametersToTaskContext(ActionInvokerCache.ResolvedAction resolved, Integer actionIndex, TaskContext taskContext, Object object) throws TaskHandlerException {
+        for (ActionParameter postActionParameter : resolved.getPostActionParameters()) {
 
             taskContext.addPostActionParameterObject(actionIndex.toString(), postActionParameter.getKey(), object, true);
         }
@@ -273,6 +314,7 @@ public class TaskActionExecutor {
 
     public void setBundleContext(BundleContext bundleContext) {
         this.bundleContext = bundleContext;
+        this.invokerCache.setBundleContext(bundleContext);
     }
 
     @Autowired
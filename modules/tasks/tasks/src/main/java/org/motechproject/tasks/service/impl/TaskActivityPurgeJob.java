@@ -0,0 +1,253 @@
+package org.motechproject.tasks.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.commons.date.util.DateTimeSourceUtil;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.tasks.domain.enums.TaskActivityType;
+import org.motechproject.tasks.repository.TaskActivitiesDataService;
+import org.motechproject.tasks.repository.TaskActivityPurger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.motechproject.config.SettingsUtils.getIntProperty;
+import static org.motechproject.config.SettingsUtils.getLongProperty;
+
+/**
+ * Periodically deletes task activities which are older than their retention period.
+ * <p>
+ * The retention period is set in days for every activity type, e.g. <code>task.activity.retention.success=7</code>,
+ * and can be changed for a single task with <code>task.activity.retention.task.{taskId}.{type}</code>. Activities of
+ * types without a retention period are kept forever. The purge runs every <code>task.activity.purge.interval</code>
+ * minutes and deletes at most <code>task.activity.purge.chunk.size</code> activities in a single transaction.
+ * <p>
+ * The settings are read again before every run, so changes take effect without restarting the module. No retention
+ * periods are set by default, so nothing is purged until one is configured. A non-positive interval disables the
+ * purge, the interval is then checked again every 60 minutes.
+ * <p>
+ * The purge runs on every node of a cluster. The activities are deleted in small chunks of expired rows, so purges
+ * running on several nodes at the same time delete disjoint or already deleted rows and do not corrupt anything.
+ */
+@Component
+public class TaskActivityPurgeJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskActivityPurgeJob.class);
+
+    public static final String RETENTION_KEY_PREFIX = "task.activity.retention.";
+    public static final String TASK_RETENTION_KEY_PREFIX = RETENTION_KEY_PREFIX + "task.";
+    public static final String PURGE_INTERVAL_KEY = "task.activity.purge.interval";
+    public static final String PURGE_CHUNK_SIZE_KEY = "task.activity.purge.chunk.size";
+
+    private static final long DEFAULT_PURGE_INTERVAL = 60;
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final TaskActivitiesDataService taskActivitiesDataService;
+    private final SettingsFacade settings;
+
+    private final DurationStatistics purgeTime = new DurationStatistics();
+    private final AtomicLong purgedCount = new AtomicLong();
+    private volatile double lastThroughput;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public TaskActivityPurgeJob(TaskActivitiesDataService taskActivitiesDataService,
+                                @Qualifier("tasksSettings") SettingsFacade settings) {
+        this.taskActivitiesDataService = taskActivitiesDataService;
+        this.settings = settings;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "motech-task-activity-purge");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduleNext(getPurgeInterval());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes all activities older than their retention period. The retention periods and the chunk size are read
+     * from the current settings.
+     *
+     * @return the number of deleted activities
+     */
+    public long purge() {
+        Map<TaskActivityType, Integer> retention = new EnumMap<>(TaskActivityType.class);
+        Map<Long, Map<TaskActivityType, Integer>> taskRetention = new HashMap<>();
+        readRetention(settings.asProperties(), retention, taskRetention);
+
+        if (retention.isEmpty() && taskRetention.isEmpty()) {
+            return 0;
+        }
+
+        TaskActivityPurger purger = new TaskActivityPurger(taskActivitiesDataService,
+                getIntProperty(settings, PURGE_CHUNK_SIZE_KEY, DEFAULT_CHUNK_SIZE));
+        DateTime now = DateTimeSourceUtil.now();
+        long start = System.nanoTime();
+        long deleted = 0;
+
+        try {
+            for (Map.Entry<TaskActivityType, Integer> entry : retention.entrySet()) {
+                TaskActivityType type = entry.getKey();
+                deleted += purger.deleteExpired(type, now.minusDays(entry.getValue()),
+                        getTasksWithOwnRetention(taskRetention, type));
+            }
+
+            for (Map.Entry<Long, Map<TaskActivityType, Integer>> task : taskRetention.entrySet()) {
+                for (Map.Entry<TaskActivityType, Integer> entry : task.getValue().entrySet()) {
+                    deleted += purger.deleteExpired(task.getKey(), entry.getKey(), now.minusDays(entry.getValue()));
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while purging task activities", e);
+        } finally {
+            long duration = System.nanoTime() - start;
+
+            purgeTime.record(duration);
+            purgedCount.addAndGet(deleted);
+            lastThroughput = deleted / Math.max(TimeUnit.NANOSECONDS.toMillis(duration) / 1000.0, 0.001);
+        }
+
+        LOGGER.info("Purged {} task activities", deleted);
+        return deleted;
+    }
+
+    /**
+     * Returns the statistics of the time spent on purging the activities.
+     *
+     * @return the purge time statistics
+     */
+    public DurationStatistics getPurgeTime() {
+        return purgeTime;
+    }
+
+    /**
+     * Returns the number of activities purged since the module was started.
+     *
+     * @return the number of purged activities
+     */
+    public long getPurgedCount() {
+        return purgedCount.get();
+    }
+
+    /**
+     * Returns the number of activities deleted per second during the last purge.
+     *
+     * @return the throughput of the last purge
+     */
+    public double getLastThroughput() {
+        return lastThroughput;
+    }
+
+    private void scheduleNext(long purgeInterval) {
+        final boolean enabled = purgeInterval > 0;
+
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (enabled) {
+                        purge();
+                    }
+                } finally {
+                    if (!scheduler.isShutdown()) {
+                        scheduleNext(getPurgeInterval());
+                    }
+                }
+            }
+        }, enabled ? purgeInterval : DEFAULT_PURGE_INTERVAL, TimeUnit.MINUTES);
+    }
+
+    private long getPurgeInterval() {
+        return getLongProperty(settings, PURGE_INTERVAL_KEY, DEFAULT_PURGE_INTERVAL);
+    }
+
+    private static List<Long> getTasksWithOwnRetention(Map<Long, Map<TaskActivityType, Integer>> taskRetention,
+                                                       TaskActivityType type) {
+        List<Long> tasks = new ArrayList<>();
+
+        for (Map.Entry<Long, Map<TaskActivityType, Integer>> entry : taskRetention.entrySet()) {
+            if (entry.getValue().containsKey(type)) {
+                tasks.add(entry.getKey());
+            }
+        }
+
+        return tasks;
+    }
+
+    private static void readRetention(Properties properties, Map<TaskActivityType, Integer> retention,
+                                      Map<Long, Map<TaskActivityType, Integer>> taskRetention) {
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(RETENTION_KEY_PREFIX)) {
+                continue;
+            }
+
+            // periods which are not set or not positive mean that the activities are kept forever
+            int days = getIntProperty(properties, key, 0);
+            if (days <= 0) {
+                continue;
+            }
+
+            if (key.startsWith(TASK_RETENTION_KEY_PREFIX)) {
+                String[] taskAndType = key.substring(TASK_RETENTION_KEY_PREFIX.length()).split("\\.");
+                TaskActivityType type = taskAndType.length == 2 ? getType(taskAndType[1]) : null;
+
+                if (type != null && StringUtils.isNumeric(taskAndType[0])) {
+                    Long taskId = Long.valueOf(taskAndType[0]);
+                    if (!taskRetention.containsKey(taskId)) {
+                        taskRetention.put(taskId, new EnumMap<TaskActivityType, Integer>(TaskActivityType.class));
+                    }
+                    taskRetention.get(taskId).put(type, days);
+                } else {
+                    LOGGER.error("Incorrect task activity retention key: {}", key);
+                }
+            } else {
+                TaskActivityType type = getType(key.substring(RETENTION_KEY_PREFIX.length()));
+
+                if (type != null) {
+                    retention.put(type, days);
+                } else {
+                    LOGGER.error("Incorrect task activity retention key: {}", key);
+                }
+            }
+        }
+    }
+
+    private static TaskActivityType getType(String name) {
+        try {
+            return TaskActivityType.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.motechproject.tasks.service.impl;
+
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.mds.query.QueryExecution;
+import org.motechproject.mds.query.QueryExecutor;
+import org.motechproject.mds.util.InstanceSecurityRestriction;
+import org.motechproject.tasks.domain.mds.task.TaskActivity;
+import org.motechproject.tasks.domain.mds.task.TaskExecutionProgress;
+import org.motechproject.tasks.repository.TaskActivitiesDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+import javax.jdo.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the progress of running task executions in memory and writes it to the database in batches.
+ * <p>
+ * The {@link TaskActivityServiceImpl} registers every activity it creates with {@link #track(TaskActivity)} and then
+ * changes the tracked copy instead of loading and updating the activity for every executed action. Changed activities
+ * are written in a single transaction every flush interval, or as soon as the number of changed activities reaches the
+ * batch size. Finished activities can also be written right away - by default this is done for failed executions, so
+ * errors are never lost, while successful executions are written with the next batch.
+ * <p>
+ * Tracked activities are forgotten once their finished state is written, or when they have not changed for a while.
+ * Changes to activities which are not tracked are written by the service directly.
+ */
+class TaskActivityRecorder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskActivityRecorder.class);
+
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private final TaskActivitiesDataService taskActivitiesDataService;
+    private final int batchSize;
+    private final boolean syncSuccess;
+    private final boolean syncErrors;
+
+    private final Map<Long, TaskActivity> activities = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastChanges = new ConcurrentHashMap<>();
+    private final Set<Long> changed = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private final Set<Long> finished = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private final DurationStatistics flushTime = new DurationStatistics();
+    private final ScheduledExecutorService scheduler;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+            evictIdle();
+        }
+    };
+
+    /**
+     * Creates the recorder and starts writing the changes every flush interval.
+     *
+     * @param taskActivitiesDataService the data service used for writing the activities
+     * @param flushInterval the time between writes, in milliseconds
+     * @param batchSize the number of changed activities which causes a write before the interval passes
+     * @param syncSuccess true if successfully finished activities should be written right away
+     * @param syncErrors true if failed activities should be written right away
+     */
+    TaskActivityRecorder(TaskActivitiesDataService taskActivitiesDataService, long flushInterval, int batchSize,
+                         boolean syncSuccess, boolean syncErrors) {
+        this.taskActivitiesDataService = taskActivitiesDataService;
+        this.batchSize = batchSize;
+        this.syncSuccess = syncSuccess;
+        this.syncErrors = syncErrors;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "motech-task-activity-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(flushTask, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts tracking the given activity. It must be a copy of an activity already saved in the database, not the
+     * persistent instance itself.
+     *
+     * @param activity the copy of the activity, with the id set
+     */
+    void track(TaskActivity activity) {
+        activities.put(activity.getId(), activity);
+        lastChanges.put(activity.getId(), System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the tracked copy of the activity with the given id.
+     *
+     * @param activityId the id of the activity
+     * @return the tracked copy, null if the activity is not tracked
+     */
+    TaskActivity get(Long activityId) {
+        return activityId == null ? null : activities.get(activityId);
+    }
+
+    /**
+     * Checks whether the given instance is the tracked copy of an activity.
+     *
+     * @param activity the activity to check
+     * @return true if the activity is tracked by this recorder, false otherwise
+     */
+    boolean isTracked(TaskActivity activity) {
+        return activity.getId() != null && activities.get(activity.getId()) == activity;
+    }
+
+    /**
+     * Marks the tracked activity as changed, so it gets written with the next batch, or right away if it has
+     * finished and the recorder is configured to write such activities synchronously.
+     *
+     * @param activity the changed tracked copy of the activity
+     * @param activityFinished true if the execution of the task has finished
+     * @param error true if the execution has failed
+     */
+    void changed(TaskActivity activity, boolean activityFinished, boolean error) {
+        Long activityId = activity.getId();
+
+        // the activity could have been evicted while it was being changed
+        activities.put(activityId, activity);
+        lastChanges.put(activityId, System.currentTimeMillis());
+        if (activityFinished) {
+            finished.add(activityId);
+        }
+        changed.add(activityId);
+
+        if (scheduler.isShutdown() || (activityFinished && (error ? syncErrors : syncSuccess))) {
+            flush(Collections.singletonList(activityId));
+        } else if (changed.size() >= batchSize) {
+            scheduler.execute(flushTask);
+        }
+    }
+
+    /**
+     * Writes all changed activities to the database.
+     */
+    void flush() {
+        flush(new ArrayList<>(changed));
+    }
+
+    /**
+     * Stops the periodic writes and writes the remaining changes.
+     */
+    void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Returns the statistics of the time spent on writing the batches of activities.
+     *
+     * @return the flush time statistics
+     */
+    DurationStatistics getFlushTime() {
+        return flushTime;
+    }
+
+    /**
+     * Returns the number of activities with changes waiting to be written.
+     *
+     * @return the number of changed activities
+     */
+    int getPendingCount() {
+        return changed.size();
+    }
+
+    /**
+     * Returns the number of activities tracked by this recorder.
+     *
+     * @return the number of tracked activities
+     */
+    int getTrackedCount() {
+        return activities.size();
+    }
+
+    private synchronized void flush(Collection<Long> activityIds) {
+        final List<Long> toWrite = new ArrayList<>(activityIds.size());
+        for (Long activityId : activityIds) {
+            if (changed.remove(activityId)) {
+                toWrite.add(activityId);
+            }
+        }
+
+        if (toWrite.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            taskActivitiesDataService.doInTransaction(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    write(toWrite);
+                }
+            });
+
+            for (Long activityId : toWrite) {
+                if (!changed.contains(activityId) && finished.remove(activityId)) {
+                    forget(activityId);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to write {} task activities, retrying with the next batch", toWrite.size(), e);
+            changed.addAll(toWrite);
+        } finally {
+            flushTime.record(System.nanoTime() - start);
+        }
+    }
+
+    private void write(List<Long> activityIds) {
+        for (TaskActivity persistent : findByIds(activityIds)) {
+            TaskActivity activity = activities.get(persistent.getId());
+
+            if (activity != null) {
+                synchronized (activity) {
+                    copyState(activity, persistent);
+                }
+                taskActivitiesDataService.update(persistent);
+            }
+        }
+    }
+
+    private List<TaskActivity> findByIds(final List<Long> activityIds) {
+        return taskActivitiesDataService.executeQuery(new QueryExecution<List<TaskActivity>>() {
+            @Override
+            public List<TaskActivity> execute(Query query, InstanceSecurityRestriction restriction) {
+                query.setFilter("ids.contains(id)");
+                query.declareParameters("java.util.Collection ids");
+
+                return (List<TaskActivity>) QueryExecutor.execute(query, activityIds, restriction);
+            }
+        });
+    }
+
+    private void copyState(TaskActivity from, TaskActivity to) {
+        to.setActivityType(from.getActivityType());
+        to.setMessage(from.getMessage());
+        to.setFields(from.getFields() == null ? null : new ArrayList<>(from.getFields()));
+        to.setStackTraceElement(from.getStackTraceElement());
+
+        TaskExecutionProgress progress = from.getTaskExecutionProgress();
+        if (progress != null && to.getTaskExecutionProgress() != null) {
+            to.getTaskExecutionProgress().setActionsSucceeded(progress.getActionsSucceeded());
+            to.getTaskExecutionProgress().setActionsFiltered(progress.getActionsFiltered());
+        }
+    }
+
+    private void evictIdle() {
+        long idleSince = System.currentTimeMillis() - IDLE_TIMEOUT_MILLIS;
+
+        for (Map.Entry<Long, Long> entry : lastChanges.entrySet()) {
+            Long activityId = entry.getKey();
+            if (entry.getValue() < idleSince && !changed.contains(activityId)) {
+                finished.remove(activityId);
+                forget(activityId);
+            }
+        }
+    }
+
+    private void forget(Long activityId) {
+        activities.remove(activityId);
+        lastChanges.remove(activityId);
+    }
+}
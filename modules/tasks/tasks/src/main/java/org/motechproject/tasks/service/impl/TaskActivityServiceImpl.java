@@ -3,6 +3,8 @@ package org.motechproject.tasks.service.impl;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.joda.time.DateTime;
 import org.motechproject.commons.api.Range;
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.config.SettingsFacade;
 import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryExecutor;
 import org.motechproject.mds.query.QueryParams;
@@ -14,12 +16,15 @@ import org.motechproject.tasks.domain.enums.TaskActivityType;
 import org.motechproject.tasks.domain.mds.task.TaskExecutionProgress;
 import org.motechproject.tasks.exception.TaskHandlerException;
 import org.motechproject.tasks.repository.TaskActivitiesDataService;
+import org.motechproject.tasks.repository.TaskActivityPurger;
 import org.motechproject.tasks.service.TaskActivityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import javax.jdo.Query;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,6 +33,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static org.motechproject.config.SettingsUtils.getIntProperty;
+import static org.motechproject.config.SettingsUtils.getLongProperty;
+
 @Service
 public class TaskActivityServiceImpl implements TaskActivityService {
 
@@ -37,69 +45,116 @@ public class TaskActivityServiceImpl implements TaskActivityService {
     private static final String TASK_DISABLED = "task.warning.taskDisabled";
     private static final String TASK_FILTERED = "task.filtered";
 
+    private static final String FLUSH_INTERVAL_KEY = "task.activity.flush.interval";
+    private static final String FLUSH_BATCH_SIZE_KEY = "task.activity.flush.batch.size";
+    private static final String SUCCESS_ASYNC_KEY = "task.activity.success.async";
+    private static final String ERROR_ASYNC_KEY = "task.activity.error.async";
+
+    private static final int DEFAULT_FLUSH_BATCH_SIZE = 500;
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
     private TaskActivitiesDataService taskActivitiesDataService;
 
-    @Autowired
+    private TaskActivityRecorder recorder;
+
     public TaskActivityServiceImpl(TaskActivitiesDataService taskActivitiesDataService) {
         this.taskActivitiesDataService = taskActivitiesDataService;
     }
 
+    @Autowired
+    public TaskActivityServiceImpl(TaskActivitiesDataService taskActivitiesDataService,
+                                   @Qualifier("tasksSettings") SettingsFacade settings) {
+        this(taskActivitiesDataService);
+
+        long flushInterval = getLongProperty(settings, FLUSH_INTERVAL_KEY, 0);
+        if (flushInterval > 0) {
+            recorder = new TaskActivityRecorder(taskActivitiesDataService, flushInterval,
+                    getIntProperty(settings, FLUSH_BATCH_SIZE_KEY, DEFAULT_FLUSH_BATCH_SIZE),
+                    !Boolean.parseBoolean(settings.getProperty(SUCCESS_ASYNC_KEY)),
+                    !Boolean.parseBoolean(settings.getProperty(ERROR_ASYNC_KEY)));
+        }
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        if (recorder != null) {
+            recorder.shutdown();
+        }
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public long addTaskStarted(Task task, Map<String, Object> parameters) {
-        int totalActions = task.getActions().size();
-        TaskActivity activity = taskActivitiesDataService.create(
-                new TaskActivity(TASK_IN_PROGRESS, Arrays.asList("0", String.valueOf(totalActions)), task.getId(), task.getTrigger().getDisplayName(),
-                        TaskActivityType.IN_PROGRESS, null, parameters, new TaskExecutionProgress(totalActions)));
+        TaskActivity activity = taskActivitiesDataService.create(newTaskStarted(task, parameters));
+
+        if (recorder != null) {
+            // the progress is kept on a copy, so the parameters do not have to be kept in memory
+            TaskActivity copy = newTaskStarted(task, null);
+            copy.setId(activity.getId());
+            recorder.track(copy);
+        }
+
         return activity.getId();
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void addTaskFiltered(Long activityId) {
-        TaskActivity activity = taskActivitiesDataService.findById(activityId);
+        TaskActivity activity = findActivity(activityId);
 
-        activity.setActivityType(TaskActivityType.FILTERED);
-        activity.setMessage(TASK_FILTERED);
-        taskActivitiesDataService.update(activity);
+        synchronized (activity) {
+            activity.setActivityType(TaskActivityType.FILTERED);
+            activity.setMessage(TASK_FILTERED);
+        }
+        save(activity, true, false);
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public boolean addSuccessfulExecution(Long activityId) {
-        TaskActivity activity = taskActivitiesDataService.findById(activityId);
+        TaskActivity activity = findActivity(activityId);
         if (activity == null) {
             return false;
         }
 
-        TaskExecutionProgress progress = activity.getTaskExecutionProgress();
-        progress.addSuccess();
+        boolean taskFinished;
+        synchronized (activity) {
+            activity.getTaskExecutionProgress().addSuccess();
+            taskFinished = updateTaskProgress(activity);
+        }
+        save(activity, taskFinished, false);
 
-        return updateTaskProgress(progress, activity);
+        return taskFinished;
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void addFilteredExecution(Long activityId) {
-        TaskActivity activity = taskActivitiesDataService.findById(activityId);
+        TaskActivity activity = findActivity(activityId);
         if (activity != null) {
-            TaskExecutionProgress progress = activity.getTaskExecutionProgress();
-            progress.addActionFiltered();
-
-            updateTaskProgress(progress, activity);
+            boolean taskFinished;
+            synchronized (activity) {
+                activity.getTaskExecutionProgress().addActionFiltered();
+                taskFinished = updateTaskProgress(activity);
+            }
+            save(activity, taskFinished, false);
         }
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void addFailedExecution(Long activityId, Throwable e) {
-        TaskActivity activity = taskActivitiesDataService.findById(activityId);
+        TaskActivity activity = findActivity(activityId);
 
         if (activity == null){
             return;
         }
 
-        if (activity.getActivityType() != TaskActivityType.ERROR) {
+        synchronized (activity) {
+            if (activity.getActivityType() == TaskActivityType.ERROR) {
+                return;
+            }
+
             activity.setMessage(e.getMessage());
             activity.setActivityType(TaskActivityType.ERROR);
 
@@ -108,8 +163,8 @@ public class TaskActivityServiceImpl implements TaskActivityService {
             }
 
             activity.setStackTraceElement(ExceptionUtils.getStackTrace(e));
-            taskActivitiesDataService.update(activity);
         }
+        save(activity, true, true);
     }
 
     @Override
@@ -132,11 +187,8 @@ public class TaskActivityServiceImpl implements TaskActivityService {
     }
 
     @Override
-    @Transactional
     public void deleteActivitiesForTask(Long taskId) {
-        for (TaskActivity msg : taskActivitiesDataService.byTask(taskId)) {
-            taskActivitiesDataService.delete(msg);
-        }
+        new TaskActivityPurger(taskActivitiesDataService, DELETE_CHUNK_SIZE).deleteByTask(taskId);
     }
 
     @Override
@@ -207,6 +259,33 @@ public class TaskActivityServiceImpl implements TaskActivityService {
         return taskActivitiesDataService.countByActivityTypesIdsAndDate(activityTypes, getActivityIdsIfLastExecution(lastExecution, activityTypes), dateRange);
     }
 
+    /**
+     * Returns statistics of time spent on writing batches of task activities.
+     *
+     * @return the flush time statistics, null if activities are written right away
+     */
+    public DurationStatistics getFlushTime() {
+        return recorder == null ? null : recorder.getFlushTime();
+    }
+
+    /**
+     * Returns the number of task activities with changes waiting to be written.
+     *
+     * @return the number of activities waiting to be written, 0 if activities are written right away
+     */
+    public int getPendingActivityCount() {
+        return recorder == null ? 0 : recorder.getPendingCount();
+    }
+
+    /**
+     * Returns the number of task activities whose progress is kept in memory until their tasks finish.
+     *
+     * @return the number of tracked activities, 0 if activities are written right away
+     */
+    public int getTrackedActivityCount() {
+        return recorder == null ? 0 : recorder.getTrackedCount();
+    }
+
     private Set<Long> getActivityIdsIfLastExecution(boolean lastExecution, Set<TaskActivityType> activityTypes) {
         return lastExecution ? getLatestActivitiesForTasks(activityTypes) : new HashSet<>();
     }
@@ -236,7 +315,8 @@ public class TaskActivityServiceImpl implements TaskActivityService {
         });
     }
 
-    private boolean updateTaskProgress(TaskExecutionProgress progress, TaskActivity activity) {
+    private boolean updateTaskProgress(TaskActivity activity) {
+        TaskExecutionProgress progress = activity.getTaskExecutionProgress();
         boolean taskFinished = (progress.getActionsSucceeded() + progress.getActionsFiltered()) == progress.getTotalActions();
 
         if (taskFinished) {
@@ -250,11 +330,30 @@ public class TaskActivityServiceImpl implements TaskActivityService {
         }
 
         updateTaskInProgressMessage(activity);
-        taskActivitiesDataService.update(activity);
 
         return taskFinished;
     }
 
+    private TaskActivity newTaskStarted(Task task, Map<String, Object> parameters) {
+        int totalActions = task.getActions().size();
+        return new TaskActivity(TASK_IN_PROGRESS, new ArrayList<>(Arrays.asList("0", String.valueOf(totalActions))),
+                task.getId(), task.getTrigger().getDisplayName(), TaskActivityType.IN_PROGRESS, null, parameters,
+                new TaskExecutionProgress(totalActions));
+    }
+
+    private TaskActivity findActivity(Long activityId) {
+        TaskActivity activity = recorder == null ? null : recorder.get(activityId);
+        return activity == null ? taskActivitiesDataService.findById(activityId) : activity;
+    }
+
+    private void save(TaskActivity activity, boolean taskFinished, boolean error) {
+        if (recorder != null && recorder.isTracked(activity)) {
+            recorder.changed(activity, taskFinished, error);
+        } else {
+            taskActivitiesDataService.update(activity);
+        }
+    }
+
     private void updateTaskInProgressMessage(TaskActivity activity) {
         if (TASK_IN_PROGRESS.equals(activity.getMessage())) {
             activity.getFields().set(0, String.valueOf(activity.getTaskExecutionProgress().getActionsSucceeded()));
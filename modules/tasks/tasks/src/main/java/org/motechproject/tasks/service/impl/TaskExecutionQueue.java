@@ -0,0 +1,175 @@
+package org.motechproject.tasks.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.commons.api.KeyedExecutor;
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.tasks.domain.mds.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.motechproject.config.SettingsUtils.getIntProperty;
+
+/**
+ * Runs task executions on a pool of worker threads, so that the tasks triggered by one event run in parallel.
+ * <p>
+ * Executions are queued by task - each task has its own bounded queue, and its executions run one at a time, in the
+ * order in which they were triggered. If <code>task.execution.correlation.key</code> is set, executions are queued by
+ * task and by the value of that trigger parameter instead, so only executions with the same value are ordered. When
+ * the queue is full, the thread triggering the task waits for space in it.
+ * <p>
+ * The queue is a synchronous handoff - the thread triggering the tasks waits in {@link #awaitAll(List)} until all of
+ * them have finished, so the trigger event is acknowledged only after its tasks have run, and is redelivered if the
+ * server stops before that. A failure of a single execution does not cause a redelivery, since the event would then
+ * run again all of its tasks, including those which have succeeded. The tasks report their own failures. The waiting
+ * thread must not hold a transaction, since the executions run in their own transactions on the workers.
+ * <p>
+ * Setting <code>task.execution.threads</code> to 0 runs the tasks in the thread that has triggered them.
+ */
+@Component
+public class TaskExecutionQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskExecutionQueue.class);
+
+    public static final String THREADS_KEY = "task.execution.threads";
+    public static final String QUEUE_CAPACITY_KEY = "task.execution.queue.capacity";
+    public static final String CORRELATION_KEY = "task.execution.correlation.key";
+
+    private static final int DEFAULT_THREADS = 10;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+    private static final String KEY_SEPARATOR = "|";
+
+    // executions triggered from a worker are run in place, since waiting for a queue there could exhaust the pool
+    private static final ThreadLocal<Boolean> IN_WORKER = new ThreadLocal<>();
+
+    private final KeyedExecutor executor;
+    private final String correlationKey;
+
+    @Autowired
+    public TaskExecutionQueue(@Qualifier("tasksSettings") SettingsFacade settings) {
+        int threads = getIntProperty(settings, THREADS_KEY, DEFAULT_THREADS);
+        int queueCapacity = getIntProperty(settings, QUEUE_CAPACITY_KEY, DEFAULT_QUEUE_CAPACITY);
+
+        correlationKey = StringUtils.trimToNull(settings.getProperty(CORRELATION_KEY));
+        executor = threads > 0
+                ? new KeyedExecutor("motech-tasks", threads, queueCapacity, 1, KeyedExecutor.OverflowPolicy.BLOCK)
+                : null;
+    }
+
+    /**
+     * Queues the execution of the given task.
+     *
+     * @param task the triggered task
+     * @param parameters the parameters of the trigger event
+     * @param execution the execution of the task
+     * @return the future completed once the execution has finished
+     */
+    public Future<?> execute(Task task, Map<String, Object> parameters, Runnable execution) {
+        final FutureTask<Object> future = new FutureTask<>(execution, null);
+
+        if (executor == null || Boolean.TRUE.equals(IN_WORKER.get())) {
+            future.run();
+            return future;
+        }
+
+        executor.execute(getKey(task, parameters), new Runnable() {
+            @Override
+            public void run() {
+                IN_WORKER.set(Boolean.TRUE);
+                try {
+                    future.run();
+                } finally {
+                    IN_WORKER.remove();
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Waits until all the given executions have finished. Failed executions are logged and counted, but their
+     * exceptions are not rethrown.
+     *
+     * @param executions the futures of the executions
+     * @return the number of failed executions
+     */
+    public int awaitAll(List<Future<?>> executions) {
+        int failures = 0;
+
+        for (Future<?> execution : executions) {
+            try {
+                execution.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Task execution has failed", e.getCause());
+                failures++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for task executions", e);
+            }
+        }
+
+        return failures;
+    }
+
+    /**
+     * Returns statistics of time task executions spent in the queues before being run.
+     *
+     * @return the queue wait statistics, null if tasks are run in the triggering thread
+     */
+    public DurationStatistics getWaitTime() {
+        return executor == null ? null : executor.getWaitTime();
+    }
+
+    /**
+     * Returns statistics of time spent on running the tasks.
+     *
+     * @return the execution time statistics, null if tasks are run in the triggering thread
+     */
+    public DurationStatistics getExecutionTime() {
+        return executor == null ? null : executor.getExecutionTime();
+    }
+
+    /**
+     * Returns the number of queued executions for every queue which currently has any executions waiting.
+     *
+     * @return the map of queue keys to the number of their queued executions
+     */
+    public Map<String, Integer> getQueueDepths() {
+        return executor == null ? Collections.<String, Integer>emptyMap() : executor.getQueueDepths();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Task execution queue stopped with {} executions still queued", executor.getTotalQueueDepth());
+            }
+        }
+    }
+
+    private String getKey(Task task, Map<String, Object> parameters) {
+        String key = String.valueOf(task.getId());
+
+        if (correlationKey != null && parameters != null) {
+            key += KEY_SEPARATOR + parameters.get(correlationKey);
+        }
+
+        return key;
+    }
+}
@@ -39,6 +39,7 @@ class TaskInitializer {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskInitializer.class);
 
     private TaskContext taskContext;
+    private DataSourceLookupCache lookupCache;
 
     /**
      * Class constructor.
@@ -46,7 +47,18 @@ class TaskInitializer {
      * @param taskContext  the task context
      */
     TaskInitializer(TaskContext taskContext) {
+        this(taskContext, new DataSourceLookupCache());
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param taskContext  the task context
+     * @param lookupCache  the cache of lookups executed for the current trigger event, not null
+     */
+    TaskInitializer(TaskContext taskContext, DataSourceLookupCache lookupCache) {
         this.taskContext = taskContext;
+        this.lookupCache = lookupCache;
     }
 
     /**
@@ -140,6 +152,6 @@ class TaskInitializer {
             lookupFields.put(lookup.getField(), keyEvaluator.evaluateTemplateString(lookup.getValue()));
         }
 
-        return provider.lookup(dataSource.getType(), dataSource.getName(), lookupFields);
+        return lookupCache.lookup(provider, dataSource.getType(), dataSource.getName(), lookupFields);
     }
 }
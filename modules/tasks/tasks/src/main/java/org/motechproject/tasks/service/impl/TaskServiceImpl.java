@@ -15,7 +15,9 @@ import org.motechproject.event.listener.EventRelay;
 import org.motechproject.event.listener.annotations.MotechListener;
 import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryExecutor;
+import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
+import org.motechproject.osgi.web.tracker.NamedServiceTracker;
 import org.motechproject.osgi.web.util.WebBundleUtil;
 import org.motechproject.tasks.compatibility.TaskMigrationManager;
 import org.motechproject.tasks.domain.mds.channel.ActionEvent;
@@ -40,7 +42,6 @@ import org.motechproject.tasks.service.TriggerEventService;
 import org.motechproject.tasks.service.TriggerHandler;
 import org.motechproject.tasks.validation.TaskValidator;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,11 +49,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import javax.jdo.Query;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -68,8 +69,13 @@ import static org.apache.commons.collections.CollectionUtils.isNotEmpty;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.motechproject.tasks.constants.EventDataKeys.CHANNEL_MODULE_NAME;
 import static org.motechproject.tasks.constants.EventDataKeys.DATA_PROVIDER_NAME;
+import static org.motechproject.tasks.constants.EventDataKeys.TASK_ID;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_DEREGISTER_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_REGISTER_SUBJECT;
 import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_UPDATE_SUBJECT;
 import static org.motechproject.tasks.constants.EventSubjects.DATA_PROVIDER_UPDATE_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.TASK_CRUD_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.TRIGGER_INDEX_REFRESH_SUBJECT;
 import static org.motechproject.tasks.service.util.HandlerPredicates.tasksWithRegisteredChannel;
 
 /**
@@ -88,6 +94,19 @@ public class TaskServiceImpl implements TaskService {
     private EventRelay eventRelay;
     private BundleContext bundleContext;
     private TaskMigrationManager taskMigrationManager;
+    private volatile NamedServiceTracker<TasksEventParser> parsers;
+    private final TaskTriggerIndex triggerIndex = new TaskTriggerIndex();
+
+    private final TaskTriggerIndex.TaskLoader taskLoader = new TaskTriggerIndex.TaskLoader() {
+        @Override
+        public Task load(Long taskId) {
+            Task task = tasksDataService.findById(taskId);
+            if (task != null) {
+                checkChannelAvailableInTask(task);
+            }
+            return task;
+        }
+    };
 
 
     private static final String[] TASK_TRIGGER_VALIDATION_ERRORS = new String[]{"task.validation.error.triggerNotExist",
@@ -148,7 +167,11 @@ public class TaskServiceImpl implements TaskService {
         fieldsToUpdate.add("enabled");
         fieldsToUpdate.add("failuresInRow");
 
-        tasksDataService.updateFromTransient(task, fieldsToUpdate);
+        Task updated = tasksDataService.updateFromTransient(task, fieldsToUpdate);
+        if (updated != null) {
+            checkChannelAvailableInTask(updated);
+            triggerIndex.updateAfterCommit(updated);
+        }
     }
 
     @Override
@@ -206,26 +229,10 @@ public class TaskServiceImpl implements TaskService {
         List<Task> list = null;
 
         if (isNotBlank(subject)) {
-            List enabledTasks = tasksDataService.executeQuery(new QueryExecution<List<Task>>() {
-                @Override
-                public List<Task> execute(Query query, InstanceSecurityRestriction restriction) {
-                    String byTriggerSubject = "trigger.subject == param";
-                    String isTaskActive = "enabled == true";
-                    String isUsingTimeWindow = "useTimeWindow == true";
-                    String filter = String.format("((%s) || (%s)) && (%s)", isTaskActive, isUsingTimeWindow, byTriggerSubject);
-
-                    query.setFilter(filter);
-                    query.declareParameters("java.lang.String param");
-                    query.setOrdering("id asc");
-
-                    return (List) QueryExecutor.execute(query, subject, restriction);
-                }
-            });
-            if (enabledTasks != null) {
-                checkChannelAvailableInTasks(enabledTasks);
-                list = checkTimeWindowInTasks(enabledTasks);
-                CollectionUtils.filter(list, tasksWithRegisteredChannel());
-            }
+            List<Task> enabledTasks = findTriggerableTasks(subject);
+
+            list = checkTimeWindowInTasks(enabledTasks);
+            CollectionUtils.filter(list, tasksWithRegisteredChannel());
         }
 
         return list == null ? new ArrayList<>() : list;
@@ -237,23 +244,23 @@ public class TaskServiceImpl implements TaskService {
             return null;
         }
 
-        try {
-            Collection<ServiceReference<TasksEventParser>> references = bundleContext.getServiceReferences(TasksEventParser.class, null);
-
-            for (ServiceReference<TasksEventParser> ref : references) {
-                TasksEventParser parser = bundleContext.getService(ref);
-                if (parser.getName().equals(name)) {
-                    return parser;
-                }
-            }
-        } catch (InvalidSyntaxException e) {
-            //Should never happen
-            LOGGER.error("Passed filter expression is incorrect.");
-        }
+        TasksEventParser parser = getParsers().getService(name);
 
         // If a non-null parser name has been found in the event parameter, yet it cannot be found in
         // the running context, this indicates an error
-        throw new CustomParserNotFoundException(name);
+        if (parser == null) {
+            throw new CustomParserNotFoundException(name);
+        }
+
+        return parser;
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        NamedServiceTracker<TasksEventParser> tracker = parsers;
+        if (tracker != null) {
+            tracker.close();
+        }
     }
 
     @Override
@@ -275,6 +282,7 @@ public class TaskServiceImpl implements TaskService {
         }
         LOGGER.info("Deleted task: {} with ID: {}", t.getName(), taskId);
         tasksDataService.delete(t);
+        triggerIndex.removeAfterCommit(taskId);
     }
 
     @MotechListener(subjects = CHANNEL_UPDATE_SUBJECT)
@@ -297,6 +305,8 @@ public class TaskServiceImpl implements TaskService {
             errors = validateActions(task, channel);
             handleValidationErrors(task, errors, TASK_ACTION_VALIDATION_ERRORS);
         }
+
+        refreshIndexedChannelAvailability();
     }
 
     @MotechListener(subjects = DATA_PROVIDER_UPDATE_SUBJECT)
@@ -327,6 +337,51 @@ public class TaskServiceImpl implements TaskService {
         }
     }
 
+    /**
+     * Refreshes the availability of channels in the tasks which can be triggered, after a channel has been
+     * registered or unregistered.
+     *
+     * @param event the channel registration event
+     */
+    @MotechListener(subjects = {CHANNEL_REGISTER_SUBJECT, CHANNEL_DEREGISTER_SUBJECT})
+    public void refreshTriggerIndexAfterChannelChange(MotechEvent event) {
+        LOGGER.debug("Refreshing channel availability of indexed tasks after event: {}", event.getSubject());
+        refreshIndexedChannelAvailability();
+    }
+
+    /**
+     * Notifies all nodes about a task change, including changes made directly through MDS, e.g. from the data
+     * browser. The MDS CRUD events are queue events handled by a single node, so the change is broadcast for the
+     * trigger indexes of all nodes.
+     *
+     * @param event the MDS CRUD event of the task
+     */
+    @MotechListener(subjects = TASK_CRUD_SUBJECT)
+    public void broadcastTaskChange(MotechEvent event) {
+        Object taskId = event.getParameters().get(Constants.MDSEvents.OBJECT_ID);
+
+        if (taskId != null) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put(TASK_ID, taskId);
+
+            eventRelay.broadcastEventMessage(new MotechEvent(TRIGGER_INDEX_REFRESH_SUBJECT, parameters));
+        }
+    }
+
+    /**
+     * Refreshes the changed task in the trigger index of this node. A deleted task is not found anymore, so it is
+     * removed from the index.
+     *
+     * @param event the event broadcast after the task has changed
+     */
+    @MotechListener(subjects = TRIGGER_INDEX_REFRESH_SUBJECT)
+    public void refreshTriggerIndexAfterTaskChange(MotechEvent event) {
+        Long taskId = (Long) event.getParameters().get(TASK_ID);
+        LOGGER.debug("Refreshing task {} in the trigger index", taskId);
+
+        triggerIndex.reload(taskId, taskLoader);
+    }
+
     @Override
     @Transactional
     public String exportTask(Long taskId) {
@@ -614,12 +669,12 @@ public class TaskServiceImpl implements TaskService {
 
             checkChannelAvailableInTask(existing);
 
-            tasksDataService.update(existing);
+            triggerIndex.updateAfterCommit(tasksDataService.update(existing));
         } else {
             LOGGER.debug("Creating task: {}", task.getName());
             checkChannelAvailableInTask(task);
 
-            tasksDataService.create(task);
+            triggerIndex.updateAfterCommit(tasksDataService.create(task));
         }
 
         LOGGER.info("Saved task: {}", task.getName());
@@ -710,6 +765,76 @@ public class TaskServiceImpl implements TaskService {
         return days.get(day).equals("true") ? true : false;
     }
 
+    private void refreshIndexedChannelAvailability() {
+        if (triggerIndex.isBuilt()) {
+            triggerIndex.reloadAll(taskLoader);
+        }
+    }
+
+    private List<Task> findTriggerableTasks(String subject) {
+        if (triggerIndex.isBuilt()) {
+            return triggerIndex.getTasks(subject);
+        }
+
+        long generation = triggerIndex.getGeneration();
+
+        List<Task> tasks = tasksDataService.executeQuery(new QueryExecution<List<Task>>() {
+            @Override
+            public List<Task> execute(Query query, InstanceSecurityRestriction restriction) {
+                String isTaskActive = "enabled == true";
+                String isUsingTimeWindow = "useTimeWindow == true";
+                String filter = String.format("(%s) || (%s)", isTaskActive, isUsingTimeWindow);
+
+                query.setFilter(filter);
+                query.setOrdering("id asc");
+
+                return (List) QueryExecutor.execute(query, restriction);
+            }
+        });
+
+        if (tasks == null) {
+            return new ArrayList<>();
+        }
+
+        checkChannelAvailableInTasks(tasks);
+
+        if (triggerIndex.build(tasks, generation)) {
+            return triggerIndex.getTasks(subject);
+        }
+
+        // a task has been saved while we were loading, the index will be built during the next lookup
+        List<Task> matching = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getTrigger() != null && subject.equals(task.getTrigger().getSubject())) {
+                matching.add(task);
+            }
+        }
+
+        return matching;
+    }
+
+    private NamedServiceTracker<TasksEventParser> getParsers() {
+        NamedServiceTracker<TasksEventParser> tracker = parsers;
+
+        if (tracker == null) {
+            synchronized (this) {
+                tracker = parsers;
+                if (tracker == null) {
+                    tracker = new NamedServiceTracker<TasksEventParser>(bundleContext, TasksEventParser.class) {
+                        @Override
+                        protected String getServiceName(TasksEventParser service) {
+                            return service.getName();
+                        }
+                    };
+                    tracker.open();
+                    parsers = tracker;
+                }
+            }
+        }
+
+        return tracker;
+    }
+
     @Autowired
     public void setTasksDataService(TasksDataService tasksDataService) {
         this.tasksDataService = tasksDataService;
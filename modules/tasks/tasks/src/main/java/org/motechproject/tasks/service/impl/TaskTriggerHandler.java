@@ -9,14 +9,19 @@ import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.listener.EventListenerRegistryService;
 import org.motechproject.event.listener.annotations.MotechListenerEventProxy;
 import org.motechproject.tasks.constants.EventDataKeys;
+import org.motechproject.tasks.domain.KeyInformation;
+import org.motechproject.tasks.domain.mds.task.DataSource;
 import org.motechproject.tasks.domain.mds.task.FilterSet;
+import org.motechproject.tasks.domain.mds.task.Lookup;
 import org.motechproject.tasks.domain.mds.task.Task;
 import org.motechproject.tasks.domain.mds.task.TaskActivity;
 import org.motechproject.tasks.exception.TaskHandlerException;
 import org.motechproject.tasks.service.TaskActivityService;
 import org.motechproject.tasks.service.TaskService;
 import org.motechproject.tasks.service.TriggerHandler;
+import org.motechproject.tasks.service.util.KeyEvaluator;
 import org.motechproject.tasks.service.util.TaskContext;
+import org.motechproject.tasks.service.util.TaskTemplate;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,9 +34,13 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 import static org.motechproject.tasks.constants.EventDataKeys.TASK_ID;
 import static org.motechproject.tasks.constants.TaskFailureCause.TRIGGER;
@@ -63,6 +72,9 @@ public class TaskTriggerHandler implements TriggerHandler {
     @Autowired
     private TasksPostExecutionHandler postExecutionHandler;
 
+    @Autowired
+    private TaskExecutionQueue executionQueue;
+
     private Map<String, DataProvider> dataProviders;
 
     @PostConstruct
@@ -112,7 +124,6 @@ public class TaskTriggerHandler implements TriggerHandler {
     }
 
     @Override
-    @Transactional
     public void handle(MotechEvent event) {
         LOGGER.info("Handling the motech event with subject: {}", event.getSubject());
 
@@ -131,14 +142,20 @@ public class TaskTriggerHandler implements TriggerHandler {
 
         List<Task> tasks = taskService.findActiveTasksForTriggerSubject(triggerSubject);
 
-        // Handle all tasks one by one
+        // All tasks handling this event share the results of data source lookups
+        DataSourceLookupCache lookupCache = new DataSourceLookupCache();
+        prefetchDataSources(tasks, parameters, lookupCache);
+
+        // Run all tasks and wait for them, so that the event is redelivered if the server stops before they have run.
+        // No transaction is held while waiting, the tasks run in their own transactions on the worker threads.
+        List<Future<?>> executions = new ArrayList<>(tasks.size());
         for (Task task : tasks) {
-            checkAndHandleTask(task, parameters);
+            executions.add(checkAndHandleTask(task, parameters, lookupCache));
         }
+        executionQueue.awaitAll(executions);
     }
 
     @Override
-    @Transactional
     public void handleRetry(MotechEvent event) {
         LOGGER.info("Handling the motech event with subject: {} for task retry", event.getSubject());
 
@@ -148,7 +165,8 @@ public class TaskTriggerHandler implements TriggerHandler {
         Task task = taskService.getTask((Long) eventMetadata.get(TASK_ID));
 
         if(task != null && task.isEnabled()) {
-            checkAndHandleTask(task, eventParams);
+            executionQueue.awaitAll(Collections.<Future<?>>singletonList(
+                    checkAndHandleTask(task, eventParams, new DataSourceLookupCache())));
         }
     }
 
@@ -156,15 +174,15 @@ public class TaskTriggerHandler implements TriggerHandler {
     @Transactional
     public void retryTask(Long activityId) {
         TaskActivity activity = activityService.getTaskActivityById(activityId);
-        handleTask(taskService.getTask(activity.getTask()), activity.getParameters());
+        handleTask(taskService.getTask(activity.getTask()), activity.getParameters(), new DataSourceLookupCache());
     }
 
-    private void handleTask(Task task, Map<String, Object> parameters) {
+    private void handleTask(Task task, Map<String, Object> parameters, DataSourceLookupCache lookupCache) {
         long activityId = activityService.addTaskStarted(task, parameters);
         Map<String, Object> metadata = prepareTaskMetadata(task.getId(), activityId);
 
         TaskContext taskContext = new TaskContext(task, parameters, metadata, activityService);
-        TaskInitializer initializer = new TaskInitializer(taskContext);
+        TaskInitializer initializer = new TaskInitializer(taskContext, lookupCache);
         List<FilterSet> filterSetList = new ArrayList<>(task.getTaskConfig().getFilters());
         boolean actionFilterResult = true;
         int executedAndFilteredActions = 0;
@@ -203,21 +221,98 @@ public class TaskTriggerHandler implements TriggerHandler {
     }
 
     /**
-     * Checks if the given task is still running. If not the task will be handled.
+     * Queues the given task for execution. Executions of the same task are run one at a time, in the order in which
+     * they were queued, while different tasks can be run in parallel.
      *
      * @param task the given task.
      * @param eventParameters parameters from the given event
+     * @param lookupCache the cache of data source lookups executed for the given event
+     * @return the future of the execution
      */
-    private void checkAndHandleTask(Task task, Map<String, Object> eventParameters) {
-        synchronized (task.getName()) {
-            handleTask(task, eventParameters);
+    private Future<?> checkAndHandleTask(Task task, Map<String, Object> eventParameters,
+                                         final DataSourceLookupCache lookupCache) {
+        // every execution gets its own copies of the task and the parameters, since handling errors modifies them
+        final Task execution = new Task(task);
+        final Map<String, Object> parameters = new HashMap<>(eventParameters);
+
+        return executionQueue.execute(execution, parameters, new Runnable() {
+            @Override
+            public void run() {
+                handleTask(execution, parameters, lookupCache);
+            }
+        });
+    }
+
+    /**
+     * Executes the data source lookups of the given tasks which depend only on the trigger parameters. Lookups of the
+     * same provider, type and lookup name are executed together, so that a provider can resolve them with a single
+     * query. Lookups which could not be executed here are executed again by the tasks, which report their errors.
+     *
+     * @param tasks the tasks handling the event
+     * @param parameters the parameters of the event
+     * @param lookupCache the cache for the results of the lookups
+     */
+    private void prefetchDataSources(List<Task> tasks, Map<String, Object> parameters, DataSourceLookupCache lookupCache) {
+        if (tasks.size() < 2 || MapUtils.isEmpty(dataProviders)) {
+            return;
         }
+
+        Map<List<String>, List<Map<String, String>>> lookups = new HashMap<>();
+
+        for (Task task : tasks) {
+            KeyEvaluator keyEvaluator = new KeyEvaluator(new TaskContext(task, parameters, null, activityService));
+
+            for (DataSource dataSource : task.getTaskConfig().getDataSources()) {
+                Map<String, String> lookupFields = evaluateTriggerLookupFields(dataSource, keyEvaluator);
+
+                if (lookupFields != null && dataProviders.containsKey(dataSource.getProviderName())) {
+                    List<String> lookup = Arrays.asList(dataSource.getProviderName(), dataSource.getType(), dataSource.getName());
+
+                    if (!lookups.containsKey(lookup)) {
+                        lookups.put(lookup, new ArrayList<Map<String, String>>());
+                    }
+                    lookups.get(lookup).add(lookupFields);
+                }
+            }
+        }
+
+        for (Map.Entry<List<String>, List<Map<String, String>>> entry : lookups.entrySet()) {
+            List<String> lookup = entry.getKey();
+
+            try {
+                lookupCache.prefetch(dataProviders.get(lookup.get(0)), lookup.get(1), lookup.get(2), entry.getValue());
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to prefetch lookup: {} of type: {} from provider: {}",
+                        lookup.get(2), lookup.get(1), lookup.get(0), e);
+            }
+        }
+    }
+
+    private Map<String, String> evaluateTriggerLookupFields(DataSource dataSource, KeyEvaluator keyEvaluator) {
+        Map<String, String> lookupFields = new HashMap<>();
+
+        try {
+            for (Lookup lookup : dataSource.getLookup()) {
+                for (KeyInformation key : TaskTemplate.compile(lookup.getValue()).getKeys()) {
+                    if (!key.fromTrigger()) {
+                        return null;
+                    }
+                }
+
+                lookupFields.put(lookup.getField(), keyEvaluator.evaluateTemplateString(lookup.getValue()));
+            }
+        } catch (TaskHandlerException | RuntimeException e) {
+            LOGGER.debug("Lookup fields of data source: {} could not be evaluated", dataSource.getName(), e);
+            return null;
+        }
+
+        return lookupFields;
     }
 
     @Override
     public void addDataProvider(DataProvider provider) {
         if (dataProviders == null) {
-            dataProviders = new HashMap<>();
+            dataProviders = new ConcurrentHashMap<>();
         }
 
         dataProviders.put(provider.getName(), provider);
@@ -238,6 +333,10 @@ public class TaskTriggerHandler implements TriggerHandler {
         this.dataProviders = dataProviders;
     }
 
+    void setExecutionQueue(TaskExecutionQueue executionQueue) {
+        this.executionQueue = executionQueue;
+    }
+
     private Map<String, Object> prepareTaskMetadata(Long taskId, long activityId) {
         Map<String, Object> metadata = new HashMap<>();
         metadata.put(EventDataKeys.TASK_ID, taskId);
@@ -0,0 +1,280 @@
+package org.motechproject.tasks.service.impl;
+
+import org.motechproject.tasks.domain.mds.task.Task;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory index of tasks which can be triggered, keyed by the subject of their trigger. It lets the
+ * {@link TaskServiceImpl} find the tasks to run for an incoming event without querying the database.
+ * <p>
+ * The index is built from the database once and is then kept up to date by the task service, which calls
+ * {@link #updateAfterCommit(Task)} and {@link #removeAfterCommit(Long)} whenever it saves or deletes a task.
+ * Changes are applied once the surrounding transaction commits, so the index never contains uncommitted changes.
+ * Tasks changed outside of the task service, or on another node, are reloaded with
+ * {@link #reload(Long, TaskLoader)}. Reads do not take any locks, writers replace the list of tasks for a subject
+ * as a whole.
+ * <p>
+ * The index keeps its own copies of the tasks and hands out copies too, made with the {@link Task#Task(Task)} copy
+ * constructor. Callers are free to change the state of the returned tasks themselves, like their enabled flag or
+ * validation errors, but the triggers, actions and configurations are shared with the indexed tasks and must not
+ * be modified.
+ */
+class TaskTriggerIndex {
+
+    private static final Comparator<Task> BY_ID = new Comparator<Task>() {
+        @Override
+        public int compare(Task first, Task second) {
+            return Long.compare(first.getId(), second.getId());
+        }
+    };
+
+    private final Map<String, List<Task>> tasksBySubject = new ConcurrentHashMap<>();
+    private final Map<Long, String> subjectsByTaskId = new HashMap<>();
+    private final Map<Long, Long> changeGenerations = new HashMap<>();
+
+    private volatile boolean built;
+    private long generation;
+
+    /**
+     * Loads the current state of a task.
+     */
+    interface TaskLoader {
+
+        /**
+         * Loads the task with the given id.
+         *
+         * @param taskId the id of the task
+         * @return the task, or null if it does not exist anymore
+         */
+        Task load(Long taskId);
+    }
+
+    /**
+     * Returns copies of the indexed tasks triggered by the given subject, ordered by their ids.
+     *
+     * @param subject the trigger subject
+     * @return the list of tasks
+     */
+    List<Task> getTasks(String subject) {
+        return copy(getIndexedTasks(subject));
+    }
+
+    /**
+     * Returns copies of all indexed tasks.
+     *
+     * @return the list of tasks
+     */
+    List<Task> getAllTasks() {
+        List<Task> all = new ArrayList<>();
+        for (List<Task> tasks : tasksBySubject.values()) {
+            all.addAll(copy(tasks));
+        }
+        return all;
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Returns the number of changes made since the index was created. It must be read before loading the tasks
+     * for {@link #build(List, long)}.
+     *
+     * @return the current generation of the index
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Fills the index with the given tasks, unless some task has changed since the given generation was read,
+     * since the tasks might have been loaded before that change.
+     *
+     * @param tasks the tasks which can be triggered
+     * @param loadedGeneration the generation read before the tasks were loaded
+     * @return true if the index has been built, false otherwise
+     */
+    synchronized boolean build(List<Task> tasks, long loadedGeneration) {
+        if (built) {
+            return true;
+        }
+        if (loadedGeneration != generation) {
+            return false;
+        }
+
+        for (Task task : tasks) {
+            if (canBeTriggered(task)) {
+                add(task);
+            }
+        }
+        built = true;
+
+        return true;
+    }
+
+    /**
+     * Puts the task into the index, or removes it if it cannot be triggered anymore, once the current transaction
+     * commits. If there is no transaction, the index is updated immediately.
+     *
+     * @param task the saved task
+     */
+    void updateAfterCommit(final Task task) {
+        if (task == null) {
+            return;
+        }
+
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                update(task);
+            }
+        });
+    }
+
+    /**
+     * Removes the task from the index once the current transaction commits. If there is no transaction, the index
+     * is updated immediately.
+     *
+     * @param taskId the id of the deleted task
+     */
+    void removeAfterCommit(final Long taskId) {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                remove(taskId);
+            }
+        });
+    }
+
+    /**
+     * Replaces the task with its current state. The task is loaded without holding the lock of the index, so lookups
+     * are not blocked by the query. If the task is changed in the index while it is being loaded, the loaded state
+     * might be older than that change, so the task is loaded again.
+     *
+     * @param taskId the id of the changed task
+     * @param loader the loader of the task
+     */
+    void reload(Long taskId, TaskLoader loader) {
+        while (built) {
+            long loadedGeneration = getGeneration();
+            Task task = loader.load(taskId);
+
+            synchronized (this) {
+                Long changeGeneration = changeGenerations.get(taskId);
+                if (changeGeneration == null || changeGeneration <= loadedGeneration) {
+                    if (task == null) {
+                        remove(taskId);
+                    } else {
+                        update(task);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads all indexed tasks.
+     *
+     * @param loader the loader of the tasks
+     * @see #reload(Long, TaskLoader)
+     */
+    void reloadAll(TaskLoader loader) {
+        List<Long> taskIds;
+        synchronized (this) {
+            taskIds = new ArrayList<>(subjectsByTaskId.keySet());
+        }
+
+        for (Long taskId : taskIds) {
+            reload(taskId, loader);
+        }
+    }
+
+    synchronized void update(Task task) {
+        generation++;
+        changeGenerations.put(task.getId(), generation);
+        if (built) {
+            remove(task.getId());
+            if (canBeTriggered(task)) {
+                add(task);
+            }
+        }
+    }
+
+    synchronized void remove(Long taskId) {
+        generation++;
+        changeGenerations.put(taskId, generation);
+        String subject = subjectsByTaskId.remove(taskId);
+
+        if (subject != null) {
+            List<Task> tasks = new ArrayList<>(getIndexedTasks(subject));
+            for (int i = 0; i < tasks.size(); ++i) {
+                if (taskId.equals(tasks.get(i).getId())) {
+                    tasks.remove(i);
+                    break;
+                }
+            }
+            put(subject, tasks);
+        }
+    }
+
+    private void add(Task task) {
+        String subject = task.getTrigger().getSubject();
+        List<Task> tasks = new ArrayList<>(getIndexedTasks(subject));
+
+        tasks.add(new Task(task));
+        Collections.sort(tasks, BY_ID);
+
+        subjectsByTaskId.put(task.getId(), subject);
+        put(subject, tasks);
+    }
+
+    private List<Task> getIndexedTasks(String subject) {
+        List<Task> tasks = tasksBySubject.get(subject);
+        return tasks == null ? Collections.<Task>emptyList() : tasks;
+    }
+
+    private List<Task> copy(List<Task> tasks) {
+        List<Task> copies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            copies.add(new Task(task));
+        }
+        return copies;
+    }
+
+    private void put(String subject, List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            tasksBySubject.remove(subject);
+        } else {
+            tasksBySubject.put(subject, Collections.unmodifiableList(tasks));
+        }
+    }
+
+    private boolean canBeTriggered(Task task) {
+        // the same condition as the one used when loading the tasks from the database
+        return task.getTrigger() != null && task.getTrigger().getSubject() != null
+                && (task.isEnabled() || task.isUsingTimeWindow());
+    }
+
+    private void afterCommit(final Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
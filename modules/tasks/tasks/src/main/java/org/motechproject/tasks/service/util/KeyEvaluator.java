@@ -13,15 +13,18 @@ import org.motechproject.tasks.exception.TaskHandlerException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.motechproject.tasks.domain.KeyInformation.ADDITIONAL_DATA_PREFIX;
 import static org.motechproject.tasks.domain.KeyInformation.POST_ACTION_PARAMETER_PREFIX;
 import static org.motechproject.tasks.domain.KeyInformation.TRIGGER_PREFIX;
-import static org.motechproject.tasks.domain.KeyInformation.parseAll;
 import static org.motechproject.tasks.constants.TaskFailureCause.POST_ACTION_PARAMETER;
 import static org.motechproject.tasks.constants.TaskFailureCause.TRIGGER;
 
@@ -46,6 +49,9 @@ public class KeyEvaluator {
     private static final int PARSE_DATE_PATTERN_BEGIN_INDEX = 10;
     private static final int MAP_GET_VALUE_PATTERN_BEGIN_INDEX = 9;
     private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+    private static final int MAX_CACHED_SPLIT_PATTERNS = 1000;
+
+    private static final ConcurrentMap<String, Pattern> SPLIT_PATTERNS = new ConcurrentHashMap<>();
 
     private TaskContext taskContext;
 
@@ -66,30 +72,40 @@ public class KeyEvaluator {
      * @throws TaskHandlerException if there was problem while manipulating the value
      */
     public String evaluateTemplateString(String template) throws TaskHandlerException {
-        String conversionTemplate = template;
-        List<KeyInformation> keysList = parseAll(template);
+        TaskTemplate compiled = TaskTemplate.compile(template);
+        List<KeyInformation> keysList = compiled.getKeys();
+
+        if (keysList.isEmpty()) {
+            return template;
+        }
+
+        List<String> values = new ArrayList<>(keysList.size());
+        Map<String, String> evaluated = new HashMap<>();
 
         for (KeyInformation key : keysList) {
-            Object value = getValue(key);
+            String stringValue = evaluated.get(key.getOriginalKey());
+
+            if (stringValue == null) {
+                Object value = getValue(key);
+
+                if (value == null && keysList.size() <= 1) {
+                    return null;
+                }
 
-            if (value == null && keysList.size() <=1) {
-                conversionTemplate = null;
-            } else {
                 if (value instanceof java.util.Date) {
                     SimpleDateFormat sdf = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
                     value = sdf.format(value);
                 }
-                String stringValue = value != null ? value.toString() : "";
-
+                stringValue = value != null ? value.toString() : "";
                 stringValue = manipulateValue(key.getManipulations(), stringValue);
 
-                conversionTemplate = conversionTemplate.replace(
-                        String.format("{{%s}}", key.getOriginalKey()), stringValue
-                );
+                evaluated.put(key.getOriginalKey(), stringValue);
             }
+
+            values.add(stringValue);
         }
 
-        return conversionTemplate;
+        return compiled.render(values);
     }
 
     /**
@@ -161,7 +177,7 @@ public class KeyEvaluator {
 
                         if (item.startsWith("{{") && item.endsWith("}}")) {
                             item = item.substring(2, item.length() - 2);
-                            KeyInformation subKey = KeyInformation.parse(item);
+                            KeyInformation subKey = TaskTemplate.compileKey(item);
                             Object subValue = getValue(subKey);
                             items[i] = subValue != null ? subValue.toString() : "";
                         }
@@ -324,7 +340,21 @@ public class KeyEvaluator {
         String regex = splitValue[0];
         int idx = Integer.parseInt(splitValue[1]);
 
-        return value.split(regex)[idx];
+        return getSplitPattern(regex).split(value)[idx];
+    }
+
+    private Pattern getSplitPattern(String regex) {
+        Pattern pattern = SPLIT_PATTERNS.get(regex);
+
+        if (pattern == null) {
+            if (SPLIT_PATTERNS.size() >= MAX_CACHED_SPLIT_PATTERNS) {
+                SPLIT_PATTERNS.clear();
+            }
+            pattern = Pattern.compile(regex);
+            SPLIT_PATTERNS.putIfAbsent(regex, pattern);
+        }
+
+        return pattern;
     }
 
     private String quarterManipulation(String value) {
@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -26,7 +27,7 @@ public class TaskContext {
     private Map<String, Object> parameters;
     private Map<String, Object> metadata;
     private TaskActivityService activityService;
-    private Set<DataSourceObject> dataSourceObjects;
+    private Map<String, DataSourceObject> dataSourceObjects;
     private Set<PostActionParameterObject> postActionParameters;
 
     /**
@@ -41,7 +42,7 @@ public class TaskContext {
         this.parameters = parameters;
         this.metadata = metadata;
         this.activityService = activityService;
-        this.dataSourceObjects = new HashSet<>();
+        this.dataSourceObjects = new HashMap<>();
         this.postActionParameters = new HashSet<>();
     }
 
@@ -53,7 +54,9 @@ public class TaskContext {
      * @param failIfDataNotFound  defines whether task should fail if the data wasn't found
      */
     public void addDataSourceObject(String objectId, Object dataSourceObject, boolean failIfDataNotFound) {
-        dataSourceObjects.add(new DataSourceObject(objectId, dataSourceObject, failIfDataNotFound));
+        if (!dataSourceObjects.containsKey(objectId)) {
+            dataSourceObjects.put(objectId, new DataSourceObject(objectId, dataSourceObject, failIfDataNotFound));
+        }
     }
 
     /**
@@ -177,12 +180,7 @@ public class TaskContext {
     }
 
     private DataSourceObject getDataSourceObject(String objectId) {
-        for (DataSourceObject dataSourceObject : dataSourceObjects) {
-            if (dataSourceObject.getObjectId().equals(objectId)) {
-                return dataSourceObject;
-            }
-        }
-        return null;
+        return dataSourceObjects.get(objectId);
     }
 
     public Set<PostActionParameterObject> getPostActionParameters() {
@@ -20,7 +20,6 @@ import java.util.List;
 import java.util.Map;
 
 import static org.apache.commons.collections.CollectionUtils.isEmpty;
-import static org.motechproject.tasks.domain.KeyInformation.parse;
 
 /**
  * The <code>TaskFilterExecutor</code> applies a list of filters in a #{@link TaskContext}.
@@ -63,7 +62,7 @@ public class TaskFilterExecutor {
 
         boolean filterCheck = false;
         for (Filter filter : filters) {
-            KeyInformation key = parse(filter.getKey());
+            KeyInformation key = TaskTemplate.compileKey(filter.getKey());
             Object value;
             try {
                 KeyEvaluator keyEvaluator = new KeyEvaluator(taskContext);
@@ -0,0 +1,134 @@
+package org.motechproject.tasks.service.util;
+
+import org.motechproject.tasks.domain.KeyInformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+
+import static org.apache.commons.lang.StringUtils.isEmpty;
+
+/**
+ * A parsed task template - the value of an action parameter, a data source lookup field or a filter key. The template
+ * is split once into the literal text and the {@link KeyInformation} of the dragged fields between it, so evaluating
+ * the template for an event only substitutes the values of the fields.
+ * <p>
+ * Parsed templates are cached by their text. Since a task is saved with new template texts whenever its fields change,
+ * the cache never returns a stale template and there is nothing to invalidate when a task is saved or deleted.
+ */
+public final class TaskTemplate {
+
+    private static final int MAX_CACHED_TEMPLATES = 10000;
+
+    private static final ConcurrentMap<String, TaskTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, KeyInformation> KEYS = new ConcurrentHashMap<>();
+
+    private final String template;
+    private final List<String> literals;
+    private final List<KeyInformation> keys;
+
+    private TaskTemplate(String template, List<String> literals, List<KeyInformation> keys) {
+        this.template = template;
+        this.literals = literals;
+        this.keys = keys;
+    }
+
+    /**
+     * Returns the parsed form of the given template.
+     *
+     * @param template the template, may contain any number of dragged fields
+     * @return the parsed template
+     * @throws IllegalArgumentException if any of the dragged fields has an incorrect format
+     */
+    public static TaskTemplate compile(String template) {
+        String text = isEmpty(template) ? "" : template;
+        TaskTemplate compiled = TEMPLATES.get(text);
+
+        if (compiled == null) {
+            compiled = parse(text);
+            cache(TEMPLATES, text, compiled);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Returns the parsed form of a single dragged field, without the surrounding brackets.
+     *
+     * @param key the string representation of the field
+     * @return the object representation of the field
+     * @throws IllegalArgumentException if the field has an incorrect format
+     * @see KeyInformation#parse(String)
+     */
+    public static KeyInformation compileKey(String key) {
+        KeyInformation compiled = KEYS.get(key);
+
+        if (compiled == null) {
+            compiled = KeyInformation.parse(key);
+            cache(KEYS, key, compiled);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Returns the dragged fields of this template, in the order in which they appear in it.
+     *
+     * @return the unmodifiable list of fields
+     */
+    public List<KeyInformation> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Builds the text of this template with the given values put in place of the dragged fields.
+     *
+     * @param values the values of the fields, in the same order as {@link #getKeys()}
+     * @return the evaluated template
+     */
+    public String render(List<String> values) {
+        if (keys.isEmpty()) {
+            return template;
+        }
+
+        StringBuilder builder = new StringBuilder(template.length());
+        for (int i = 0; i < keys.size(); ++i) {
+            builder.append(literals.get(i)).append(values.get(i));
+        }
+        builder.append(literals.get(keys.size()));
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static TaskTemplate parse(String template) {
+        List<String> literals = new ArrayList<>();
+        List<KeyInformation> keys = new ArrayList<>();
+        Matcher matcher = KeyInformation.KEY_PATTERN.matcher(template);
+        int literalStart = 0;
+
+        while (matcher.find()) {
+            literals.add(template.substring(literalStart, matcher.start()));
+            keys.add(compileKey(matcher.group(1)));
+            literalStart = matcher.end();
+        }
+        literals.add(template.substring(literalStart));
+
+        return new TaskTemplate(template, Collections.unmodifiableList(literals), Collections.unmodifiableList(keys));
+    }
+
+    private static <T> void cache(ConcurrentMap<String, T> cache, String text, T value) {
+        // templates are only added when tasks are created or changed, dropping them all once in a while is cheap
+        if (cache.size() >= MAX_CACHED_TEMPLATES) {
+            cache.clear();
+        }
+        cache.putIfAbsent(text, value);
+    }
+}
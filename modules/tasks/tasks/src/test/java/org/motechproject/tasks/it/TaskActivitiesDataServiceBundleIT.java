@@ -11,6 +11,7 @@ import org.motechproject.tasks.domain.mds.task.TaskActivity;
 import org.motechproject.tasks.domain.enums.TaskActivityType;
 import org.motechproject.tasks.domain.mds.task.TaskExecutionProgress;
 import org.motechproject.tasks.repository.TaskActivitiesDataService;
+import org.motechproject.tasks.repository.TaskActivityPurger;
 import org.motechproject.testing.osgi.BasePaxIT;
 import org.motechproject.testing.osgi.container.MotechNativeTestContainerFactory;
 import org.motechproject.testing.utils.TimeFaker;
@@ -21,6 +22,7 @@ import org.ops4j.pax.exam.spi.reactors.PerSuite;
 
 import javax.inject.Inject;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static java.util.Arrays.asList;
@@ -107,6 +109,36 @@ public class TaskActivitiesDataServiceBundleIT extends BasePaxIT {
         }
     }
 
+    @Test
+    public void shouldPurgeExpiredActivities() {
+        DateTime now = DateTime.now();
+
+        TimeFaker.fakeNow(now.minusDays(10));
+        taskActivitiesDataService.create(new TaskActivity("old", TASK_ID_1, SUCCESS));
+        TaskActivity oldSuccessOfExcludedTask = taskActivitiesDataService.create(new TaskActivity("old", TASK_ID_2, SUCCESS));
+        TaskActivity oldError = taskActivitiesDataService.create(new TaskActivity("old", TASK_ID_1, ERROR));
+        taskActivitiesDataService.create(new TaskActivity("old", TASK_ID_1, SUCCESS));
+
+        TimeFaker.fakeNow(now.minusDays(3));
+        TaskActivity recentSuccess = taskActivitiesDataService.create(new TaskActivity("recent", TASK_ID_1, SUCCESS));
+        TaskActivity recentSuccessOfExcludedTask = taskActivitiesDataService.create(new TaskActivity("recent", TASK_ID_2, SUCCESS));
+        TimeFaker.stopFakingTime();
+
+        // chunks of one activity, so that the purge needs several transactions
+        TaskActivityPurger purger = new TaskActivityPurger(taskActivitiesDataService, 1);
+
+        assertEquals(2, purger.deleteExpired(SUCCESS, now.minusDays(7), asList(TASK_ID_2)));
+        assertEquals(asList(oldSuccessOfExcludedTask, oldError, recentSuccess, recentSuccessOfExcludedTask),
+                taskActivitiesDataService.retrieveAll());
+
+        assertEquals(1, purger.deleteExpired(SUCCESS, now.minusDays(7), Collections.<Long>emptyList()));
+        assertEquals(1, purger.deleteExpired(TASK_ID_2, SUCCESS, now.minusDays(1)));
+        assertEquals(asList(oldError, recentSuccess), taskActivitiesDataService.retrieveAll());
+
+        assertEquals(2, purger.deleteByTask(TASK_ID_1));
+        assertTrue(taskActivitiesDataService.retrieveAll().isEmpty());
+    }
+
     private void clearDb() {
         taskActivitiesDataService.deleteAll();
     }
@@ -0,0 +1,83 @@
+package org.motechproject.tasks.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.commons.api.DataProvider;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DataSourceLookupCacheTest {
+
+    @Mock
+    private DataProvider provider;
+
+    private DataSourceLookupCache lookupCache = new DataSourceLookupCache();
+
+    @Before
+    public void setUp() {
+        when(provider.getName()).thenReturn("data-services");
+    }
+
+    @Test
+    public void shouldExecuteTheSameLookupOnlyOnce() {
+        when(provider.lookup("Patient", "byId", lookupFields("1"))).thenReturn("patient 1");
+
+        assertEquals("patient 1", lookupCache.lookup(provider, "Patient", "byId", lookupFields("1")));
+        assertEquals("patient 1", lookupCache.lookup(provider, "Patient", "byId", lookupFields("1")));
+        assertNull(lookupCache.lookup(provider, "Patient", "byId", lookupFields("2")));
+        assertNull(lookupCache.lookup(provider, "Patient", "byId", lookupFields("2")));
+        assertNull(lookupCache.lookup(provider, "Doctor", "byId", lookupFields("1")));
+
+        verify(provider, times(1)).lookup("Patient", "byId", lookupFields("1"));
+        verify(provider, times(1)).lookup("Patient", "byId", lookupFields("2"));
+        verify(provider, times(1)).lookup("Doctor", "byId", lookupFields("1"));
+    }
+
+    @Test
+    public void shouldPrefetchMissingLookupsWithOneCall() {
+        List<Map<String, String>> expected = asList(lookupFields("2"), lookupFields("3"));
+        when(provider.lookupAll("Patient", "byId", expected)).thenReturn(asList((Object) "patient 2", null));
+        when(provider.lookup("Patient", "byId", lookupFields("1"))).thenReturn("patient 1");
+
+        lookupCache.lookup(provider, "Patient", "byId", lookupFields("1"));
+        lookupCache.prefetch(provider, "Patient", "byId",
+                asList(lookupFields("1"), lookupFields("2"), lookupFields("3"), lookupFields("2")));
+
+        assertEquals("patient 1", lookupCache.lookup(provider, "Patient", "byId", lookupFields("1")));
+        assertEquals("patient 2", lookupCache.lookup(provider, "Patient", "byId", lookupFields("2")));
+        assertNull(lookupCache.lookup(provider, "Patient", "byId", lookupFields("3")));
+
+        verify(provider).lookupAll("Patient", "byId", expected);
+        verify(provider, times(1)).lookup(anyString(), anyString(), anyMap());
+    }
+
+    @Test
+    public void shouldNotPrefetchSingleLookup() {
+        lookupCache.prefetch(provider, "Patient", "byId", asList(lookupFields("1"), lookupFields("1")));
+
+        verify(provider, never()).lookupAll(anyString(), anyString(), anyList());
+    }
+
+    private Map<String, String> lookupFields(String id) {
+        Map<String, String> lookupFields = new HashMap<>();
+        lookupFields.put("id", id);
+        return lookupFields;
+    }
+}
@@ -2,6 +2,7 @@ package org.motechproject.tasks.service.impl;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -21,6 +22,7 @@ import org.motechproject.tasks.service.TaskActivityService;
 import org.motechproject.tasks.service.TaskService;
 import org.motechproject.tasks.service.util.TaskContext;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 
 import java.util.HashMap;
@@ -34,8 +36,11 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_CHANGED_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_UPDATE_SUBJECT;
 import static org.motechproject.tasks.domain.enums.ParameterType.MAP;
 import static org.motechproject.tasks.domain.enums.ParameterType.TEXTAREA;
 
@@ -81,14 +86,14 @@ public class TaskActionExecutorTest {
     }
 
     @Test
-    public void shouldRaiseEventWhenActionHasSubjectAndService_IfServiceIsNotAvailable() throws TaskHandlerException, ActionNotFoundException {
+    public void shouldRaiseEventWhenActionHasSubjectAndService_IfServiceIsNotAvailable() throws TaskHandlerException, ActionNotFoundException, InvalidSyntaxException {
         TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "serviceInterface", "serviceMethod");
         ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action").setSubject("actionSubject")
                 .setDescription("").setServiceInterface("serviceInterface").setServiceMethod("serviceMethod").setActionParameters(new TreeSet<ActionParameter>()).build();
         actionEvent.setActionParameters(new TreeSet<>());
         when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
 
-        when(bundleContext.getServiceReference("serviceInterface")).thenReturn(null);
+        when(bundleContext.getServiceReferences("serviceInterface", null)).thenReturn(null);
 
         Task task = new TaskBuilder().addAction(new TaskActionInformation("Action", "channel", "module", "0.1", "actionSubject")).build();
 
@@ -100,7 +105,7 @@ public class TaskActionExecutorTest {
     }
 
     @Test
-    public void shouldNotRaiseEventIfActionHasSubjectAndService_IfServiceIsAvailable() throws ActionNotFoundException, TaskHandlerException {
+    public void shouldNotRaiseEventIfActionHasSubjectAndService_IfServiceIsAvailable() throws ActionNotFoundException, TaskHandlerException, InvalidSyntaxException {
         TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "serviceInterface", "serviceMethod");
         ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action").setSubject("actionSubject")
                 .setDescription("").setServiceInterface("serviceInterface").setServiceMethod("serviceMethod")
@@ -108,7 +113,7 @@ public class TaskActionExecutorTest {
         when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
 
         ServiceReference serviceReference = mock(ServiceReference.class);
-        when(bundleContext.getServiceReference("serviceInterface")).thenReturn(serviceReference);
+        when(bundleContext.getServiceReferences("serviceInterface", null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(new TestService());
 
         Task task = new TaskBuilder().addAction(new TaskActionInformation("Action", "channel", "module", "0.1", "actionSubject")).build();
@@ -121,7 +126,7 @@ public class TaskActionExecutorTest {
     }
 
     @Test
-    public void shouldInvokeServiceIfActionHasService() throws ActionNotFoundException, TaskHandlerException {
+    public void shouldInvokeServiceIfActionHasService() throws ActionNotFoundException, TaskHandlerException, InvalidSyntaxException {
         TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "serviceInterface", "serviceMethod");
         ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action")
                 .setDescription("").setServiceInterface("serviceInterface").setServiceMethod("serviceMethod")
@@ -129,7 +134,7 @@ public class TaskActionExecutorTest {
         when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
 
         ServiceReference serviceReference = mock(ServiceReference.class);
-        when(bundleContext.getServiceReference("serviceInterface")).thenReturn(serviceReference);
+        when(bundleContext.getServiceReferences("serviceInterface", null)).thenReturn(new ServiceReference[]{serviceReference});
         TestService testService = new TestService();
         when(bundleContext.getService(serviceReference)).thenReturn(testService);
 
@@ -172,7 +177,7 @@ public class TaskActionExecutorTest {
     }
 
     @Test
-    public void shouldAddActivityNotificationIfServiceIsNotAvailable() throws TaskHandlerException, ActionNotFoundException {
+    public void shouldAddActivityNotificationIfServiceIsNotAvailable() throws TaskHandlerException, ActionNotFoundException, InvalidSyntaxException {
         TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "serviceInterface", "serviceMethod");
         ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action").setSubject("actionSubject")
                 .setDescription("").setServiceInterface("serviceInterface").setServiceMethod("serviceMethod")
@@ -180,7 +185,7 @@ public class TaskActionExecutorTest {
         actionEvent.setActionParameters(new TreeSet<>());
         when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
 
-        when(bundleContext.getServiceReference("serviceInterface")).thenReturn(null);
+        when(bundleContext.getServiceReferences("serviceInterface", null)).thenReturn(null);
 
         Task task = new TaskBuilder().addAction(new TaskActionInformation("Action", "channel", "module", "0.1", "actionSubject")).build();
 
@@ -218,7 +223,7 @@ public class TaskActionExecutorTest {
 
         ServiceReference serviceReference = mock(ServiceReference.class);
 
-        when(bundleContext.getServiceReference("serviceInterface")).thenReturn(serviceReference);
+        when(bundleContext.getServiceReferences("serviceInterface", null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(new TestService());
 
         Task task = new Task();
@@ -238,6 +243,53 @@ public class TaskActionExecutorTest {
 
     }
 
+    @Test
+    public void shouldCacheActionsAndServicesUntilChannelIsUpdated() throws Exception {
+        TaskActionInformation actionInformation = new TaskActionInformation("action", "channel", "module", "0.1", "serviceInterface", "serviceMethod");
+        ActionEvent actionEvent = new ActionEventBuilder().setDisplayName("Action")
+                .setDescription("").setServiceInterface("serviceInterface").setServiceMethod("serviceMethod")
+                .setActionParameters(new TreeSet<>()).build();
+        when(taskService.getActionEventFor(actionInformation)).thenReturn(actionEvent);
+
+        ServiceReference serviceReference = mock(ServiceReference.class);
+        when(bundleContext.getServiceReferences("serviceInterface", null)).thenReturn(new ServiceReference[]{serviceReference});
+        TestService testService = new TestService();
+        when(bundleContext.getService(serviceReference)).thenReturn(testService);
+
+        Task task = new TaskBuilder().addAction(actionInformation).build();
+
+        taskActionExecutor.setBundleContext(bundleContext);
+
+        taskActionExecutor.execute(task, actionInformation, 0, new TaskContext(task, new HashMap<>(), new HashMap<>(), activityService), TASK_ACTIVITY_ID);
+        taskActionExecutor.execute(task, actionInformation, 0, new TaskContext(task, new HashMap<>(), new HashMap<>(), activityService), TASK_ACTIVITY_ID);
+
+        verify(taskService, times(1)).getActionEventFor(actionInformation);
+        verify(bundleContext, times(1)).getServiceReferences("serviceInterface", null);
+        assertTrue(testService.serviceMethodInvoked());
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(EventDataKeys.CHANNEL_MODULE_NAME, "module");
+        taskActionExecutor.handleChannelChange(new MotechEvent(CHANNEL_CHANGED_SUBJECT, parameters));
+
+        taskActionExecutor.execute(task, actionInformation, 0, new TaskContext(task, new HashMap<>(), new HashMap<>(), activityService), TASK_ACTIVITY_ID);
+
+        verify(taskService, times(2)).getActionEventFor(actionInformation);
+        verify(bundleContext, times(1)).getServiceReferences("serviceInterface", null);
+    }
+
+    @Test
+    public void shouldBroadcastChannelChangeToAllNodes() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(EventDataKeys.CHANNEL_MODULE_NAME, "module");
+
+        taskActionExecutor.broadcastChannelChange(new MotechEvent(CHANNEL_UPDATE_SUBJECT, parameters));
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay).broadcastEventMessage(captor.capture());
+        assertEquals(CHANNEL_CHANGED_SUBJECT, captor.getValue().getSubject());
+        assertEquals("module", captor.getValue().getParameters().get(EventDataKeys.CHANNEL_MODULE_NAME));
+    }
+
     private MotechEvent prepareMotechEvent() {
         Map<String, Object> parameters = new HashMap<>();
         Map<String, Object> map = new HashMap<>();
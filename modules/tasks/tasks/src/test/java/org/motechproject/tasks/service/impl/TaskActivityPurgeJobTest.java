@@ -0,0 +1,158 @@
+package org.motechproject.tasks.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.mds.query.QueryExecution;
+import org.motechproject.tasks.repository.TaskActivitiesDataService;
+import org.springframework.transaction.support.TransactionCallback;
+
+import javax.jdo.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskActivityPurgeJobTest {
+
+    @Mock
+    private TaskActivitiesDataService taskActivitiesDataService;
+
+    @Mock
+    private SettingsFacade settings;
+
+    private List<QueryExecution> executions = new ArrayList<>();
+
+    private Object[] queryArguments;
+
+    @Before
+    public void setUp() {
+        when(taskActivitiesDataService.doInTransaction(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return ((TransactionCallback) invocation.getArguments()[0]).doInTransaction(null);
+            }
+        });
+        when(taskActivitiesDataService.executeQuery(any(QueryExecution.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                executions.add((QueryExecution) invocation.getArguments()[0]);
+                return 0L;
+            }
+        });
+    }
+
+    @Test
+    public void shouldPurgeActivitiesOfTypesWithRetentionPeriod() {
+        Properties properties = new Properties();
+        properties.setProperty("task.activity.retention.success", "7");
+        properties.setProperty("task.activity.retention.error", "");
+        properties.setProperty("task.activity.retention.unknown", "5");
+        when(settings.asProperties()).thenReturn(properties);
+
+        new TaskActivityPurgeJob(taskActivitiesDataService, settings).purge();
+
+        assertEquals(1, executions.size());
+
+        Query query = execute(executions.get(0));
+        verify(query).setFilter("activityType == type && date < before");
+        verify(query).setRange(0, 1000);
+    }
+
+    @Test
+    public void shouldPurgeActivitiesOfTasksWithOwnRetentionPeriodSeparately() {
+        Properties properties = new Properties();
+        properties.setProperty("task.activity.retention.success", "7");
+        properties.setProperty("task.activity.retention.task.3.success", "1");
+        when(settings.asProperties()).thenReturn(properties);
+        when(settings.getProperty("task.activity.purge.chunk.size")).thenReturn("50");
+
+        new TaskActivityPurgeJob(taskActivitiesDataService, settings).purge();
+
+        assertEquals(2, executions.size());
+
+        Query global = execute(executions.get(0));
+        verify(global).setFilter("activityType == type && date < before && !excludedTasks.contains(task)");
+        verify(global).setRange(0, 50);
+        assertEquals(asList(3L), queryArguments[2]);
+
+        Query task = execute(executions.get(1));
+        verify(task).setFilter("task == taskId && activityType == type && date < before");
+        assertEquals(3L, queryArguments[0]);
+    }
+
+    @Test
+    public void shouldDeleteActivitiesInChunks() {
+        Properties properties = new Properties();
+        properties.setProperty("task.activity.retention.error", "90");
+        when(settings.asProperties()).thenReturn(properties);
+        when(settings.getProperty("task.activity.purge.chunk.size")).thenReturn("100");
+        when(taskActivitiesDataService.executeQuery(any(QueryExecution.class))).thenReturn(100L, 100L, 30L);
+
+        TaskActivityPurgeJob job = new TaskActivityPurgeJob(taskActivitiesDataService, settings);
+
+        assertEquals(230, job.purge());
+        assertEquals(230, job.getPurgedCount());
+        assertEquals(1, job.getPurgeTime().getCount());
+        assertTrue(job.getLastThroughput() > 0);
+        verify(taskActivitiesDataService, times(3)).doInTransaction(any(TransactionCallback.class));
+    }
+
+    @Test
+    public void shouldReadSettingsAgainOnEveryPurge() {
+        Properties properties = new Properties();
+        when(settings.asProperties()).thenReturn(properties);
+
+        TaskActivityPurgeJob job = new TaskActivityPurgeJob(taskActivitiesDataService, settings);
+
+        assertEquals(0, job.purge());
+        assertTrue(executions.isEmpty());
+
+        properties.setProperty("task.activity.retention.success", "7");
+        when(settings.getProperty("task.activity.purge.chunk.size")).thenReturn("20");
+
+        job.purge();
+
+        assertEquals(1, executions.size());
+        verify(execute(executions.get(0))).setRange(0, 20);
+    }
+
+    @Test
+    public void shouldNotPurgeAnythingWithoutRetentionPeriods() {
+        when(settings.asProperties()).thenReturn(new Properties());
+
+        assertEquals(0, new TaskActivityPurgeJob(taskActivitiesDataService, settings).purge());
+        assertTrue(executions.isEmpty());
+    }
+
+    private Query execute(QueryExecution execution) {
+        Query query = mock(Query.class);
+        when(query.executeWithArray(anyVararg())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                queryArguments = invocation.getArguments();
+                return Collections.emptyList();
+            }
+        });
+
+        execution.execute(query, null);
+
+        return query;
+    }
+}
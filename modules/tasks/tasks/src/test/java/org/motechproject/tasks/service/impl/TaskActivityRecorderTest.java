@@ -0,0 +1,146 @@
+package org.motechproject.tasks.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.mds.query.QueryExecution;
+import org.motechproject.tasks.domain.enums.TaskActivityType;
+import org.motechproject.tasks.domain.mds.task.TaskActivity;
+import org.motechproject.tasks.domain.mds.task.TaskExecutionProgress;
+import org.motechproject.tasks.repository.TaskActivitiesDataService;
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskActivityRecorderTest {
+
+    private static final long HOUR = 3600000L;
+
+    @Mock
+    private TaskActivitiesDataService taskActivitiesDataService;
+
+    private TaskActivityRecorder recorder;
+
+    private TaskActivity first;
+    private TaskActivity second;
+    private TaskActivity persistentFirst;
+    private TaskActivity persistentSecond;
+
+    @Before
+    public void setUp() {
+        recorder = new TaskActivityRecorder(taskActivitiesDataService, HOUR, 100, false, true);
+
+        first = createInProgress(1L);
+        second = createInProgress(2L);
+        persistentFirst = createInProgress(1L);
+        persistentSecond = createInProgress(2L);
+
+        when(taskActivitiesDataService.doInTransaction(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return ((TransactionCallback) invocation.getArguments()[0]).doInTransaction(null);
+            }
+        });
+        when(taskActivitiesDataService.executeQuery(any(QueryExecution.class)))
+                .thenReturn(asList(persistentFirst, persistentSecond));
+
+        recorder.track(first);
+        recorder.track(second);
+    }
+
+    @After
+    public void tearDown() {
+        recorder.shutdown();
+    }
+
+    @Test
+    public void shouldWriteChangedActivitiesInOneTransaction() {
+        first.getTaskExecutionProgress().addSuccess();
+        first.getFields().set(0, "1");
+        recorder.changed(first, false, false);
+        second.getTaskExecutionProgress().addActionFiltered();
+        recorder.changed(second, false, false);
+
+        verify(taskActivitiesDataService, never()).update(any(TaskActivity.class));
+        assertEquals(2, recorder.getPendingCount());
+
+        recorder.flush();
+
+        verify(taskActivitiesDataService, times(1)).doInTransaction(any(TransactionCallback.class));
+        verify(taskActivitiesDataService).update(persistentFirst);
+        verify(taskActivitiesDataService).update(persistentSecond);
+        assertEquals(1, persistentFirst.getTaskExecutionProgress().getActionsSucceeded());
+        assertEquals("1", persistentFirst.getFields().get(0));
+        assertEquals(1, persistentSecond.getTaskExecutionProgress().getActionsFiltered());
+        assertEquals(0, recorder.getPendingCount());
+        assertEquals(1, recorder.getFlushTime().getCount());
+    }
+
+    @Test
+    public void shouldWriteFailedActivitiesRightAway() {
+        when(taskActivitiesDataService.executeQuery(any(QueryExecution.class))).thenReturn(asList(persistentFirst));
+
+        first.setActivityType(TaskActivityType.ERROR);
+        first.setMessage("error");
+        first.setStackTraceElement("stack trace");
+        recorder.changed(first, true, true);
+
+        verify(taskActivitiesDataService).update(persistentFirst);
+        verify(taskActivitiesDataService, never()).update(persistentSecond);
+        assertEquals(TaskActivityType.ERROR, persistentFirst.getActivityType());
+        assertEquals("error", persistentFirst.getMessage());
+        assertEquals("stack trace", persistentFirst.getStackTraceElement());
+    }
+
+    @Test
+    public void shouldForgetActivitiesOnceTheirFinishedStateIsWritten() {
+        first.setActivityType(TaskActivityType.SUCCESS);
+        recorder.changed(first, true, false);
+        recorder.changed(second, false, false);
+
+        assertTrue(recorder.isTracked(first));
+
+        recorder.flush();
+
+        assertNull(recorder.get(1L));
+        assertFalse(recorder.isTracked(first));
+        assertTrue(recorder.isTracked(second));
+        assertEquals(1, recorder.getTrackedCount());
+    }
+
+    @Test
+    public void shouldRetryWritingChangesWhenTransactionFails() {
+        recorder.changed(first, false, false);
+        when(taskActivitiesDataService.doInTransaction(any(TransactionCallback.class)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        recorder.flush();
+
+        assertEquals(1, recorder.getPendingCount());
+    }
+
+    private TaskActivity createInProgress(Long id) {
+        TaskActivity activity = new TaskActivity("task.inProgress", new ArrayList<>(Arrays.asList("0", "2")), 10L,
+                TaskActivityType.IN_PROGRESS, new TaskExecutionProgress(2));
+        activity.setId(id);
+        return activity;
+    }
+}
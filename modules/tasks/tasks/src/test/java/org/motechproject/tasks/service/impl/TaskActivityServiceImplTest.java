@@ -4,19 +4,27 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.util.Order;
 import org.motechproject.tasks.domain.mds.task.Task;
+import org.motechproject.tasks.domain.mds.task.TaskActionInformation;
 import org.motechproject.tasks.domain.mds.task.TaskActivity;
 import org.motechproject.tasks.domain.enums.TaskActivityType;
 import org.motechproject.tasks.domain.mds.task.TaskExecutionProgress;
+import org.motechproject.tasks.domain.mds.task.TaskTriggerInformation;
 import org.motechproject.tasks.exception.TaskHandlerException;
 import org.motechproject.tasks.repository.TaskActivitiesDataService;
 import org.motechproject.tasks.service.TaskActivityService;
+import org.springframework.transaction.support.TransactionCallback;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -26,7 +34,9 @@ import static java.util.Arrays.asList;
 import static org.apache.commons.lang.exception.ExceptionUtils.getStackTrace;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -79,6 +89,50 @@ public class TaskActivityServiceImplTest {
         assertActivity(messageKey, ERROR_FIELD, TASK_ID, TaskActivityType.ERROR, getStackTrace(exception), null, captor.getValue());
     }
 
+    @Test
+    public void shouldExposeMetricsOfActivityRecorder() {
+        SettingsFacade settings = mock(SettingsFacade.class);
+        when(settings.getProperty("task.activity.flush.interval")).thenReturn("3600000");
+        when(taskActivitiesDataService.create(any(TaskActivity.class))).thenAnswer(new Answer<TaskActivity>() {
+            @Override
+            public TaskActivity answer(InvocationOnMock invocation) {
+                TaskActivity activity = (TaskActivity) invocation.getArguments()[0];
+                activity.setId(TASK_ACTIVITY_ID);
+                return activity;
+            }
+        });
+
+        TaskActivityServiceImpl recordingService = new TaskActivityServiceImpl(taskActivitiesDataService, settings);
+        try {
+            TaskActionInformation action = new TaskActionInformation("send", "test", "test", "0.12", "send.subject");
+            Task twoActions = new Task("task", new TaskTriggerInformation("receive", "test", "test", "0.15",
+                    "trigger.subject", "trigger.subject"), asList(action, action), null, true, true);
+            twoActions.setId(TASK_ID);
+
+            long activityId = recordingService.addTaskStarted(twoActions, new HashMap<String, Object>());
+
+            assertEquals(1, recordingService.getTrackedActivityCount());
+            assertEquals(0, recordingService.getPendingActivityCount());
+
+            // the first of two actions does not finish the task, so its progress waits for the next batch
+            recordingService.addSuccessfulExecution(activityId);
+
+            assertEquals(1, recordingService.getPendingActivityCount());
+            assertNotNull(recordingService.getFlushTime());
+        } finally {
+            recordingService.preDestroy();
+        }
+    }
+
+    @Test
+    public void shouldReportNoRecorderMetricsWhenActivitiesAreWrittenRightAway() {
+        TaskActivityServiceImpl service = (TaskActivityServiceImpl) activityService;
+
+        assertNull(service.getFlushTime());
+        assertEquals(0, service.getPendingActivityCount());
+        assertEquals(0, service.getTrackedActivityCount());
+    }
+
     @Test
     public void shouldAddTaskFilteredActivity() {
         when(taskActivitiesDataService.findById(TASK_ACTIVITY_ID)).thenReturn(createInProgress());
@@ -155,19 +209,28 @@ public class TaskActivityServiceImplTest {
 
     @Test
     public void shouldDeleteAllTaskActivitiesForGivenTask() {
-        when(taskActivitiesDataService.byTask(TASK_ID)).thenReturn(activities);
+        when(taskActivitiesDataService.doInTransaction(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return ((TransactionCallback) invocation.getArguments()[0]).doInTransaction(null);
+            }
+        });
+        when(taskActivitiesDataService.executeQuery(any(QueryExecution.class))).thenReturn(1000L, 1000L, 12L);
 
         activityService.deleteActivitiesForTask(TASK_ID);
 
-        verify(taskActivitiesDataService, times(activities.size())).delete(any(TaskActivity.class));
+        verify(taskActivitiesDataService, times(3)).doInTransaction(any(TransactionCallback.class));
+        verify(taskActivitiesDataService, never()).byTask(TASK_ID);
+        verify(taskActivitiesDataService, never()).delete(any(TaskActivity.class));
     }
 
     @Test
     public void shouldNotRemoveAnyActivitiesWhenTaskHasNotActivities() {
-        when(taskActivitiesDataService.byTask(TASK_ID)).thenReturn(new ArrayList<>());
+        when(taskActivitiesDataService.doInTransaction(any(TransactionCallback.class))).thenReturn(0L);
 
         activityService.deleteActivitiesForTask(TASK_ID);
 
+        verify(taskActivitiesDataService).doInTransaction(any(TransactionCallback.class));
         verify(taskActivitiesDataService, never()).delete(any(TaskActivity.class));
     }
 
@@ -0,0 +1,180 @@
+package org.motechproject.tasks.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.tasks.domain.mds.task.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskExecutionQueueTest {
+
+    @Mock
+    private SettingsFacade settings;
+
+    private TaskExecutionQueue queue;
+
+    @Before
+    public void setUp() {
+        when(settings.getProperty(TaskExecutionQueue.THREADS_KEY)).thenReturn("4");
+        when(settings.getProperty(TaskExecutionQueue.QUEUE_CAPACITY_KEY)).thenReturn("100");
+        when(settings.getProperty(TaskExecutionQueue.CORRELATION_KEY)).thenReturn("externalId");
+
+        queue = new TaskExecutionQueue(settings);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+    }
+
+    @Test
+    public void shouldRunExecutionsOfOneTaskInOrder() throws InterruptedException {
+        Task task = task(1L);
+        final List<Integer> executed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; ++i) {
+            final int number = i;
+            queue.execute(task, parameters("1"), new Runnable() {
+                @Override
+                public void run() {
+                    executed.add(number);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(Integer.valueOf(i), executed.get(i));
+        }
+    }
+
+    @Test
+    public void shouldRunDifferentTasksInParallel() throws InterruptedException {
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        final CountDownLatch firstFinished = new CountDownLatch(1);
+
+        queue.execute(task(1L), parameters("1"), awaiting(secondStarted, firstFinished));
+        queue.execute(task(2L), parameters("1"), counting(secondStarted));
+
+        assertTrue(firstFinished.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRunExecutionsWithDifferentCorrelationValuesInParallel() throws InterruptedException {
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        final CountDownLatch firstFinished = new CountDownLatch(1);
+        Task task = task(1L);
+
+        queue.execute(task, parameters("1"), awaiting(secondStarted, firstFinished));
+        queue.execute(task, parameters("2"), counting(secondStarted));
+
+        assertTrue(firstFinished.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRunTasksInCallingThreadWhenThereAreNoWorkers() throws InterruptedException {
+        when(settings.getProperty(TaskExecutionQueue.THREADS_KEY)).thenReturn("0");
+        TaskExecutionQueue inline = new TaskExecutionQueue(settings);
+        final List<Thread> threads = new ArrayList<>();
+
+        inline.execute(task(1L), parameters("1"), new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        });
+
+        assertEquals(asList(Thread.currentThread()), threads);
+        assertTrue(inline.getQueueDepths().isEmpty());
+        inline.shutdown();
+    }
+
+    @Test
+    public void shouldWaitForAllExecutionsWithoutRethrowingTheirFailure() {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final List<Integer> executed = Collections.synchronizedList(new ArrayList<Integer>());
+
+        Future<?> failing = queue.execute(task(1L), parameters("1"), new Runnable() {
+            @Override
+            public void run() {
+                failed.countDown();
+                throw new IllegalStateException("failed");
+            }
+        });
+        Future<?> slow = queue.execute(task(2L), parameters("1"), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    failed.await(10, TimeUnit.SECONDS);
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executed.add(2);
+            }
+        });
+
+        // a failed task must not cause the redelivery of the event to the tasks which have succeeded
+        assertEquals(1, queue.awaitAll(Arrays.<Future<?>>asList(failing, slow)));
+
+        assertTrue(slow.isDone());
+        assertEquals(asList(2), executed);
+    }
+
+    private Runnable awaiting(final CountDownLatch latch, final CountDownLatch finished) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (latch.await(10, TimeUnit.SECONDS)) {
+                        finished.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private Runnable counting(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private Task task(Long id) {
+        Task task = new Task();
+        task.setId(id);
+        return task;
+    }
+
+    private Map<String, Object> parameters(String externalId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("externalId", externalId);
+        return parameters;
+    }
+}
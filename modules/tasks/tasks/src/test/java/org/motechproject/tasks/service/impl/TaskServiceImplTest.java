@@ -17,6 +17,7 @@ import org.mockito.verification.VerificationMode;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
 import org.motechproject.mds.query.QueryExecution;
+import org.motechproject.mds.util.Constants;
 import org.motechproject.tasks.compatibility.TaskMigrationManager;
 import org.motechproject.tasks.domain.mds.channel.ActionEvent;
 import org.motechproject.tasks.domain.mds.channel.Channel;
@@ -72,9 +73,11 @@ import static org.hamcrest.Matchers.hasProperty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySet;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -85,8 +88,10 @@ import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.motechproject.tasks.constants.EventDataKeys.CHANNEL_MODULE_NAME;
 import static org.motechproject.tasks.constants.EventDataKeys.DATA_PROVIDER_NAME;
+import static org.motechproject.tasks.constants.EventDataKeys.TASK_ID;
 import static org.motechproject.tasks.constants.EventSubjects.CHANNEL_UPDATE_SUBJECT;
 import static org.motechproject.tasks.constants.EventSubjects.DATA_PROVIDER_UPDATE_SUBJECT;
+import static org.motechproject.tasks.constants.EventSubjects.TRIGGER_INDEX_REFRESH_SUBJECT;
 import static org.motechproject.tasks.domain.enums.ParameterType.UNICODE;
 
 public class TaskServiceImplTest {
@@ -409,6 +414,115 @@ public class TaskServiceImplTest {
         assertEquals(asList(t), tasks);
     }
 
+    @Test
+    public void shouldQueryTasksForTriggersOnlyOnce() {
+        Task t = new Task("name", trigger, asList(action));
+        t.setId(1L);
+
+        when(tasksDataService.executeQuery(Matchers.<QueryExecution<Object>>any())).thenReturn(asList(t));
+
+        assertEquals(asList(t), taskService.findActiveTasksForTriggerSubject(trigger.getSubject()));
+        assertEquals(asList(t), taskService.findActiveTasksForTriggerSubject(trigger.getSubject()));
+        assertTrue(taskService.findActiveTasksForTriggerSubject("other.subject").isEmpty());
+
+        verify(tasksDataService, times(1)).executeQuery(Matchers.<QueryExecution<Object>>any());
+    }
+
+    @Test
+    public void shouldRemoveDeletedTaskFromTriggerIndex() {
+        Task t = new Task("name", trigger, asList(action));
+        t.setId(1L);
+
+        when(tasksDataService.executeQuery(Matchers.<QueryExecution<Object>>any())).thenReturn(asList(t));
+        when(tasksDataService.findById(1L)).thenReturn(t);
+
+        assertEquals(asList(t), taskService.findActiveTasksForTriggerSubject(trigger.getSubject()));
+
+        taskService.deleteTask(1L);
+
+        assertTrue(taskService.findActiveTasksForTriggerSubject(trigger.getSubject()).isEmpty());
+    }
+
+    @Test
+    public void shouldRemoveDisabledTaskFromTriggerIndex() {
+        Task t = new Task("name", trigger, asList(action));
+        t.setId(1L);
+        Task disabled = new Task("name", trigger, asList(action), null, false, true);
+        disabled.setId(1L);
+
+        when(tasksDataService.executeQuery(Matchers.<QueryExecution<Object>>any())).thenReturn(asList(t));
+        when(tasksDataService.updateFromTransient(eq(disabled), anySet())).thenReturn(disabled);
+
+        assertEquals(asList(t), taskService.findActiveTasksForTriggerSubject(trigger.getSubject()));
+
+        taskService.setEnabledOrDisabled(disabled);
+
+        assertTrue(taskService.findActiveTasksForTriggerSubject(trigger.getSubject()).isEmpty());
+    }
+
+    @Test
+    public void shouldReloadTaskChangedThroughMdsIntoTriggerIndex() {
+        Task t = new Task("name", trigger, asList(action));
+        t.setId(1L);
+        Task disabled = new Task("name", trigger, asList(action), null, false, true);
+        disabled.setId(1L);
+
+        when(tasksDataService.executeQuery(Matchers.<QueryExecution<Object>>any())).thenReturn(asList(t));
+        when(tasksDataService.findById(1L)).thenReturn(disabled);
+
+        assertEquals(asList(t), taskService.findActiveTasksForTriggerSubject(trigger.getSubject()));
+
+        taskService.refreshTriggerIndexAfterTaskChange(getTriggerIndexRefreshEvent(1L));
+
+        assertTrue(taskService.findActiveTasksForTriggerSubject(trigger.getSubject()).isEmpty());
+    }
+
+    @Test
+    public void shouldRemoveTaskDeletedThroughMdsFromTriggerIndex() {
+        Task t = new Task("name", trigger, asList(action));
+        t.setId(1L);
+
+        when(tasksDataService.executeQuery(Matchers.<QueryExecution<Object>>any())).thenReturn(asList(t));
+
+        assertEquals(asList(t), taskService.findActiveTasksForTriggerSubject(trigger.getSubject()));
+
+        // the deleted task is not found anymore
+        taskService.refreshTriggerIndexAfterTaskChange(getTriggerIndexRefreshEvent(1L));
+
+        assertTrue(taskService.findActiveTasksForTriggerSubject(trigger.getSubject()).isEmpty());
+    }
+
+    @Test
+    public void shouldBroadcastTaskChangesToAllNodes() {
+        taskService.broadcastTaskChange(getTaskCrudEvent("DELETE", 1L));
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay).broadcastEventMessage(captor.capture());
+
+        assertEquals(TRIGGER_INDEX_REFRESH_SUBJECT, captor.getValue().getSubject());
+        assertEquals(1L, captor.getValue().getParameters().get(TASK_ID));
+        verify(eventRelay, never()).sendEventMessage(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldReturnCopiesOfIndexedTasks() {
+        Task t = new Task("name", trigger, asList(action));
+        t.setId(1L);
+
+        when(tasksDataService.executeQuery(Matchers.<QueryExecution<Object>>any())).thenReturn(asList(t));
+
+        Task found = taskService.findActiveTasksForTriggerSubject(trigger.getSubject()).get(0);
+        assertNotSame(t, found);
+
+        found.setEnabled(false);
+        found.setName("changed");
+
+        Task foundAgain = taskService.findActiveTasksForTriggerSubject(trigger.getSubject()).get(0);
+        assertNotSame(found, foundAgain);
+        assertTrue(foundAgain.isEnabled());
+        assertEquals("name", foundAgain.getName());
+    }
+
     @Test
     public void shouldGetTaskById() {
         long taskId = 12345L;
@@ -850,4 +964,18 @@ public class TaskServiceImplTest {
 
         return new MotechEvent(DATA_PROVIDER_UPDATE_SUBJECT, parameters);
     }
+
+    private MotechEvent getTriggerIndexRefreshEvent(Long taskId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(TASK_ID, taskId);
+
+        return new MotechEvent(TRIGGER_INDEX_REFRESH_SUBJECT, parameters);
+    }
+
+    private MotechEvent getTaskCrudEvent(String action, Long taskId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(Constants.MDSEvents.OBJECT_ID, taskId);
+
+        return new MotechEvent("mds.crud.tasks.Task." + action, parameters);
+    }
 }
@@ -57,6 +57,7 @@ import static ch.lambdaj.Lambda.extract;
 import static ch.lambdaj.Lambda.on;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -169,6 +170,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.getAllTasks()).thenReturn(tasks);
         when(settingsFacade.getProperty("task.possible.errors")).thenReturn("5");
+        when(settingsFacade.getProperty(TaskExecutionQueue.THREADS_KEY)).thenReturn("0");
         when(dataProvider.getName()).thenReturn(TASK_DATA_PROVIDER_NAME);
         when(taskActivityService.addTaskStarted(any(Task.class), anyMap())).thenReturn(TASK_ACTIVITY_ID);
 
@@ -176,11 +178,32 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
         handler.init();
         handler.addDataProvider(dataProvider);
         handler.setBundleContext(null);
+        handler.setExecutionQueue(new TaskExecutionQueue(settingsFacade));
 
         verify(taskService).getAllTasks();
         verify(registryService).registerListener(any(EventListener.class), eq(task.getTrigger().getSubject()));
     }
 
+    @Test
+    public void shouldExecuteCopyOfTheTask() throws Exception {
+        when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
+        ArgumentCaptor<Task> captor = ArgumentCaptor.forClass(Task.class);
+
+        handler.handle(createEvent());
+
+        verify(taskActivityService).addTaskStarted(captor.capture(), anyMap());
+        assertNotSame(task, captor.getValue());
+        assertEquals(task, captor.getValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRethrowFailuresOfExecutionsSoThatEventIsRedelivered() throws Exception {
+        when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
+        when(taskActivityService.addTaskStarted(any(Task.class), anyMap())).thenThrow(new IllegalStateException("db down"));
+
+        handler.handle(createEvent());
+    }
+
     @Test
     public void shouldNotRegisterHandler() {
         EventListenerRegistryService eventListenerRegistryService = mock(EventListenerRegistryService.class);
@@ -920,7 +943,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
         when(taskService.getActionEventFor(task.getActions().get(0))).thenReturn(actionEvent);
-        when(bundleContext.getServiceReference(anyString())).thenReturn(null);
+        when(bundleContext.getServiceReferences(anyString(), anyString())).thenReturn(null);
 
         handler.setBundleContext(bundleContext);
         handler.handle(createEvent());
@@ -941,7 +964,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
         when(taskService.getActionEventFor(task.getActions().get(0))).thenReturn(actionEvent);
-        when(bundleContext.getServiceReference("TestService")).thenReturn(serviceReference);
+        when(bundleContext.getServiceReferences("TestService", null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(testService);
 
         handler.setBundleContext(bundleContext);
@@ -962,7 +985,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
         when(taskService.getActionEventFor(task.getActions().get(0))).thenReturn(actionEvent);
-        when(bundleContext.getServiceReference("TestService")).thenReturn(serviceReference);
+        when(bundleContext.getServiceReferences("TestService", null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(testService);
 
         handler.setBundleContext(bundleContext);
@@ -983,7 +1006,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
         when(taskService.getActionEventFor(task.getActions().get(0))).thenReturn(actionEvent);
-        when(bundleContext.getServiceReference("TestService")).thenReturn(serviceReference);
+        when(bundleContext.getServiceReferences("TestService", null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(testService);
 
         handler.setBundleContext(bundleContext);
@@ -1005,7 +1028,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
         when(taskService.getActionEventFor(task.getActions().get(0))).thenReturn(actionEvent);
-        when(bundleContext.getServiceReference("TestService")).thenReturn(null);
+        when(bundleContext.getServiceReferences("TestService", null)).thenReturn(null);
 
         handler.setBundleContext(bundleContext);
         handler.handle(createEvent());
@@ -1031,7 +1054,7 @@ public class TaskTriggerHandlerTest extends TasksTestBase {
 
         when(taskService.findActiveTasksForTriggerSubject(TRIGGER_SUBJECT)).thenReturn(tasks);
         when(taskService.getActionEventFor(task.getActions().get(0))).thenReturn(actionEvent);
-        when(bundleContext.getServiceReference("TestService")).thenReturn(null);
+        when(bundleContext.getServiceReferences("TestService", null)).thenReturn(null);
 
         handler.setBundleContext(bundleContext);
         handler.handle(createEvent());
@@ -0,0 +1,73 @@
+package org.motechproject.tasks.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.tasks.domain.mds.task.Task;
+import org.motechproject.tasks.domain.mds.task.TaskActionInformation;
+import org.motechproject.tasks.domain.mds.task.TaskTriggerInformation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskTriggerIndexTest {
+
+    private static final String SUBJECT = "trigger.subject";
+
+    private TaskTriggerIndex index = new TaskTriggerIndex();
+
+    private TaskTriggerInformation trigger;
+    private TaskActionInformation action;
+
+    @Before
+    public void setUp() {
+        trigger = new TaskTriggerInformation("receive", "test", "test", "0.15", SUBJECT, SUBJECT);
+        action = new TaskActionInformation("send", "test", "test", "0.12", "send.subject");
+
+        assertTrue(index.build(asList(task(1L, "name", true)), index.getGeneration()));
+    }
+
+    @Test
+    public void shouldLoadTaskAgainWhenItChangesDuringReload() {
+        final Task stale = task(1L, "stale", true);
+        final Task changed = task(1L, "changed", true);
+        final List<Long> loads = new ArrayList<>();
+
+        index.reload(1L, new TaskTriggerIndex.TaskLoader() {
+            @Override
+            public Task load(Long taskId) {
+                loads.add(taskId);
+                if (loads.size() == 1) {
+                    // the task is saved while its previous state is being loaded
+                    index.update(changed);
+                    return stale;
+                }
+                return changed;
+            }
+        });
+
+        assertEquals(2, loads.size());
+        assertEquals("changed", index.getTasks(SUBJECT).get(0).getName());
+    }
+
+    @Test
+    public void shouldRemoveTaskWhichCannotBeLoaded() {
+        index.reload(1L, new TaskTriggerIndex.TaskLoader() {
+            @Override
+            public Task load(Long taskId) {
+                return null;
+            }
+        });
+
+        assertTrue(index.getTasks(SUBJECT).isEmpty());
+    }
+
+    private Task task(Long id, String name, boolean enabled) {
+        Task task = new Task(name, trigger, asList(action), null, enabled, true);
+        task.setId(id);
+        return task;
+    }
+}
@@ -4,9 +4,14 @@ import org.joda.time.DateTime;
 import org.junit.Test;
 import org.motechproject.commons.api.MotechException;
 import org.motechproject.commons.date.util.DateUtil;
+import org.motechproject.tasks.domain.mds.task.Task;
 import org.motechproject.tasks.service.util.KeyEvaluator;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
 
 public class KeyEvaluatorTest {
 
@@ -51,4 +56,17 @@ public class KeyEvaluatorTest {
     public void shouldThrowExceptionWhenManipulationIsUnknown(){
         new KeyEvaluator(null).manipulate("undefined", "something");
     }
+
+    @Test
+    public void shouldEvaluateTemplateStrings() throws Exception {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("name", "john");
+        parameters.put("id", 5);
+        KeyEvaluator keyEvaluator = new KeyEvaluator(new TaskContext(new Task(), parameters, null, null));
+
+        assertEquals("JOHN (5), JOHN", keyEvaluator.evaluateTemplateString("{{trigger.name?toupper}} ({{trigger.id}}), {{trigger.name?toupper}}"));
+        assertEquals("john-", keyEvaluator.evaluateTemplateString("{{trigger.name}}-{{trigger.missing}}"));
+        assertEquals("no keys", keyEvaluator.evaluateTemplateString("no keys"));
+        assertNull(keyEvaluator.evaluateTemplateString("value: {{trigger.missing}}"));
+    }
 }
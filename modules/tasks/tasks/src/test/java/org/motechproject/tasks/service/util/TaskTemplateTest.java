@@ -0,0 +1,55 @@
+package org.motechproject.tasks.service.util;
+
+import org.junit.Test;
+import org.motechproject.tasks.domain.KeyInformation;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TaskTemplateTest {
+
+    @Test
+    public void shouldSplitTemplateIntoLiteralsAndKeys() {
+        TaskTemplate template = TaskTemplate.compile("Hello {{trigger.name?toUpper}}, your id is {{ad.provider.Patient#1.id}}.");
+
+        assertEquals(Arrays.asList(KeyInformation.parse("trigger.name?toUpper"), KeyInformation.parse("ad.provider.Patient#1.id")),
+                template.getKeys());
+        assertEquals("Hello JOHN, your id is 5.", template.render(Arrays.asList("JOHN", "5")));
+    }
+
+    @Test
+    public void shouldNotTreatKeysInManipulationsAsSeparateKeys() {
+        TaskTemplate template = TaskTemplate.compile("{{trigger.message?format({{trigger.name}})}}!");
+
+        assertEquals(Collections.singletonList(KeyInformation.parse("trigger.message?format({{trigger.name}})")),
+                template.getKeys());
+        assertEquals("message!", template.render(Collections.singletonList("message")));
+    }
+
+    @Test
+    public void shouldReturnTemplateWithoutKeysAsItIs() {
+        TaskTemplate template = TaskTemplate.compile("no keys here");
+
+        assertTrue(template.getKeys().isEmpty());
+        assertEquals("no keys here", template.render(Collections.<String>emptyList()));
+        assertTrue(TaskTemplate.compile(null).getKeys().isEmpty());
+    }
+
+    @Test
+    public void shouldCacheCompiledTemplatesAndKeys() {
+        String text = "{{trigger.cached}} and {{trigger.cached}}";
+
+        assertSame(TaskTemplate.compile(text), TaskTemplate.compile(text));
+        assertSame(TaskTemplate.compileKey("trigger.cached"), TaskTemplate.compile(text).getKeys().get(0));
+        assertSame(TaskTemplate.compile(text).getKeys().get(0), TaskTemplate.compile(text).getKeys().get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIncorrectKeys() {
+        TaskTemplate.compile("{{unknown.key}}");
+    }
+}
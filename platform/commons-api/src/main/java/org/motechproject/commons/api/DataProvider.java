@@ -1,5 +1,7 @@
 package org.motechproject.commons.api;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,6 +33,27 @@ public interface DataProvider {
      */
     Object lookup(String type, String lookupName, Map<String, String> lookupFields);
 
+    /**
+     * Returns objects matching the given conditions, one for every map of lookup fields. By default the lookups are
+     * executed one by one. Providers able to execute several lookups at once should override this method and resolve
+     * them with as few queries as possible. The returned objects may be used by several task executions running
+     * concurrently, so they must not be bound to the persistence context of the calling thread.
+     *
+     * @param type  the type of searched objects
+     * @param lookupName  the name of used lookup
+     * @param lookupFields  the list of maps of fields names and expected values
+     * @return the list of objects, in the order of the given lookup fields, with null for lookups without a match
+     */
+    default List<Object> lookupAll(String type, String lookupName, List<Map<String, String>> lookupFields) {
+        List<Object> objects = new ArrayList<>(lookupFields.size());
+
+        for (Map<String, String> fields : lookupFields) {
+            objects.add(lookup(type, lookupName, fields));
+        }
+
+        return objects;
+    }
+
     /**
      * Checks if given type is supported by the {@code DataProvider}.
      *
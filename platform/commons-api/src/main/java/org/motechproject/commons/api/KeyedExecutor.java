@@ -0,0 +1,340 @@
+package org.motechproject.commons.api;
+
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes tasks on a fixed-size thread pool, grouping them by keys. Each key has its own bounded queue and
+ * a limit of tasks that can run for it at the same time. With the limit set to 1, the tasks submitted for one key are
+ * executed one after another, in the order of submission, while tasks of different keys run in parallel. A key
+ * that has no pending tasks does not use any resources.
+ * <p>
+ * When the queue of a key is full, the executor either runs the task in the submitting thread or makes that thread
+ * wait for space in the queue, depending on the {@link OverflowPolicy}. Both apply back pressure to the producers.
+ * <p>
+ * The executor records the time tasks spend waiting in the queues and the time of their execution.
+ */
+public class KeyedExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyedExecutor.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * Decides what happens with a task submitted for a key whose queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The task is executed in the thread that submitted it. Ordering and the concurrency limit of the key
+         * are not guaranteed for such tasks.
+         */
+        CALLER_RUNS,
+        /**
+         * The submitting thread waits until there is space in the queue of the key.
+         */
+        BLOCK
+    }
+
+    private final String name;
+    private final int queueCapacity;
+    private final int concurrencyPerKey;
+    private final OverflowPolicy overflowPolicy;
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final DurationStatistics waitTime = new DurationStatistics();
+    private final DurationStatistics executionTime = new DurationStatistics();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * Creates the executor.
+     *
+     * @param name the name of the executor, used for naming its threads
+     * @param threads the number of threads executing the tasks
+     * @param queueCapacity the maximum number of tasks waiting for execution for a single key
+     * @param concurrencyPerKey the maximum number of tasks of a single key executing at the same time
+     * @param overflowPolicy the policy applied to tasks submitted for a key with a full queue
+     */
+    public KeyedExecutor(String name, int threads, int queueCapacity, int concurrencyPerKey, OverflowPolicy overflowPolicy) {
+        if (threads < 1 || queueCapacity < 1 || concurrencyPerKey < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid executor configuration: threads=%d, queueCapacity=%d, concurrencyPerKey=%d",
+                    threads, queueCapacity, concurrencyPerKey));
+        }
+
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.concurrencyPerKey = concurrencyPerKey;
+        this.overflowPolicy = overflowPolicy;
+
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submits the task for execution under the given key.
+     *
+     * @param key the key of the task
+     * @param task the task to execute
+     * @throws RejectedExecutionException if the executor was shut down, or the thread was interrupted while waiting
+     * for space in the queue
+     */
+    public void execute(String key, Runnable task) {
+        TimedTask timedTask = new TimedTask(task);
+
+        while (true) {
+            Lane lane = getLane(key);
+
+            synchronized (lane) {
+                if (lane.retired) {
+                    continue;
+                }
+
+                if (lane.queue.size() >= queueCapacity) {
+                    if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                        overflowCount.incrementAndGet();
+                        break;
+                    }
+                    if (!awaitSpace(lane)) {
+                        continue;
+                    }
+                }
+
+                lane.queue.add(timedTask);
+                if (lane.active < concurrencyPerKey) {
+                    startWorker(lane);
+                }
+                return;
+            }
+        }
+
+        // the queue was full, run the task in the caller's thread
+        timedTask.run();
+    }
+
+    /**
+     * Returns the number of tasks waiting for execution under the given key.
+     *
+     * @param key the key to check
+     * @return the number of queued tasks
+     */
+    public int getQueueDepth(String key) {
+        Lane lane = lanes.get(key);
+        if (lane == null) {
+            return 0;
+        }
+        synchronized (lane) {
+            return lane.queue.size();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting for execution for all keys that currently have any pending tasks.
+     *
+     * @return the map of keys to the number of their queued tasks
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                depths.put(lane.key, lane.queue.size());
+            }
+        }
+        return depths;
+    }
+
+    /**
+     * Returns the total number of tasks waiting for execution.
+     *
+     * @return the number of queued tasks
+     */
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (int depth : getQueueDepths().values()) {
+            total += depth;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the statistics of time the tasks spent in the queues before being executed.
+     *
+     * @return the queue wait statistics
+     */
+    public DurationStatistics getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Returns the statistics of the execution time of the tasks.
+     *
+     * @return the execution time statistics
+     */
+    public DurationStatistics getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Returns the number of tasks that were executed by the submitting thread, because their queue was full.
+     *
+     * @return the number of overflowing tasks
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Stops accepting new tasks. Already queued tasks will still be executed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the queued tasks to finish after a shutdown.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all tasks finished, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private Lane getLane(String key) {
+        Lane lane = lanes.get(key);
+        if (lane == null) {
+            Lane newLane = new Lane(key);
+            lane = lanes.putIfAbsent(key, newLane);
+            if (lane == null) {
+                lane = newLane;
+            }
+        }
+        return lane;
+    }
+
+    // must be called while holding the lock of the lane, returns false if the lane got retired in the meantime
+    private boolean awaitSpace(Lane lane) {
+        try {
+            while (lane.queue.size() >= queueCapacity && !lane.retired) {
+                lane.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for space in the queue of " + lane.key, e);
+        }
+        return !lane.retired;
+    }
+
+    // must be called while holding the lock of the lane
+    private void startWorker(final Lane lane) {
+        lane.active++;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain(lane);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lane.active--;
+            lane.queue.pollLast();
+            throw e;
+        }
+    }
+
+    private void drain(Lane lane) {
+        while (true) {
+            TimedTask task;
+
+            synchronized (lane) {
+                task = lane.queue.poll();
+
+                if (task == null) {
+                    lane.active--;
+                    if (lane.active == 0) {
+                        lane.retired = true;
+                        lanes.remove(lane.key, lane);
+                    }
+                    lane.notifyAll();
+                    return;
+                }
+
+                lane.notifyAll();
+            }
+
+            task.run();
+        }
+    }
+
+    /**
+     * The queue of tasks for a single key. All fields are guarded by the lock of the lane.
+     */
+    private static final class Lane {
+        private final String key;
+        private final Deque<TimedTask> queue = new ArrayDeque<>();
+        private int active;
+        private boolean retired;
+
+        private Lane(String key) {
+            this.key = key;
+        }
+    }
+
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long submittedAt = System.nanoTime();
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            waitTime.record(startedAt - submittedAt);
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Task executed by {} has failed", name, e);
+            } finally {
+                executionTime.record(System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.motechproject.commons.api.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe accumulator of measured durations. It keeps the number of measurements, their total and the
+ * longest one, which is enough to report the average and the maximum without storing the samples.
+ */
+public class DurationStatistics {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single measurement.
+     *
+     * @param nanos the measured duration in nanoseconds, negative values are treated as zero
+     */
+    public void record(long nanos) {
+        long duration = Math.max(nanos, 0L);
+
+        count.incrementAndGet();
+        totalNanos.addAndGet(duration);
+
+        long max = maxNanos.get();
+        while (duration > max && !maxNanos.compareAndSet(max, duration)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records a single measurement.
+     *
+     * @param duration the measured duration
+     * @param unit the unit of the duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    /**
+     * Returns the number of recorded measurements.
+     *
+     * @return the number of measurements
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of all recorded durations in milliseconds.
+     *
+     * @return the total duration in milliseconds
+     */
+    public double getTotalMillis() {
+        return totalNanos.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the average of the recorded durations in milliseconds, or 0 if nothing was recorded.
+     *
+     * @return the average duration in milliseconds
+     */
+    public double getAverageMillis() {
+        long measurements = count.get();
+        return measurements == 0 ? 0.0 : totalNanos.get() / NANOS_PER_MILLI / measurements;
+    }
+
+    /**
+     * Returns the longest recorded duration in milliseconds.
+     *
+     * @return the maximum duration in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Clears all recorded measurements.
+     */
+    public void reset() {
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, avg=%.3fms, max=%.3fms", getCount(), getAverageMillis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,138 @@
+package org.motechproject.commons.api;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedExecutorTest {
+
+    private KeyedExecutor executor;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shouldExecuteTasksOfOneKeyInOrder() throws InterruptedException {
+        executor = new KeyedExecutor("test", 4, 1000, 1, KeyedExecutor.OverflowPolicy.BLOCK);
+
+        final List<Integer> first = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> second = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(200);
+
+        for (int i = 0; i < 100; i++) {
+            executor.execute("first", new AddingTask(first, i, latch));
+            executor.execute("second", new AddingTask(second, i, latch));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, first.get(i).intValue());
+            assertEquals(i, second.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void shouldRunTaskInCallerThreadWhenQueueIsFull() throws InterruptedException {
+        executor = new KeyedExecutor("test", 1, 1, 1, KeyedExecutor.OverflowPolicy.CALLER_RUNS);
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger executedInCaller = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                await(blocker);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Runnable countingTask = new Runnable() {
+            @Override
+            public void run() {
+                if (Thread.currentThread() == caller) {
+                    executedInCaller.incrementAndGet();
+                }
+            }
+        };
+
+        // the first one gets queued, the second one overflows
+        executor.execute("key", countingTask);
+        executor.execute("key", countingTask);
+
+        assertEquals(1, executor.getQueueDepth("key"));
+        assertEquals(1, executor.getTotalQueueDepth());
+        assertEquals(1, executedInCaller.get());
+        assertEquals(1, executor.getOverflowCount());
+
+        blocker.countDown();
+    }
+
+    @Test
+    public void shouldNotStopOnFailingTasks() throws InterruptedException {
+        executor = new KeyedExecutor("test", 1, 10, 1, KeyedExecutor.OverflowPolicy.BLOCK);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failure");
+            }
+        });
+        executor.execute("key", new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowEmptyPool() {
+        executor = new KeyedExecutor("test", 0, 10, 1, KeyedExecutor.OverflowPolicy.BLOCK);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class AddingTask implements Runnable {
+        private final List<Integer> list;
+        private final int value;
+        private final CountDownLatch latch;
+
+        AddingTask(List<Integer> list, int value, CountDownLatch latch) {
+            this.list = list;
+            this.value = value;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            list.add(value);
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.motechproject.commons.api.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationStatisticsTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void shouldCalculateAverageAndMax() {
+        DurationStatistics statistics = new DurationStatistics();
+
+        statistics.record(2, TimeUnit.MILLISECONDS);
+        statistics.record(4, TimeUnit.MILLISECONDS);
+        statistics.record(-1);
+
+        assertEquals(3, statistics.getCount());
+        assertEquals(6.0, statistics.getTotalMillis(), DELTA);
+        assertEquals(2.0, statistics.getAverageMillis(), DELTA);
+        assertEquals(4.0, statistics.getMaxMillis(), DELTA);
+    }
+
+    @Test
+    public void shouldReturnZeroesWhenEmpty() {
+        DurationStatistics statistics = new DurationStatistics();
+        statistics.record(5, TimeUnit.MILLISECONDS);
+        statistics.reset();
+
+        assertEquals(0, statistics.getCount());
+        assertEquals(0.0, statistics.getAverageMillis(), DELTA);
+        assertEquals(0.0, statistics.getMaxMillis(), DELTA);
+    }
+}
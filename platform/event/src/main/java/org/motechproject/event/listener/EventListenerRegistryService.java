@@ -29,7 +29,8 @@ public interface EventListenerRegistryService {
 
     /**
      * Returns all the event listeners registered for the event with the given subject.
-     * If there are no listeners, an empty list is returned.
+     * If there are no listeners, an empty set is returned. The returned set is an immutable snapshot
+     * and it will not reflect listeners registered or removed after this call.
      *
      * @param subject the subject of the event
      * @return the matching event listeners
@@ -2,6 +2,8 @@ package org.motechproject.event.listener;
 
 import org.motechproject.event.MotechEvent;
 
+import java.util.Collection;
+
 /**
  * The <code>EventRelay</code> interface provides methods that allow sending {@link org.motechproject.event.MotechEvent}
  * via ActiveMQ, either to the queue (ActiveMQ selects the subscriber that will handle the event) or to the topic (event
@@ -34,4 +36,23 @@ public interface EventRelay {
      * @param motechEvent the event to be broadcast
      */
     void broadcastEventMessage(MotechEvent motechEvent);
+
+    /**
+     * Publishes all given event messages in a queue, just like {@link #sendEventMessage(MotechEvent)} does for a single
+     * event. The listeners are resolved once for every distinct subject and all messages are sent to ActiveMQ in a single
+     * transacted session, so either all of them get published or none. This is the preferred way of sending large numbers
+     * of events at once, for example after a bulk operation.
+     *
+     * @param motechEvents the events to be sent
+     */
+    void sendEventMessages(Collection<MotechEvent> motechEvents);
+
+    /**
+     * Publishes all given event messages in a topic, just like {@link #broadcastEventMessage(MotechEvent)} does for a single
+     * event. The listeners are resolved once for every distinct subject and all messages are sent to ActiveMQ in a single
+     * transacted session, so either all of them get published or none.
+     *
+     * @param motechEvents the events to be broadcast
+     */
+    void broadcastEventMessages(Collection<MotechEvent> motechEvents);
 }
@@ -16,6 +16,7 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
     private final String name;
     private final Object bean;
     private final Method method;
+    private final ClassLoader targetClassLoader;
 
     /**
      *
@@ -27,6 +28,7 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
         this.name = name;
         this.bean = bean;
         this.method = method;
+        this.targetClassLoader = bean == null ? null : bean.getClass().getClassLoader();
     }
 
     /**
@@ -63,4 +65,14 @@ public abstract class MotechListenerAbstractProxy implements EventListener {
     public Method getMethod() {
         return method;
     }
+
+    /**
+     * Returns the class loader of the bean where handler exists, used as the context class loader when
+     * the event is handled.
+     *
+     * @return the class loader of the bean
+     */
+    public ClassLoader getTargetClassLoader() {
+        return targetClassLoader;
+    }
 }
@@ -0,0 +1,66 @@
+package org.motechproject.event.listener.annotations;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes the handler method of a <code>MotechListener</code> proxy. The method handle bound to the bean is created
+ * once, when the proxy is constructed, so handling an event does not involve any reflection lookups. Exceptions thrown
+ * by the handler are propagated the same way <code>ReflectionUtils.invokeMethod</code> propagates them.
+ */
+final class MotechListenerInvoker {
+
+    // the result of a handler method is never used, so it is dropped by the handle
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object[].class);
+
+    private final Object bean;
+    private final Method method;
+    private final MethodHandle handle;
+
+    MotechListenerInvoker(Object bean, Method method) {
+        this.bean = bean;
+        this.method = method;
+        this.handle = createHandle(bean, method);
+    }
+
+    /**
+     * Invokes the handler method with the given arguments.
+     *
+     * @param args the arguments of the handler method
+     */
+    void invoke(Object... args) {
+        if (handle == null) {
+            // the method handle could not be created, for example because of a security manager
+            ReflectionUtils.invokeMethod(method, bean, args);
+            return;
+        }
+
+        try {
+            handle.invokeExact(args);
+        } catch (Throwable e) {
+            ReflectionUtils.rethrowRuntimeException(e);
+        }
+    }
+
+    private static MethodHandle createHandle(Object bean, Method method) {
+        if (method == null || (bean == null && !Modifier.isStatic(method.getModifiers()))) {
+            return null;
+        }
+
+        try {
+            ReflectionUtils.makeAccessible(method);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(bean);
+            }
+            return handle.asSpreader(Object[].class, method.getParameterTypes().length).asType(INVOKER_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+}
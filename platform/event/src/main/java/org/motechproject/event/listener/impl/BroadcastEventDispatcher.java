@@ -0,0 +1,232 @@
+package org.motechproject.event.listener.impl;
+
+import org.motechproject.commons.api.KeyedExecutor;
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.utils.MotechProxyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands broadcast events to their listeners on a bounded thread pool, so that a slow listener only delays the events
+ * queued for itself, instead of every broadcast event received by this node.
+ * <p>
+ * Events are queued by an ordering key - the identifier of the listener, or the identifier of the listener together
+ * with the subject of the event, depending on <code>motech.event.broadcast.ordering</code>. Events with the same key
+ * are handled in the order in which they were received, as long as <code>motech.event.broadcast.listener.concurrency</code>
+ * is 1. If the queue of a key is full, the event is handled in the thread that received it. Failed events are retried
+ * after the same exponential delay that is used for queue events, up to the maximum redelivery count; a retried event
+ * is queued behind the events received in the meantime.
+ * <p>
+ * The message of a broadcast event is acknowledged once the event has been queued for all of its listeners, before
+ * they handle it. Broadcast events are therefore delivered at most once: events still queued or waiting for a retry
+ * when the node stops or crashes are lost. If an event cannot be queued, because the dispatcher has been stopped,
+ * the exception is thrown to the receiving thread, so that the message is rolled back instead of acknowledged.
+ */
+@Component
+public class BroadcastEventDispatcher implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BroadcastEventDispatcher.class);
+
+    private static final String KEY_SEPARATOR = "|";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private final MotechEventConfig motechEventConfig;
+    private final KeyedExecutor executor;
+    private final ScheduledExecutorService retryScheduler;
+    private final ConcurrentMap<String, ListenerStatistics> listenerStatistics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BroadcastEventDispatcher(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+
+        executor = new KeyedExecutor("motech-event-broadcast", motechEventConfig.getBroadcastThreads(),
+                motechEventConfig.getBroadcastQueueCapacity(), motechEventConfig.getBroadcastListenerConcurrency(),
+                KeyedExecutor.OverflowPolicy.CALLER_RUNS);
+
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "motech-event-broadcast-retry");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues the broadcast event for handling by the given listener.
+     *
+     * @param listener the listener which should handle the event
+     * @param event the broadcast event
+     * @throws RejectedExecutionException if the dispatcher has been stopped
+     */
+    public void dispatch(EventListener listener, MotechEvent event) {
+        dispatch(listener, event, 0);
+    }
+
+    /**
+     * Returns the number of broadcast events waiting to be handled by the listener with the given identifier.
+     *
+     * @param listenerIdentifier the identifier of the listener
+     * @return the number of queued events
+     */
+    public int getQueueDepth(String listenerIdentifier) {
+        ListenerStatistics statistics = listenerStatistics.get(listenerIdentifier);
+        return statistics == null ? 0 : statistics.queued.get();
+    }
+
+    /**
+     * Returns the number of queued broadcast events of every listener which has received any broadcast events.
+     *
+     * @return the map of listener identifiers to the number of their queued events
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (Map.Entry<String, ListenerStatistics> entry : listenerStatistics.entrySet()) {
+            depths.put(entry.getKey(), entry.getValue().queued.get());
+        }
+        return depths;
+    }
+
+    /**
+     * Returns statistics of time spent on handling broadcast events by the listener with the given identifier.
+     *
+     * @param listenerIdentifier the identifier of the listener
+     * @return the handling time statistics, null if the listener has not received any broadcast events
+     */
+    public DurationStatistics getHandlingTime(String listenerIdentifier) {
+        ListenerStatistics statistics = listenerStatistics.get(listenerIdentifier);
+        return statistics == null ? null : statistics.handlingTime;
+    }
+
+    /**
+     * Returns statistics of time broadcast events spent in the queue before being handled.
+     *
+     * @return the queue latency statistics
+     */
+    public DurationStatistics getQueueLatency() {
+        return executor.getWaitTime();
+    }
+
+    /**
+     * Returns the number of broadcast events that were handled in the receiving thread, because their queue was full.
+     *
+     * @return the number of events handled by the receiving thread
+     */
+    public long getOverflowCount() {
+        return executor.getOverflowCount();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        executor.shutdown();
+
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Broadcast event dispatcher stopped with {} events still queued", executor.getTotalQueueDepth());
+        }
+    }
+
+    private void dispatch(final EventListener listener, final MotechEvent event, final int retryCount) {
+        final ListenerStatistics statistics = getStatistics(listener.getIdentifier());
+        statistics.queued.incrementAndGet();
+
+        try {
+            executor.execute(getOrderingKey(listener, event), new Runnable() {
+                @Override
+                public void run() {
+                    statistics.queued.decrementAndGet();
+                    handle(listener, event, retryCount, statistics);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            statistics.queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void handle(final EventListener listener, final MotechEvent event, final int retryCount,
+                        ListenerStatistics statistics) {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        long start = System.nanoTime();
+
+        try {
+            Thread.currentThread().setContextClassLoader(MotechProxyUtils.getTargetClassLoader(listener));
+            listener.handle(event);
+        } catch (RuntimeException e) {
+            if (retryCount < motechEventConfig.getMessageMaxRedeliveryCount()) {
+                LOGGER.warn(String.format("An exception occurred when handling topic event %s by listener %s.",
+                        event.toString(), listener.getIdentifier()), e);
+                scheduleRetry(listener, event, retryCount + 1);
+            } else {
+                LOGGER.error(String.format("Discarding topic event %s for listener %s. Max retry count reached.",
+                        event.toString(), listener.getIdentifier()), e);
+            }
+        } finally {
+            statistics.handlingTime.record(System.nanoTime() - start);
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private void scheduleRetry(final EventListener listener, final MotechEvent event, final int retryCount) {
+        long delay = motechEventConfig.getMessageRedeliveryDelayMillis(retryCount);
+        LOGGER.debug("Retrying topic event {} for listener {} after {} millis.", event, listener.getIdentifier(), delay);
+
+        try {
+            retryScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        dispatch(listener, event, retryCount);
+                    } catch (RejectedExecutionException e) {
+                        logDiscardedRetry(listener, event);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logDiscardedRetry(listener, event);
+        }
+    }
+
+    private void logDiscardedRetry(EventListener listener, MotechEvent event) {
+        LOGGER.error("Discarding topic event {} for listener {}. The dispatcher has been stopped before the retry.",
+                event, listener.getIdentifier());
+    }
+
+    private String getOrderingKey(EventListener listener, MotechEvent event) {
+        return motechEventConfig.isBroadcastOrderedBySubject()
+                ? listener.getIdentifier() + KEY_SEPARATOR + event.getSubject()
+                : listener.getIdentifier();
+    }
+
+    private ListenerStatistics getStatistics(String listenerIdentifier) {
+        ListenerStatistics statistics = listenerStatistics.get(listenerIdentifier);
+        if (statistics == null) {
+            listenerStatistics.putIfAbsent(listenerIdentifier, new ListenerStatistics());
+            statistics = listenerStatistics.get(listenerIdentifier);
+        }
+        return statistics;
+    }
+
+    private static final class ListenerStatistics {
+        private final AtomicInteger queued = new AtomicInteger();
+        private final DurationStatistics handlingTime = new DurationStatistics();
+    }
+}
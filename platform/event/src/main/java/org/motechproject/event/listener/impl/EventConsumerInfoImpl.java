@@ -1,6 +1,7 @@
 package org.motechproject.event.listener.impl;
 
 import org.motechproject.event.listener.EventConsumerInfo;
+import org.motechproject.event.messaging.MotechEventConfig;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.integration.jms.JmsMessageDrivenEndpoint;
@@ -14,10 +15,12 @@ public class EventConsumerInfoImpl implements EventConsumerInfo {
 
     private JmsMessageDrivenEndpoint queueEndpoint;
     private JmsMessageDrivenEndpoint topicEndpoint;
+    private MotechEventConfig motechEventConfig;
 
     @Override
     public boolean isRunning() {
-        return queueEndpoint.isRunning() && topicEndpoint.isRunning();
+        // the local transport does not use ActiveMQ consumers, events are handled as soon as they are sent
+        return motechEventConfig.isLocalTransport() || (queueEndpoint.isRunning() && topicEndpoint.isRunning());
     }
 
     @Autowired
@@ -31,4 +34,9 @@ public class EventConsumerInfoImpl implements EventConsumerInfo {
     public void setTopicEndpoint(JmsMessageDrivenEndpoint topicEndpoint) {
         this.topicEndpoint = topicEndpoint;
     }
+
+    @Autowired
+    public void setMotechEventConfig(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
 }
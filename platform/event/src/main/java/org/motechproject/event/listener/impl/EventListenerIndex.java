@@ -0,0 +1,293 @@
+package org.motechproject.event.listener.impl;
+
+import org.motechproject.event.listener.EventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copy-on-write index of event listeners, keyed by the path elements of their subjects. It provides the same
+ * matching rules as the {@link EventListenerTree}, but it can be safely read by multiple relay threads while
+ * bundles register and unregister their listeners.
+ * <p>
+ * The index is kept as a tree of immutable nodes with hash-indexed children. Every modification builds a new
+ * version of the affected path and swaps the root atomically, so readers always see a consistent snapshot without
+ * taking any locks. Listeners resolved for a subject are cached per snapshot, so repeated lookups for the same
+ * subject return the previously computed, immutable set without allocating anything. The cache is bounded and it
+ * is discarded together with the snapshot whenever the index is modified.
+ */
+public class EventListenerIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventListenerIndex.class);
+
+    /**
+     * The default maximum number of subjects for which the resolved listeners are cached.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final String WILDCARD = "*";
+    private static final char SEPARATOR = '.';
+
+    private final int maxCacheSize;
+    private volatile Snapshot snapshot;
+
+    public EventListenerIndex() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public EventListenerIndex(int maxCacheSize) {
+        if (maxCacheSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative: " + maxCacheSize);
+        }
+        this.maxCacheSize = maxCacheSize;
+        this.snapshot = new Snapshot(Node.EMPTY);
+    }
+
+    /**
+     * @see org.motechproject.event.listener.EventListenerRegistryService#registerListener(org.motechproject.event.listener.EventListener, String)
+     */
+    public synchronized void addListener(EventListener listener, String subject) {
+        String[] path = validateAndSplit(subject);
+
+        Node root = snapshot.root;
+        Node newRoot;
+        if (WILDCARD.equals(subject)) {
+            newRoot = root.withListener(listener, false);
+        } else if (WILDCARD.equals(path[path.length - 1])) {
+            newRoot = root.withListener(listener, path, 0, path.length - 1, true);
+        } else {
+            newRoot = root.withListener(listener, path, 0, path.length, false);
+        }
+
+        if (newRoot == root) {
+            LOGGER.info("Ignoring second request to register listener {} for subject {}", listener.getIdentifier(), subject);
+        } else {
+            snapshot = new Snapshot(newRoot);
+        }
+    }
+
+    /**
+     * Returns an immutable set of listeners matching the given subject.
+     *
+     * @see org.motechproject.event.listener.EventListenerRegistryService#getListeners(String)
+     */
+    public Set<EventListener> getListeners(String subject) {
+        // read the volatile field once, so that the lookup and the cache refer to the same version
+        Snapshot current = snapshot;
+
+        Set<EventListener> listeners = current.cache.get(subject);
+        if (listeners == null) {
+            listeners = resolve(current.root, subject);
+
+            if (maxCacheSize > 0) {
+                if (current.cache.size() >= maxCacheSize) {
+                    current.cache.clear();
+                }
+                current.cache.put(subject, listeners);
+            }
+        }
+
+        return listeners;
+    }
+
+    /**
+     * @see org.motechproject.event.listener.EventListenerRegistryService#hasListener(String)
+     */
+    public boolean hasListener(String subject) {
+        return !getListeners(subject).isEmpty();
+    }
+
+    /**
+     * @see org.motechproject.event.listener.EventListenerRegistryService#getListenerCount(String)
+     */
+    public int getListenerCount(String subject) {
+        return getListeners(subject).size();
+    }
+
+    /**
+     * @see org.motechproject.event.listener.EventListenerRegistryService#clearListenersForBean(String)
+     */
+    public synchronized void removeAllListeners(String beanName) {
+        Node root = snapshot.root;
+        Node newRoot = root.withoutListeners(beanName);
+
+        if (newRoot != root) {
+            snapshot = new Snapshot(newRoot == null ? Node.EMPTY : newRoot);
+        }
+    }
+
+    private Set<EventListener> resolve(Node root, String subject) {
+        Set<EventListener> result = new HashSet<>(root.listeners);
+
+        Node node = root;
+        int start = 0;
+        int length = subject.length();
+
+        // trailing separators are ignored, as they are dropped when the EventListenerTree splits the subject
+        while (length > 0 && subject.charAt(length - 1) == SEPARATOR) {
+            length--;
+        }
+
+        while (start <= length) {
+            int end = subject.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = length;
+            }
+
+            node = node.children.get(subject.substring(start, end));
+            if (node == null) {
+                break;
+            }
+
+            // wildcard listeners registered on this level match both this subject and all of its sub-subjects
+            result.addAll(node.wildcardListeners);
+            if (end == length) {
+                result.addAll(node.listeners);
+            }
+
+            start = end + 1;
+        }
+
+        return result.isEmpty() ? Collections.<EventListener>emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    private static String[] validateAndSplit(String subject) {
+        if (subject == null) {
+            throw new IllegalArgumentException("Cannot add listener for null subject");
+        }
+
+        int asteriskLocation = subject.indexOf('*');
+        if (asteriskLocation != -1 && (asteriskLocation + 1) != subject.length()) {
+            throw new IllegalArgumentException("Wildcard must be last element of subject: " + subject);
+        }
+
+        if (subject.contains("..")) {
+            throw new IllegalArgumentException("Subject can not contain an empty path segment: " + subject);
+        }
+
+        String[] path = subject.split("\\.");
+
+        if (path[path.length - 1].contains(WILDCARD) && path[path.length - 1].length() > 1) {
+            throw new IllegalArgumentException("Wildcard can not be mixed with characters");
+        }
+
+        return path;
+    }
+
+    /**
+     * An immutable version of the index, together with the cache of subjects resolved against it.
+     */
+    private static final class Snapshot {
+        private final Node root;
+        private final Map<String, Set<EventListener>> cache = new ConcurrentHashMap<>();
+
+        private Snapshot(Node root) {
+            this.root = root;
+        }
+    }
+
+    /**
+     * An immutable node of the index. Modifications return a new node, or the same instance if nothing changed.
+     */
+    private static final class Node {
+        private static final Node EMPTY = new Node(Collections.<String, Node>emptyMap(),
+                Collections.<EventListener>emptySet(), Collections.<EventListener>emptySet());
+
+        private final Map<String, Node> children;
+        private final Set<EventListener> listeners;
+        private final Set<EventListener> wildcardListeners;
+
+        private Node(Map<String, Node> children, Set<EventListener> listeners, Set<EventListener> wildcardListeners) {
+            this.children = children;
+            this.listeners = listeners;
+            this.wildcardListeners = wildcardListeners;
+        }
+
+        private boolean isEmpty() {
+            return children.isEmpty() && listeners.isEmpty() && wildcardListeners.isEmpty();
+        }
+
+        private Node withListener(EventListener listener, String[] path, int level, int depth, boolean wildcard) {
+            if (level == depth) {
+                return withListener(listener, wildcard);
+            }
+
+            Node child = children.get(path[level]);
+            Node newChild = (child == null ? EMPTY : child).withListener(listener, path, level + 1, depth, wildcard);
+
+            return newChild == child ? this : withChild(path[level], newChild);
+        }
+
+        private Node withListener(EventListener listener, boolean wildcard) {
+            Set<EventListener> current = wildcard ? wildcardListeners : listeners;
+            if (current.contains(listener)) {
+                return this;
+            }
+
+            Set<EventListener> updated = new HashSet<>(current);
+            updated.add(listener);
+            updated = Collections.unmodifiableSet(updated);
+
+            return wildcard ? new Node(children, listeners, updated) : new Node(children, updated, wildcardListeners);
+        }
+
+        private Node withChild(String pathElement, Node child) {
+            Map<String, Node> updated = new HashMap<>(children);
+            updated.put(pathElement, child);
+            return new Node(Collections.unmodifiableMap(updated), listeners, wildcardListeners);
+        }
+
+        /**
+         * Returns this node without listeners with the given identifier, or null if the resulting node would be empty.
+         */
+        private Node withoutListeners(String beanName) {
+            Set<EventListener> newListeners = without(listeners, beanName);
+            Set<EventListener> newWildcardListeners = without(wildcardListeners, beanName);
+
+            Map<String, Node> newChildren = children;
+            for (Map.Entry<String, Node> entry : children.entrySet()) {
+                Node child = entry.getValue();
+                Node newChild = child.withoutListeners(beanName);
+
+                if (newChild != child) {
+                    if (newChildren == children) {
+                        newChildren = new HashMap<>(children);
+                    }
+                    if (newChild == null) {
+                        newChildren.remove(entry.getKey());
+                    } else {
+                        newChildren.put(entry.getKey(), newChild);
+                    }
+                }
+            }
+
+            if (newListeners == listeners && newWildcardListeners == wildcardListeners && newChildren == children) {
+                return this;
+            }
+
+            Node node = new Node(newChildren == children ? children : Collections.unmodifiableMap(newChildren),
+                    newListeners, newWildcardListeners);
+            return node.isEmpty() ? null : node;
+        }
+
+        private static Set<EventListener> without(Set<EventListener> listeners, String beanName) {
+            Set<EventListener> result = null;
+
+            for (EventListener listener : listeners) {
+                if (listener.getIdentifier().equals(beanName)) {
+                    if (result == null) {
+                        result = new HashSet<>(listeners);
+                    }
+                    result.remove(listener);
+                }
+            }
+
+            return result == null ? listeners : Collections.unmodifiableSet(result);
+        }
+    }
+}
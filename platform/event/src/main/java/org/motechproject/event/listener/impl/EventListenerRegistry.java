@@ -4,20 +4,21 @@ import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.listener.EventListenerRegistryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
- import org.springframework.stereotype.Service;
+import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Set;
 
 /**
  * Implementation of the {@link EventListenerRegistryService} interface.
- * Acts as a registry for all scheduled event listeners.
+ * Acts as a registry for all scheduled event listeners. Listeners are kept in an {@link EventListenerIndex},
+ * so the registry can be read by relay threads while bundles are registering or removing their listeners.
  */
 @Service
 public class EventListenerRegistry implements EventListenerRegistryService {
     private static final Logger LOGGER = LoggerFactory.getLogger(EventListenerRegistry.class);
 
-    private EventListenerTree listenerTree = new EventListenerTree();
+    private EventListenerIndex listenerIndex = new EventListenerIndex();
 
     public void registerListener(EventListener listener, List<String> subjects) {
 
@@ -48,23 +49,23 @@ public class EventListenerRegistry implements EventListenerRegistryService {
             LOGGER.debug("registering handler for {} to {}", subject, this.toString());
         }
 
-        listenerTree.addListener(listener, subject);
+        listenerIndex.addListener(listener, subject);
     }
 
     public Set<EventListener> getListeners(String subject) {
-        return listenerTree.getListeners(subject);
+        return listenerIndex.getListeners(subject);
     }
 
     public boolean hasListener(String subject) {
-        return listenerTree.hasListener(subject);
+        return listenerIndex.hasListener(subject);
     }
 
     public int getListenerCount(String subject) {
-        return listenerTree.getListenerCount(subject);
+        return listenerIndex.getListenerCount(subject);
     }
 
     public void clearListenersForBean(String beanName) {
         LOGGER.debug("Clearing listeners for bean: {}", beanName);
-        listenerTree.removeAllListeners(beanName);
+        listenerIndex.removeAllListeners(beanName);
     }
 }
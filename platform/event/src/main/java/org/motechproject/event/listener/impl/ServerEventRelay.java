@@ -9,20 +9,24 @@ import org.motechproject.event.listener.EventRelay;
 import org.motechproject.event.messaging.MotechEventConfig;
 import org.motechproject.event.messaging.OutboundEventGateway;
 import org.motechproject.event.utils.MotechProxyUtils;
+import org.motechproject.osgi.web.tracker.NamedServiceTracker;
 import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.InvalidSyntaxException;
-import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,7 +35,7 @@ import java.util.Set;
  * It is also used for publishing events in the ActiveMQ.
  */
 @Component("eventRelay")
-public class ServerEventRelay implements EventRelay, EventHandler {
+public class ServerEventRelay implements EventRelay, EventHandler, DisposableBean {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerEventRelay.class);
 
     private static final String PROXY_IN_OSGI = "proxy-in-osgi";
@@ -41,9 +45,11 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     private MotechEventConfig motechEventConfig;
     private EventAdmin osgiEventAdmin;
     private BundleContext bundleContext;
+    private BroadcastEventDispatcher broadcastEventDispatcher;
+    private volatile NamedServiceTracker<EventCallbackService> callbackServices;
 
     @Autowired
-    public ServerEventRelay(OutboundEventGateway outboundEventGateway, EventListenerRegistry eventListenerRegistry, MotechEventConfig motechEventConfig,
+    public ServerEventRelay(@Qualifier("outboundEventGateway") OutboundEventGateway outboundEventGateway, EventListenerRegistry eventListenerRegistry, MotechEventConfig motechEventConfig,
                             EventAdmin osgiEventAdmin, BundleContext bundleContext) {
         this.outboundEventGateway = outboundEventGateway;
         this.eventListenerRegistry = eventListenerRegistry;
@@ -52,17 +58,38 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         this.bundleContext = bundleContext;
     }
 
+    /**
+     * Sets the dispatcher handing broadcast events to the listeners.
+     *
+     * @param broadcastEventDispatcher the dispatcher of broadcast events
+     */
+    @Autowired
+    public void setBroadcastEventDispatcher(BroadcastEventDispatcher broadcastEventDispatcher) {
+        this.broadcastEventDispatcher = broadcastEventDispatcher;
+    }
+
+    @Override
+    public void destroy() {
+        NamedServiceTracker<EventCallbackService> tracker = callbackServices;
+        if (tracker != null) {
+            tracker.close();
+        }
+    }
+
     // @TODO either relayQueueEvent should be made private, or this method moved out to it's own class.
     @Override
     public void sendEventMessage(MotechEvent event) {
         verifyEventNotNull(event);
         Set<EventListener> listeners = getEventListeners(event);
 
-        if (!listeners.isEmpty()) {
+        if (listeners.size() == 1) {
+            outboundEventGateway.sendEventMessage(splitEvent(event, listeners).get(0));
+        } else if (!listeners.isEmpty()) {
             // We need to split the message for each listener to ensure the work units
             // are completed individually. Therefore, if a message fails it will be
-            // re-distributed to another server without being lost
-            splitEvent(event, listeners);
+            // re-distributed to another server without being lost. The split messages
+            // are sent as one batch, so their shared payload is encoded only once.
+            outboundEventGateway.sendEventMessages(splitEvent(event, listeners));
         }
     }
 
@@ -79,6 +106,45 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         }
     }
 
+    @Override
+    public void sendEventMessages(Collection<MotechEvent> events) {
+        Map<String, Set<EventListener>> listenersBySubject = new HashMap<>();
+        List<MotechEvent> enrichedEventMessages = new ArrayList<>();
+
+        for (MotechEvent event : events) {
+            verifyEventNotNull(event);
+            Set<EventListener> listeners = getEventListeners(event, listenersBySubject);
+
+            if (!listeners.isEmpty()) {
+                enrichedEventMessages.addAll(splitEvent(event, listeners));
+            }
+        }
+
+        if (!enrichedEventMessages.isEmpty()) {
+            outboundEventGateway.sendEventMessages(enrichedEventMessages);
+        }
+    }
+
+    @Override
+    public void broadcastEventMessages(Collection<MotechEvent> events) {
+        Map<String, Set<EventListener>> listenersBySubject = new HashMap<>();
+        List<MotechEvent> broadcastEvents = new ArrayList<>();
+
+        for (MotechEvent event : events) {
+            verifyEventNotNull(event);
+            Set<EventListener> listeners = getEventListeners(event, listenersBySubject);
+
+            if (!listeners.isEmpty() || proxyInOsgi(event)) {
+                event.setBroadcast(true);
+                broadcastEvents.add(event);
+            }
+        }
+
+        if (!broadcastEvents.isEmpty()) {
+            outboundEventGateway.broadcastEventMessages(broadcastEvents);
+        }
+    }
+
     /**
      * Relays the event that were published in the message queue to all listeners of that event.
      *
@@ -108,8 +174,14 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     public void relayTopicEvent(MotechEvent event) {
         verifyEventNotNull(event);
         Set<EventListener> listeners = getEventListeners(event);
+        if (!listeners.isEmpty() && broadcastEventDispatcher == null) {
+            throw new IllegalStateException("broadcastEventDispatcher is null");
+        }
+
+        // listeners handle the event concurrently, so each of them gets its own copy of the payload
+        boolean copyPayload = listeners.size() > 1;
         for (EventListener listener : listeners) {
-            handleTopicEvent(listener, event);
+            broadcastEventDispatcher.dispatch(listener, copyPayload ? copyMotechEventPayload(event) : event);
         }
 
         // broadcast events can be also be additionally sent as OSGi events upon being received
@@ -127,6 +199,11 @@ public class ServerEventRelay implements EventRelay, EventHandler {
      */
     @Override
     public void handleEvent(Event osgiEvent) {
+        if (osgiEvent.containsProperty(OsgiEventProxy.EVENTS_PARAM)) {
+            handleEventBatch(osgiEvent);
+            return;
+        }
+
         String subject = (String) osgiEvent.getProperty(OsgiEventProxy.SUBJECT_PARAM);
         Map<String, Object> parameters = (Map<String, Object>) osgiEvent.getProperty(OsgiEventProxy.PARAMETERS_PARAM);
         Boolean broadcast = (Boolean) osgiEvent.getProperty(OsgiEventProxy.BROADCAST_PARAM);
@@ -154,13 +231,27 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         }
     }
 
+    private void handleEventBatch(Event osgiEvent) {
+        List<Map<String, Object>> events = (List<Map<String, Object>>) osgiEvent.getProperty(OsgiEventProxy.EVENTS_PARAM);
+
+        LOGGER.debug("Relying a batch of {} OSGi events", events.size());
+
+        List<MotechEvent> motechEvents = new ArrayList<>(events.size());
+        for (Map<String, Object> event : events) {
+            String subject = (String) event.get(OsgiEventProxy.SUBJECT_PARAM);
+            Map<String, Object> parameters = (Map<String, Object>) event.get(OsgiEventProxy.PARAMETERS_PARAM);
+            motechEvents.add(new MotechEvent(subject, parameters == null ? new HashMap<String, Object>() : parameters));
+        }
+
+        sendEventMessages(motechEvents);
+    }
+
     private void handleQueueEvent(EventListener listener, MotechEvent event) {
         EventCallbackService callbackService = findCallbackService(event.getCallbackName());
         ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
 
         try {
-            Object target = MotechProxyUtils.getTargetIfProxied(listener);
-            Thread.currentThread().setContextClassLoader(target.getClass().getClassLoader());
+            Thread.currentThread().setContextClassLoader(MotechProxyUtils.getTargetClassLoader(listener));
             listener.handle(event);
             if (callbackService != null) {
                 callbackService.successCallback(event);
@@ -195,49 +286,37 @@ public class ServerEventRelay implements EventRelay, EventHandler {
             return null;
         }
 
-        try {
-            Collection<ServiceReference<EventCallbackService>> references = bundleContext.getServiceReferences(EventCallbackService.class, null);
-
-            for (ServiceReference<EventCallbackService> ref : references) {
-                EventCallbackService callback = bundleContext.getService(ref);
-                if (callback.getName().equals(callbackName)) {
-                    return callback;
-                }
-            }
-        } catch (InvalidSyntaxException e) {
-            //Should never happen
-            LOGGER.error("Passed filter expression is incorrect.", e);
-        }
+        EventCallbackService callback = getCallbackServices().getService(callbackName);
 
         // If a non-null callback name has been provided, yet it cannot be found in
         // the running context, this indicates an error
-        throw new CallbackServiceNotFoundException(callbackName);
+        if (callback == null) {
+            throw new CallbackServiceNotFoundException(callbackName);
+        }
+
+        return callback;
     }
 
-    private void handleTopicEvent(EventListener listener, MotechEvent event) {
-        int retryCount = 0;
-        int maxRetryCount = motechEventConfig.getMessageMaxRedeliveryCount();
-        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
-
-        do {
-            try {
-                Object target = MotechProxyUtils.getTargetIfProxied(listener);
-                Thread.currentThread().setContextClassLoader(target.getClass().getClassLoader());
-                listener.handle(event);
-                break;
-            } catch (RuntimeException e) {
-                if (retryCount < maxRetryCount) {
-                    LOGGER.warn(String.format("An exception occurred when handling topic event %s by listener %s.",
-                            event.toString(), listener.getIdentifier()), e);
-                } else {
-                    LOGGER.error(String.format("Discarding topic event %s for listener %s. Max retry count reached.",
-                            event.toString(), listener.getIdentifier()), e);
-                    break;
+    private NamedServiceTracker<EventCallbackService> getCallbackServices() {
+        NamedServiceTracker<EventCallbackService> tracker = callbackServices;
+
+        if (tracker == null) {
+            synchronized (this) {
+                tracker = callbackServices;
+                if (tracker == null) {
+                    tracker = new NamedServiceTracker<EventCallbackService>(bundleContext, EventCallbackService.class) {
+                        @Override
+                        protected String getServiceName(EventCallbackService service) {
+                            return service.getName();
+                        }
+                    };
+                    tracker.open();
+                    callbackServices = tracker;
                 }
-            } finally {
-                Thread.currentThread().setContextClassLoader(contextClassLoader);
             }
-        } while (retryCount++ < maxRetryCount);
+        }
+
+        return tracker;
     }
 
     /**
@@ -248,18 +327,36 @@ public class ServerEventRelay implements EventRelay, EventHandler {
      * @param event     Event message to be split
      * @param listeners A list of listeners for this given message that will be used as message destinations
      */
-    private void splitEvent(MotechEvent event, Set<EventListener> listeners) {
+    private List<MotechEvent> splitEvent(MotechEvent event, Set<EventListener> listeners) {
+        List<MotechEvent> enrichedEventMessages = new ArrayList<>(listeners.size());
         MotechEvent enrichedEventMessage;
         Map<String, Object> parameters;
+        Map<String, Object> metadata = event.getMetadata();
+
+        // Events sent through JMS are encoded before the listeners get them, so all of them can share one
+        // read-only copy of the payload, which is then encoded only once. The local transport hands the
+        // events to the listeners directly, so each of them must get its own copy.
+        boolean sharePayload = !motechEventConfig.isLocalTransport();
+        Map<String, Object> sharedParameters = null;
+        if (sharePayload) {
+            sharedParameters = Collections.unmodifiableMap(new HashMap<>(event.getParameters()));
+            metadata = Collections.unmodifiableMap(new HashMap<>(metadata));
+        }
 
         for (EventListener listener : listeners) {
-            parameters = new HashMap<>();
-            parameters.putAll(event.getParameters());
+            if (sharePayload) {
+                parameters = sharedParameters;
+            } else {
+                parameters = new HashMap<>();
+                parameters.putAll(event.getParameters());
+            }
             enrichedEventMessage = new MotechEvent(event.getSubject(), parameters, event.getCallbackName());
-            enrichedEventMessage.setMetadata(event.getMetadata());
+            enrichedEventMessage.setMetadata(metadata);
             enrichedEventMessage.setMessageDestination(listener.getIdentifier());
-            outboundEventGateway.sendEventMessage(enrichedEventMessage);
+            enrichedEventMessages.add(enrichedEventMessage);
         }
+
+        return enrichedEventMessages;
     }
 
     private EventListener getEventListener(MotechEvent event, String identifier) {
@@ -272,6 +369,15 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         return null;
     }
 
+    private Set<EventListener> getEventListeners(MotechEvent event, Map<String, Set<EventListener>> listenersBySubject) {
+        Set<EventListener> listeners = listenersBySubject.get(event.getSubject());
+        if (listeners == null) {
+            listeners = getEventListeners(event);
+            listenersBySubject.put(event.getSubject(), listeners);
+        }
+        return listeners;
+    }
+
     private Set<EventListener> getEventListeners(MotechEvent event) {
         if (eventListenerRegistry == null) {
             throw new IllegalStateException("eventListenerRegistry is null");
@@ -307,6 +413,18 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         return copy;
     }
 
+    private MotechEvent copyMotechEventPayload(MotechEvent event) {
+        MotechEvent copy = new MotechEvent(event.getSubject(), new HashMap<>(event.getParameters()),
+                event.getCallbackName(), new HashMap<>(event.getMetadata()));
+        copy.setId(event.getId());
+        copy.setMessageRedeliveryCount(event.getMessageRedeliveryCount());
+        copy.setInvalid(event.isInvalid());
+        copy.setDiscarded(event.isDiscarded());
+        copy.setBroadcast(event.isBroadcast());
+        copy.setMessageDestination(event.getMessageDestination());
+        return copy;
+    }
+
     private void verifyEventNotNull(MotechEvent event) {
         if (event == null) {
             throw new IllegalArgumentException("Invalid request to relay null event");
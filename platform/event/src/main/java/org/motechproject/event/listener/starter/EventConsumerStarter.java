@@ -1,5 +1,6 @@
 package org.motechproject.event.listener.starter;
 
+import org.motechproject.event.messaging.MotechEventConfig;
 import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.motechproject.server.osgi.util.PlatformConstants;
 import org.osgi.service.event.Event;
@@ -18,22 +19,28 @@ public class EventConsumerStarter implements EventHandler {
 
     private JmsMessageDrivenEndpoint queue;
     private JmsMessageDrivenEndpoint topic;
+    private MotechEventConfig motechEventConfig;
 
     /**
      * Receives an OSGi event with the proxy topic.
      * If event has {@link OsgiEventProxy#SUBJECT_PARAM subject} param
      * with specified {@link PlatformConstants#MODULES_STARTUP_TOPIC value},
-     * then ActiveMQ outbound channels will be started.
+     * then ActiveMQ outbound channels will be started. Batches of events sent on the same topic carry no subject
+     * and are ignored.
      *
      * @param osgiEvent the event sent from OSGi
      */
     @Override
     public void handleEvent(Event osgiEvent) {
         String subject = (String) osgiEvent.getProperty(OsgiEventProxy.SUBJECT_PARAM);
-        if (subject.equals(PlatformConstants.MODULES_STARTUP_TOPIC)) {
+        if (PlatformConstants.MODULES_STARTUP_TOPIC.equals(subject)) {
+            if (motechEventConfig.isLocalTransport()) {
+                LOGGER.info("Local event transport in use, ActiveMQ outbound channels will not be started.");
+                return;
+            }
             startActiveMQConsumers();
+            LOGGER.info("ActiveMQ outbound channels started.");
         }
-        LOGGER.info("ActiveMQ outbound channels started.");
     }
 
     private void startActiveMQConsumers() {
@@ -63,4 +70,9 @@ public class EventConsumerStarter implements EventHandler {
     public void setTopic(JmsMessageDrivenEndpoint topic) {
         this.topic = topic;
     }
+
+    @Autowired
+    public void setMotechEventConfig(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
 }
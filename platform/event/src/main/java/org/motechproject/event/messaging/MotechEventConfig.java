@@ -9,12 +9,58 @@ import org.springframework.stereotype.Component;
 @Component
 public class MotechEventConfig {
 
+    /**
+     * The event transport using the ActiveMQ broker.
+     */
+    public static final String TRANSPORT_JMS = "jms";
+
+    /**
+     * The event transport delivering events to listeners in the same JVM, without using the broker.
+     */
+    public static final String TRANSPORT_LOCAL = "local";
+
+    /**
+     * Broadcast events are handled in the order they were received by every listener.
+     */
+    public static final String BROADCAST_ORDERING_LISTENER = "listener";
+
+    /**
+     * Broadcast events are handled in the order they were received by every listener, separately for each subject.
+     */
+    public static final String BROADCAST_ORDERING_SUBJECT = "subject";
+
+    private static final long MILLIS_PER_SEC = 1000L;
+
     @Value("${motech.message.max.redelivery.count:3}")
     private int messageMaxRedeliveryCount;
 
     @Value("${motech.message.redelivery.delay:1}")
     private long messageRedeliveryDelay;
 
+    @Value("${motech.event.transport:" + TRANSPORT_JMS + "}")
+    private String eventTransport;
+
+    @Value("${motech.event.local.threads:10}")
+    private int localThreads;
+
+    @Value("${motech.event.local.queue.capacity:1000}")
+    private int localQueueCapacity;
+
+    @Value("${motech.event.local.listener.concurrency:2}")
+    private int localListenerConcurrency;
+
+    @Value("${motech.event.broadcast.threads:5}")
+    private int broadcastThreads;
+
+    @Value("${motech.event.broadcast.queue.capacity:1000}")
+    private int broadcastQueueCapacity;
+
+    @Value("${motech.event.broadcast.listener.concurrency:1}")
+    private int broadcastListenerConcurrency;
+
+    @Value("${motech.event.broadcast.ordering:" + BROADCAST_ORDERING_LISTENER + "}")
+    private String broadcastOrdering;
+
     /**
      * Returns maximum number of times a message would be re-delivered
      * in case of any exception.
@@ -36,4 +82,112 @@ public class MotechEventConfig {
     public long getMessageRedeliveryDelay() {
         return messageRedeliveryDelay;
     }
+
+    /**
+     * Returns the delay (in milliseconds) after which an event that has already failed the given number of times
+     * should be redelivered, calculated as described in {@link #getMessageRedeliveryDelay()}.
+     *
+     * @param redeliveryCount the number of failed deliveries of the event
+     * @return the redelivery delay in milliseconds
+     */
+    public long getMessageRedeliveryDelayMillis(int redeliveryCount) {
+        return (long) (messageRedeliveryDelay * MILLIS_PER_SEC * Math.pow(2, redeliveryCount - 1));
+    }
+
+    /**
+     * Returns the name of the transport used for delivering events, either {@link #TRANSPORT_JMS}
+     * or {@link #TRANSPORT_LOCAL}.
+     *
+     * @return the event transport
+     */
+    public String getEventTransport() {
+        return eventTransport;
+    }
+
+    /**
+     * Checks whether events are delivered within this JVM, bypassing the ActiveMQ broker. This should be
+     * only used on single node deployments, since the events will not reach other Motech instances.
+     *
+     * @return true if the local transport is used, false otherwise
+     */
+    public boolean isLocalTransport() {
+        return TRANSPORT_LOCAL.equalsIgnoreCase(eventTransport);
+    }
+
+    /**
+     * Returns the number of threads handling events delivered by the local transport.
+     *
+     * @return the number of threads
+     */
+    public int getLocalThreads() {
+        return localThreads;
+    }
+
+    /**
+     * Returns the maximum number of events waiting for a single listener in the local transport. Events exceeding
+     * this limit are handled in the thread that sent them.
+     *
+     * @return the capacity of the listener queue
+     */
+    public int getLocalQueueCapacity() {
+        return localQueueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of events handled by a single listener at the same time, when using the local
+     * transport.
+     *
+     * @return the number of events handled concurrently by a listener
+     */
+    public int getLocalListenerConcurrency() {
+        return localListenerConcurrency;
+    }
+
+    /**
+     * Returns the number of threads handling broadcast events.
+     *
+     * @return the number of threads
+     */
+    public int getBroadcastThreads() {
+        return broadcastThreads;
+    }
+
+    /**
+     * Returns the maximum number of broadcast events waiting for a single ordering key. Events exceeding this limit
+     * are handled in the thread that received them.
+     *
+     * @return the capacity of the queue
+     */
+    public int getBroadcastQueueCapacity() {
+        return broadcastQueueCapacity;
+    }
+
+    /**
+     * Returns the maximum number of broadcast events with the same ordering key handled at the same time. The order
+     * of events is only preserved if this is set to 1.
+     *
+     * @return the number of broadcast events handled concurrently for an ordering key
+     */
+    public int getBroadcastListenerConcurrency() {
+        return broadcastListenerConcurrency;
+    }
+
+    /**
+     * Returns the ordering of broadcast events, either {@link #BROADCAST_ORDERING_LISTENER} or
+     * {@link #BROADCAST_ORDERING_SUBJECT}.
+     *
+     * @return the broadcast ordering
+     */
+    public String getBroadcastOrdering() {
+        return broadcastOrdering;
+    }
+
+    /**
+     * Checks whether broadcast events should be ordered separately for each subject.
+     *
+     * @return true if broadcast events are ordered by listener and subject, false if only by listener
+     */
+    public boolean isBroadcastOrderedBySubject() {
+        return BROADCAST_ORDERING_SUBJECT.equalsIgnoreCase(broadcastOrdering);
+    }
 }
@@ -2,6 +2,8 @@ package org.motechproject.event.messaging;
 
 import org.motechproject.event.MotechEvent;
 
+import java.util.List;
+
 /**
  * Sends <code>MotechEvent</code> to the ActiveMQ broker, the implementation is generated by Spring Integration.
  */
@@ -26,4 +28,20 @@ public interface OutboundEventGateway {
      * @param motechEvent the event to be broadcast
      */
     void broadcastEventMessage(MotechEvent motechEvent);
+
+    /**
+     *  Sends messages of all the given events to the message queue in a single
+     *  transacted session, meaning either all of them are sent or none.
+     *
+     * @param motechEvents the events to be sent
+     */
+    void sendEventMessages(List<MotechEvent> motechEvents);
+
+    /**
+     *  Broadcasts messages of all the given events to the message topic in a single
+     *  transacted session, meaning either all of them are sent or none.
+     *
+     * @param motechEvents the events to be broadcast
+     */
+    void broadcastEventMessages(List<MotechEvent> motechEvents);
 }
@@ -0,0 +1,129 @@
+package org.motechproject.event.messaging.impl;
+
+import org.motechproject.event.MotechEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.connection.ConnectionFactoryUtils;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sends batches of <code>MotechEvent</code>s to ActiveMQ. All events of a batch are sent through one producer
+ * of a single transacted session, which is committed once after the last event, so either the whole batch gets
+ * published or none of it.
+ * <p>
+ * Events split for multiple listeners share their metadata and parameters, so the payload of consecutive events
+ * sharing them is encoded only once per batch.
+ */
+public class JmsEventBatchSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmsEventBatchSender.class);
+
+    private final JmsTemplate jmsTemplate;
+    private final MotechEventMessageConverter messageConverter;
+    private final MotechEventTransformer eventTransformer = new MotechEventTransformer();
+
+    private Destination eventQueue;
+    private Destination eventTopic;
+
+    public JmsEventBatchSender(ConnectionFactory connectionFactory, MotechEventMessageConverter messageConverter) {
+        this(new JmsTemplate(connectionFactory), messageConverter);
+    }
+
+    JmsEventBatchSender(JmsTemplate jmsTemplate, MotechEventMessageConverter messageConverter) {
+        this.jmsTemplate = jmsTemplate;
+        this.messageConverter = messageConverter;
+
+        jmsTemplate.setSessionTransacted(true);
+    }
+
+    /**
+     * Sends the events to the event queue.
+     *
+     * @param motechEvents the events to send
+     */
+    public void sendEventMessages(List<MotechEvent> motechEvents) {
+        send(eventQueue, motechEvents);
+    }
+
+    /**
+     * Sends the events to the event topic.
+     *
+     * @param motechEvents the events to broadcast
+     */
+    public void broadcastEventMessages(List<MotechEvent> motechEvents) {
+        send(eventTopic, motechEvents);
+    }
+
+    public void setEventQueue(Destination eventQueue) {
+        this.eventQueue = eventQueue;
+    }
+
+    public void setEventTopic(Destination eventTopic) {
+        this.eventTopic = eventTopic;
+    }
+
+    private void send(final Destination destination, final List<MotechEvent> motechEvents) {
+        if (motechEvents.isEmpty()) {
+            return;
+        }
+
+        jmsTemplate.execute(new SessionCallback<Object>() {
+            @Override
+            public Object doInJms(Session session) throws JMSException {
+                // sessions taking part in an external transaction are committed by its transaction manager
+                boolean locallyTransacted = session.getTransacted()
+                        && !ConnectionFactoryUtils.isSessionTransactional(session, jmsTemplate.getConnectionFactory());
+
+                MessageProducer producer = session.createProducer(destination);
+                try {
+                    MotechEvent previous = null;
+                    byte[] payload = null;
+                    for (MotechEvent motechEvent : motechEvents) {
+                        MotechEvent event = eventTransformer.transform(motechEvent);
+                        if (previous == null || !sharesPayload(previous, event)) {
+                            payload = encodePayload(event);
+                        }
+                        producer.send(messageConverter.toMessage(event, payload, session));
+                        previous = event;
+                    }
+
+                    if (locallyTransacted) {
+                        session.commit();
+                    }
+                } catch (JMSException | RuntimeException e) {
+                    if (locallyTransacted) {
+                        session.rollback();
+                    }
+                    throw e;
+                } finally {
+                    producer.close();
+                }
+
+                LOGGER.debug("Sending a batch of {} events to {}", motechEvents.size(), destination);
+                return null;
+            }
+        });
+    }
+
+    private boolean sharesPayload(MotechEvent first, MotechEvent second) {
+        return first.getMetadata() == second.getMetadata() && first.getParameters() == second.getParameters();
+    }
+
+    private byte[] encodePayload(MotechEvent motechEvent) {
+        try {
+            return MotechEventCodec.encodePayload(motechEvent);
+        } catch (IOException e) {
+            throw new MessageConversionException("Unable to encode " + motechEvent, e);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.motechproject.event.messaging.impl;
+
+import org.motechproject.commons.api.KeyedExecutor;
+import org.motechproject.commons.api.metrics.DurationStatistics;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.impl.ServerEventRelay;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.messaging.OutboundEventGateway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM implementation of the {@link OutboundEventGateway}, used instead of ActiveMQ on single node deployments.
+ * Events are handed directly to the {@link ServerEventRelay} without serialization or a round trip through the broker.
+ * <p>
+ * Every listener has its own bounded queue of events, processed on a shared thread pool. If the queue of a listener
+ * is full, the event is handled in the thread that has sent it, which slows the producer down instead of losing
+ * the event. Broadcast events are handled one at a time, in the order in which they were sent, just like with
+ * the single consumer of the JMS topic. Failed events are redelivered after the same exponential delay that is used
+ * with ActiveMQ.
+ * <p>
+ * Unlike the JMS transport, events are not persisted, so events waiting in the queues are lost when the server stops.
+ */
+public class LocalEventGateway implements OutboundEventGateway, ApplicationContextAware, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalEventGateway.class);
+
+    private static final String EVENT_RELAY_BEAN = "eventRelay";
+    private static final String BROADCAST_KEY = "broadcast";
+    private static final String QUEUE_KEY_PREFIX = "queue:";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private final MotechEventConfig motechEventConfig;
+    private final KeyedExecutor queueExecutor;
+    private final KeyedExecutor broadcastExecutor;
+    private final ScheduledExecutorService redeliveryScheduler;
+
+    private ApplicationContext applicationContext;
+    private volatile ServerEventRelay eventRelay;
+
+    public LocalEventGateway(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+
+        queueExecutor = new KeyedExecutor("motech-event-local", motechEventConfig.getLocalThreads(),
+                motechEventConfig.getLocalQueueCapacity(), motechEventConfig.getLocalListenerConcurrency(),
+                KeyedExecutor.OverflowPolicy.CALLER_RUNS);
+        broadcastExecutor = new KeyedExecutor("motech-event-local-broadcast", 1,
+                motechEventConfig.getLocalQueueCapacity(), 1, KeyedExecutor.OverflowPolicy.CALLER_RUNS);
+
+        redeliveryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "motech-event-local-redelivery");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public void sendEventMessage(MotechEvent motechEvent) {
+        final MotechEvent event = assignId(motechEvent);
+
+        if (event.isInvalid()) {
+            long delay = motechEventConfig.getMessageRedeliveryDelayMillis(event.getMessageRedeliveryCount());
+            LOGGER.debug("Redelivering {} after {} millis.", event, delay);
+
+            redeliveryScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    enqueue(event);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } else {
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public void broadcastEventMessage(MotechEvent motechEvent) {
+        // the JMS transport delivers copies of the event, so we must not let listeners see changes made by the sender
+        final MotechEvent event = copyForBroadcast(assignId(motechEvent));
+
+        broadcastExecutor.execute(BROADCAST_KEY, new Runnable() {
+            @Override
+            public void run() {
+                getEventRelay().relayTopicEvent(event);
+            }
+        });
+    }
+
+    @Override
+    public void sendEventMessages(List<MotechEvent> motechEvents) {
+        // there is no broker transaction to share, the events are simply queued one by one
+        for (MotechEvent motechEvent : motechEvents) {
+            sendEventMessage(motechEvent);
+        }
+    }
+
+    @Override
+    public void broadcastEventMessages(List<MotechEvent> motechEvents) {
+        for (MotechEvent motechEvent : motechEvents) {
+            broadcastEventMessage(motechEvent);
+        }
+    }
+
+    /**
+     * Returns the number of events waiting to be handled by the listener with the given identifier.
+     *
+     * @param listenerIdentifier the identifier of the listener
+     * @return the number of queued events
+     */
+    public int getQueueDepth(String listenerIdentifier) {
+        return queueExecutor.getQueueDepth(QUEUE_KEY_PREFIX + listenerIdentifier);
+    }
+
+    /**
+     * Returns the number of queued events for every listener which currently has any events waiting.
+     *
+     * @return the map of listener identifiers to the number of their queued events
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : queueExecutor.getQueueDepths().entrySet()) {
+            depths.put(entry.getKey().substring(QUEUE_KEY_PREFIX.length()), entry.getValue());
+        }
+        return depths;
+    }
+
+    /**
+     * Returns the number of broadcast events waiting to be handled.
+     *
+     * @return the number of queued broadcast events
+     */
+    public int getBroadcastQueueDepth() {
+        return broadcastExecutor.getQueueDepth(BROADCAST_KEY);
+    }
+
+    /**
+     * Returns statistics of time events spent in the queue before being handled.
+     *
+     * @return the queue latency statistics
+     */
+    public DurationStatistics getQueueLatency() {
+        return queueExecutor.getWaitTime();
+    }
+
+    /**
+     * Returns statistics of time spent on handling the events by the listeners.
+     *
+     * @return the handling time statistics
+     */
+    public DurationStatistics getHandlingTime() {
+        return queueExecutor.getExecutionTime();
+    }
+
+    /**
+     * Returns statistics of time broadcast events spent in the queue before being handled.
+     *
+     * @return the broadcast queue latency statistics
+     */
+    public DurationStatistics getBroadcastQueueLatency() {
+        return broadcastExecutor.getWaitTime();
+    }
+
+    /**
+     * Returns the number of events that were handled in the sending thread, because the queue of their
+     * listener was full.
+     *
+     * @return the number of events handled by the senders
+     */
+    public long getOverflowCount() {
+        return queueExecutor.getOverflowCount() + broadcastExecutor.getOverflowCount();
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Sets the relay to which the events are handed. If not set, it is retrieved from the application context when
+     * the first event gets delivered, since the relay itself depends on the gateway.
+     *
+     * @param eventRelay the relay handling the events
+     */
+    public void setEventRelay(ServerEventRelay eventRelay) {
+        this.eventRelay = eventRelay;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        redeliveryScheduler.shutdownNow();
+        queueExecutor.shutdown();
+        broadcastExecutor.shutdown();
+
+        if (!queueExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Local event transport stopped with {} events still queued", queueExecutor.getTotalQueueDepth());
+        }
+        broadcastExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void enqueue(final MotechEvent event) {
+        String destination = event.getMessageDestination();
+        String key = QUEUE_KEY_PREFIX + (destination == null ? event.getSubject() : destination);
+
+        queueExecutor.execute(key, new Runnable() {
+            @Override
+            public void run() {
+                getEventRelay().relayQueueEvent(event);
+            }
+        });
+    }
+
+    private ServerEventRelay getEventRelay() {
+        ServerEventRelay relay = eventRelay;
+        if (relay == null) {
+            relay = applicationContext.getBean(EVENT_RELAY_BEAN, ServerEventRelay.class);
+            eventRelay = relay;
+        }
+        return relay;
+    }
+
+    private MotechEvent assignId(MotechEvent event) {
+        if (event.getId() == null) {
+            event.setId(UUID.randomUUID());
+        }
+        return event;
+    }
+
+    private MotechEvent copyForBroadcast(MotechEvent event) {
+        MotechEvent copy = new MotechEvent(event.getSubject(), new HashMap<>(event.getParameters()),
+                event.getCallbackName(), new HashMap<>(event.getMetadata()));
+        copy.setId(event.getId());
+        copy.setBroadcast(event.isBroadcast());
+        copy.setMessageDestination(event.getMessageDestination());
+        copy.setMessageRedeliveryCount(event.getMessageRedeliveryCount());
+        return copy;
+    }
+}
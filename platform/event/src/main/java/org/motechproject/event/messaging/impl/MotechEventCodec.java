@@ -0,0 +1,392 @@
+package org.motechproject.event.messaging.impl;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+import org.motechproject.event.MotechEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Versioned binary encoding of {@link MotechEvent}s, used on the JMS wire instead of Java serialization.
+ * <p>
+ * The encoded event consists of a header (format version, id, subject, flags, redelivery count, destination and
+ * callback name) followed by the payload (metadata and parameters). Strings, primitive wrappers, {@link Date},
+ * {@link DateTime}, as well as lists and maps of such values are written with compact type tags. Any other
+ * {@link Serializable} value falls back to Java serialization, so every event that could be sent before can still
+ * be sent. Lists and maps of classes other than {@link ArrayList}, {@link HashMap} and {@link LinkedHashMap} are also
+ * serialized, so that their exact type is preserved.
+ */
+public final class MotechEventCodec {
+
+    /**
+     * The version of the format written by this codec.
+     */
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_INVALID = 1;
+    private static final int FLAG_DISCARDED = 1 << 1;
+    private static final int FLAG_BROADCAST = 1 << 2;
+    private static final int FLAG_HAS_ID = 1 << 3;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_BOOLEAN = 6;
+    private static final byte TYPE_SHORT = 7;
+    private static final byte TYPE_BYTE = 8;
+    private static final byte TYPE_CHARACTER = 9;
+    private static final byte TYPE_DATE = 10;
+    private static final byte TYPE_DATE_TIME = 11;
+    private static final byte TYPE_LIST = 12;
+    private static final byte TYPE_MAP = 13;
+    private static final byte TYPE_LINKED_MAP = 14;
+    private static final byte TYPE_SERIALIZED = 15;
+
+    // DataOutput.writeUTF is limited to 65535 bytes, longer strings are written as raw UTF-8
+    private static final int MAX_SHORT_STRING = 65535 / 3;
+    private static final byte STRING_SHORT = 0;
+    private static final byte STRING_LONG = 1;
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * Encodes the event.
+     *
+     * @param event the event to encode
+     * @return the encoded event
+     * @throws IOException if the event contains a value that cannot be encoded
+     */
+    public static byte[] encode(MotechEvent event) throws IOException {
+        return encode(event, encodePayload(event));
+    }
+
+    /**
+     * Encodes the event with a payload encoded before. Events split for multiple listeners share their
+     * metadata and parameters, so their payload can be encoded once with {@link #encodePayload(MotechEvent)}
+     * and then used for each of them.
+     *
+     * @param event the event to encode
+     * @param payload the encoded payload of the event
+     * @return the encoded event
+     * @throws IOException if the header of the event cannot be encoded
+     */
+    public static byte[] encode(MotechEvent event, byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+
+        writeHeader(data, event);
+        data.flush();
+        out.write(payload);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes the payload of the event, that is its metadata and parameters.
+     *
+     * @param event the event whose payload should be encoded
+     * @return the encoded payload
+     * @throws IOException if the payload contains a value that cannot be encoded
+     */
+    public static byte[] encodePayload(MotechEvent event) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+
+        writeMap(data, event.getMetadata());
+        writeMap(data, event.getParameters());
+        data.flush();
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the event.
+     *
+     * @param bytes the encoded event
+     * @return the decoded event
+     * @throws IOException if the data is not a valid encoded event
+     */
+    public static MotechEvent decode(byte[] bytes) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        byte version = data.readByte();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported Motech event encoding version: " + version);
+        }
+
+        int flags = data.readByte();
+        UUID id = (flags & FLAG_HAS_ID) == 0 ? null : new UUID(data.readLong(), data.readLong());
+        int redeliveryCount = data.readInt();
+        String subject = readString(data);
+        String messageDestination = (String) readValue(data);
+        String callbackName = (String) readValue(data);
+        Map<String, Object> metadata = readStringMap(data);
+        Map<String, Object> parameters = readStringMap(data);
+
+        MotechEvent event = new MotechEvent(subject, parameters, callbackName, metadata);
+        event.setId(id);
+        event.setInvalid((flags & FLAG_INVALID) != 0);
+        event.setDiscarded((flags & FLAG_DISCARDED) != 0);
+        event.setBroadcast((flags & FLAG_BROADCAST) != 0);
+        event.setMessageRedeliveryCount(redeliveryCount);
+        event.setMessageDestination(messageDestination);
+
+        return event;
+    }
+
+    private static void writeHeader(DataOutput data, MotechEvent event) throws IOException {
+        int flags = (event.isInvalid() ? FLAG_INVALID : 0) | (event.isDiscarded() ? FLAG_DISCARDED : 0)
+                | (event.isBroadcast() ? FLAG_BROADCAST : 0) | (event.getId() == null ? 0 : FLAG_HAS_ID);
+
+        data.writeByte(VERSION);
+        data.writeByte(flags);
+        if (event.getId() != null) {
+            data.writeLong(event.getId().getMostSignificantBits());
+            data.writeLong(event.getId().getLeastSignificantBits());
+        }
+        data.writeInt(event.getMessageRedeliveryCount());
+        writeString(data, event.getSubject());
+        writeValue(data, event.getMessageDestination());
+        writeValue(data, event.getCallbackName());
+    }
+
+    private static void writeValue(DataOutput data, Object value) throws IOException { //NO CHECKSTYLE CyclomaticComplexity
+        if (value == null) {
+            data.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            data.writeByte(TYPE_STRING);
+            writeString(data, (String) value);
+        } else if (value instanceof Integer) {
+            data.writeByte(TYPE_INTEGER);
+            data.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            data.writeByte(TYPE_LONG);
+            data.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            data.writeByte(TYPE_DOUBLE);
+            data.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            data.writeByte(TYPE_FLOAT);
+            data.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            data.writeByte(TYPE_BOOLEAN);
+            data.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            data.writeByte(TYPE_SHORT);
+            data.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            data.writeByte(TYPE_BYTE);
+            data.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            data.writeByte(TYPE_CHARACTER);
+            data.writeChar((Character) value);
+        } else if (value.getClass() == Date.class) {
+            data.writeByte(TYPE_DATE);
+            data.writeLong(((Date) value).getTime());
+        } else if (value.getClass() == DateTime.class && isIsoDateTime((DateTime) value)) {
+            data.writeByte(TYPE_DATE_TIME);
+            data.writeLong(((DateTime) value).getMillis());
+            writeString(data, ((DateTime) value).getZone().getID());
+        } else if (value.getClass() == ArrayList.class) {
+            data.writeByte(TYPE_LIST);
+            writeList(data, (List<?>) value);
+        } else if (value.getClass() == HashMap.class) {
+            data.writeByte(TYPE_MAP);
+            writeMap(data, (Map<?, ?>) value);
+        } else if (value.getClass() == LinkedHashMap.class) {
+            data.writeByte(TYPE_LINKED_MAP);
+            writeMap(data, (Map<?, ?>) value);
+        } else {
+            data.writeByte(TYPE_SERIALIZED);
+            writeSerialized(data, value);
+        }
+    }
+
+    private static Object readValue(DataInput data) throws IOException { //NO CHECKSTYLE CyclomaticComplexity
+        byte type = data.readByte();
+
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(data);
+            case TYPE_INTEGER:
+                return data.readInt();
+            case TYPE_LONG:
+                return data.readLong();
+            case TYPE_DOUBLE:
+                return data.readDouble();
+            case TYPE_FLOAT:
+                return data.readFloat();
+            case TYPE_BOOLEAN:
+                return data.readBoolean();
+            case TYPE_SHORT:
+                return data.readShort();
+            case TYPE_BYTE:
+                return data.readByte();
+            case TYPE_CHARACTER:
+                return data.readChar();
+            case TYPE_DATE:
+                return new Date(data.readLong());
+            case TYPE_DATE_TIME:
+                long millis = data.readLong();
+                return new DateTime(millis, DateTimeZone.forID(readString(data)));
+            case TYPE_LIST:
+                return readList(data);
+            case TYPE_MAP:
+                return readMap(data, new HashMap<>());
+            case TYPE_LINKED_MAP:
+                return readMap(data, new LinkedHashMap<>());
+            case TYPE_SERIALIZED:
+                return readSerialized(data);
+            default:
+                throw new StreamCorruptedException("Unknown value type in Motech event: " + type);
+        }
+    }
+
+    private static boolean isIsoDateTime(DateTime dateTime) {
+        // other chronologies are serialized, since only the zone is written for this type
+        return ISOChronology.getInstance(dateTime.getZone()).equals(dateTime.getChronology());
+    }
+
+    private static void writeList(DataOutput data, List<?> list) throws IOException {
+        data.writeInt(list.size());
+        for (Object element : list) {
+            writeValue(data, element);
+        }
+    }
+
+    private static List<Object> readList(DataInput data) throws IOException {
+        int size = data.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readValue(data));
+        }
+        return list;
+    }
+
+    private static void writeMap(DataOutput data, Map<?, ?> map) throws IOException {
+        data.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(data, entry.getKey());
+            writeValue(data, entry.getValue());
+        }
+    }
+
+    private static Map<Object, Object> readMap(DataInput data, Map<Object, Object> map) throws IOException {
+        int size = data.readInt();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(data);
+            map.put(key, readValue(data));
+        }
+        return map;
+    }
+
+    private static Map<String, Object> readStringMap(DataInput data) throws IOException {
+        int size = data.readInt();
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(data);
+            map.put((String) key, readValue(data));
+        }
+        return map;
+    }
+
+    private static void writeString(DataOutput data, String value) throws IOException {
+        if (value.length() <= MAX_SHORT_STRING) {
+            data.writeByte(STRING_SHORT);
+            data.writeUTF(value);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            data.writeByte(STRING_LONG);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput data) throws IOException {
+        if (data.readByte() == STRING_SHORT) {
+            return data.readUTF();
+        } else {
+            byte[] bytes = new byte[data.readInt()];
+            data.readFully(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+
+    private static void writeSerialized(DataOutput data, Object value) throws IOException {
+        if (!(value instanceof Serializable)) {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+        }
+
+        byte[] bytes = out.toByteArray();
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static Object readSerialized(DataInput data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+
+        try (ObjectInputStream objectIn = new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to deserialize a value of a Motech event", e);
+        }
+    }
+
+    private MotechEventCodec() {
+    }
+
+    /**
+     * Resolves classes of serialized values using the context class loader first, just like ActiveMQ does
+     * for object messages.
+     */
+    private static final class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
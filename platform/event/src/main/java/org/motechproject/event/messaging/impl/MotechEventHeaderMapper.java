@@ -14,13 +14,14 @@ import javax.jms.Message;
 
 /**
  * Sets the <code>AMQ_SCHEDULED_DELAY</code> header of the JMS message being sent based on the <code>MotechEventConfig</code>.
+ * Only object messages are handled here, the delay of messages encoded by the {@link MotechEventMessageConverter}
+ * is set by the converter.
  * For the delay to work, set attribute schedulerSupport="true" in the broker element of the activemq.xml
  * Ref: http://activemq.apache.org/delay-and-schedule-message-delivery.html
  */
 public class MotechEventHeaderMapper extends DefaultJmsHeaderMapper {
 
     private static final Logger LOGGER = Logger.getLogger(MotechEventHeaderMapper.class);
-    private static final long MILLIS_PER_SEC = 1000L;
 
     @Autowired
     private MotechEventConfig motechEventConfig;
@@ -32,15 +33,16 @@ public class MotechEventHeaderMapper extends DefaultJmsHeaderMapper {
     @Override
     public void fromHeaders(MessageHeaders messageHeaders, Message message) {
         super.fromHeaders(messageHeaders, message);
+        if (!(message instanceof ActiveMQObjectMessage)) {
+            return;
+        }
         try {
             MotechEvent motechEvent = (MotechEvent) ((ActiveMQObjectMessage) message).getObject();
 
             if (motechEvent.isInvalid()) {
-                long redeliveryCount = motechEvent.getMessageRedeliveryCount();
-                Double delay = motechEventConfig.getMessageRedeliveryDelay() * MILLIS_PER_SEC *
-                        ((Math.pow(2, redeliveryCount - 1)));
+                long delay = motechEventConfig.getMessageRedeliveryDelayMillis(motechEvent.getMessageRedeliveryCount());
                 LOGGER.debug("Redelivering " + motechEvent + " after " + delay + " millis.");
-                message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, delay.longValue());
+                message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, delay);
             }
         } catch (JMSException e) {
             LOGGER.error("Failed to set header", e);
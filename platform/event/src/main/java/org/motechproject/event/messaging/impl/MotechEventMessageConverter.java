@@ -0,0 +1,98 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.ScheduledMessage;
+import org.apache.log4j.Logger;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+import java.io.IOException;
+
+/**
+ * Converts <code>MotechEvent</code>s to JMS bytes messages encoded with the {@link MotechEventCodec} and back.
+ * Object messages holding serialized events, sent before the codec was introduced, are still accepted.
+ * Invalid events get the <code>AMQ_SCHEDULED_DELAY</code> property set based on the <code>MotechEventConfig</code>.
+ */
+public class MotechEventMessageConverter implements MessageConverter {
+
+    /**
+     * The name of the message property holding the version of the event encoding.
+     */
+    public static final String CODEC_VERSION_PROPERTY = "motechEventCodecVersion";
+
+    private static final Logger LOGGER = Logger.getLogger(MotechEventMessageConverter.class);
+
+    @Autowired
+    private MotechEventConfig motechEventConfig;
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        if (!(object instanceof MotechEvent)) {
+            throw new MessageConversionException("Cannot convert " + object + " to a JMS message, MotechEvent expected");
+        }
+
+        MotechEvent motechEvent = (MotechEvent) object;
+        try {
+            return toMessage(motechEvent, MotechEventCodec.encodePayload(motechEvent), session);
+        } catch (IOException e) {
+            throw new MessageConversionException("Unable to encode " + motechEvent, e);
+        }
+    }
+
+    /**
+     * Converts the event to a JMS message, using a payload encoded before with
+     * {@link MotechEventCodec#encodePayload(MotechEvent)}.
+     *
+     * @param motechEvent the event to convert
+     * @param payload the encoded payload of the event
+     * @param session the session used to create the message
+     * @return the message
+     * @throws JMSException if the message cannot be created
+     */
+    public Message toMessage(MotechEvent motechEvent, byte[] payload, Session session) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        try {
+            message.writeBytes(MotechEventCodec.encode(motechEvent, payload));
+        } catch (IOException e) {
+            throw new MessageConversionException("Unable to encode " + motechEvent, e);
+        }
+        message.setByteProperty(CODEC_VERSION_PROPERTY, MotechEventCodec.VERSION);
+
+        if (motechEvent.isInvalid()) {
+            long delay = motechEventConfig.getMessageRedeliveryDelayMillis(motechEvent.getMessageRedeliveryCount());
+            LOGGER.debug("Redelivering " + motechEvent + " after " + delay + " millis.");
+            message.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, delay);
+        }
+
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            try {
+                return MotechEventCodec.decode(bytes);
+            } catch (IOException e) {
+                throw new MessageConversionException("Unable to decode the event from message " + message.getJMSMessageID(), e);
+            }
+        } else if (message instanceof ObjectMessage) {
+            return ((ObjectMessage) message).getObject();
+        }
+
+        throw new MessageConversionException("Unsupported message type: " + message.getClass().getName());
+    }
+
+    public void setMotechEventConfig(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
+}
@@ -0,0 +1,67 @@
+package org.motechproject.event.messaging.impl;
+
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.event.messaging.OutboundEventGateway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+/**
+ * Provides the {@link OutboundEventGateway} used by the event relay, based on the transport selected with
+ * the <code>motech.event.transport</code> setting. The ActiveMQ gateway is used unless the local transport
+ * was explicitly chosen.
+ *
+ * @see MotechEventConfig#isLocalTransport()
+ */
+public class OutboundEventGatewayFactoryBean implements FactoryBean<OutboundEventGateway>, ApplicationContextAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundEventGatewayFactoryBean.class);
+
+    private MotechEventConfig motechEventConfig;
+    private ApplicationContext applicationContext;
+
+    private String jmsGatewayBeanName;
+    private String localGatewayBeanName;
+
+    @Override
+    public OutboundEventGateway getObject() {
+        if (motechEventConfig.isLocalTransport()) {
+            LOGGER.info("Using the local event transport, events will not be sent through ActiveMQ");
+            return applicationContext.getBean(localGatewayBeanName, OutboundEventGateway.class);
+        } else {
+            return applicationContext.getBean(jmsGatewayBeanName, OutboundEventGateway.class);
+        }
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return OutboundEventGateway.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Autowired
+    public void setMotechEventConfig(MotechEventConfig motechEventConfig) {
+        this.motechEventConfig = motechEventConfig;
+    }
+
+    public void setJmsGatewayBeanName(String jmsGatewayBeanName) {
+        this.jmsGatewayBeanName = jmsGatewayBeanName;
+    }
+
+    public void setLocalGatewayBeanName(String localGatewayBeanName) {
+        this.localGatewayBeanName = localGatewayBeanName;
+    }
+}
@@ -38,4 +38,19 @@ public final class MotechProxyUtils {
         }
         return proxy;
     }
+
+    /**
+     * Returns the class loader of the bean from the <code>MotechListenerAbstractProxy</code>
+     * if the listener {@link #isMotechListenerProxy(Object)}, otherwise returns the class
+     * loader of the listener itself.
+     *
+     * @param listener the listener to be checked
+     * @return the class loader of the listener target
+     */
+    public static ClassLoader getTargetClassLoader(Object listener) {
+        if (isMotechListenerProxy(listener)) {
+            return ((MotechListenerAbstractProxy) listener).getTargetClassLoader();
+        }
+        return listener.getClass().getClassLoader();
+    }
 }
@@ -0,0 +1,133 @@
+package org.motechproject.event.listener.annotations;
+
+import org.junit.Test;
+import org.motechproject.event.MotechEvent;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MotechListenerProxyTest {
+
+    private static final String SUBJECT = "org.motechproject.test";
+
+    @Test
+    public void shouldCallEventHandler() throws NoSuchMethodException {
+        TestHandler handler = new TestHandler();
+        MotechEvent event = new MotechEvent(SUBJECT);
+
+        new MotechListenerEventProxy("test", handler, method("handleEvent", MotechEvent.class)).handle(event);
+
+        assertEquals(1, handler.events.size());
+        assertSame(event, handler.events.get(0));
+    }
+
+    @Test
+    public void shouldCallNamedParametersHandler() throws NoSuchMethodException {
+        TestHandler handler = new TestHandler();
+        MotechListenerNamedParametersProxy proxy = new MotechListenerNamedParametersProxy("test", handler,
+                method("handleParams", String.class, Integer.class, long.class));
+
+        proxy.handle(new MotechEvent(SUBJECT, params("value", 2, 3L)));
+
+        assertEquals("value", handler.name);
+        assertEquals(Integer.valueOf(2), handler.count);
+        assertEquals(3L, handler.total);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWhenNamedParameterIsMissing() throws NoSuchMethodException {
+        MotechListenerNamedParametersProxy proxy = new MotechListenerNamedParametersProxy("test", new TestHandler(),
+                method("handleParams", String.class, Integer.class, long.class));
+
+        proxy.handle(new MotechEvent(SUBJECT, params("value", null, 3L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWhenNamedParameterHasWrongType() throws NoSuchMethodException {
+        MotechListenerNamedParametersProxy proxy = new MotechListenerNamedParametersProxy("test", new TestHandler(),
+                method("handleParams", String.class, Integer.class, long.class));
+
+        Map<String, Object> params = params("value", 2, 3L);
+        params.put("count", "two");
+
+        proxy.handle(new MotechEvent(SUBJECT, params));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWhenParameterIsNotAnnotated() throws NoSuchMethodException {
+        MotechListenerNamedParametersProxy proxy = new MotechListenerNamedParametersProxy("test", new TestHandler(),
+                method("handleNotAnnotated", String.class));
+
+        proxy.handle(new MotechEvent(SUBJECT, params("value", 2, 3L)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateRuntimeExceptionsOfHandler() throws NoSuchMethodException {
+        new MotechListenerEventProxy("test", new TestHandler(), method("failWithRuntimeException", MotechEvent.class))
+                .handle(new MotechEvent(SUBJECT));
+    }
+
+    @Test(expected = UndeclaredThrowableException.class)
+    public void shouldWrapCheckedExceptionsOfHandler() throws NoSuchMethodException {
+        new MotechListenerEventProxy("test", new TestHandler(), method("failWithCheckedException", MotechEvent.class))
+                .handle(new MotechEvent(SUBJECT));
+    }
+
+    @Test
+    public void shouldReturnClassLoaderOfTheBean() throws NoSuchMethodException {
+        TestHandler handler = new TestHandler();
+
+        MotechListenerEventProxy proxy = new MotechListenerEventProxy("test", handler, method("handleEvent", MotechEvent.class));
+
+        assertSame(TestHandler.class.getClassLoader(), proxy.getTargetClassLoader());
+    }
+
+    private Method method(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return TestHandler.class.getDeclaredMethod(name, parameterTypes);
+    }
+
+    private Map<String, Object> params(String name, Integer count, Long total) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", name);
+        params.put("count", count);
+        params.put("total", total);
+        return params;
+    }
+
+    private static class TestHandler {
+        private List<MotechEvent> events = new ArrayList<>();
+        private String name;
+        private Integer count;
+        private long total;
+
+        public void handleEvent(MotechEvent event) {
+            events.add(event);
+        }
+
+        public void handleParams(@MotechParam("name") String name, @MotechParam("count") Integer count,
+                                 @MotechParam("total") long total) {
+            this.name = name;
+            this.count = count;
+            this.total = total;
+        }
+
+        public void handleNotAnnotated(String name) {
+            this.name = name;
+        }
+
+        public void failWithRuntimeException(MotechEvent event) {
+            throw new IllegalStateException("failure");
+        }
+
+        public void failWithCheckedException(MotechEvent event) throws Exception {
+            throw new Exception("failure");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.motechproject.event.listener.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.messaging.MotechEventConfig;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BroadcastEventDispatcherTest {
+
+    private static final String SUBJECT = "org.motechproject.server.someevent";
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    @Mock
+    private EventListener eventListener;
+
+    @Mock
+    private EventListener slowListener;
+
+    private BroadcastEventDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        when(motechEventConfig.getBroadcastThreads()).thenReturn(2);
+        when(motechEventConfig.getBroadcastQueueCapacity()).thenReturn(10);
+        when(motechEventConfig.getBroadcastListenerConcurrency()).thenReturn(1);
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
+        when(motechEventConfig.getMessageRedeliveryDelayMillis(anyInt())).thenReturn(10L);
+        when(eventListener.getIdentifier()).thenReturn("listener");
+        when(slowListener.getIdentifier()).thenReturn("slow");
+
+        dispatcher = new BroadcastEventDispatcher(motechEventConfig);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void shouldRetryEventHandlingAfterDelay() throws InterruptedException {
+        CountDownLatch latch = countDownOnHandle(eventListener, 2);
+
+        dispatcher.dispatch(eventListener, new MotechEvent(SUBJECT));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        verify(eventListener, times(3)).handle(any(MotechEvent.class));
+        verify(motechEventConfig).getMessageRedeliveryDelayMillis(1);
+        verify(motechEventConfig).getMessageRedeliveryDelayMillis(2);
+    }
+
+    @Test
+    public void shouldStopRetryingAfterMaxRedeliveryCountIsHit() throws InterruptedException {
+        CountDownLatch latch = countDownOnHandle(eventListener, 5);
+
+        dispatcher.dispatch(eventListener, new MotechEvent(SUBJECT));
+
+        assertFalse(latch.await(500, TimeUnit.MILLISECONDS));
+        verify(eventListener, times(3)).handle(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldNotLetSlowListenerDelayOtherListeners() throws InterruptedException {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                blocker.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(slowListener).handle(any(MotechEvent.class));
+        CountDownLatch latch = countDownOnHandle(eventListener, 0);
+
+        dispatcher.dispatch(slowListener, new MotechEvent(SUBJECT));
+        dispatcher.dispatch(slowListener, new MotechEvent(SUBJECT));
+        dispatcher.dispatch(eventListener, new MotechEvent(SUBJECT));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getQueueDepth("slow"));
+        assertEquals(0, dispatcher.getQueueDepth("listener"));
+
+        blocker.countDown();
+    }
+
+    @Test
+    public void shouldRecordHandlingTimePerListener() throws InterruptedException {
+        CountDownLatch latch = countDownOnHandle(eventListener, 0);
+
+        dispatcher.dispatch(eventListener, new MotechEvent(SUBJECT));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        dispatcher.destroy();
+        assertEquals(1, dispatcher.getHandlingTime("listener").getCount());
+    }
+
+    @Test
+    public void shouldNotCountRejectedEventsAsQueued() throws InterruptedException {
+        dispatcher.destroy();
+
+        try {
+            dispatcher.dispatch(eventListener, new MotechEvent(SUBJECT));
+            fail("Expected the event to be rejected by the stopped dispatcher");
+        } catch (RejectedExecutionException e) {
+            // expected, the message of the event is rolled back
+        }
+
+        assertEquals(0, dispatcher.getQueueDepth("listener"));
+    }
+
+    private CountDownLatch countDownOnHandle(EventListener listener, final int failures) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            private int calls;
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                if (calls++ < failures) {
+                    throw new IllegalStateException("failure " + calls);
+                }
+                latch.countDown();
+                return null;
+            }
+        }).when(listener).handle(any(MotechEvent.class));
+        return latch;
+    }
+}
@@ -0,0 +1,139 @@
+package org.motechproject.event.listener.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.commons.api.NanoStopWatch;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.listener.SampleEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares subject lookups in the {@link EventListenerIndex} with the {@link EventListenerTree}. It is not run as
+ * a part of the regular build, since it only reports timings.
+ */
+public class EventListenerIndexPerformanceAssessment {
+
+    private static final int MODULES = 50;
+    private static final int SUBJECTS_PER_MODULE = 100;
+    private static final int LOOKUPS = 2000000;
+    private static final int WARM_UP_LOOKUPS = 200000;
+    private static final int THREADS = 8;
+
+    private EventListenerTree tree;
+    private EventListenerIndex index;
+    private List<String> subjects;
+
+    @Before
+    public void setUp() {
+        tree = new EventListenerTree();
+        index = new EventListenerIndex();
+        subjects = new ArrayList<>();
+
+        for (int module = 0; module < MODULES; module++) {
+            EventListener wildcardListener = new SampleEventListener("wildcard-" + module);
+            String wildcardSubject = format("org.motechproject.module%d.*", module);
+            tree.addListener(wildcardListener, wildcardSubject);
+            index.addListener(wildcardListener, wildcardSubject);
+
+            for (int i = 0; i < SUBJECTS_PER_MODULE; i++) {
+                String subject = format("org.motechproject.module%d.event%d.fired", module, i);
+                EventListener listener = new SampleEventListener(format("listener-%d-%d", module, i));
+
+                tree.addListener(listener, subject);
+                index.addListener(listener, subject);
+                subjects.add(subject);
+            }
+        }
+    }
+
+    @Test
+    public void compareSingleThreadedLookups() {
+        lookUp(tree, WARM_UP_LOOKUPS);
+        lookUp(index, WARM_UP_LOOKUPS);
+
+        NanoStopWatch treeTimer = new NanoStopWatch().start();
+        int treeResult = lookUp(tree, LOOKUPS);
+        long treeDuration = treeTimer.duration();
+
+        NanoStopWatch indexTimer = new NanoStopWatch().start();
+        int indexResult = lookUp(index, LOOKUPS);
+        long indexDuration = indexTimer.duration();
+
+        assertEquals(treeResult, indexResult);
+        report("single thread", treeDuration, indexDuration, LOOKUPS);
+    }
+
+    @Test
+    public void compareConcurrentLookups() throws Exception {
+        lookUp(index, WARM_UP_LOOKUPS);
+
+        // the tree is not thread safe, so its lookups are serialized just as they would have to be in the registry
+        long treeDuration = runConcurrently(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                synchronized (tree) {
+                    return lookUp(tree, LOOKUPS / THREADS);
+                }
+            }
+        });
+
+        long indexDuration = runConcurrently(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return lookUp(index, LOOKUPS / THREADS);
+            }
+        });
+
+        report(THREADS + " threads", treeDuration, indexDuration, LOOKUPS);
+    }
+
+    private long runConcurrently(Callable<Integer> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            NanoStopWatch timer = new NanoStopWatch().start();
+
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Integer> future : futures) {
+                future.get();
+            }
+
+            return timer.duration();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private int lookUp(EventListenerTree listenerTree, int count) {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            found += listenerTree.getListeners(subjects.get(i % subjects.size())).size();
+        }
+        return found;
+    }
+
+    private int lookUp(EventListenerIndex listenerIndex, int count) {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            found += listenerIndex.getListeners(subjects.get(i % subjects.size())).size();
+        }
+        return found;
+    }
+
+    private void report(String mode, long treeDuration, long indexDuration, int lookups) {
+        System.out.println(format("%s, %d subjects, %d lookups: tree %dms (%dns/lookup), index %dms (%dns/lookup)",
+                mode, subjects.size(), lookups, treeDuration / 1000000L, treeDuration / lookups,
+                indexDuration / 1000000L, indexDuration / lookups));
+    }
+}
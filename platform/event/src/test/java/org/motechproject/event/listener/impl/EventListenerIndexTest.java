@@ -0,0 +1,162 @@
+package org.motechproject.event.listener.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.listener.SampleEventListener;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventListenerIndexTest {
+
+    private static final String SUBJECT_0 = "org.motechproject.server";
+    private static final String SUBJECT_1 = "org.motechproject.server.some-event";
+    private static final String SUBJECT_2 = "org.motechproject.server.some-other-event";
+    private static final String WILDCARD_SUBJECT = "org.motechproject.server.*";
+
+    private EventListenerIndex index;
+
+    @Before
+    public void setUp() {
+        index = new EventListenerIndex();
+    }
+
+    @Test
+    public void shouldMatchSubjectsTheSameWayAsTheTree() {
+        EventListener fooListener = new SampleEventListener("foo");
+        EventListener barListener = new SampleEventListener("bar");
+        EventListener universalListener = new SampleEventListener("universal");
+
+        EventListenerTree tree = new EventListenerTree();
+        for (Object[] registration : new Object[][] {
+                {fooListener, SUBJECT_1}, {barListener, WILDCARD_SUBJECT}, {universalListener, "*"},
+                {fooListener, "org.motechproject.*"}, {barListener, "org.test"}}) {
+            tree.addListener((EventListener) registration[0], (String) registration[1]);
+            index.addListener((EventListener) registration[0], (String) registration[1]);
+        }
+
+        for (String subject : new String[] {SUBJECT_0, SUBJECT_1, SUBJECT_2, "org", "org.test", "org.test.other",
+                "org.motechproject", "org.motechproject.server.some-event.deeper", "com.pqr.xyz", "*",
+                "org.test.", "org.motechproject.server.", "org.motechproject.server.some-event.."}) {
+            assertEquals(subject, tree.getListeners(subject), index.getListeners(subject));
+            assertEquals(subject, tree.hasListener(subject), index.hasListener(subject));
+        }
+    }
+
+    @Test
+    public void shouldReturnWildcardListenersForParentSubject() {
+        EventListener listener = new SampleEventListener();
+        index.addListener(listener, WILDCARD_SUBJECT);
+
+        assertEquals(1, index.getListenerCount(SUBJECT_0));
+        assertEquals(1, index.getListenerCount(SUBJECT_1));
+        assertTrue(index.getListeners(SUBJECT_2).contains(listener));
+        assertFalse(index.hasListener("org.motechproject"));
+    }
+
+    @Test
+    public void shouldIgnoreTrailingSeparatorsOfSubject() {
+        EventListener listener = new SampleEventListener("foo");
+        EventListener wildcardListener = new SampleEventListener("bar");
+        index.addListener(listener, SUBJECT_1);
+        index.addListener(wildcardListener, WILDCARD_SUBJECT);
+
+        assertEquals(index.getListeners(SUBJECT_1), index.getListeners(SUBJECT_1 + "."));
+        assertEquals(2, index.getListenerCount(SUBJECT_1 + ".."));
+        assertTrue(index.getListeners(SUBJECT_0 + ".").contains(wildcardListener));
+        assertFalse(index.getListeners(SUBJECT_0 + ".").contains(listener));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateRegistrations() {
+        EventListener listener = new SampleEventListener();
+        index.addListener(listener, SUBJECT_1);
+        Set<EventListener> listeners = index.getListeners(SUBJECT_1);
+
+        index.addListener(listener, SUBJECT_1);
+
+        assertSame(listeners, index.getListeners(SUBJECT_1));
+        assertEquals(1, index.getListenerCount(SUBJECT_1));
+    }
+
+    @Test
+    public void shouldCacheResolvedListenersUntilModified() {
+        EventListener listener = new SampleEventListener("foo");
+        index.addListener(listener, SUBJECT_1);
+
+        Set<EventListener> listeners = index.getListeners(SUBJECT_1);
+        assertSame(listeners, index.getListeners(SUBJECT_1));
+
+        index.addListener(new SampleEventListener("bar"), WILDCARD_SUBJECT);
+
+        Set<EventListener> updated = index.getListeners(SUBJECT_1);
+        assertNotSame(listeners, updated);
+        assertEquals(1, listeners.size());
+        assertEquals(2, updated.size());
+
+        index.removeAllListeners("bar");
+
+        assertEquals(listeners, index.getListeners(SUBJECT_1));
+    }
+
+    @Test
+    public void shouldWorkWithoutCache() {
+        index = new EventListenerIndex(0);
+        index.addListener(new SampleEventListener(), SUBJECT_1);
+
+        assertEquals(1, index.getListenerCount(SUBJECT_1));
+        assertEquals(0, index.getListenerCount(SUBJECT_2));
+    }
+
+    @Test
+    public void shouldRemoveListenersForBean() {
+        index.addListener(new SampleEventListener("foo"), SUBJECT_1);
+        index.addListener(new SampleEventListener("foo"), SUBJECT_2);
+        index.addListener(new SampleEventListener("bar"), WILDCARD_SUBJECT);
+
+        assertEquals(2, index.getListenerCount(SUBJECT_1));
+        assertEquals(2, index.getListenerCount(SUBJECT_2));
+
+        index.removeAllListeners("foo");
+
+        assertEquals(1, index.getListenerCount(SUBJECT_1));
+        assertEquals(1, index.getListenerCount(SUBJECT_2));
+
+        index.removeAllListeners("bar");
+
+        assertEquals(0, index.getListenerCount(SUBJECT_0));
+        assertEquals(0, index.getListenerCount(SUBJECT_1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldReturnImmutableSets() {
+        index.addListener(new SampleEventListener(), SUBJECT_1);
+        index.getListeners(SUBJECT_1).clear();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowWildcardInTheMiddle() {
+        index.addListener(new SampleEventListener(), "org.motechproject.*.event");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowEmptyPathElements() {
+        index.addListener(new SampleEventListener(), "org.motechproject..event");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowWildcardMixedWithCharacters() {
+        index.addListener(new SampleEventListener(), "org.motechproject.event*");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowNullSubject() {
+        index.addListener(new SampleEventListener(), null);
+    }
+}
@@ -9,7 +9,6 @@ import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.listener.OtherSampleEventListener;
 import org.motechproject.event.listener.SampleEventListener;
 import org.motechproject.event.listener.impl.EventListenerRegistry;
-import org.motechproject.event.listener.impl.EventListenerTree;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -47,12 +46,12 @@ public class EventListenerRegistryTest {
         List<String> subjects = new ArrayList<String>();
         EventListener sel = new SampleEventListener();
 
-        EventListenerTree mockTree = mock(EventListenerTree.class);
-        PrivateAccessor.setField(registry, "listenerTree", mockTree);
+        EventListenerIndex mockIndex = mock(EventListenerIndex.class);
+        PrivateAccessor.setField(registry, "listenerIndex", mockIndex);
 
         registry.registerListener(sel, subjects);
 
-        verify(mockTree, times(0)).addListener(Matchers.<EventListener>anyObject(), anyString());
+        verify(mockIndex, times(0)).addListener(Matchers.<EventListener>anyObject(), anyString());
     }
 
     @Test
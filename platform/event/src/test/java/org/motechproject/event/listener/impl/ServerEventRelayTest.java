@@ -5,9 +5,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.domain.BuggyListener;
 import org.motechproject.event.exception.CallbackServiceNotFoundException;
@@ -15,6 +13,7 @@ import org.motechproject.event.listener.EventCallbackService;
 import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.messaging.MotechEventConfig;
 import org.motechproject.event.messaging.OutboundEventGateway;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
@@ -23,6 +22,7 @@ import org.osgi.service.event.EventAdmin;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.core.Is.is;
@@ -74,11 +74,15 @@ public class ServerEventRelayTest {
     @Mock
     private EventCallbackService callbackService;
 
+    @Mock
+    private BroadcastEventDispatcher broadcastEventDispatcher;
+
     private ServerEventRelay eventRelay;
 
     @Before
     public void setUp() throws Exception {
         eventRelay = new ServerEventRelay(outboundEventGateway, registry, motechEventConfig, eventAdmin, bundleContext);
+        eventRelay.setBroadcastEventDispatcher(broadcastEventDispatcher);
 
         when(eventListener.getIdentifier()).thenReturn(LISTENER_IDENTIFIER);
         when(secondaryEventListener.getIdentifier()).thenReturn(SECONDARY_LISTENER_IDENTIFIER);
@@ -98,7 +102,7 @@ public class ServerEventRelayTest {
         motechEvent.setCallbackName(TEST_SERVICE_CALLBACK);
         setUpListeners(SUBJECT, eventListener);
 
-        when(bundleContext.getServiceReferences(EventCallbackService.class, null)).thenReturn(Arrays.asList(serviceReference));
+        when(bundleContext.getServiceReferences(EventCallbackService.class.getName(), null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(callbackService);
         when(callbackService.getName()).thenReturn(TEST_SERVICE_CALLBACK);
 
@@ -108,6 +112,29 @@ public class ServerEventRelayTest {
         verify(callbackService).successCallback(motechEvent);
     }
 
+    @Test
+    public void shouldNotQueryServiceRegistryForEveryCallback() throws Exception {
+        setUpListeners(SUBJECT, eventListener);
+
+        when(bundleContext.getServiceReferences(EventCallbackService.class.getName(), null)).thenReturn(new ServiceReference[]{serviceReference});
+        when(bundleContext.getService(serviceReference)).thenReturn(callbackService);
+        when(callbackService.getName()).thenReturn(TEST_SERVICE_CALLBACK);
+
+        for (int i = 0; i < 3; i++) {
+            MotechEvent motechEvent = createEvent(LISTENER_IDENTIFIER);
+            motechEvent.setCallbackName(TEST_SERVICE_CALLBACK);
+            eventRelay.relayQueueEvent(motechEvent);
+        }
+
+        verify(callbackService, times(3)).successCallback(any(MotechEvent.class));
+        verify(bundleContext).getServiceReferences(EventCallbackService.class.getName(), null);
+        verify(bundleContext).getService(serviceReference);
+
+        eventRelay.destroy();
+
+        verify(bundleContext).ungetService(serviceReference);
+    }
+
     @Test(expected = CallbackServiceNotFoundException.class)
     public void shouldThrowExceptionWhenCallbackServiceOfTheGivenNameIsNotFound() throws Exception {
         MotechEvent motechEvent = createEvent(LISTENER_IDENTIFIER);
@@ -126,7 +153,7 @@ public class ServerEventRelayTest {
         motechEvent.setCallbackName(TEST_SERVICE_CALLBACK);
         setUpListeners(SUBJECT, eventListener);
 
-        when(bundleContext.getServiceReferences(EventCallbackService.class, null)).thenReturn(Arrays.asList(serviceReference));
+        when(bundleContext.getServiceReferences(EventCallbackService.class.getName(), null)).thenReturn(new ServiceReference[]{serviceReference});
         when(bundleContext.getService(serviceReference)).thenReturn(callbackService);
         when(callbackService.getName()).thenReturn(TEST_SERVICE_CALLBACK);
         RuntimeException initCause = new RuntimeException();
@@ -152,15 +179,14 @@ public class ServerEventRelayTest {
         setUpListeners(SUBJECT, eventListener, secondaryEventListener);
         eventRelay.sendEventMessage(motechEvent);
 
-        ArgumentCaptor<MotechEvent> argumentCaptor = ArgumentCaptor.forClass(MotechEvent.class);
-        verify(outboundEventGateway, times(2)).sendEventMessage(argumentCaptor.capture());
-        MotechEvent capturedEvent;
+        ArgumentCaptor<List> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(outboundEventGateway).sendEventMessages(argumentCaptor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+        List<MotechEvent> capturedEvents = argumentCaptor.getValue();
 
-        capturedEvent = argumentCaptor.getAllValues().get(0);
-        assertEquals(capturedEvent.getMessageDestination(), LISTENER_IDENTIFIER);
-
-        capturedEvent = argumentCaptor.getAllValues().get(1);
-        assertEquals(capturedEvent.getMessageDestination(), SECONDARY_LISTENER_IDENTIFIER);
+        assertEquals(2, capturedEvents.size());
+        assertEquals(capturedEvents.get(0).getMessageDestination(), LISTENER_IDENTIFIER);
+        assertEquals(capturedEvents.get(1).getMessageDestination(), SECONDARY_LISTENER_IDENTIFIER);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -197,51 +223,34 @@ public class ServerEventRelayTest {
     }
 
     @Test
-    public void shouldRetryEventHandlingWhenRelyingTopicEvent() {
-        final BooleanValue handled = new BooleanValue(false);
-        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
-        when(eventListener.getIdentifier()).thenReturn("retrying");
-        doThrow(new RuntimeException())
-                .doThrow(new RuntimeException())
-                .doAnswer(new Answer<Void>() {
-                    @Override
-                    public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
-                        handled.setValue(true);
-                        return null;
-                    }
-                })
-                .when(eventListener).handle(any(MotechEvent.class));
-        setUpListeners(SUBJECT, eventListener);
+    public void shouldDispatchTopicEventToAllListeners() {
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+        MotechEvent event = createEvent();
+
+        eventRelay.relayTopicEvent(event);
 
-        eventRelay.relayTopicEvent(new MotechEvent(SUBJECT));
-        verify(eventListener, times(3)).handle(any(MotechEvent.class));
-        assertTrue(handled.getValue());
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(broadcastEventDispatcher).dispatch(eq(eventListener), captor.capture());
+        verify(broadcastEventDispatcher).dispatch(eq(secondaryEventListener), captor.capture());
+        verify(eventListener, never()).handle(any(MotechEvent.class));
+
+        // the listeners are handled concurrently, so they must not share the parameters
+        assertEquals(event, captor.getAllValues().get(0));
+        assertEquals(event, captor.getAllValues().get(1));
+        assertFalse(captor.getAllValues().get(0).getParameters() == captor.getAllValues().get(1).getParameters());
 
         verify(eventAdmin, never()).postEvent(any(Event.class));
         verify(eventAdmin, never()).sendEvent(any(Event.class));
     }
 
     @Test
-    public void shouldStopRetryingEventHandlingAfterMaxRedeliveryCountIsHitWhenRelyingTopicEvent() {
-        final BooleanValue handled = new BooleanValue(false);
-        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
-        when(eventListener.getIdentifier()).thenReturn("retrying");
-        doThrow(new RuntimeException())
-                .doThrow(new RuntimeException())
-                .doThrow(new RuntimeException())
-                .doAnswer(new Answer<Void>() {
-                    @Override
-                    public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
-                        handled.setValue(true);
-                        return null;
-                    }
-                })
-                .when(eventListener).handle(any(MotechEvent.class));
+    public void shouldDispatchTopicEventToSingleListenerWithoutCopying() {
         setUpListeners(SUBJECT, eventListener);
+        MotechEvent event = createEvent();
 
-        eventRelay.relayTopicEvent(new MotechEvent(SUBJECT));
-        verify(eventListener, times(3)).handle(any(MotechEvent.class));
-        assertFalse(handled.getValue());
+        eventRelay.relayTopicEvent(event);
+
+        verify(broadcastEventDispatcher).dispatch(eventListener, event);
     }
 
     @Test
@@ -258,6 +267,68 @@ public class ServerEventRelayTest {
         assertEquals("subject", captor.getValue().getTopic());
     }
 
+    @Test
+    public void shouldSendEventBatchInSingleGatewayCall() {
+        String otherSubject = "org.motechproject.server.otherevent";
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+        setUpListeners(otherSubject, eventListener);
+
+        eventRelay.sendEventMessages(Arrays.asList(createEvent(), createEvent(), new MotechEvent(otherSubject),
+                new MotechEvent("org.motechproject.server.nolisteners")));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboundEventGateway).sendEventMessages(captor.capture());
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+        verify(registry, times(1)).getListeners(SUBJECT);
+
+        List<MotechEvent> sent = captor.getValue();
+        assertEquals(5, sent.size());
+        assertEquals(LISTENER_IDENTIFIER, sent.get(0).getMessageDestination());
+        assertEquals(SECONDARY_LISTENER_IDENTIFIER, sent.get(1).getMessageDestination());
+        assertEquals("value", sent.get(1).getParameters().get("test"));
+        assertEquals(otherSubject, sent.get(4).getSubject());
+    }
+
+    @Test
+    public void shouldNotCallGatewayForBatchWithoutListeners() {
+        eventRelay.sendEventMessages(Arrays.asList(createEvent(), createEvent()));
+        eventRelay.broadcastEventMessages(Arrays.asList(createEvent(), createEvent()));
+
+        verify(outboundEventGateway, never()).sendEventMessages(any(List.class));
+        verify(outboundEventGateway, never()).broadcastEventMessages(any(List.class));
+    }
+
+    @Test
+    public void shouldBroadcastEventBatch() {
+        setUpListeners(SUBJECT, eventListener);
+        MotechEvent first = createEvent();
+        MotechEvent second = createEvent();
+
+        eventRelay.broadcastEventMessages(Arrays.asList(first, second));
+
+        verify(outboundEventGateway).broadcastEventMessages(Arrays.asList(first, second));
+        verify(registry, times(1)).getListeners(SUBJECT);
+        assertTrue(first.isBroadcast());
+        assertTrue(second.isBroadcast());
+    }
+
+    @Test
+    public void shouldRelayOsgiEventBatch() {
+        setUpListeners(SUBJECT, eventListener);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        event.put(OsgiEventProxy.PARAMETERS_PARAM, createEvent().getParameters());
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(OsgiEventProxy.EVENTS_PARAM, Arrays.asList(event, event));
+
+        eventRelay.handleEvent(new Event(OsgiEventProxy.PROXY_EVENT_TOPIC, properties));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboundEventGateway).sendEventMessages(captor.capture());
+        assertEquals(2, captor.getValue().size());
+    }
+
     private MotechEvent createEvent(String messageDestination) {
         MotechEvent event = createEvent();
         event.setMessageDestination(messageDestination);
@@ -273,20 +344,4 @@ public class ServerEventRelayTest {
     private void setUpListeners(String subject, EventListener... listeners) {
         when(registry.getListeners(eq(subject))).thenReturn(new LinkedHashSet<>(Arrays.asList(listeners)));
     }
-
-    private class BooleanValue {
-        private Boolean value;
-
-        public BooleanValue(Boolean value) {
-            this.value = value;
-        }
-
-        public Boolean getValue() {
-            return value;
-        }
-
-        public void setValue(Boolean value) {
-            this.value = value;
-        }
-    }
 }
@@ -0,0 +1,90 @@
+package org.motechproject.event.listener.starter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.messaging.MotechEventConfig;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.motechproject.server.osgi.event.impl.OsgiEventProxyImpl;
+import org.motechproject.server.osgi.util.PlatformConstants;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.springframework.integration.jms.JmsMessageDrivenEndpoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventConsumerStarterTest {
+
+    @Mock
+    private EventAdmin eventAdmin;
+
+    @Mock
+    private JmsMessageDrivenEndpoint queue;
+
+    @Mock
+    private JmsMessageDrivenEndpoint topic;
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    private OsgiEventProxy osgiEventProxy;
+
+    private List<Event> handled = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        final EventConsumerStarter starter = new EventConsumerStarter();
+        starter.setQueue(queue);
+        starter.setTopic(topic);
+        starter.setMotechEventConfig(motechEventConfig);
+
+        // delivers the posted events to the starter, as the event admin does for handlers of the proxy topic
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                Event event = (Event) invocation.getArguments()[0];
+                starter.handleEvent(event);
+                handled.add(event);
+                return null;
+            }
+        }).when(eventAdmin).postEvent(any(Event.class));
+
+        osgiEventProxy = new OsgiEventProxyImpl(eventAdmin);
+    }
+
+    @Test
+    public void shouldIgnoreEventBatchesSentThroughProxy() {
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, "mds.crud.test.Record.CREATE");
+        event.put(OsgiEventProxy.PARAMETERS_PARAM, new HashMap<String, Object>());
+
+        osgiEventProxy.sendEvents(Arrays.asList(event, event));
+
+        assertEquals(1, handled.size());
+        verify(queue, never()).start();
+        verify(topic, never()).start();
+    }
+
+    @Test
+    public void shouldStartConsumersAfterModulesStartup() {
+        osgiEventProxy.sendEvent(PlatformConstants.MODULES_STARTUP_TOPIC);
+
+        verify(queue).start();
+        verify(topic).start();
+    }
+}
@@ -0,0 +1,161 @@
+package org.motechproject.event.messaging.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.MotechEvent;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.JmsUtils;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JmsEventBatchSenderTest {
+
+    @Mock
+    private JmsTemplate jmsTemplate;
+
+    @Mock
+    private MotechEventMessageConverter messageConverter;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private MessageProducer producer;
+
+    @Mock
+    private Destination eventQueue;
+
+    @Mock
+    private Destination eventTopic;
+
+    @Mock
+    private Message message;
+
+    private JmsEventBatchSender batchSender;
+
+    @Before
+    public void setUp() throws JMSException {
+        when(jmsTemplate.execute(any(SessionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                try {
+                    return ((SessionCallback) invocation.getArguments()[0]).doInJms(session);
+                } catch (JMSException e) {
+                    throw JmsUtils.convertJmsAccessException(e);
+                }
+            }
+        });
+        when(session.getTransacted()).thenReturn(true);
+        when(session.createProducer(any(Destination.class))).thenReturn(producer);
+        when(messageConverter.toMessage(any(MotechEvent.class), any(byte[].class), eq(session))).thenReturn(message);
+
+        batchSender = new JmsEventBatchSender(jmsTemplate, messageConverter);
+        batchSender.setEventQueue(eventQueue);
+        batchSender.setEventTopic(eventTopic);
+    }
+
+    @Test
+    public void shouldCommitBatchAfterSendingAllEvents() throws JMSException {
+        batchSender.sendEventMessages(asList(new MotechEvent("subject1"), new MotechEvent("subject2")));
+
+        verify(jmsTemplate).setSessionTransacted(true);
+        verify(session).createProducer(eventQueue);
+
+        InOrder inOrder = inOrder(producer, session);
+        inOrder.verify(producer, times(2)).send(message);
+        inOrder.verify(session).commit();
+        inOrder.verify(producer).close();
+
+        verify(session, never()).rollback();
+    }
+
+    @Test
+    public void shouldCommitBroadcastBatch() throws JMSException {
+        batchSender.broadcastEventMessages(asList(new MotechEvent("subject")));
+
+        verify(session).createProducer(eventTopic);
+        verify(producer).send(message);
+        verify(session).commit();
+    }
+
+    @Test
+    public void shouldRollbackBatchWhenSendingFails() throws JMSException {
+        doThrow(new JMSException("broker unavailable")).when(producer).send(message);
+
+        try {
+            batchSender.sendEventMessages(asList(new MotechEvent("subject1"), new MotechEvent("subject2")));
+            fail("Expected the send failure to be propagated");
+        } catch (JmsException e) {
+            assertEquals("broker unavailable", e.getCause().getMessage());
+        }
+
+        verify(session).rollback();
+        verify(session, never()).commit();
+        verify(producer).close();
+    }
+
+    @Test
+    public void shouldEncodeSharedPayloadOfSplitEventsOnce() throws JMSException {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("key", "value");
+
+        MotechEvent first = new MotechEvent("subject", parameters);
+        first.setMessageDestination("first");
+        MotechEvent second = new MotechEvent("subject", parameters, null, first.getMetadata());
+        second.setMessageDestination("second");
+        MotechEvent other = new MotechEvent("subject", new HashMap<>(parameters));
+
+        batchSender.sendEventMessages(asList(first, second, other));
+
+        ArgumentCaptor<MotechEvent> events = ArgumentCaptor.forClass(MotechEvent.class);
+        ArgumentCaptor<byte[]> payloads = ArgumentCaptor.forClass(byte[].class);
+        verify(messageConverter, times(3)).toMessage(events.capture(), payloads.capture(), eq(session));
+
+        List<byte[]> encoded = payloads.getAllValues();
+        assertEquals(asList(first, second, other), events.getAllValues());
+        assertSame(encoded.get(0), encoded.get(1));
+        assertNotSame(encoded.get(1), encoded.get(2));
+    }
+
+    @Test
+    public void shouldNotOpenSessionForEmptyBatch() {
+        batchSender.sendEventMessages(Collections.<MotechEvent>emptyList());
+
+        verify(jmsTemplate).setSessionTransacted(true);
+        verify(jmsTemplate, never()).execute(any(SessionCallback.class));
+        verifyZeroInteractions(session);
+    }
+}
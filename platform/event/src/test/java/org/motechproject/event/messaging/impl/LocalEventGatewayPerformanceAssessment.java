@@ -0,0 +1,137 @@
+package org.motechproject.event.messaging.impl;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.junit.Test;
+import org.motechproject.commons.api.NanoStopWatch;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventListener;
+import org.motechproject.event.listener.impl.EventListenerRegistry;
+import org.motechproject.event.listener.impl.ServerEventRelay;
+import org.motechproject.event.messaging.MotechEventConfig;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.Session;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the time needed to deliver events to a listener through an embedded, non-persistent ActiveMQ broker
+ * and through the {@link LocalEventGateway}. It is not run as a part of the regular build, since it only
+ * reports timings.
+ */
+public class LocalEventGatewayPerformanceAssessment {
+
+    private static final String SUBJECT = "org.motechproject.performance";
+    private static final String LISTENER_ID = "performance-listener";
+    private static final int EVENTS = 20000;
+
+    @Test
+    public void compareJmsAndLocalTransport() throws Exception {
+        long jmsDuration = sendThroughJms(EVENTS);
+        long localDuration = sendThroughLocalGateway(EVENTS);
+
+        System.out.println(format("%d events: JMS %dms (%dus/event), local %dms (%dus/event)", EVENTS,
+                jmsDuration / 1000000L, jmsDuration / EVENTS / 1000L,
+                localDuration / 1000000L, localDuration / EVENTS / 1000L));
+    }
+
+    private long sendThroughJms(int count) throws JMSException, InterruptedException {
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://performance?broker.persistent=false");
+        Connection connection = connectionFactory.createConnection();
+
+        try {
+            Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = producerSession.createQueue("PerformanceQueue");
+
+            final CountDownLatch latch = new CountDownLatch(count);
+            MessageConsumer consumer = consumerSession.createConsumer(queue);
+            consumer.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    try {
+                        ((ObjectMessage) message).getObject();
+                        latch.countDown();
+                    } catch (JMSException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            connection.start();
+
+            MessageProducer producer = producerSession.createProducer(queue);
+            NanoStopWatch timer = new NanoStopWatch().start();
+            for (int i = 0; i < count; i++) {
+                producer.send(producerSession.createObjectMessage(createEvent(i)));
+            }
+            assertTrue(latch.await(5, TimeUnit.MINUTES));
+
+            return timer.duration();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private long sendThroughLocalGateway(int count) throws InterruptedException {
+        MotechEventConfig config = mock(MotechEventConfig.class);
+        when(config.getLocalThreads()).thenReturn(10);
+        when(config.getLocalQueueCapacity()).thenReturn(1000);
+        when(config.getLocalListenerConcurrency()).thenReturn(2);
+
+        final CountDownLatch latch = new CountDownLatch(count);
+        EventListenerRegistry registry = new EventListenerRegistry();
+        registry.registerListener(new EventListener() {
+            @Override
+            public void handle(MotechEvent event) {
+                latch.countDown();
+            }
+
+            @Override
+            public String getIdentifier() {
+                return LISTENER_ID;
+            }
+        }, SUBJECT);
+
+        LocalEventGateway gateway = new LocalEventGateway(config);
+        ServerEventRelay relay = new ServerEventRelay(gateway, registry, config, null, null);
+        gateway.setEventRelay(relay);
+
+        try {
+            NanoStopWatch timer = new NanoStopWatch().start();
+            for (int i = 0; i < count; i++) {
+                relay.sendEventMessage(createEvent(i));
+            }
+            assertTrue(latch.await(5, TimeUnit.MINUTES));
+
+            long duration = timer.duration();
+            System.out.println(format("Local transport queue latency: %s, handling time: %s",
+                    gateway.getQueueLatency(), gateway.getHandlingTime()));
+            return duration;
+        } finally {
+            gateway.destroy();
+        }
+    }
+
+    private MotechEvent createEvent(int number) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("number", number);
+        params.put("patientId", "patient-" + number);
+        MotechEvent event = new MotechEvent(SUBJECT, params);
+        event.setMessageDestination(LISTENER_ID);
+        return event;
+    }
+}
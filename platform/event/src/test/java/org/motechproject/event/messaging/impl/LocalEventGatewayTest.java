@@ -0,0 +1,126 @@
+package org.motechproject.event.messaging.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.impl.ServerEventRelay;
+import org.motechproject.event.messaging.MotechEventConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalEventGatewayTest {
+
+    private static final String SUBJECT = "org.motechproject.test";
+
+    @Mock
+    private MotechEventConfig motechEventConfig;
+
+    @Mock
+    private ServerEventRelay eventRelay;
+
+    private LocalEventGateway gateway;
+
+    @Before
+    public void setUp() {
+        when(motechEventConfig.getLocalThreads()).thenReturn(2);
+        when(motechEventConfig.getLocalQueueCapacity()).thenReturn(10);
+        when(motechEventConfig.getLocalListenerConcurrency()).thenReturn(1);
+        when(motechEventConfig.getMessageRedeliveryDelayMillis(1)).thenReturn(50L);
+
+        gateway = new LocalEventGateway(motechEventConfig);
+        gateway.setEventRelay(eventRelay);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        gateway.destroy();
+    }
+
+    @Test
+    public void shouldRelayQueueEventsToTheRelay() throws InterruptedException {
+        CountDownLatch latch = countDownOnQueueEvent(1);
+        MotechEvent event = new MotechEvent(SUBJECT);
+        event.setMessageDestination("listener");
+
+        gateway.sendEventMessage(event);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        verify(eventRelay).relayQueueEvent(event);
+        assertNotNull(event.getId());
+    }
+
+    @Test
+    public void shouldRedeliverInvalidEventsAfterDelay() throws InterruptedException {
+        CountDownLatch latch = countDownOnQueueEvent(1);
+        MotechEvent event = new MotechEvent(SUBJECT);
+        event.setMessageDestination("listener");
+        event.setInvalid(true);
+        event.incrementMessageRedeliveryCount();
+
+        long start = System.currentTimeMillis();
+        gateway.sendEventMessage(event);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        verify(motechEventConfig).getMessageRedeliveryDelayMillis(1);
+    }
+
+    @Test
+    public void shouldBroadcastCopyOfTheEvent() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                latch.countDown();
+                return null;
+            }
+        }).when(eventRelay).relayTopicEvent(any(MotechEvent.class));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("key", "value");
+        MotechEvent event = new MotechEvent(SUBJECT, params);
+        event.setBroadcast(true);
+
+        gateway.broadcastEventMessage(event);
+        params.put("key", "changed");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay).relayTopicEvent(captor.capture());
+        assertEquals("value", captor.getValue().getParameters().get("key"));
+        assertEquals(event.getId(), captor.getValue().getId());
+        assertTrue(captor.getValue().isBroadcast());
+    }
+
+    private CountDownLatch countDownOnQueueEvent(int count) {
+        final CountDownLatch latch = new CountDownLatch(count);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                latch.countDown();
+                return null;
+            }
+        }).when(eventRelay).relayQueueEvent(any(MotechEvent.class));
+        return latch;
+    }
+}
@@ -0,0 +1,93 @@
+package org.motechproject.event.messaging.impl;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.motechproject.commons.api.NanoStopWatch;
+import org.motechproject.event.MotechEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the size of encoded events and the time needed to encode and decode them with the {@link MotechEventCodec}
+ * and with Java serialization, which was used for the JMS object messages. It is not run as a part of the regular
+ * build, since it only reports timings.
+ */
+public class MotechEventCodecPerformanceAssessment {
+
+    private static final int WARM_UP = 20000;
+    private static final int EVENTS = 100000;
+
+    @Test
+    public void compareCodecAndJavaSerialization() throws Exception {
+        MotechEvent event = createEvent();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            MotechEventCodec.decode(MotechEventCodec.encode(event));
+            deserialize(serialize(event));
+        }
+
+        int codecSize = MotechEventCodec.encode(event).length;
+        int serializedSize = serialize(event).length;
+        assertEquals(event, MotechEventCodec.decode(MotechEventCodec.encode(event)));
+
+        NanoStopWatch timer = new NanoStopWatch().start();
+        for (int i = 0; i < EVENTS; i++) {
+            MotechEventCodec.decode(MotechEventCodec.encode(event));
+        }
+        long codecDuration = timer.duration();
+
+        timer = new NanoStopWatch().start();
+        for (int i = 0; i < EVENTS; i++) {
+            deserialize(serialize(event));
+        }
+        long serializationDuration = timer.duration();
+
+        System.out.println(format("%d events: codec %d bytes/event, %dns/event; serialization %d bytes/event, %dns/event",
+                EVENTS, codecSize, codecDuration / EVENTS, serializedSize, serializationDuration / EVENTS));
+    }
+
+    private byte[] serialize(MotechEvent event) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(event);
+        }
+        return out.toByteArray();
+    }
+
+    private MotechEvent deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (MotechEvent) objectIn.readObject();
+        }
+    }
+
+    private MotechEvent createEvent() {
+        List<Object> messages = new ArrayList<>();
+        messages.add("first message");
+        messages.add("second message");
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("patientId", "patient-123");
+        params.put("campaignName", "Pregnancy campaign");
+        params.put("messageKey", "week-12");
+        params.put("day", 84);
+        params.put("startDate", new DateTime());
+        params.put("messages", messages);
+
+        MotechEvent event = new MotechEvent("org.motechproject.messagecampaign.fired-campaign-message", params);
+        event.setId(UUID.randomUUID());
+        event.setMessageDestination("org.motechproject.performance.handler");
+        return event;
+    }
+}
@@ -0,0 +1,185 @@
+package org.motechproject.event.messaging.impl;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.motechproject.event.MotechEvent;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MotechEventCodecTest {
+
+    private static final String SUBJECT = "org.motechproject.test";
+
+    @Test
+    public void shouldEncodeAndDecodeEvent() throws IOException {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("source", "test");
+
+        MotechEvent event = new MotechEvent(SUBJECT, parameters(), "callback", metadata);
+        event.setId(UUID.randomUUID());
+        event.setInvalid(true);
+        event.setBroadcast(true);
+        event.setMessageDestination("listener");
+        event.setMessageRedeliveryCount(3);
+
+        MotechEvent decoded = MotechEventCodec.decode(MotechEventCodec.encode(event));
+
+        assertEquals(event, decoded);
+        assertEquals(event.getId(), decoded.getId());
+        assertTrue(decoded.isInvalid());
+        assertFalse(decoded.isDiscarded());
+        assertTrue(decoded.isBroadcast());
+        assertEquals(3, decoded.getMessageRedeliveryCount());
+        assertEquals("listener", decoded.getMessageDestination());
+        assertEquals("callback", decoded.getCallbackName());
+        assertEquals(metadata, decoded.getMetadata());
+    }
+
+    @Test
+    public void shouldPreserveValueTypes() throws IOException {
+        Map<String, Object> parameters = parameters();
+
+        Map<String, Object> decoded = MotechEventCodec.decode(MotechEventCodec.encode(new MotechEvent(SUBJECT, parameters)))
+                .getParameters();
+
+        assertEquals(parameters, decoded);
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            if (entry.getValue() != null) {
+                assertEquals(entry.getKey(), entry.getValue().getClass(), decoded.get(entry.getKey()).getClass());
+            }
+        }
+        assertEquals(DateTimeZone.forID("Europe/Warsaw"), ((DateTime) decoded.get("dateTime")).getZone());
+    }
+
+    @Test
+    public void shouldEncodeEventWithoutOptionalFields() throws IOException {
+        MotechEvent decoded = MotechEventCodec.decode(MotechEventCodec.encode(new MotechEvent(SUBJECT)));
+
+        assertEquals(SUBJECT, decoded.getSubject());
+        assertNull(decoded.getId());
+        assertNull(decoded.getMessageDestination());
+        assertNull(decoded.getCallbackName());
+        assertTrue(decoded.getParameters().isEmpty());
+        assertTrue(decoded.getMetadata().isEmpty());
+    }
+
+    @Test
+    public void shouldEncodeLongStrings() throws IOException {
+        char[] chars = new char[100000];
+        Arrays.fill(chars, '\u0105');
+        String longString = new String(chars);
+
+        MotechEvent event = new MotechEvent(SUBJECT, Collections.<String, Object>singletonMap("long", longString));
+
+        assertEquals(longString, MotechEventCodec.decode(MotechEventCodec.encode(event)).getParameters().get("long"));
+    }
+
+    @Test
+    public void shouldEncodeSplitEventsWithPayloadEncodedOnce() throws IOException {
+        Map<String, Object> parameters = Collections.unmodifiableMap(parameters());
+        Map<String, Object> metadata = Collections.unmodifiableMap(new HashMap<String, Object>());
+
+        MotechEvent first = new MotechEvent(SUBJECT, parameters, null, metadata);
+        first.setMessageDestination("first");
+        MotechEvent second = new MotechEvent(SUBJECT, parameters, null, metadata);
+        second.setMessageDestination("second");
+
+        byte[] payload = MotechEventCodec.encodePayload(first);
+
+        MotechEvent firstDecoded = MotechEventCodec.decode(MotechEventCodec.encode(first, payload));
+        MotechEvent secondDecoded = MotechEventCodec.decode(MotechEventCodec.encode(second, payload));
+
+        assertEquals("first", firstDecoded.getMessageDestination());
+        assertEquals("second", secondDecoded.getMessageDestination());
+        assertEquals(parameters, secondDecoded.getParameters());
+        assertNotSame(firstDecoded.getParameters(), secondDecoded.getParameters());
+    }
+
+    @Test
+    public void shouldEncodeCurrentParametersOfReencodedEvent() throws IOException {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("key", "value");
+        MotechEvent event = new MotechEvent(SUBJECT, parameters);
+
+        MotechEventCodec.encode(event);
+        parameters.put("key", "changed");
+
+        assertEquals("changed", MotechEventCodec.decode(MotechEventCodec.encode(event)).getParameters().get("key"));
+    }
+
+    @Test(expected = NotSerializableException.class)
+    public void shouldFailForValuesThatCannotBeSerialized() throws IOException {
+        MotechEventCodec.encode(new MotechEvent(SUBJECT, Collections.<String, Object>singletonMap("key", new Object())));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void shouldRejectUnknownVersion() throws IOException {
+        byte[] bytes = MotechEventCodec.encode(new MotechEvent(SUBJECT));
+        bytes[0] = MotechEventCodec.VERSION + 1;
+
+        MotechEventCodec.decode(bytes);
+    }
+
+    @Test
+    public void shouldDecodeModifiableParameters() throws IOException {
+        Map<String, Object> parameters = Collections.unmodifiableMap(parameters());
+        MotechEvent decoded = MotechEventCodec.decode(MotechEventCodec.encode(new MotechEvent(SUBJECT, parameters)));
+
+        assertSame(HashMap.class, decoded.getParameters().getClass());
+        decoded.getParameters().put("key", "value");
+    }
+
+    private Map<String, Object> parameters() {
+        List<Object> list = new ArrayList<>();
+        list.add("element");
+        list.add(7);
+
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("z", 1L);
+        nested.put("a", list);
+
+        Map<String, Object> sorted = new TreeMap<>();
+        sorted.put("b", "second");
+        sorted.put("a", "first");
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("string", "value");
+        parameters.put("integer", 1);
+        parameters.put("long", 2L);
+        parameters.put("double", 3.5d);
+        parameters.put("float", 4.5f);
+        parameters.put("boolean", true);
+        parameters.put("short", (short) 5);
+        parameters.put("byte", (byte) 6);
+        parameters.put("character", 'c');
+        parameters.put("date", new Date());
+        parameters.put("dateTime", new DateTime(DateTimeZone.forID("Europe/Warsaw")));
+        parameters.put("localDate", new LocalDate());
+        parameters.put("list", list);
+        parameters.put("nested", nested);
+        parameters.put("sorted", sorted);
+        parameters.put("null", null);
+        return parameters;
+    }
+}
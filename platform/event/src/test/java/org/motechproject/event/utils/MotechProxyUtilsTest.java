@@ -29,6 +29,14 @@ public class MotechProxyUtilsTest {
         assertThat(target, IsSame.sameInstance(bean));
     }
 
+    @Test
+    public void shouldReturnClassLoaderOfProxyTarget() {
+        assertThat(MotechProxyUtils.getTargetClassLoader(new TestProxy(new Object())),
+                IsSame.sameInstance(Object.class.getClassLoader()));
+        assertThat(MotechProxyUtils.getTargetClassLoader(this),
+                IsSame.sameInstance(MotechProxyUtilsTest.class.getClassLoader()));
+    }
+
     private class TestProxy extends MotechListenerAbstractProxy {
 
         public TestProxy(Object bean) {
@@ -84,6 +84,10 @@ public class MdsStressIT extends LoggingPerformanceIT {
         stressTestRetrieval(service);
         stressTestUpdating(service);
         stressTestDeleting(service);
+
+        stressTestBulkCreating(service);
+        stressTestBulkUpdating(service);
+        stressTestBulkDeleting(service);
     }
 
     private void stressTestCreating(MotechDataService service, Class clazz)
@@ -139,4 +143,42 @@ public class MdsStressIT extends LoggingPerformanceIT {
         logToFile((double) endTime);
     }
 
+    private void stressTestBulkCreating(MotechDataService service)
+            throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException, ClassNotFoundException {
+
+        EntityDto entityDto = entityService.getEntityByClassName(FOO_CLASS);
+        List<Object> instances = new ArrayList<>();
+        for (int i = 0 ; i < TEST_INSTANCES; i++) {
+            instances.add(generator.makeDummyInstance(entityDto.getId()));
+        }
+
+        Long startTime = System.nanoTime();
+        service.createAll(instances);
+        Long endTime = (System.nanoTime() - startTime) / 1000000;
+
+        LOGGER.info("MDS Service: Bulk creating " + TEST_INSTANCES + " instances took " + endTime + "ms.");
+        logToFile((double) endTime);
+    }
+
+    private void stressTestBulkUpdating(MotechDataService service) {
+        List<Object> allObjects = service.retrieveAll();
+
+        Long startTime = System.nanoTime();
+        service.updateAll(allObjects);
+        Long endTime = (System.nanoTime() - startTime) / 1000000;
+
+        LOGGER.info("MDS Service: Bulk updating " + TEST_INSTANCES + " instances took " + endTime + "ms.");
+        logToFile((double) endTime);
+    }
+
+    private void stressTestBulkDeleting(MotechDataService service) {
+
+        Long startTime = System.nanoTime();
+        service.deleteAll(service.retrieveAll());
+        Long endTime = (System.nanoTime() - startTime) / 1000000;
+
+        LOGGER.info("MDS Service: Bulk deleting " + TEST_INSTANCES + " instances took " + endTime + "ms.");
+        logToFile((double) endTime);
+    }
+
 }
\ No newline at end of file
@@ -320,7 +320,8 @@ public interface InstanceService {
 
     /**
      * Returns the related field as collection, applying filtering. Allows retrieval of related fields for
-     * grids, etc.
+     * grids, etc. Saved collection relationships are paged and ordered by the database, the pagination is
+     * applied in memory only if the filter contains unsaved additions.
      * @param entityId the id of entity (the entity with the related field)
      * @param instanceId the id of the instance we want to retrieve the field for
      * @param fieldName the name of the related field
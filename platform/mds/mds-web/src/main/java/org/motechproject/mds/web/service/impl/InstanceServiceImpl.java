@@ -35,6 +35,7 @@ import org.motechproject.mds.helper.DataServiceHelper;
 import org.motechproject.mds.helper.bundle.MdsBundleHelper;
 import org.motechproject.mds.lookup.LookupExecutor;
 import org.motechproject.mds.query.InMemoryQueryFilter;
+import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.EntityService;
 import org.motechproject.mds.service.HistoryService;
@@ -44,8 +45,10 @@ import org.motechproject.mds.service.TrashService;
 import org.motechproject.mds.service.TypeService;
 import org.motechproject.mds.service.UserPreferencesService;
 import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.InstanceSecurityRestriction;
 import org.motechproject.mds.util.MDSClassLoader;
 import org.motechproject.mds.util.MemberUtil;
+import org.motechproject.mds.util.Order;
 import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.mds.util.SecurityMode;
 import org.motechproject.mds.util.StateManagerUtil;
@@ -71,6 +74,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.jdo.Query;
 import javax.management.InstanceNotFoundException;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
@@ -85,6 +89,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -109,6 +114,7 @@ public class InstanceServiceImpl implements InstanceService {
     private static final Logger LOGGER = LoggerFactory.getLogger(InstanceServiceImpl.class);
     private static final int MAX_LENGTH = 80;
     private static final String LOOKUP_EXCEPTION_MESSAGE_KEY = "mds.error.lookupExecError";
+    private static final String RELATED_VARIABLE = "related";
 
     private EntityService entityService;
     private BundleContext bundleContext;
@@ -544,25 +550,31 @@ public class InstanceServiceImpl implements InstanceService {
                     throw new ObjectNotFoundException(entityName, instanceId);
                 }
 
+                // saved relationships without unsaved additions are paged and ordered by the database
+                if (isCollectionRelationship(relatedField) && filter.getAddedIds().isEmpty()
+                        && filter.getAddedNewRecords().isEmpty()) {
+                    return getPersistedRelatedFieldValue(service, instanceId, fieldName, relatedEntity,
+                            relatedFields, relatedDataService, filter.getRemovedIds(), queryParams);
+                }
+
                 // the value of the related field
                 relatedAsColl = TypeHelper.asCollection(PropertyUtil.getProperty(instance, fieldName));
             }
 
             relatedAsColl.addAll(relatedDataService.findByIds(filter.getAddedIds()));
 
-            List<Long> updatedInstancesIds = new ArrayList<>();
+            final Set<Long> excludedIds = new HashSet<>(filter.getRemovedIds());
             for (EntityRecord record : filter.getAddedNewRecords()) {
                 Integer id = (Integer) record.getFieldByName(Constants.Util.ID_FIELD_NAME).getValue();
                 if (id != null && id > 0) {
-                    updatedInstancesIds.add(id.longValue());
+                    excludedIds.add(id.longValue());
                 }
             }
 
             relatedAsColl.removeIf(new Predicate() {
                 @Override
                 public boolean test(Object o) {
-                    Long objectId = (Long) PropertyUtil.safeGetProperty(o, Constants.Util.ID_FIELD_NAME);
-                    return filter.getRemovedIds().contains(objectId) || updatedInstancesIds.contains(objectId);
+                    return excludedIds.contains(PropertyUtil.safeGetProperty(o, Constants.Util.ID_FIELD_NAME));
                 }
             });
 
@@ -570,7 +582,7 @@ public class InstanceServiceImpl implements InstanceService {
                 relatedAsColl.add(newInstanceFromEntityRecord(getEntityClass(relatedEntity), relatedFields, record.getFields(), relatedDataService));
             }
 
-            // apply pagination ordering (currently in memory)
+            // unsaved additions are only known here, so pagination and ordering is applied in memory
             List filtered = InMemoryQueryFilter.filter(relatedAsColl, queryParams);
 
             // convert the instance to a grid-friendly form
@@ -589,6 +601,102 @@ public class InstanceServiceImpl implements InstanceService {
         }
     }
 
+    private Records<BasicEntityRecord> getPersistedRelatedFieldValue(MotechDataService service, final Long instanceId,
+                                                                     final String fieldName, EntityDto relatedEntity,
+                                                                     List<FieldDto> relatedFields,
+                                                                     MotechDataService relatedDataService,
+                                                                     final List<Long> removedIds,
+                                                                     final QueryParams queryParams) {
+        final String relatedClass = relatedEntity.getClassName();
+
+        // the query runs on the owning entity and selects the elements of its related collection
+        List related = (List) service.executeQuery(new QueryExecution<List>() {
+            @Override
+            public List execute(Query query, InstanceSecurityRestriction restriction) {
+                Map<String, Object> params = prepareRelatedFieldQuery(query, restriction, instanceId, fieldName,
+                        relatedClass, removedIds);
+
+                query.setResult(RELATED_VARIABLE);
+
+                if (queryParams.isPagingSet()) {
+                    long pageSize = queryParams.getPageSize();
+                    long first = (queryParams.getPage() - 1) * pageSize;
+                    query.setRange(first, first + pageSize);
+                }
+                if (queryParams.isOrderSet()) {
+                    List<String> ordering = new ArrayList<>();
+                    for (Order order : queryParams.getOrderList()) {
+                        ordering.add(RELATED_VARIABLE + '.' + order.toString());
+                    }
+                    query.setOrdering(StringUtils.join(ordering, ", "));
+                }
+
+                return (List) query.executeWithMap(params);
+            }
+        });
+
+        Long count = (Long) service.executeQuery(new QueryExecution<Long>() {
+            @Override
+            public Long execute(Query query, InstanceSecurityRestriction restriction) {
+                Map<String, Object> params = prepareRelatedFieldQuery(query, restriction, instanceId, fieldName,
+                        relatedClass, removedIds);
+
+                query.setResult("count(" + RELATED_VARIABLE + ")");
+                query.setUnique(true);
+
+                return (Long) query.executeWithMap(params);
+            }
+        });
+
+        List<BasicEntityRecord> entityRecords = instancesToBasicRecords(related, relatedEntity, relatedFields,
+                relatedDataService, EntityType.STANDARD);
+
+        int recordCount = count.intValue();
+        int rowCount = queryParams.isPagingSet()
+                ? (int) Math.ceil(recordCount / (double) queryParams.getPageSize())
+                : 1;
+
+        return new Records<>(queryParams.getPage(), rowCount, recordCount, entityRecords);
+    }
+
+    private Map<String, Object> prepareRelatedFieldQuery(Query query, InstanceSecurityRestriction restriction,
+                                                         Long instanceId, String fieldName, String relatedClass,
+                                                         List<Long> removedIds) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> filters = new ArrayList<>();
+        List<String> declarations = new ArrayList<>();
+
+        filters.add("id == instanceId");
+        declarations.add(Long.class.getName() + " instanceId");
+        params.put("instanceId", instanceId);
+
+        filters.add(String.format("%s.contains(%s)", fieldName, RELATED_VARIABLE));
+
+        if (!removedIds.isEmpty()) {
+            filters.add(String.format("!removedIds.contains(%s.id)", RELATED_VARIABLE));
+            declarations.add(Collection.class.getName() + " removedIds");
+            params.put("removedIds", removedIds);
+        }
+
+        if (restriction != null && !restriction.isEmpty()) {
+            filters.add((restriction.isByCreator() ? "creator" : "owner") + " == username");
+            declarations.add(String.class.getName() + " username");
+            params.put("username", getUsername());
+        }
+
+        query.setFilter(StringUtils.join(filters, " && "));
+        query.declareParameters(StringUtils.join(declarations, ", "));
+        query.declareVariables(relatedClass + " " + RELATED_VARIABLE);
+
+        return params;
+    }
+
+    private boolean isCollectionRelationship(FieldDto field) {
+        String typeClass = field.getType().getTypeClass();
+        return TypeDto.ONE_TO_MANY_RELATIONSHIP.getTypeClass().equals(typeClass)
+                || TypeDto.MANY_TO_MANY_RELATIONSHIP.getTypeClass().equals(typeClass);
+    }
+
     private Object newInstanceFromEntityRecord(Class<?> entityClass, List<FieldDto> entityFields, List<FieldRecord> fields, MotechDataService service)
             throws IllegalAccessException, InstantiationException, ClassNotFoundException, NoSuchMethodException, CannotCompileException, NoSuchFieldException {
         Object instance = entityClass.newInstance();
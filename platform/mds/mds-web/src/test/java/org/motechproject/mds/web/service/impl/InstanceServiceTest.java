@@ -23,6 +23,7 @@ import org.motechproject.mds.exception.entity.EntityNotFoundException;
 import org.motechproject.mds.exception.object.ObjectNotFoundException;
 import org.motechproject.mds.exception.object.ObjectUpdateException;
 import org.motechproject.mds.exception.object.SecurityException;
+import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.DefaultMotechDataService;
 import org.motechproject.mds.service.EntityService;
@@ -53,6 +54,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.security.core.userdetails.User;
 
+import javax.jdo.Query;
 import javax.management.InstanceNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -639,6 +641,8 @@ public class InstanceServiceTest {
         mockTestClassService();
         mockTestClassFields();
         when(serviceForAnotherSample.findById(INSTANCE_ID)).thenReturn(sampleForRelationshipTesting());
+        when(serviceForAnotherSample.executeQuery(any(QueryExecution.class)))
+                .thenReturn(asList(new TestClass(1), new TestClass(2)), 3L);
 
         QueryParams queryParams = new QueryParams(1, 2, new Order(Constants.Util.ID_FIELD_NAME, Order.Direction.ASC));
         Records<BasicEntityRecord> records = instanceService.getRelatedFieldValue(ANOTHER_ENTITY_ID, INSTANCE_ID,
@@ -650,6 +654,19 @@ public class InstanceServiceTest {
         assertEquals(Integer.valueOf(3), records.getRecords()); // 3 records total
         assertEquals(asList(1L, 2L), extract(records.getRows(), on(BasicEntityRecord.class).getFieldByName("id").getValue()));
 
+        // saved relationships are paged and ordered by the database
+        ArgumentCaptor<QueryExecution> captor = ArgumentCaptor.forClass(QueryExecution.class);
+        verify(serviceForAnotherSample, times(2)).executeQuery(captor.capture());
+
+        Query query = mock(Query.class);
+        captor.getAllValues().get(0).execute(query, null);
+
+        verify(query).setFilter("id == instanceId && testClasses.contains(related)");
+        verify(query).declareVariables(TestClass.class.getName() + " related");
+        verify(query).setResult("related");
+        verify(query).setRange(0, 2);
+        verify(query).setOrdering("related.id ascending");
+
         RelationshipsUpdate filter = new RelationshipsUpdate();
         filter.setRemovedIds(Arrays.asList(1L, 2L));
         filter.setAddedIds(Arrays.asList(50L));
@@ -18,6 +18,8 @@ import org.motechproject.mds.dto.SchemaHolder;
 import org.motechproject.mds.dto.SettingDto;
 import org.motechproject.mds.dto.TypeDto;
 import org.motechproject.mds.dto.LookupDto;
+import org.motechproject.mds.dto.LookupFieldDto;
+import org.motechproject.mds.dto.LookupFieldType;
 import org.motechproject.mds.exception.MdsException;
 import org.motechproject.mds.helper.ClassTableName;
 import org.motechproject.mds.javassist.MotechClassPool;
@@ -60,6 +62,7 @@ import javax.jdo.metadata.PackageMetadata;
 import javax.jdo.metadata.UniqueMetadata;
 import javax.jdo.metadata.ValueMetadata;
 import javax.jdo.metadata.VersionMetadata;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -120,6 +123,7 @@ public class EntityMetadataBuilderImpl implements EntityMetadataBuilder {
         }
 
         addMetadataForFields(cmd, null, entity, EntityType.STANDARD, definition, schemaHolder);
+        addLookupIndexMetadata(cmd, entity, schemaHolder);
     }
 
     @Override
@@ -321,6 +325,82 @@ public class EntityMetadataBuilderImpl implements EntityMetadataBuilder {
         }
     }
 
+    private void addLookupIndexMetadata(ClassMetadata cmd, EntityDto entity, SchemaHolder schemaHolder) {
+        for (LookupDto lookup : schemaHolder.getLookups(entity)) {
+            if (!lookup.isIndexRequired()) {
+                continue;
+            }
+
+            List<String> members = getLookupIndexMembers(lookup, entity, schemaHolder);
+
+            // lookups by a single field use the index of that field
+            if (members.size() > 1) {
+                IndexMetadata imd = cmd.newIndexMetadata();
+                imd.setName(KeyNames.lookupCompositeIndexKeyName(entity.getName(), entity.getId(), lookup.getMethodName()));
+
+                for (String member : members) {
+                    imd.newFieldMetadata(member);
+                }
+            }
+        }
+    }
+
+    private List<String> getLookupIndexMembers(LookupDto lookup, EntityDto entity, SchemaHolder schemaHolder) {
+        List<String> fieldNames = new ArrayList<>();
+        if (lookup.getFieldsOrder() != null && !lookup.getFieldsOrder().isEmpty()) {
+            fieldNames.addAll(lookup.getFieldsOrder());
+        } else {
+            for (LookupFieldDto lookupField : lookup.getLookupFields()) {
+                fieldNames.add(lookupField.getLookupFieldName());
+            }
+        }
+
+        List<String> members = new ArrayList<>();
+        // range fields go last, since the columns after a range condition can not narrow the index scan
+        List<String> rangeMembers = new ArrayList<>();
+
+        for (String fieldName : fieldNames) {
+            LookupFieldDto lookupField = lookup.getLookupField(fieldName);
+            FieldDto field = schemaHolder.getFieldByName(entity, fieldName);
+
+            if (lookupField == null || field == null || !isIndexableInTable(entity, field, schemaHolder)) {
+                continue;
+            }
+
+            String member = getNameForMetadata(field);
+            if (members.contains(member) || rangeMembers.contains(member)) {
+                continue;
+            }
+
+            if (lookupField.getType() == LookupFieldType.RANGE) {
+                rangeMembers.add(member);
+            } else {
+                members.add(member);
+            }
+        }
+
+        members.addAll(rangeMembers);
+
+        return members;
+    }
+
+    private boolean isIndexableInTable(EntityDto entity, FieldDto field, SchemaHolder schemaHolder) {
+        TypeDto type = field.getType();
+
+        if (isBlobOrClob(field) || type.isMap() || List.class.getName().equals(type.getTypeClass())
+                || !isFieldNotInherited(field.getBasic().getName(), entity, schemaHolder)) {
+            return false;
+        } else if (type.isCombobox()) {
+            return !new ComboboxHolder(entity, field).isCollection();
+        } else if (type.isRelationship()) {
+            RelationshipHolder holder = new RelationshipHolder(field);
+            // only these relationships keep the foreign key in the table of the entity
+            return holder.isManyToOne() || (holder.isOneToOne() && (!holder.isBiDirectional() || holder.isOwningSide()));
+        } else {
+            return true;
+        }
+    }
+
     private boolean isFieldRequired(FieldDto field, EntityType entityType) {
         return field.getBasic().isRequired() && !(entityType.equals(EntityType.TRASH) && field.getType().isRelationship());
     }
@@ -2,16 +2,28 @@ package org.motechproject.mds.builder.impl;
 
 import org.apache.commons.lang.StringUtils;
 import org.motechproject.mds.domain.EntityType;
+import org.motechproject.mds.util.Constants;
 
 /**
  * Utility class for generating key names in MDS.
  */
 public final class KeyNames {
 
+    /**
+     * The maximum length of identifiers in the supported databases, 63 characters for PostgreSQL and 64 for MySQL.
+     */
+    public static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private static final int HASH_LENGTH = 8;
+
     public static String lookupIndexKeyName(String entityName, Long entityId, String fieldName, EntityType entityType) {
         return join("lkp_idx", entityType.getName(entityName), fieldName, entityId);
     }
 
+    public static String lookupCompositeIndexKeyName(String entityName, Long entityId, String lookupMethodName) {
+        return limitLength(join(Constants.Util.LOOKUP_COMPOSITE_INDEX_PREFIX, entityName, lookupMethodName, entityId));
+    }
+
     public static String foreignKeyName(String entityName, Long entityId, String fieldName, EntityType entityType) {
         return join("fk", entityType.getName(entityName), fieldName, entityId);
     }
@@ -33,6 +45,16 @@ public final class KeyNames {
         return StringUtils.join(parts, '_');
     }
 
+    // names which are too long are truncated, the hash of the full name keeps them unique
+    private static String limitLength(String name) {
+        if (name.length() <= MAX_IDENTIFIER_LENGTH) {
+            return name;
+        }
+
+        String hash = String.format("%08x", name.hashCode());
+        return join(name.substring(0, MAX_IDENTIFIER_LENGTH - HASH_LENGTH - 1), hash);
+    }
+
     private KeyNames() {
     }
 }
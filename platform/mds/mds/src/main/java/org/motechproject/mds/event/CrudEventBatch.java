@@ -0,0 +1,73 @@
+package org.motechproject.mds.event;
+
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the CRUD events of the current transaction and sends them all together once it commits, so that
+ * bulk operations publish a single batch of events instead of one event per instance. Events of a transaction
+ * that gets rolled back are dropped. The batch is bound to the transaction using the given
+ * {@link OsgiEventProxy} as the resource key.
+ */
+public final class CrudEventBatch extends TransactionSynchronizationAdapter {
+
+    private final OsgiEventProxy osgiEventProxy;
+    private final List<Map<String, Object>> events = new ArrayList<>();
+
+    /**
+     * Sends the event after the current transaction commits, together with all other CRUD events of that
+     * transaction. If there is no transaction, the event is sent right away.
+     *
+     * @param osgiEventProxy the proxy used for sending the events
+     * @param subject the subject of the event
+     * @param params the parameters of the event
+     */
+    public static void sendAfterCommit(OsgiEventProxy osgiEventProxy, String subject, Map<String, Object> params) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            osgiEventProxy.sendEvent(subject, params);
+            return;
+        }
+
+        CrudEventBatch batch = (CrudEventBatch) TransactionSynchronizationManager.getResource(osgiEventProxy);
+        if (batch == null) {
+            batch = new CrudEventBatch(osgiEventProxy);
+            TransactionSynchronizationManager.bindResource(osgiEventProxy, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+
+        batch.add(subject, params);
+    }
+
+    private CrudEventBatch(OsgiEventProxy osgiEventProxy) {
+        this.osgiEventProxy = osgiEventProxy;
+    }
+
+    private void add(String subject, Map<String, Object> params) {
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, subject);
+        event.put(OsgiEventProxy.PARAMETERS_PARAM, params);
+        events.add(event);
+    }
+
+    @Override
+    public void afterCommit() {
+        if (events.size() == 1) {
+            Map<String, Object> event = events.get(0);
+            osgiEventProxy.sendEvent((String) event.get(OsgiEventProxy.SUBJECT_PARAM),
+                    (Map<String, Object>) event.get(OsgiEventProxy.PARAMETERS_PARAM));
+        } else if (!events.isEmpty()) {
+            osgiEventProxy.sendEvents(events);
+        }
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(osgiEventProxy);
+    }
+}
@@ -9,11 +9,35 @@ public class CsvImportException extends MdsException {
 
     private static final long serialVersionUID = -982424055742014159L;
 
+    private final int importedRows;
+
     public CsvImportException(String message) {
         super(message);
+        this.importedRows = 0;
     }
 
     public CsvImportException(String message, Throwable cause) {
+        this(message, cause, 0);
+    }
+
+    /**
+     * @param message the message of the exception
+     * @param cause the cause of the failure
+     * @param importedRows the number of rows from the beginning of the file which were imported and committed
+     *                     before the import stopped
+     */
+    public CsvImportException(String message, Throwable cause, int importedRows) {
         super(message, cause);
+        this.importedRows = importedRows;
+    }
+
+    /**
+     * Returns the number of rows from the beginning of the file which were committed before the import stopped.
+     * The import can be resumed by passing this number as the number of rows to skip.
+     *
+     * @return the number of imported rows, 0 if nothing was committed
+     */
+    public int getImportedRows() {
+        return importedRows;
     }
 }
@@ -3,6 +3,7 @@ package org.motechproject.mds.jdo;
 
 import com.googlecode.flyway.core.Flyway;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.datanucleus.StoreNucleusContext;
 import org.datanucleus.api.jdo.JDOPersistenceManagerFactory;
 import org.datanucleus.store.rdbms.datasource.dbcp.BasicDataSource;
@@ -18,10 +19,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.ClassPathResource;
 
+import javax.jdo.PersistenceManager;
+import javax.jdo.datastore.JDOConnection;
+import javax.jdo.metadata.IndexMetadata;
+import javax.jdo.metadata.TypeMetadata;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -30,7 +42,8 @@ import java.util.Set;
  * for entities and for running entities migrations upon start. Schema for
  * all entity classes has to be generated, otherwise issues might arise in
  * foreign key generation for example. This code runs in the generated entities
- * bundle.
+ * bundle. Composite lookup indexes are created together with the schema, the ones
+ * which are no longer defined by any lookup are dropped after it is generated.
  */
 public class SchemaGenerator implements InitializingBean {
 
@@ -75,6 +88,8 @@ public class SchemaGenerator implements InitializingBean {
         if (!classNames.isEmpty()) {
             SchemaAwareStoreManager storeManager = getStoreManager();
             storeManager.createSchemaForClasses(classNames, new Properties());
+
+            dropUnusedLookupIndexes(classNames);
         }
 
         LOGGER.info("Entity schema generation completed.");
@@ -117,6 +132,79 @@ public class SchemaGenerator implements InitializingBean {
 
     }
 
+    private void dropUnusedLookupIndexes(Set<String> classNames) {
+        Map<String, Set<String>> lookupIndexes = new HashMap<>();
+
+        for (String className : classNames) {
+            TypeMetadata metadata = persistenceManagerFactory.getMetadata(className);
+
+            if (null != metadata && StringUtils.isNotBlank(metadata.getTable())) {
+                Set<String> indexNames = new HashSet<>();
+                if (null != metadata.getIndices()) {
+                    for (IndexMetadata imd : metadata.getIndices()) {
+                        indexNames.add(StringUtils.lowerCase(imd.getName()));
+                    }
+                }
+                lookupIndexes.put(metadata.getTable(), indexNames);
+            }
+        }
+
+        if (lookupIndexes.isEmpty()) {
+            return;
+        }
+
+        PersistenceManager pm = persistenceManagerFactory.getPersistenceManager();
+        JDOConnection jdoConnection = pm.getDataStoreConnection();
+
+        try {
+            Connection connection = (Connection) jdoConnection.getNativeConnection();
+
+            for (Map.Entry<String, Set<String>> entry : lookupIndexes.entrySet()) {
+                for (String indexName : findLookupIndexes(connection, entry.getKey())) {
+                    if (!entry.getValue().contains(indexName.toLowerCase())) {
+                        dropIndex(connection, entry.getKey(), indexName);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Unable to drop unused lookup indexes", e);
+        } finally {
+            jdoConnection.close();
+            pm.close();
+        }
+    }
+
+    private Set<String> findLookupIndexes(Connection connection, String table) throws SQLException {
+        Set<String> indexNames = new HashSet<>();
+
+        try (ResultSet rs = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                if (StringUtils.startsWithIgnoreCase(indexName, Constants.Util.LOOKUP_COMPOSITE_INDEX_PREFIX)) {
+                    indexNames.add(indexName);
+                }
+            }
+        }
+
+        return indexNames;
+    }
+
+    private void dropIndex(Connection connection, String table, String indexName) throws SQLException {
+        DatabaseMetaData dbMetaData = connection.getMetaData();
+        String quote = StringUtils.trimToEmpty(dbMetaData.getIdentifierQuoteString());
+
+        String sql = "DROP INDEX " + quote + indexName + quote;
+        if (StringUtils.containsIgnoreCase(dbMetaData.getDatabaseProductName(), "mysql")) {
+            sql += " ON " + quote + table + quote;
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+
+        LOGGER.info("Dropped the unused lookup index {} of table {}", indexName, table);
+    }
+
     private Set<String> classNames() throws IOException {
         Set<String> classNames = new HashSet<>();
         Set<String> historyClassNames = new HashSet<>();
@@ -19,7 +19,9 @@ import org.datanucleus.store.query.QueryNotUniqueException;
 import javax.jdo.JDOUserException;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,7 +31,9 @@ import java.util.Set;
  * as a string and the lookup params in name-value map. Used both
  * by the REST api and the Databrowser UI for executing lookups based
  * on only metadata. The dataservice and metadata must be provided during
- * construction.
+ * construction. The lookup methods of the data service and the types of
+ * their parameters are resolved on first use and reused afterwards, so a single
+ * executor can be kept and used from many threads.
  */
 public class LookupExecutor {
 
@@ -39,6 +43,12 @@ public class LookupExecutor {
     private final Class entityClass;
     private final ClassLoader classLoader;
 
+    private volatile List<Class> argTypes;
+    private volatile List<String[]> argTypeClasses;
+    private volatile Method lookupMethod;
+    private volatile Method lookupWithParamsMethod;
+    private volatile Method countMethod;
+
     public LookupExecutor(MotechDataService dataService, LookupDto lookup, Map<String, FieldDto> fieldsByName) {
         this.dataService = dataService;
         this.lookup = lookup;
@@ -53,19 +63,16 @@ public class LookupExecutor {
 
     public Object execute(Map<String, ?> lookupMap, QueryParams queryParams) {
         List<Object> args = getLookupArgs(lookupMap);
-        List<Class> argTypes = buildArgTypes();
         String lookupExceptionMessage = "Unable to execute lookup ";
         String lookupExceptionMessageKey = "mds.error.lookupExecError";
 
         if (queryParams != null) {
             args.add(queryParams);
-            argTypes.add(QueryParams.class);
         }
 
         try {
-            return MethodUtils.invokeMethod(dataService, lookup.getMethodName(),
-                    args.toArray(new Object[args.size()]),
-                    argTypes.toArray(new Class[argTypes.size()]));
+            Method method = queryParams == null ? getLookupMethod() : getLookupWithParamsMethod();
+            return method.invoke(dataService, args.toArray(new Object[args.size()]));
         } catch (NoSuchMethodException | IllegalAccessException e) {
             throw new LookupExecutorException(lookupExceptionMessage + lookup.getLookupName() + ".", e, null);
         } catch (InvocationTargetException e) {
@@ -84,32 +91,87 @@ public class LookupExecutor {
 
     public long executeCount(Map<String, ?> lookupMap) {
         List<Object> args = getLookupArgs(lookupMap);
-        List<Class> argTypes = buildArgTypes();
-
-        String countMethodName = LookupName.lookupCountMethod(lookup.getMethodName());
 
         try {
-            return (long) MethodUtils.invokeMethod(dataService, countMethodName,
-                    args.toArray(new Object[args.size()]),
-                    argTypes.toArray(new Class[argTypes.size()]));
+            return (long) getCountMethod().invoke(dataService, args.toArray(new Object[args.size()]));
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
             throw new LookupExecutorException("Unable to execute count lookup " + lookup.getLookupName() + ".", e, null);
         }
     }
 
 
+    private Method getLookupMethod() throws NoSuchMethodException {
+        if (lookupMethod == null) {
+            lookupMethod = findMethod(lookup.getMethodName(), getArgTypes());
+        }
+        return lookupMethod;
+    }
+
+    private Method getLookupWithParamsMethod() throws NoSuchMethodException {
+        if (lookupWithParamsMethod == null) {
+            List<Class> types = new ArrayList<>(getArgTypes());
+            types.add(QueryParams.class);
+
+            lookupWithParamsMethod = findMethod(lookup.getMethodName(), types);
+        }
+        return lookupWithParamsMethod;
+    }
+
+    private Method getCountMethod() throws NoSuchMethodException {
+        if (countMethod == null) {
+            countMethod = findMethod(LookupName.lookupCountMethod(lookup.getMethodName()), getArgTypes());
+        }
+        return countMethod;
+    }
+
+    private Method findMethod(String methodName, List<Class> types) throws NoSuchMethodException {
+        Method method = MethodUtils.getMatchingAccessibleMethod(dataService.getClass(), methodName,
+                types.toArray(new Class[types.size()]));
+
+        if (method == null) {
+            throw new NoSuchMethodException("No such accessible method: " + methodName + "() on object: "
+                    + dataService.getClass().getName());
+        }
+
+        return method;
+    }
+
+    private List<Class> getArgTypes() {
+        if (argTypes == null) {
+            argTypes = Collections.unmodifiableList(buildArgTypes());
+        }
+        return argTypes;
+    }
+
+    private List<String[]> getArgTypeClasses() {
+        if (argTypeClasses == null) {
+            List<String[]> typeClasses = new ArrayList<>();
+
+            for (LookupFieldDto lookupField : lookup.getLookupFields()) {
+                FieldDto field = fieldsByName.get(lookupField.getLookupFieldName());
+                if (field == null) {
+                    throw new FieldNotFoundException(entityClass.getName(), lookupField.getName());
+                }
+
+                typeClasses.add(new String[] { getTypeClass(field), getGenericTypeClass(field) });
+            }
+
+            argTypeClasses = typeClasses;
+        }
+        return argTypeClasses;
+    }
+
     private List<Object> getLookupArgs(Map<String, ?> paramMap) {
         List<Object> args = new ArrayList<>();
-        for (LookupFieldDto lookupField : lookup.getLookupFields()) {
-            FieldDto field = fieldsByName.get(lookupField.getLookupFieldName());
-            if (field == null) {
-                throw new FieldNotFoundException(entityClass.getName(), lookupField.getName());
-            }
+        List<String[]> typeClasses = getArgTypeClasses();
+
+        for (int i = 0; i < lookup.getLookupFields().size(); ++i) {
+            LookupFieldDto lookupField = lookup.getLookupFields().get(i);
 
             Object val = paramMap.get(lookupField.getLookupFieldName());
 
-            String typeClass = getTypeClass(field);
-            String genericType = getGenericTypeClass(field);
+            String typeClass = typeClasses.get(i)[0];
+            String genericType = typeClasses.get(i)[1];
 
             Object arg;
             if (lookupField.getType() == LookupFieldType.RANGE) {
@@ -1,10 +1,12 @@
 package org.motechproject.mds.repository;
 
 import org.motechproject.mds.filter.Filters;
+import org.motechproject.mds.query.CustomOperatorProperty;
 import org.motechproject.mds.query.Property;
 import org.motechproject.mds.query.QueryExecutor;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.query.QueryUtil;
+import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
 import org.motechproject.mds.util.PropertyUtil;
 import org.springframework.stereotype.Repository;
@@ -92,6 +94,10 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
         return getPersistenceManager().makePersistent(object);
     }
 
+    public List<T> createAll(Collection<T> objects) {
+        return new ArrayList<>(getPersistenceManager().makePersistentAll(objects));
+    }
+
     public List<T> retrieveAll() {
         return retrieveAll(new String[0], new Object[0], null);
     }
@@ -150,6 +156,24 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
         return new ArrayList<>(collection);
     }
 
+    public List<T> retrieveAllAfter(Long id, int limit, InstanceSecurityRestriction restriction) {
+        List<Property> properties = new ArrayList<>();
+        Object[] values = new Object[0];
+
+        if (id != null) {
+            properties.add(new CustomOperatorProperty<>(Constants.Util.ID_FIELD_NAME, id, Long.class.getName(), ">"));
+            values = new Object[]{id};
+        }
+
+        Query query = createQuery(properties, restriction);
+        query.setOrdering(Constants.Util.ID_FIELD_NAME + " ascending");
+        query.setRange(0, limit);
+
+        Collection collection = (Collection) QueryExecutor.executeWithArray(query, values, restriction);
+
+        return new ArrayList<>(collection);
+    }
+
     public T retrieve(String property, Object value) {
         return retrieve(new String[]{property}, new Object[]{value}, null);
     }
@@ -188,10 +212,18 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
         return getPersistenceManager().makePersistent(object);
     }
 
+    public List<T> updateAll(Collection<T> objects) {
+        return new ArrayList<>(getPersistenceManager().makePersistentAll(objects));
+    }
+
     public void delete(T object) {
         getPersistenceManager().deletePersistent(object);
     }
 
+    public void deleteAll(Collection<T> objects) {
+        getPersistenceManager().deletePersistentAll(objects);
+    }
+
     public long delete(String property, Object value) {
         return delete(new String[]{property}, new Object[]{value}, null);
     }
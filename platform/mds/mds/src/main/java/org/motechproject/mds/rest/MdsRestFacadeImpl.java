@@ -38,6 +38,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * This {@link org.motechproject.mds.rest.MdsRestFacade} implementation
@@ -92,19 +93,25 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
 
     @Override
     @Transactional
-    public RestResponse get(QueryParams queryParams, boolean includeBlob) {
+    public RestResponse get(QueryParams queryParams, final boolean includeBlob) {
         if (!restOptions.isRead()) {
             throw operationNotSupportedEx("READ");
         }
-        List<T> values = dataService.retrieveAll(queryParams);
-        if (includeBlob) {
-            for (T value : values) {
-                getBlobs(value);
+
+        // instances are projected as they are retrieved, only the projections are kept
+        final List<RestProjection> projections = new ArrayList<>();
+        dataService.stream(queryParams, new Consumer<T>() {
+            @Override
+            public void accept(T value) {
+                if (includeBlob) {
+                    getBlobs(value);
+                }
+                projections.add(RestProjection.createProjection(value, restFields, blobFields));
             }
-        }
+        });
 
         return new RestResponse(entityName, entityClass.getName(), moduleName, namespace, dataService.count(), queryParams,
-                RestProjection.createProjectionCollection(values, restFields, blobFields));
+                projections);
     }
 
     @Override
@@ -218,6 +218,24 @@ public interface CsvImportExportService {
      */
     CsvImportResults importCsv(long entityId, Reader reader, String fileName, CsvImportCustomizer importCustomizer, boolean continueOnError, boolean clearData);
 
+    /**
+     * Import instances from a CSV file, skipping the given number of rows from the beginning of the file.
+     * Large files are imported in chunks committed separately. If such an import stops, the number of rows
+     * committed before it stopped is returned by
+     * {@link org.motechproject.mds.exception.csv.CsvImportException#getImportedRows()}, and the import can be
+     * resumed by skipping these rows.
+     * @param entityId id of the entity for which the instances will be imported
+     * @param reader the reader that will be used for reading the file contents
+     * @param fileName the name of the CSV file
+     * @param importCustomizer the customizer that will be used during import
+     * @param continueOnError if true, import will continue with next row if exception was encountered,
+     *                        if false, import process will stop and rethrow the exception
+     * @param skipRows the number of rows, not counting the header, that will be skipped
+     * @return IDs of instances updated/added during import
+     */
+    CsvImportResults importCsv(long entityId, Reader reader, String fileName, CsvImportCustomizer importCustomizer,
+                               boolean continueOnError, int skipRows);
+
     /**
      * Import instances from a CSV file
      * @param entityClassName class name of the entity for which the instances will be imported
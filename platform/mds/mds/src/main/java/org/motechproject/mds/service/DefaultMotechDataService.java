@@ -2,10 +2,12 @@ package org.motechproject.mds.service;
 
 import org.apache.commons.lang.StringUtils;
 import org.motechproject.commons.date.util.DateUtil;
+import org.motechproject.mds.config.MdsConfig;
 import org.motechproject.mds.domain.EntityType;
 import org.motechproject.mds.entityinfo.EntityInfo;
 import org.motechproject.mds.entityinfo.EntityInfoReader;
 import org.motechproject.mds.entityinfo.FieldInfo;
+import org.motechproject.mds.event.CrudEventBatch;
 import org.motechproject.mds.event.CrudEventType;
 import org.motechproject.mds.exception.audit.HistoryInstanceNotFoundException;
 import org.motechproject.mds.exception.object.SchemaVersionException;
@@ -21,6 +23,7 @@ import org.motechproject.mds.query.SqlQueryExecution;
 import org.motechproject.mds.repository.MotechDataRepository;
 import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
+import org.motechproject.mds.util.Order;
 import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.mds.util.SecurityMode;
 import org.motechproject.mds.util.StateManagerUtil;
@@ -35,8 +38,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionCallback;
-import org.springframework.transaction.support.TransactionSynchronizationAdapter;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
@@ -49,6 +50,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.apache.commons.lang.StringUtils.defaultIfBlank;
 import static org.motechproject.mds.event.CrudEventBuilder.buildEventParams;
@@ -75,6 +77,8 @@ import static org.motechproject.mds.util.SecurityUtil.getUsername;
 public abstract class DefaultMotechDataService<T> implements MotechDataService<T> {
 
     private static final Logger MDS_LOGGER = LoggerFactory.getLogger(DefaultMotechDataService.class);
+    private static final int DEFAULT_BULK_CHUNK_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 1000;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -85,6 +89,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     private JdoTransactionManager transactionManager;
     private ApplicationContext applicationContext;
     private EntityInfoReader entityInfoReader;
+    private MdsConfig mdsConfig;
 
     private SecurityMode securityMode;
     private Long schemaVersion;
@@ -96,6 +101,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     private String entityName;
     private String namespace;
     private String versionFieldName;
+    private int bulkChunkSize = DEFAULT_BULK_CHUNK_SIZE;
 
     @PostConstruct
     public void init() {
@@ -124,6 +130,14 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
 
         repository.setFieldTypeMap(fieldTypeMap);
 
+        if (mdsConfig != null) {
+            String chunkSize = mdsConfig.getProperties(Constants.Config.MODULE_FILE)
+                    .getProperty(Constants.Config.MDS_BULK_CHUNK_SIZE);
+            if (StringUtils.isNotBlank(chunkSize) && StringUtils.isNumeric(chunkSize)) {
+                bulkChunkSize = Math.max(1, Integer.parseInt(chunkSize));
+            }
+        }
+
         debug("{} ready", getClass().getName());
     }
 
@@ -132,20 +146,41 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     public T create(final T object) {
         validateCredentials();
 
-        final T createdInstance = repository.create(object);
+        T createdInstance = repository.create(object);
 
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-            @Override
-            public void afterCommit() {
-                if (allowCreateEvent) {
-                    sendEvent((Long) getId(createdInstance), CREATE);
-                }
-            }
-        });
+        if (allowCreateEvent) {
+            sendEvent((Long) getId(createdInstance), CREATE);
+        }
 
         return createdInstance;
     }
 
+    @Override
+    public List<T> createAll(Collection<T> objects) {
+        validateCredentials();
+
+        List<T> createdInstances = new ArrayList<>(objects.size());
+
+        for (final List<T> chunk : toChunks(objects)) {
+            createdInstances.addAll(doInTransaction(new TransactionCallback<List<T>>() {
+                @Override
+                public List<T> doInTransaction(TransactionStatus status) {
+                    List<T> created = repository.createAll(chunk);
+
+                    if (allowCreateEvent) {
+                        for (T instance : created) {
+                            sendEvent((Long) getId(instance), CREATE);
+                        }
+                    }
+
+                    return created;
+                }
+            }));
+        }
+
+        return createdInstances;
+    }
+
     @Override
     @Transactional
     public T retrieve(String primaryKeyName, Object value) {
@@ -169,6 +204,64 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return repository.retrieveAll(queryParams, securityRestriction);
     }
 
+    @Override
+    @Transactional
+    public long stream(QueryParams queryParams, Consumer<T> consumer) {
+        InstanceSecurityRestriction securityRestriction = validateCredentials();
+
+        if (queryParams != null && queryParams.isPagingSet()) {
+            return consume(repository.retrieveAll(queryParams, securityRestriction), consumer);
+        }
+
+        long count = 0;
+        List<T> page;
+
+        if (queryParams == null || isOrderedByIdOnly(queryParams)) {
+            Long lastId = null;
+            do {
+                page = repository.retrieveAllAfter(lastId, STREAM_PAGE_SIZE, securityRestriction);
+                if (!page.isEmpty()) {
+                    lastId = (Long) getId(page.get(page.size() - 1));
+                }
+                count += consume(page, consumer);
+            } while (page.size() == STREAM_PAGE_SIZE);
+        } else {
+            List<Order> orderList = new ArrayList<>(queryParams.getOrderList());
+            // the id makes the order of instances stable between pages
+            if (!queryParams.containsOrderOnField(Constants.Util.ID_FIELD_NAME)) {
+                orderList.add(new Order(Constants.Util.ID_FIELD_NAME, Order.Direction.ASC));
+            }
+
+            int pageNumber = 1;
+            do {
+                page = repository.retrieveAll(new QueryParams(pageNumber++, STREAM_PAGE_SIZE, orderList),
+                        securityRestriction);
+                count += consume(page, consumer);
+            } while (page.size() == STREAM_PAGE_SIZE);
+        }
+
+        return count;
+    }
+
+    private boolean isOrderedByIdOnly(QueryParams queryParams) {
+        List<Order> orderList = queryParams.getOrderList();
+
+        return orderList.isEmpty() || (orderList.size() == 1
+                && Constants.Util.ID_FIELD_NAME.equals(orderList.get(0).getField())
+                && orderList.get(0).getDirection() == Order.Direction.ASC);
+    }
+
+    private long consume(List<T> instances, Consumer<T> consumer) {
+        for (T instance : instances) {
+            consumer.accept(instance);
+        }
+
+        // consumed instances are not needed anymore, so their state is released
+        repository.getPersistenceManager().evictAll(instances);
+
+        return instances.size();
+    }
+
     @Override
     @Transactional
     public T update(final T object) {
@@ -178,19 +271,51 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
             validateCredentials(object);
 
             updateModificationData(object);
-            final T updatedInstance = repository.update(object);
+            T updatedInstance = repository.update(object);
 
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            if (allowUpdateEvent) {
+                sendEvent((Long) getId(updatedInstance), UPDATE);
+            }
+
+            return updatedInstance;
+        }
+    }
+
+    @Override
+    public List<T> updateAll(Collection<T> objects) {
+        List<T> updatedInstances = new ArrayList<>(objects.size());
+
+        for (final List<T> chunk : toChunks(objects)) {
+            updatedInstances.addAll(doInTransaction(new TransactionCallback<List<T>>() {
                 @Override
-                public void afterCommit() {
-                    if (allowUpdateEvent) {
-                        sendEvent((Long) getId(updatedInstance), UPDATE);
+                public List<T> doInTransaction(TransactionStatus status) {
+                    List<T> updated = new ArrayList<>(chunk.size());
+                    List<T> persistent = new ArrayList<>(chunk.size());
+
+                    for (T object : chunk) {
+                        if (JDOHelper.getObjectState(object) == ObjectState.TRANSIENT) {
+                            // sends its own CRUD event
+                            updated.add(updateFromTransient(object));
+                        } else {
+                            validateCredentials(object);
+                            updateModificationData(object);
+                            persistent.add(object);
+                        }
                     }
-                }
-            });
 
-            return updatedInstance;
+                    for (T instance : repository.updateAll(persistent)) {
+                        if (allowUpdateEvent) {
+                            sendEvent((Long) getId(instance), UPDATE);
+                        }
+                        updated.add(instance);
+                    }
+
+                    return updated;
+                }
+            }));
         }
+
+        return updatedInstances;
     }
 
     @Override
@@ -232,14 +357,9 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
 
             updateModificationData(fromDbInstance);
 
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
-                    if (allowUpdateEvent) {
-                        sendEvent((Long) getId(fromDbInstance), UPDATE);
-                    }
-                }
-            });
+            if (allowUpdateEvent) {
+                sendEvent((Long) getId(fromDbInstance), UPDATE);
+            }
             result = fromDbInstance;
         }
 
@@ -279,6 +399,34 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         }
     }
 
+    @Override
+    public void deleteAll(Collection<T> objects) {
+        for (final List<T> chunk : toChunks(objects)) {
+            doInTransaction(new TransactionCallback<Void>() {
+                @Override
+                public Void doInTransaction(TransactionStatus status) {
+                    List<Long> ids = new ArrayList<>(chunk.size());
+                    for (T object : chunk) {
+                        validateCredentials(object);
+                        ids.add((Long) getId(object));
+                    }
+
+                    // we retrieve the objects using the current pm, with a single query
+                    List<T> existing = repository.retrieveAll(ids);
+                    repository.deleteAll(existing);
+
+                    if (allowDeleteEvent) {
+                        for (T instance : existing) {
+                            sendEvent((Long) getId(instance), DELETE);
+                        }
+                    }
+
+                    return null;
+                }
+            });
+        }
+    }
+
     @Override
     @Transactional
     public void deleteById(long id) {
@@ -556,10 +704,34 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return restriction;
     }
 
+    private List<List<T>> toChunks(Collection<T> objects) {
+        if (objects == null) {
+            throw new IllegalArgumentException("Unable to process null collection of objects");
+        }
+
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(Math.min(bulkChunkSize, objects.size()));
+
+        for (T object : objects) {
+            if (chunk.size() == bulkChunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(bulkChunkSize);
+            }
+            chunk.add(object);
+        }
+
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
     private void sendEvent(Long id, CrudEventType action) {
         String subject = createSubject(module, namespace, entityName, action);
         Map<String, Object> params = buildEventParams(module, namespace, entityName, getClassType().getName(), id);
-        osgiEventProxy.sendEvent(subject, params);
+        // all CRUD events of the transaction are sent together, once it commits
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, subject, params);
     }
 
     protected Object getId(T instance) {
@@ -616,4 +788,9 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     public void setEntityInfoReader(EntityInfoReader entityInfoReader) {
         this.entityInfoReader = entityInfoReader;
     }
+
+    @Autowired(required = false)
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        this.mdsConfig = mdsConfig;
+    }
 }
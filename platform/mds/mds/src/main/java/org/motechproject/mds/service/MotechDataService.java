@@ -11,6 +11,7 @@ import org.springframework.transaction.support.TransactionCallback;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * This is a basic service interface with CRUD operations. Mainly it is used as super interface to
@@ -30,6 +31,16 @@ public interface MotechDataService<T> {
      */
     T create(T object);
 
+    /**
+     * Creates the given instances in MDS. The instances are persisted in chunks, each chunk in its own
+     * transaction, unless the method is called within an existing transaction. The CRUD events of every chunk
+     * are sent together once it commits.
+     *
+     * @param objects instances to create
+     * @return created instances
+     */
+    List<T> createAll(Collection<T> objects);
+
     /**
      * Retrieves instance from MDS based on the value of the given primary key.
      *
@@ -55,6 +66,19 @@ public interface MotechDataService<T> {
      */
     List<T> retrieveAll(QueryParams queryParams);
 
+    /**
+     * Passes the instances of the {@param <T>} type, matching the provided parameters, to the given consumer.
+     * Instances are retrieved in pages and evicted from the persistence manager once consumed, so that the used
+     * memory does not depend on the number of instances. Without ordering, or with ordering by id only, each page
+     * starts after the id of the last instance from the previous page. If the parameters contain paging, only the
+     * given page is retrieved.
+     *
+     * @param queryParams query parameters to be used retrieving instances, null means all instances ordered by id
+     * @param consumer consumer of the retrieved instances
+     * @return the number of consumed instances
+     */
+    long stream(QueryParams queryParams, Consumer<T> consumer);
+
     /**
      * Updates the given instance in MDS.
      *
@@ -63,6 +87,16 @@ public interface MotechDataService<T> {
      */
     T update(T object);
 
+    /**
+     * Updates the given instances in MDS. Transient instances are updated the same way as in
+     * {@link #updateFromTransient(Object)}. The instances are updated in chunks, the same way as in
+     * {@link #createAll(Collection)}.
+     *
+     * @param objects instances to update
+     * @return updated instances
+     */
+    List<T> updateAll(Collection<T> objects);
+
     /**
      * Updates the given instance in MDS if it exists (checks the presence of the instances id to verify that)
      * or creates a new one if it doesn't.
@@ -99,6 +133,14 @@ public interface MotechDataService<T> {
      */
     void delete(T object);
 
+    /**
+     * Deletes the given instances from MDS. The instances are deleted in chunks, the same way as in
+     * {@link #createAll(Collection)}.
+     *
+     * @param objects instances to delete
+     */
+    void deleteAll(Collection<T> objects);
+
     /**
      * Deletes instance from MDS, by its id.
      *
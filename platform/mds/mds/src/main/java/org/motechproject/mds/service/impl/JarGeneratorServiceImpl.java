@@ -101,6 +101,7 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
     private JdoListenerRegistryService jdoListenerRegistryService;
     private VelocityEngine velocityEngine;
     private MDSDataProvider mdsDataProvider;
+    private MdsLookupServiceImpl mdsLookupService;
     private EntitiesBundleMonitor monitor;
     private BundleContext bundleContext;
     private MdsOsgiBundleApplicationContextListener mdsOsgiBundleApplicationContextListener;
@@ -132,6 +133,7 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
 
             clearModulesCache(moduleNames);
             cleanEntitiesBundleCachedClasses();
+            mdsLookupService.clearLookupExecutors();
 
             boolean constructed = mdsConstructor.constructEntities(schemaHolder);
 
@@ -194,6 +196,8 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
             // Give framework some time before returning to the caller
             ThreadSuspender.sleep(2000);
         } finally {
+            // lookups executed during the regeneration could have cached the services of the old bundle
+            mdsLookupService.clearLookupExecutors();
             Thread.currentThread().setContextClassLoader(currentClassLoader);
         }
     }
@@ -673,6 +677,11 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
         this.mdsDataProvider = mdsDataProvider;
     }
 
+    @Autowired
+    public void setMdsLookupService(MdsLookupServiceImpl mdsLookupService) {
+        this.mdsLookupService = mdsLookupService;
+    }
+
     @Autowired
     public void setMonitor(EntitiesBundleMonitor monitor) {
         this.monitor = monitor;
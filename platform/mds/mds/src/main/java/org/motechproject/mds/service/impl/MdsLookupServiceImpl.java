@@ -19,12 +19,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * Implementation of the {@link org.motechproject.mds.service.MDSLookupService}.
  * This runs in the MDS context(not entities context). All calls are delegated to the
- * respective data service for the entity.
+ * respective data service for the entity. Lookup executors, together with the data services and the lookup
+ * metadata they use, are cached by entity class name and lookup name. The cache is cleared by the
+ * {@link JarGeneratorServiceImpl} whenever the entities bundle is regenerated.
  */
 @Service("mdsLookupServiceImpl")
 public class MdsLookupServiceImpl implements MDSLookupService {
@@ -35,6 +38,9 @@ public class MdsLookupServiceImpl implements MDSLookupService {
     @Autowired
     private EntityService entityService;
 
+    private final Map<String, LookupExecutor> lookupExecutors = new ConcurrentHashMap<>();
+    private long lookupExecutorsVersion;
+
     @Override
     public <T> T findOne(Class<T> entityClass, String lookupName, Map<String, ?> lookupParams) {
         return findOne(entityClass.getName(), lookupName, lookupParams);
@@ -42,7 +48,7 @@ public class MdsLookupServiceImpl implements MDSLookupService {
 
     @Override
     public <T> T findOne(String entityClassName, String lookupName, Map<String, ?> lookupParams) {
-        LookupExecutor lookupExecutor = buildLookupExecutor(entityClassName, lookupName);
+        LookupExecutor lookupExecutor = getLookupExecutor(entityClassName, lookupName);
 
         Object result = lookupExecutor.execute(lookupParams);
 
@@ -66,7 +72,7 @@ public class MdsLookupServiceImpl implements MDSLookupService {
 
     @Override
     public <T> List<T> findMany(String entityClassName, String lookupName, Map<String, ?> lookupParams, QueryParams queryParams) {
-        LookupExecutor lookupExecutor = buildLookupExecutor(entityClassName, lookupName);
+        LookupExecutor lookupExecutor = getLookupExecutor(entityClassName, lookupName);
 
         Object result = lookupExecutor.execute(lookupParams, queryParams);
 
@@ -103,7 +109,7 @@ public class MdsLookupServiceImpl implements MDSLookupService {
 
     @Override
     public long count(String entityClassName, String lookupName, Map<String, ?> lookupParams) {
-        LookupExecutor lookupExecutor = buildLookupExecutor(entityClassName, lookupName);
+        LookupExecutor lookupExecutor = getLookupExecutor(entityClassName, lookupName);
 
         return lookupExecutor.executeCount(lookupParams);
     }
@@ -121,13 +127,47 @@ public class MdsLookupServiceImpl implements MDSLookupService {
         return dataService.count();
     }
 
-    private LookupExecutor buildLookupExecutor(String entityClassName, String lookupName) {
+    /**
+     * Removes all cached lookup executors. Executors built while the cache is being cleared are not cached.
+     */
+    public void clearLookupExecutors() {
+        synchronized (lookupExecutors) {
+            ++lookupExecutorsVersion;
+            lookupExecutors.clear();
+        }
+    }
+
+    private LookupExecutor getLookupExecutor(String entityClassName, String lookupName) {
         String fullyQualifiedEntityClassName;
         if (entityClassName.contains(".")) {
             fullyQualifiedEntityClassName = entityClassName;
         } else {
             fullyQualifiedEntityClassName = Constants.PackagesGenerated.ENTITY + "." + entityClassName;
         }
+
+        String key = fullyQualifiedEntityClassName + '#' + lookupName;
+        LookupExecutor lookupExecutor = lookupExecutors.get(key);
+
+        if (lookupExecutor == null) {
+            long version;
+            synchronized (lookupExecutors) {
+                version = lookupExecutorsVersion;
+            }
+
+            lookupExecutor = buildLookupExecutor(fullyQualifiedEntityClassName, lookupName);
+
+            synchronized (lookupExecutors) {
+                // the entities bundle was regenerated in the meantime, the executor may use a stale data service
+                if (version == lookupExecutorsVersion) {
+                    lookupExecutors.put(key, lookupExecutor);
+                }
+            }
+        }
+
+        return lookupExecutor;
+    }
+
+    private LookupExecutor buildLookupExecutor(String fullyQualifiedEntityClassName, String lookupName) {
         MotechDataService dataService = OSGiServiceUtils.findService(bundleContext,
                 MotechClassPool.getInterfaceName(fullyQualifiedEntityClassName));
 
@@ -14,10 +14,14 @@ import org.motechproject.mds.service.DefaultCsvExportCustomizer;
 import org.motechproject.mds.service.MDSLookupService;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.service.TableWriter;
+import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.Order;
 import org.motechproject.mds.util.PropertyUtil;
 import org.osgi.framework.BundleContext;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.jdo.JDOHelper;
+import javax.jdo.PersistenceManager;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 
 /**
  * Base class used by classes responsible for exporting MDS Data in a tabular CSV-like form.
@@ -34,6 +39,8 @@ import java.util.TreeSet;
  */
 public abstract class AbstractMdsExporter {
 
+    private static final int LOOKUP_PAGE_SIZE = 1000;
+
     @Autowired
     private BundleContext bundleContext;
 
@@ -51,8 +58,8 @@ public abstract class AbstractMdsExporter {
         return exportData(entityInfo, writer, "", null, null, null, exportCustomizer);
     }
 
-    protected long exportData(EntityInfo entityInfo, TableWriter writer, String lookupName, QueryParams params, List<String> headers,
-                           Map<String, Object> lookupFields, CsvExportCustomizer exportCustomizer) {
+    protected long exportData(EntityInfo entityInfo, final TableWriter writer, String lookupName, QueryParams params, List<String> headers,
+                           Map<String, Object> lookupFields, final CsvExportCustomizer exportCustomizer) {
         final MotechDataService dataService = DataServiceHelper.getDataService(bundleContext, entityInfo.getClassName());
 
         final Map<String, FieldDto> fieldMap = new HashMap<>();
@@ -61,28 +68,73 @@ public abstract class AbstractMdsExporter {
         }
 
         // we must respect field ordering
-        String[] orderedHeaders = orderHeaders(entityInfo.getAdvancedSettings().getBrowsing(), headers == null ? fieldsToHeaders(entityInfo.getFieldDtos(), exportCustomizer) : headers.toArray(new String[headers.size()]),
+        final String[] orderedHeaders = orderHeaders(entityInfo.getAdvancedSettings().getBrowsing(), headers == null ? fieldsToHeaders(entityInfo.getFieldDtos(), exportCustomizer) : headers.toArray(new String[headers.size()]),
                 entityInfo.getFieldDtos(), exportCustomizer);
 
         try {
             writer.writeHeader(orderedHeaders);
+        } catch (IOException e) {
+            throw new DataExportException("IO Error when writing data", e);
+        }
 
-            long rowsExported = 0;
-            Map<String, String> row = new HashMap<>();
-
-            List<Object> instances = StringUtils.isBlank(lookupName) ? dataService.retrieveAll(params) :
-                    mdsLookupService.findMany(entityInfo.getClassName(), lookupName, lookupFields, params);
+        // rows are written as the instances are retrieved, so the whole result is never kept in memory
+        Consumer<Object> rowWriter = new Consumer<Object>() {
+            private final Map<String, String> row = new HashMap<>();
 
-            for (Object instance : instances) {
+            @Override
+            public void accept(Object instance) {
                 buildCsvRow(row, fieldMap, instance, orderedHeaders, exportCustomizer);
-                writer.writeRow(row, orderedHeaders);
-                rowsExported++;
+                try {
+                    writer.writeRow(row, orderedHeaders);
+                } catch (IOException e) {
+                    throw new DataExportException("IO Error when writing data", e);
+                }
             }
+        };
 
-            return rowsExported;
-        } catch (IOException e) {
-            throw new DataExportException("IO Error when writing data", e);
+        return StringUtils.isBlank(lookupName) ? dataService.stream(params, rowWriter) :
+                streamLookup(entityInfo.getClassName(), lookupName, lookupFields, params, rowWriter);
+    }
+
+    private long streamLookup(String entityClassName, String lookupName, Map<String, Object> lookupFields,
+                              QueryParams params, Consumer<Object> consumer) {
+        if (params != null && params.isPagingSet()) {
+            return consume(mdsLookupService.findMany(entityClassName, lookupName, lookupFields, params), consumer);
+        }
+
+        List<Order> orderList = params == null ? new ArrayList<Order>() : new ArrayList<>(params.getOrderList());
+        // the id makes the order of instances stable between pages
+        if (params == null || !params.containsOrderOnField(Constants.Util.ID_FIELD_NAME)) {
+            orderList.add(new Order(Constants.Util.ID_FIELD_NAME, Order.Direction.ASC));
         }
+
+        long count = 0;
+        int pageNumber = 1;
+        List<Object> page;
+
+        do {
+            page = mdsLookupService.findMany(entityClassName, lookupName, lookupFields,
+                    new QueryParams(pageNumber++, LOOKUP_PAGE_SIZE, orderList));
+            count += consume(page, consumer);
+        } while (page.size() == LOOKUP_PAGE_SIZE);
+
+        return count;
+    }
+
+    private long consume(List<Object> instances, Consumer<Object> consumer) {
+        for (Object instance : instances) {
+            consumer.accept(instance);
+        }
+
+        // exported instances are not needed anymore, so their state is released
+        if (!instances.isEmpty()) {
+            PersistenceManager pm = JDOHelper.getPersistenceManager(instances.get(0));
+            if (pm != null) {
+                pm.evictAll(instances);
+            }
+        }
+
+        return instances.size();
     }
 
     protected EntityInfo getEntity(long entityId) {
@@ -176,6 +176,25 @@ public class CsvImportExportServiceImpl implements CsvImportExportService {
         return importResults;
     }
 
+    @Override
+    public CsvImportResults importCsv(long entityId, Reader reader, String fileName,
+                                      CsvImportCustomizer importCustomizer, boolean continueOnError, int skipRows) {
+        LOGGER.debug("Importing instances of entity with ID: {}, skipping {} rows", entityId, skipRows);
+
+        CsvImportResults importResults;
+        try {
+            importResults = csvImporterExporter.importCsv(entityId, reader, importCustomizer, continueOnError, skipRows);
+        } catch (RuntimeException e) {
+            EntityDto entity = entityService.getEntity(entityId);
+            sendImportFailureEvent(entity, fileName, e);
+            throw e;
+        }
+
+        sendImportSuccessEvent(importResults, fileName);
+
+        return importResults;
+    }
+
     @Override
     public CsvImportResults importCsv(String entityClassName, Reader reader, String fileName, boolean continueOnError) {
         LOGGER.debug("Importing instances of entity: {}", entityClassName);
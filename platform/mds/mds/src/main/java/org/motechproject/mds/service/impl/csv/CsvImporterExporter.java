@@ -1,6 +1,7 @@
 package org.motechproject.mds.service.impl.csv;
 
 import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.config.MdsConfig;
 import org.motechproject.mds.domain.ComboboxHolder;
 import org.motechproject.mds.domain.RelationshipHolder;
 import org.motechproject.mds.dto.CsvImportResults;
@@ -23,19 +24,27 @@ import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.mds.util.TypeHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
 import org.supercsv.io.CsvMapReader;
 import org.supercsv.prefs.CsvPreference;
 
+import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_KEY_TYPE;
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_VALUE_TYPE;
@@ -43,12 +52,20 @@ import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_VALUE_TYPE;
 /**
  * Component used for importing CSV records to the database.
  * The reason for separating import logic is keeping the db transaction and sending the MOTECH event at completion separate.
+ * Rows are imported in chunks, each committed in its own transaction, so that large files neither hold locks for
+ * the whole import nor keep all imported instances in the persistence manager. The number of rows in a chunk is
+ * set by the <code>mds.csv.import.chunkSize</code> property. When existing data is cleared, the whole file is imported
+ * in a single transaction together with the delete, so a failing import always leaves the existing data untouched.
  * This bean lives in the context of the generated MDS entities bundle.
  */
 public class CsvImporterExporter extends AbstractMdsExporter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CsvImporterExporter.class);
 
+    private static final int DEFAULT_IMPORT_CHUNK_SIZE = 1000;
+
+    private int importChunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+
     /**
      * Imports instances of the given entity to the database.
      * @param entityId the ID of the entity for which instances will be imported
@@ -56,8 +73,9 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param continueOnError if true, import will continue with next row if exception was encountered,
      *                        if false, import process will stop and rethrow the exception
      * @return IDs of instances updated/added during import
+     * @throws CsvImportException if the import stops after some chunks were already committed, the message contains
+     *                            the number of imported rows
      */
-    @Transactional
     public CsvImportResults importCsv(final long entityId, final Reader reader, boolean continueOnError, boolean clearData) {
         EntityInfo entityInfo = getEntity(entityId);
         return importCsv(entityInfo, reader, continueOnError, clearData);
@@ -72,13 +90,34 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      *                        if false, import process will stop and rethrow the exception
      * @param clearData if true, import will clear instances from table
      * @return IDs of instances updated/added during import
+     * @throws CsvImportException if the import stops after some chunks were already committed, the message contains
+     *                            the number of imported rows
      */
-    @Transactional
     public CsvImportResults importCsv(final long entityId, final Reader reader, CsvImportCustomizer importCustomizer, boolean continueOnError, boolean clearData) {
         EntityInfo entityInfo = getEntity(entityId);
         return importCsv(entityInfo, reader, importCustomizer, continueOnError, clearData);
     }
 
+    /**
+     * Imports instances of the given entity to the database, skipping the given number of rows from the beginning
+     * of the file. Used for resuming an import which stopped after some of its chunks were committed.
+     * @param entityId the ID of the entity for which instances will be imported
+     * @param reader reader from which the csv file will be read
+     * @param importCustomizer the customizer that will be used during instance import from rows
+     * @param continueOnError if true, import will continue with next row if exception was encountered,
+     *                        if false, import process will stop and rethrow the exception
+     * @param skipRows the number of rows, not counting the header, that will be skipped
+     * @return IDs of instances updated/added during import
+     * @throws CsvImportException if the import stops after some chunks were already committed, the number of rows
+     *                            imported from the beginning of the file is returned by
+     *                            {@link CsvImportException#getImportedRows()}
+     */
+    public CsvImportResults importCsv(final long entityId, final Reader reader, CsvImportCustomizer importCustomizer,
+                                      boolean continueOnError, int skipRows) {
+        EntityInfo entityInfo = getEntity(entityId);
+        return importCsv(entityInfo, reader, importCustomizer, continueOnError, false, skipRows);
+    }
+
     /**
      * Imports instances of the given entity to the database.
      * @param entityClassName the class name of the entity for which instances will be imported
@@ -86,8 +125,9 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param continueOnError if true, import will continue with next row if exception was encountered,
      *                        if false, import process will stop and rethrow the exception
      * @return IDs of instances updated/added during import
+     * @throws CsvImportException if the import stops after some chunks were already committed, the message contains
+     *                            the number of imported rows
      */
-    @Transactional
     public CsvImportResults importCsv(final String entityClassName, final Reader reader, boolean continueOnError) {
         EntityInfo entityInfo = getEntity(entityClassName);
         return importCsv(entityInfo, reader, continueOnError, false);
@@ -233,55 +273,186 @@ public class CsvImporterExporter extends AbstractMdsExporter {
 
     private CsvImportResults importCsv(final EntityInfo entityInfo, final Reader reader, CsvImportCustomizer importCustomizer,
                                        boolean continueOnError, boolean clearData) {
-        final MotechDataService dataService = DataServiceHelper.getDataService(getBundleContext(), entityInfo.getClassName());
-
-        Map<String, FieldDto> fieldCacheMap = new HashMap<>();
+        return importCsv(entityInfo, reader, importCustomizer, continueOnError, clearData, 0);
+    }
 
-        if (clearData) {
-            dataService.deleteAll();
-        }
+    private CsvImportResults importCsv(final EntityInfo entityInfo, final Reader reader, CsvImportCustomizer importCustomizer,
+                                       boolean continueOnError, boolean clearData, int skipRows) {
+        final MotechDataService dataService = DataServiceHelper.getDataService(getBundleContext(), entityInfo.getClassName());
 
         try (CsvMapReader csvMapReader = new CsvMapReader(reader, CsvPreference.STANDARD_PREFERENCE)) {
 
-            List<Long> newInstanceIDs = new ArrayList<>();
-            List<Long> updatedInstanceIDs = new ArrayList<>();
+            final String headers[] = csvMapReader.getHeader(true);
+            final List<CsvColumn> columns = buildColumns(entityInfo, headers, dataService.getClassType(), importCustomizer);
 
-            Map <Integer, String> exceptions = new HashMap<>();
+            // the delete cannot be committed before all rows are imported, so clearing imports the file in one chunk
+            final int chunkSize = clearData ? Integer.MAX_VALUE : importChunkSize;
+
+            ImportProgress progress = new ImportProgress();
+            List<CsvRow> chunk = new ArrayList<>();
 
             Map<String, String> row;
             int rowNum = 0;
 
-            final String headers[] = csvMapReader.getHeader(true);
-
             while ((row = csvMapReader.read(headers)) != null) {
-                rowNum++;
-                try {
-                    // import a row
-                    RowImportResult rowImportResult = importInstanceFromRow(entityInfo.getEntity(), row, headers, fieldCacheMap, entityInfo.getFieldDtos(), dataService, importCustomizer);
-                    Long id = rowImportResult.getId();
-
-                    // put its ID in the correct list
-                    if (rowImportResult.isNewInstance()) {
-                        newInstanceIDs.add(id);
-                    } else {
-                        updatedInstanceIDs.add(id);
-                    }
-                } catch (RuntimeException e){
-                    if (continueOnError) {
-                        exceptions.put(rowNum, e.getMessage());
-                    } else {
-                        throw e;
-                    }
+                if (++rowNum <= skipRows) {
+                    continue;
+                }
+
+                chunk.add(new CsvRow(rowNum, row));
+
+                if (chunk.size() >= chunkSize) {
+                    importChunk(entityInfo, chunk, columns, dataService, importCustomizer, continueOnError,
+                            clearData, progress);
+                    chunk = new ArrayList<>();
                 }
             }
 
-            return new CsvImportResults(entityInfo.getEntity(), newInstanceIDs, updatedInstanceIDs, exceptions);
+            if (!chunk.isEmpty() || (clearData && progress.committedRows == 0)) {
+                importChunk(entityInfo, chunk, columns, dataService, importCustomizer, continueOnError,
+                        clearData, progress);
+            }
+
+            return new CsvImportResults(entityInfo.getEntity(), progress.newInstanceIDs, progress.updatedInstanceIDs,
+                    progress.exceptions);
         } catch (IOException e) {
             throw new CsvImportException("IO Error when importing CSV", e);
         }
     }
 
-    private RowImportResult importInstanceFromRow(EntityDto entityDto, Map<String, String> row, String[] headers, Map<String, FieldDto> fieldMap, List<FieldDto> fields,
+    private void importChunk(final EntityInfo entityInfo, final List<CsvRow> chunk, final List<CsvColumn> columns,
+                             final MotechDataService dataService, final CsvImportCustomizer importCustomizer,
+                             final boolean continueOnError, boolean clearData, ImportProgress progress) {
+        // the data is cleared in the transaction of the only chunk, so that a failing import leaves it untouched
+        final boolean clearBeforeChunk = clearData && progress.committedRows == 0;
+
+        ImportProgress chunkProgress;
+        try {
+            chunkProgress = (ImportProgress) dataService.doInTransaction(new TransactionCallback<ImportProgress>() {
+                @Override
+                public ImportProgress doInTransaction(TransactionStatus status) {
+                    if (clearBeforeChunk) {
+                        dataService.deleteAll();
+                    }
+
+                    ImportProgress result = new ImportProgress();
+                    Map<String, Map<Long, Object>> relatedObjects = findRelatedObjects(chunk, columns);
+
+                    for (CsvRow csvRow : chunk) {
+                        try {
+                            // import a row
+                            RowImportResult rowImportResult = importInstanceFromRow(csvRow.getValues(), columns,
+                                    relatedObjects, dataService, importCustomizer);
+                            Long id = rowImportResult.getId();
+
+                            // put its ID in the correct list
+                            if (rowImportResult.isNewInstance()) {
+                                result.newInstanceIDs.add(id);
+                            } else {
+                                result.updatedInstanceIDs.add(id);
+                            }
+                        } catch (RuntimeException e) {
+                            if (continueOnError) {
+                                result.exceptions.put(csvRow.getRowNum(), e.getMessage());
+                            } else {
+                                throw e;
+                            }
+                        }
+                    }
+
+                    return result;
+                }
+            });
+        } catch (RuntimeException e) {
+            int importedRows = chunk.isEmpty() ? 0 : chunk.get(0).getRowNum() - 1;
+            if (importedRows == 0) {
+                throw e;
+            }
+            // the rows before this chunk are already committed, the import is resumed by skipping them
+            throw new CsvImportException(String.format("Import of %s stopped at row %d, the first %d rows were imported: %s",
+                    entityInfo.getClassName(), chunk.get(0).getRowNum(), importedRows, e.getMessage()), e, importedRows);
+        }
+
+        progress.newInstanceIDs.addAll(chunkProgress.newInstanceIDs);
+        progress.updatedInstanceIDs.addAll(chunkProgress.updatedInstanceIDs);
+        progress.exceptions.putAll(chunkProgress.exceptions);
+        progress.committedRows += chunk.size();
+
+        LOGGER.info("Imported {} rows of {}", progress.committedRows, entityInfo.getClassName());
+    }
+
+    private List<CsvColumn> buildColumns(EntityInfo entityInfo, String[] headers, Class entityClass,
+                                         CsvImportCustomizer importCustomizer) {
+        Map<String, PropertyDescriptor> descriptors = new HashMap<>();
+        for (PropertyDescriptor descriptor : PropertyUtil.getPropertyDescriptors(entityClass)) {
+            descriptors.put(descriptor.getName(), descriptor);
+        }
+
+        List<CsvColumn> columns = new ArrayList<>(headers.length);
+
+        for (String fieldName : headers) {
+            FieldDto field = importCustomizer.findField(fieldName, entityInfo.getFieldDtos());
+
+            if (field == null) {
+                LOGGER.warn("No field with name {} in entity {}, however such row exists in CSV. Ignoring.",
+                        fieldName, entityClass.getName());
+                continue;
+            }
+
+            String propertyName = StringUtils.uncapitalize(field.getBasic().getName());
+            PropertyDescriptor descriptor = descriptors.get(propertyName);
+            Method setter = descriptor == null ? null : descriptor.getWriteMethod();
+
+            columns.add(new CsvColumn(fieldName, field, propertyName, setter, entityInfo.getEntity(),
+                    entityClass.getClassLoader()));
+        }
+
+        return columns;
+    }
+
+    private Map<String, Map<Long, Object>> findRelatedObjects(List<CsvRow> chunk, List<CsvColumn> columns) {
+        Map<String, Set<Long>> relatedIds = new HashMap<>();
+
+        for (CsvColumn column : columns) {
+            if (column.relationshipHolder == null) {
+                continue;
+            }
+
+            String relatedClass = column.relationshipHolder.getRelatedClass();
+            if (!relatedIds.containsKey(relatedClass)) {
+                relatedIds.put(relatedClass, new HashSet<Long>());
+            }
+
+            for (CsvRow csvRow : chunk) {
+                try {
+                    relatedIds.get(relatedClass).addAll(column.parseRelatedIds(csvRow.getValues().get(column.header)));
+                } catch (RuntimeException e) {
+                    // the value will fail again when its row is imported, where the error is handled
+                    LOGGER.debug("Invalid related ids in row {}: {}", csvRow.getRowNum(), e.getMessage());
+                }
+            }
+        }
+
+        Map<String, Map<Long, Object>> relatedObjects = new HashMap<>();
+
+        for (Map.Entry<String, Set<Long>> entry : relatedIds.entrySet()) {
+            Map<Long, Object> objectsById = new HashMap<>();
+
+            if (!entry.getValue().isEmpty()) {
+                MotechDataService relatedDataService = DataServiceHelper.getDataService(getBundleContext(), entry.getKey());
+                for (Object obj : relatedDataService.findByIds(entry.getValue())) {
+                    objectsById.put((Long) PropertyUtil.safeGetProperty(obj, Constants.Util.ID_FIELD_NAME), obj);
+                }
+            }
+
+            relatedObjects.put(entry.getKey(), objectsById);
+        }
+
+        return relatedObjects;
+    }
+
+    private RowImportResult importInstanceFromRow(Map<String, String> row, List<CsvColumn> columns,
+                                                  Map<String, Map<Long, Object>> relatedObjects,
                                                   MotechDataService dataService, CsvImportCustomizer importCustomizer) {
         Class entityClass = dataService.getClassType();
 
@@ -300,25 +471,17 @@ public class CsvImporterExporter extends AbstractMdsExporter {
             throw new CsvImportException("Unable to create instance of " + entityClass.getName(), e);
         }
 
-        for (String fieldName : headers) {
-            FieldDto field = findField(fieldName, fields, fieldMap, importCustomizer);
-
-            if (field == null) {
-                LOGGER.warn("No field with name {} in entity {}, however such row exists in CSV. Ignoring.",
-                        fieldName, entityClass.getName());
-                continue;
-            }
-
-            if (row.containsKey(fieldName)) {
-                String csvValue = row.get(fieldName);
+        for (CsvColumn column : columns) {
+            if (row.containsKey(column.header)) {
+                String csvValue = row.get(column.header);
 
-                Object parsedValue = parseValue(entityDto, csvValue, field, entityClass.getClassLoader());
+                Object parsedValue = column.parse(csvValue, relatedObjects);
 
                 try {
-                    PropertyUtil.setProperty(instance, StringUtils.uncapitalize(field.getBasic().getName()), parsedValue);
+                    column.set(instance, parsedValue);
                 } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
                     String msg = String.format("Error when processing field: %s, value in CSV file is %s",
-                            fieldName, csvValue);
+                            column.header, csvValue);
                     throw new CsvImportException(msg, e);
                 }
             }
@@ -336,96 +499,170 @@ public class CsvImporterExporter extends AbstractMdsExporter {
         return new RowImportResult(importedId, isNewInstance);
     }
 
-    private FieldDto findField(String fieldName, List<FieldDto> fields, Map<String, FieldDto> fieldMap, CsvImportCustomizer importCustomizer) {
-        if (!fieldMap.containsKey(fieldName)) {
-            FieldDto field = importCustomizer.findField(fieldName, fields);
-            fieldMap.put(fieldName, field);
+    private static Collection<Object> buildRelationshipCollection(RelationshipHolder relationshipHolder) {
+        String collectionClassName = relationshipHolder.getCollectionClassName();
+        Class collectionClass = TypeHelper.suggestCollectionImplementation(collectionClassName);
+        if (collectionClass == null) {
+            return new ArrayList<>();
+        } else {
+            try {
+                return (Collection<Object>) collectionClass.newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new CsvImportException("Unable to parse collection type " + relationshipHolder.getCollectionClassName(), e);
+            }
         }
-        return fieldMap.get(fieldName);
     }
 
-    private Object parseValue(EntityDto entityDto, String csvValue, FieldDto field, ClassLoader entityCl) {
-        final TypeDto type = field.getType();
+    private static Object getRelatedObject(Long id, String entityClass, Map<Long, Object> relatedObjects) {
+        Object obj = id == null || relatedObjects == null ? null : relatedObjects.get(id);
+
+        if (obj == null && id != null) {
+            LOGGER.warn("Unable to find {} instance with id {}. Ignoring, you will have to create this relationship manually",
+                    entityClass, id);
+        }
+
+        return obj;
+    }
+
+    @Autowired(required = false)
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        if (mdsConfig != null) {
+            String chunkSize = mdsConfig.getProperties(Constants.Config.MODULE_FILE)
+                    .getProperty(Constants.Config.MDS_CSV_IMPORT_CHUNK_SIZE);
+            if (StringUtils.isNotBlank(chunkSize) && StringUtils.isNumeric(chunkSize)) {
+                importChunkSize = Math.max(1, Integer.parseInt(chunkSize));
+            }
+        }
+    }
+
+    /**
+     * A column of the imported file. The field, the setter and the way of parsing values are resolved once
+     * for the whole file.
+     */
+    private static final class CsvColumn {
+        private final String header;
+        private final String propertyName;
+        private final Method setter;
+        private final TypeDto type;
+        private final ClassLoader entityClassLoader;
+        private final ComboboxHolder comboboxHolder;
+        private final RelationshipHolder relationshipHolder;
+        private final String mapKeyType;
+        private final String mapValueType;
+
+        private CsvColumn(String header, FieldDto field, String propertyName, Method setter, EntityDto entityDto,
+                          ClassLoader entityClassLoader) {
+            this.header = header;
+            this.propertyName = propertyName;
+            this.setter = setter;
+            this.type = field.getType();
+            this.entityClassLoader = entityClassLoader;
+            this.comboboxHolder = type.isCombobox() ? new ComboboxHolder(entityDto, field) : null;
+            this.relationshipHolder = !type.isCombobox() && type.isRelationship() ? new RelationshipHolder(field) : null;
 
-        Object value;
-        if (type.isCombobox()) {
-            value = parseComboboxValue(entityDto, csvValue, field, entityCl);
-        } else if (type.isRelationship()) {
-            value = parseRelationshipValue(csvValue, field);
-        } else if (type.isMap()) {
             MetadataDto keyMetadata = field.getMetadata(MAP_KEY_TYPE);
             MetadataDto valueMetadata = field.getMetadata(MAP_VALUE_TYPE);
-            String mapKeyType = keyMetadata != null ? keyMetadata.getValue() : String.class.getName();
-            String mapValueType = valueMetadata != null ? valueMetadata.getValue() : String.class.getName();
+            this.mapKeyType = keyMetadata != null ? keyMetadata.getValue() : String.class.getName();
+            this.mapValueType = valueMetadata != null ? valueMetadata.getValue() : String.class.getName();
+        }
 
-            value = TypeHelper.parseStringToMap(mapKeyType, mapValueType, csvValue);
-        } else {
-            value = TypeHelper.parse(csvValue, type.getTypeClass());
+        private Object parse(String csvValue, Map<String, Map<Long, Object>> relatedObjects) {
+            Object value;
+            if (comboboxHolder != null) {
+                value = parseComboboxValue(csvValue);
+            } else if (relationshipHolder != null) {
+                value = parseRelationshipValue(csvValue, relatedObjects.get(relationshipHolder.getRelatedClass()));
+            } else if (type.isMap()) {
+                value = TypeHelper.parseStringToMap(mapKeyType, mapValueType, csvValue);
+            } else {
+                value = TypeHelper.parse(csvValue, type.getTypeClass());
+            }
+
+            // for strings, return a blank if the columns is in the file
+            if (value == null && String.class.equals(type.getTypeClass())) {
+                value = "";
+            }
+
+            return value;
         }
 
-        // for strings, return a blank if the columns is in the file
-        if (value == null && String.class.equals(type.getTypeClass())) {
-            value = "";
+        private void set(Object instance, Object value)
+                throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+            if (setter == null) {
+                PropertyUtil.setProperty(instance, propertyName, value);
+            } else {
+                setter.invoke(instance, value);
+            }
         }
 
-        return value;
-    }
+        private Object parseComboboxValue(String csvValue) {
+            if (comboboxHolder.isCollection()) {
+                return TypeHelper.parse(csvValue, comboboxHolder.getTypeClassName(),
+                        comboboxHolder.getUnderlyingType(), entityClassLoader);
+            } else {
+                return TypeHelper.parse(csvValue, comboboxHolder.getUnderlyingType(), entityClassLoader);
+            }
+        }
 
-    private Object parseComboboxValue(EntityDto entityDto, String csvValue, FieldDto field, ClassLoader classLoader) {
-        ComboboxHolder comboboxHolder = new ComboboxHolder(entityDto, field);
-        if (comboboxHolder.isCollection()) {
-            return TypeHelper.parse(csvValue, comboboxHolder.getTypeClassName(),
-                    comboboxHolder.getUnderlyingType(), classLoader);
-        } else {
-            return TypeHelper.parse(csvValue, comboboxHolder.getUnderlyingType(), classLoader);
+        private List<Long> parseRelatedIds(String csvValue) {
+            List<Long> ids;
+            if (relationshipHolder.isManyToMany() || relationshipHolder.isOneToMany()) {
+                ids = (List<Long>) TypeHelper.parse(csvValue, List.class.getName(), Long.class.getName());
+            } else {
+                Long id = (Long) TypeHelper.parse(csvValue, Long.class);
+                ids = id == null ? null : Collections.singletonList(id);
+            }
+            return ids == null ? Collections.<Long>emptyList() : ids;
         }
-    }
 
-    private Object parseRelationshipValue(String csvValue, FieldDto field) {
-        RelationshipHolder relationshipHolder = new RelationshipHolder(field);
-        if (relationshipHolder.isManyToMany() || relationshipHolder.isOneToMany()) {
-            List<Long> ids = (List<Long>) TypeHelper.parse(csvValue, List.class.getName(), Long.class.getName());
+        private Object parseRelationshipValue(String csvValue, Map<Long, Object> relatedObjects) {
+            String relatedClass = relationshipHolder.getRelatedClass();
 
-            Collection<Object> relatedObjects = buildRelationshipCollection(relationshipHolder);
-            if (ids != null) {
-                for (Long id : ids) {
-                    Object relatedObj = getRelatedObject(id, relationshipHolder.getRelatedClass());
+            if (relationshipHolder.isManyToMany() || relationshipHolder.isOneToMany()) {
+                Collection<Object> relatedCollection = buildRelationshipCollection(relationshipHolder);
+                for (Long id : parseRelatedIds(csvValue)) {
+                    Object relatedObj = getRelatedObject(id, relatedClass, relatedObjects);
                     if (relatedObj != null) {
-                        relatedObjects.add(relatedObj);
+                        relatedCollection.add(relatedObj);
                     }
                 }
+                return relatedCollection;
+            } else {
+                Long id = (Long) TypeHelper.parse(csvValue, Long.class);
+                return getRelatedObject(id, relatedClass, relatedObjects);
             }
-            return relatedObjects;
-        } else {
-            Long id = (Long) TypeHelper.parse(csvValue, Long.class);
-            return getRelatedObject(id, relationshipHolder.getRelatedClass());
         }
     }
 
-    private Collection<Object> buildRelationshipCollection(RelationshipHolder relationshipHolder) {
-        String collectionClassName = relationshipHolder.getCollectionClassName();
-        Class collectionClass = TypeHelper.suggestCollectionImplementation(collectionClassName);
-        if (collectionClass == null) {
-            return new ArrayList<>();
-        } else {
-            try {
-                return (Collection<Object>) collectionClass.newInstance();
-            } catch (InstantiationException | IllegalAccessException e) {
-                throw new CsvImportException("Unable to parse collection type " + relationshipHolder.getCollectionClassName(), e);
-            }
+    /**
+     * A row read from the imported file, together with its number.
+     */
+    private static final class CsvRow {
+        private final int rowNum;
+        private final Map<String, String> values;
+
+        private CsvRow(int rowNum, Map<String, String> values) {
+            this.rowNum = rowNum;
+            this.values = values;
         }
-    }
 
-    private Object getRelatedObject(Long id, String entityClass) {
-        MotechDataService dataService = DataServiceHelper.getDataService(getBundleContext(), entityClass);
-        Object obj = dataService.findById(id);
+        public int getRowNum() {
+            return rowNum;
+        }
 
-        if (obj == null) {
-            LOGGER.warn("Unable to find {} instance with id {}. Ignoring, you will have to create this relationship manually",
-                    entityClass, id);
+        public Map<String, String> getValues() {
+            return values;
         }
+    }
 
-        return obj;
+    /**
+     * The IDs of instances imported so far, the errors of rows which were skipped and the number of committed rows.
+     */
+    private static final class ImportProgress {
+        private final List<Long> newInstanceIDs = new ArrayList<>();
+        private final List<Long> updatedInstanceIDs = new ArrayList<>();
+        private final Map<Integer, String> exceptions = new HashMap<>();
+        private int committedRows;
     }
 
     /**
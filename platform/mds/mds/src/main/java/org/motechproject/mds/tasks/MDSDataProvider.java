@@ -15,6 +15,7 @@ import org.motechproject.mds.lookup.LookupExecutor;
 import org.motechproject.mds.service.EntityService;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.osgi.web.util.OSGiServiceUtils;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -23,9 +24,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
 
+import javax.jdo.JDOHelper;
+import javax.jdo.PersistenceManager;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -60,7 +67,21 @@ public class MDSDataProvider extends AbstractDataProvider {
         if (FIND_BY_ID_LOOKUP.equals(lookupName)) {
             return findById(type, lookupMap.get(ID_LOOKUP_FIELD));
         } else {
-            return findUsingLookup(type, lookupName, lookupMap);
+            return findUsingLookup(type, lookupName, Collections.singletonList(lookupMap)).get(0);
+        }
+    }
+
+    /**
+     * Finds instances by their ids with a single query. Other lookups are executed one by one, but the entity,
+     * the lookup and the data service are resolved only once for all of them. The instances are loaded and detached
+     * in one transaction, so that they can be shared by task executions running on other threads.
+     */
+    @Override
+    public List<Object> lookupAll(String type, String lookupName, List<Map<String, String>> lookupFields) {
+        if (FIND_BY_ID_LOOKUP.equals(lookupName)) {
+            return findByIds(type, lookupFields);
+        } else {
+            return findUsingLookup(type, lookupName, lookupFields);
         }
     }
 
@@ -110,8 +131,9 @@ public class MDSDataProvider extends AbstractDataProvider {
         return (entitiesBundle != null) ? entitiesBundle.loadClass(type) : null;
     }
 
-    private Object findUsingLookup(String type, String lookupName, Map<String, String> lookupMap) {
-        Object obj = null;
+    private List<Object> findUsingLookup(final String type, String lookupName, final List<Map<String, String>> lookupMaps) {
+        MotechDataService service = null;
+        LookupExecutor executor = null;
 
         LookupDto lookup = null;
         EntityDto entity = entityService.getEntityByClassName(type);
@@ -121,19 +143,35 @@ public class MDSDataProvider extends AbstractDataProvider {
 
         if (entity != null && lookup != null) {
             String serviceName = MotechClassPool.getInterfaceName(type);
-            MotechDataService service = OSGiServiceUtils.findService(bundleContext, serviceName);
+            service = OSGiServiceUtils.findService(bundleContext, serviceName);
 
             if (service != null) {
                 Map<String, FieldDto> fieldsByName = entityService.getLookupFieldsMapping(entity.getId(), lookupName);
 
-                LookupExecutor executor = new LookupExecutor(service, lookup, fieldsByName);
-
-                obj = executor.execute(lookupMap);
+                executor = new LookupExecutor(service, lookup, fieldsByName);
             } else {
                 getLogger().error("Service %s not found", serviceName);
             }
         }
 
+        if (executor == null) {
+            return new ArrayList<>(Collections.nCopies(lookupMaps.size(), null));
+        }
+
+        final LookupExecutor lookupExecutor = executor;
+        return findDetached(service, new TransactionCallback<List<Object>>() {
+            @Override
+            public List<Object> doInTransaction(TransactionStatus status) {
+                List<Object> results = new ArrayList<>(lookupMaps.size());
+                for (Map<String, String> lookupMap : lookupMaps) {
+                    results.add(getSingleResult(type, lookupExecutor.execute(lookupMap)));
+                }
+                return results;
+            }
+        });
+    }
+
+    private Object getSingleResult(String type, Object obj) {
         // we allow executing lookups that return multiple objects
         // if such a lookup returns more then 1 object we throw an exception
         Object result = null;
@@ -154,17 +192,71 @@ public class MDSDataProvider extends AbstractDataProvider {
     }
 
     private Object findById(String type, String idParam) {
-        Long id = parseId(idParam);
+        final Long id = parseId(idParam);
         String serviceName = MotechClassPool.getInterfaceName(type);
-        MotechDataService service = OSGiServiceUtils.findService(bundleContext, serviceName);
+        final MotechDataService service = OSGiServiceUtils.findService(bundleContext, serviceName);
         if (null != service) {
-            return service.findById(id);
+            return findDetached(service, new TransactionCallback<List<Object>>() {
+                @Override
+                public List<Object> doInTransaction(TransactionStatus status) {
+                    return Collections.singletonList(service.findById(id));
+                }
+            }).get(0);
         } else {
             getLogger().error("Service %s not found", serviceName);
             return null;
         }
     }
 
+    private List<Object> findByIds(String type, List<Map<String, String>> lookupMaps) {
+        final List<Long> ids = new ArrayList<>(lookupMaps.size());
+        for (Map<String, String> lookupMap : lookupMaps) {
+            ids.add(parseId(lookupMap.get(ID_LOOKUP_FIELD)));
+        }
+
+        Map<Object, Object> instancesById = new HashMap<>();
+        String serviceName = MotechClassPool.getInterfaceName(type);
+        final MotechDataService service = OSGiServiceUtils.findService(bundleContext, serviceName);
+        if (null != service) {
+            List<Object> instances = findDetached(service, new TransactionCallback<List<Object>>() {
+                @Override
+                public List<Object> doInTransaction(TransactionStatus status) {
+                    return new ArrayList<Object>(service.findByIds(ids));
+                }
+            });
+
+            for (Object instance : instances) {
+                instancesById.put(PropertyUtil.safeGetProperty(instance, Constants.Util.ID_FIELD_NAME), instance);
+            }
+        } else {
+            getLogger().error("Service %s not found", serviceName);
+        }
+
+        List<Object> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            results.add(instancesById.get(id));
+        }
+
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> findDetached(MotechDataService service, final TransactionCallback<List<Object>> finder) {
+        // the instances are detached before the transaction ends, so that they do not keep a reference
+        // to the persistence manager of this thread
+        return (List<Object>) service.doInTransaction(new TransactionCallback<List<Object>>() {
+            @Override
+            public List<Object> doInTransaction(TransactionStatus status) {
+                List<Object> detached = new ArrayList<>();
+                for (Object instance : finder.doInTransaction(status)) {
+                    PersistenceManager pm = instance == null ? null : JDOHelper.getPersistenceManager(instance);
+                    detached.add(pm == null ? instance : pm.detachCopy(instance));
+                }
+                return detached;
+            }
+        });
+    }
+
     private Long parseId(String idParam) {
         try {
             return Long.parseLong(idParam);
@@ -231,6 +231,17 @@ public final class Constants {
          */
         public static final String MDS_RESTART_BUNDLE_AFTER_TIMEOUT = "mds.restartBundle.afterTimeout";
 
+        /**
+         * The integer property that specifies how many instances are persisted in one transaction by the bulk
+         * operations of data services.
+         */
+        public static final String MDS_BULK_CHUNK_SIZE = "mds.bulk.chunkSize";
+
+        /**
+         * The integer property that specifies how many rows of an imported CSV file are committed in one transaction.
+         */
+        public static final String MDS_CSV_IMPORT_CHUNK_SIZE = "mds.csv.import.chunkSize";
+
         /**
          * Constant <code>EMPTY_TRASH_JOB</code> presents a name of job scheduled by scheduler
          * module.
@@ -452,6 +463,12 @@ public final class Constants {
         public static final String MDS_DATABASE_KEY = "mds.data.databaseName";
         public static final String SCHEMA_DATABASE_KEY = "mds.schema.databaseName";
 
+        /**
+         * The prefix of the names of composite indexes created for lookups with more than one field. Indexes with
+         * this prefix that are no longer defined by any lookup are dropped during schema generation.
+         */
+        public static final String LOOKUP_COMPOSITE_INDEX_PREFIX = "lkp_cidx";
+
         public static final String[] GENERATED_FIELD_NAMES = new String[]{
                 CREATOR_FIELD_NAME, OWNER_FIELD_NAME, CREATION_DATE_FIELD_NAME,
                 MODIFIED_BY_FIELD_NAME, MODIFICATION_DATE_FIELD_NAME, ID_FIELD_NAME
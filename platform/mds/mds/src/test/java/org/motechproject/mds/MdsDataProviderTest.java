@@ -19,6 +19,8 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.springframework.core.io.ResourceLoader;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,7 @@ import java.util.Map;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -135,6 +138,35 @@ public class MdsDataProviderTest {
         assertEquals("found by id", record.getValue());
     }
 
+    @Test
+    public void shouldFindAllByInstanceIdsWithOneQuery() {
+        List<Map<String, String>> lookupMaps = new ArrayList<>();
+        for (String id : asList("3", "2", "5")) {
+            Map<String, String> lookupMap = new HashMap<>();
+            lookupMap.put(ID_LOOKUP_FIELD, id);
+            lookupMaps.add(lookupMap);
+        }
+
+        List<Object> result = dataProvider.lookupAll(Record.class.getName(), FIND_BY_ID_LOOKUP, lookupMaps);
+
+        assertEquals(3, result.size());
+        assertEquals(3L, (long) ((Record) result.get(0)).getId());
+        assertEquals(2L, (long) ((Record) result.get(1)).getId());
+        assertNull(result.get(2));
+    }
+
+    @Test
+    public void shouldFindAllUsingLookup() {
+        Map<String, String> lookupMap = new HashMap<>();
+        lookupMap.put("field", PARAM_VALUE);
+
+        List<Object> result = dataProvider.lookupAll(Record.class.getName(), "singleLookup", asList(lookupMap, lookupMap));
+
+        assertEquals(2, result.size());
+        assertEquals("single", ((Record) result.get(0)).getValue());
+        assertEquals("single", ((Record) result.get(1)).getValue());
+    }
+
     @Test
     public void shouldFindByRelatedField() {
         Map<String, String> lookupMap = new HashMap<>();
@@ -173,6 +205,18 @@ public class MdsDataProviderTest {
             return record;
         }
 
+        @Override
+        public List<Record> findByIds(Collection<Long> ids) {
+            assertEquals(asList(3L, 2L, 5L), ids);
+            List<Record> records = new ArrayList<>();
+            for (Long id : asList(2L, 3L)) {
+                Record record = new Record();
+                record.setId(id);
+                records.add(record);
+            }
+            return records;
+        }
+
         public List<Record> relatedLookup(String value) {
             assertEquals(VALUE, value);
             Record record = new Record();
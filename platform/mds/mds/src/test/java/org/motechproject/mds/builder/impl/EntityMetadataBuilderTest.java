@@ -10,6 +10,7 @@ import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -58,6 +59,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -325,6 +327,52 @@ public class EntityMetadataBuilderTest {
         verify(indexMetadata).setName("lkp_idx_" + ENTITY_NAME + "_lookupField_14");
     }
 
+    @Test
+    public void shouldAddCompositeIndexForMultiFieldLookups() {
+        LookupDto multiFieldLookup = new LookupDto();
+        multiFieldLookup.setLookupName("By facility status and date");
+        multiFieldLookup.setMethodName("byFacilityStatusAndDate");
+        multiFieldLookup.setLookupFields(asList(new LookupFieldDto("date", LookupFieldType.RANGE),
+                new LookupFieldDto("facility", LookupFieldType.VALUE), new LookupFieldDto("status", LookupFieldType.VALUE)));
+        multiFieldLookup.setFieldsOrder(asList("date", "facility", "status"));
+        multiFieldLookup.setIndexRequired(true);
+
+        LookupDto notIndexedLookup = new LookupDto();
+        notIndexedLookup.setLookupName("By facility and status");
+        notIndexedLookup.setLookupFields(asList(new LookupFieldDto("facility", LookupFieldType.VALUE),
+                new LookupFieldDto("status", LookupFieldType.VALUE)));
+        notIndexedLookup.setIndexRequired(false);
+
+        LookupDto singleFieldLookup = new LookupDto();
+        singleFieldLookup.setLookupName("By status");
+        singleFieldLookup.setLookupFields(singletonList(new LookupFieldDto("status", LookupFieldType.VALUE)));
+        singleFieldLookup.setIndexRequired(true);
+
+        IndexMetadata compositeIndexMetadata = mock(IndexMetadata.class);
+
+        when(entity.getName()).thenReturn(ENTITY_NAME);
+        when(entity.getId()).thenReturn(14L);
+        when(entity.getTableName()).thenReturn(TABLE_NAME);
+        when(jdoMetadata.newPackageMetadata(PACKAGE)).thenReturn(packageMetadata);
+        when(packageMetadata.newClassMetadata(ENTITY_NAME)).thenReturn(classMetadata);
+        when(classMetadata.newIndexMetadata()).thenReturn(compositeIndexMetadata);
+        when(schemaHolder.getLookups(entity)).thenReturn(asList(multiFieldLookup, notIndexedLookup, singleFieldLookup));
+        when(schemaHolder.getFieldByName(entity, "date")).thenReturn(fieldDto("date", DateTime.class));
+        when(schemaHolder.getFieldByName(entity, "facility")).thenReturn(fieldDto("facility", String.class));
+        when(schemaHolder.getFieldByName(entity, "status")).thenReturn(fieldDto("status", String.class));
+
+        entityMetadataBuilder.addEntityMetadata(jdoMetadata, entity, Sample.class, schemaHolder);
+
+        verify(classMetadata).newIndexMetadata();
+        verify(compositeIndexMetadata).setName("lkp_cidx_" + ENTITY_NAME + "_byFacilityStatusAndDate_14");
+
+        // the range field goes last
+        InOrder inOrder = inOrder(compositeIndexMetadata);
+        inOrder.verify(compositeIndexMetadata).newFieldMetadata("facility");
+        inOrder.verify(compositeIndexMetadata).newFieldMetadata("status");
+        inOrder.verify(compositeIndexMetadata).newFieldMetadata("date");
+    }
+
     @Test
     public void shouldAddObjectValueGeneratorToAppropriateFields() throws Exception {
         when(entity.getName()).thenReturn(ENTITY_NAME);
@@ -4,6 +4,8 @@ import org.junit.Test;
 import org.motechproject.mds.domain.EntityType;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class KeyNamesTest {
 
@@ -17,6 +19,27 @@ public class KeyNamesTest {
                 KeyNames.lookupIndexKeyName("TestEntity", 3L, "testField", EntityType.TRASH));
     }
 
+    @Test
+    public void shouldBuildLookupCompositeIndexNames() {
+        assertEquals("lkp_cidx_TestEntity_byNameAndDate_3",
+                KeyNames.lookupCompositeIndexKeyName("TestEntity", 3L, "byNameAndDate"));
+    }
+
+    @Test
+    public void shouldLimitLengthOfLookupCompositeIndexNames() {
+        String lookupMethodName = "byFacilityAndDistrictAndStatusAndDateOfRegistrationAndPhoneNumber";
+
+        String name = KeyNames.lookupCompositeIndexKeyName("TestEntity", 3L, lookupMethodName);
+        String otherName = KeyNames.lookupCompositeIndexKeyName("TestEntity", 3L, lookupMethodName + "2");
+
+        assertEquals(KeyNames.MAX_IDENTIFIER_LENGTH, name.length());
+        assertTrue(name.startsWith("lkp_cidx_TestEntity_byFacilityAndDistrict"));
+        // the names differ only after the truncated part, so they are told apart by the hash
+        assertEquals(KeyNames.MAX_IDENTIFIER_LENGTH, otherName.length());
+        assertNotEquals(name, otherName);
+        assertEquals(name, KeyNames.lookupCompositeIndexKeyName("TestEntity", 3L, lookupMethodName));
+    }
+
     @Test
     public void shouldBuildForeignKeyNames() {
         assertEquals("fk_TestEntity_books_3",
@@ -0,0 +1,105 @@
+package org.motechproject.mds.event;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CrudEventBatchTest {
+
+    private static final String SUBJECT = "mds.crud.test.CREATE";
+
+    @Mock
+    private OsgiEventProxy osgiEventProxy;
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(osgiEventProxy);
+    }
+
+    @Test
+    public void shouldSendEventImmediatelyWithoutTransaction() {
+        Map<String, Object> params = params(1L);
+
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, SUBJECT, params);
+
+        verify(osgiEventProxy).sendEvent(SUBJECT, params);
+    }
+
+    @Test
+    public void shouldSendAllEventsOfTransactionTogetherAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, SUBJECT, params(1L));
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, SUBJECT, params(2L));
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, SUBJECT, params(3L));
+
+        verify(osgiEventProxy, never()).sendEvents(any(List.class));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).afterCommit();
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(osgiEventProxy).sendEvents(captor.capture());
+
+        List<Map<String, Object>> events = captor.getValue();
+        assertEquals(3, events.size());
+        assertEquals(SUBJECT, events.get(2).get(OsgiEventProxy.SUBJECT_PARAM));
+        assertEquals(params(3L), events.get(2).get(OsgiEventProxy.PARAMETERS_PARAM));
+        assertFalse(TransactionSynchronizationManager.hasResource(osgiEventProxy));
+    }
+
+    @Test
+    public void shouldSendSingleEventOfTransactionAsRegularEvent() {
+        TransactionSynchronizationManager.initSynchronization();
+        Map<String, Object> params = params(1L);
+
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, SUBJECT, params);
+        TransactionSynchronizationManager.getSynchronizations().get(0).afterCommit();
+
+        verify(osgiEventProxy).sendEvent(SUBJECT, params);
+        verify(osgiEventProxy, never()).sendEvents(any(List.class));
+    }
+
+    @Test
+    public void shouldDropEventsOfRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        CrudEventBatch.sendAfterCommit(osgiEventProxy, SUBJECT, params(1L));
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(osgiEventProxy, never()).sendEvent(anyString(), anyMap());
+        verify(osgiEventProxy, never()).sendEvents(any(List.class));
+        assertFalse(TransactionSynchronizationManager.hasResource(osgiEventProxy));
+    }
+
+    private Map<String, Object> params(Long id) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("object_id", id);
+        return params;
+    }
+}
@@ -12,7 +12,16 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.motechproject.mds.util.ClassName;
 
+import javax.jdo.PersistenceManager;
+import javax.jdo.datastore.JDOConnection;
+import javax.jdo.metadata.IndexMetadata;
+import javax.jdo.metadata.TypeMetadata;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
 import java.util.Set;
 
@@ -20,13 +29,19 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SchemaGeneratorTest {
 
+    private static final String TABLE_NAME = "MDS_ENTITY_CLASS";
+
     @Mock
     private JDOPersistenceManagerFactory pmf;
 
@@ -36,6 +51,24 @@ public class SchemaGeneratorTest {
     @Mock(extraInterfaces = SchemaAwareStoreManager.class)
     private StoreManager storeManager;
 
+    @Mock
+    private PersistenceManager persistenceManager;
+
+    @Mock
+    private JDOConnection jdoConnection;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData dbMetaData;
+
+    @Mock
+    private ResultSet indexInfo;
+
+    @Mock
+    private Statement statement;
+
     private SchemaGenerator schemaGenerator;
 
     @Before
@@ -66,4 +99,47 @@ public class SchemaGeneratorTest {
         assertTrue(set.contains(ClassName.getTrashClassName("org.motechproject.test.AnotherClass")));
         assertTrue(set.contains(ClassName.getTrashClassName("org.motechproject.test.EntityWithoutHistoryClass")));
     }
+
+    @Test
+    public void shouldDropLookupIndexesNoLongerDefinedByMetadata() throws IOException, SQLException {
+        when(pmf.getNucleusContext()).thenReturn(nucleusContext);
+        when(nucleusContext.getStoreManager()).thenReturn(storeManager);
+
+        IndexMetadata definedIndex = mock(IndexMetadata.class);
+        when(definedIndex.getName()).thenReturn("lkp_cidx_EntityClass_byName_1");
+        TypeMetadata typeMetadata = mock(TypeMetadata.class);
+        when(typeMetadata.getTable()).thenReturn(TABLE_NAME);
+        when(typeMetadata.getIndices()).thenReturn(new IndexMetadata[] {definedIndex});
+        when(pmf.getMetadata("org.motechproject.test.EntityClass")).thenReturn(typeMetadata);
+
+        when(pmf.getPersistenceManager()).thenReturn(persistenceManager);
+        when(persistenceManager.getDataStoreConnection()).thenReturn(jdoConnection);
+        when(jdoConnection.getNativeConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(dbMetaData);
+        when(connection.createStatement()).thenReturn(statement);
+        when(dbMetaData.getIdentifierQuoteString()).thenReturn("`");
+        when(dbMetaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(dbMetaData.getIndexInfo(null, null, TABLE_NAME, false, false)).thenReturn(indexInfo);
+        when(indexInfo.next()).thenReturn(true, true, true, false);
+        // the database may return the names in another case than the metadata
+        when(indexInfo.getString("INDEX_NAME")).thenReturn("LKP_CIDX_ENTITYCLASS_BYNAME_1",
+                "lkp_cidx_EntityClass_byRemovedLookup_1", "lkp_idx_EntityClass_name_1");
+
+        schemaGenerator.generateSchema();
+
+        verify(statement).executeUpdate("DROP INDEX `lkp_cidx_EntityClass_byRemovedLookup_1` ON `" + TABLE_NAME + "`");
+        verify(statement, times(1)).executeUpdate(anyString());
+        verify(jdoConnection).close();
+        verify(persistenceManager).close();
+    }
+
+    @Test
+    public void shouldNotOpenConnectionWhenNoTablesHaveMetadata() throws IOException {
+        when(pmf.getNucleusContext()).thenReturn(nucleusContext);
+        when(nucleusContext.getStoreManager()).thenReturn(storeManager);
+
+        schemaGenerator.generateSchema();
+
+        verify(pmf, never()).getPersistenceManager();
+    }
 }
@@ -28,6 +28,7 @@ import org.motechproject.mds.exception.rest.RestOperationNotSupportedException;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.testutil.FieldTestHelper;
+import org.motechproject.mds.testutil.StreamAnswer;
 import org.motechproject.mds.testutil.records.Record;
 import org.motechproject.mds.util.Order;
 
@@ -41,6 +42,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertArrayEquals;
@@ -52,6 +54,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -137,6 +140,7 @@ public class MdsRestFacadeTest {
 
         //set up data service
         when(dataService.retrieveAll(any(QueryParams.class))).thenReturn(asList(recordOne));
+        when(dataService.stream(any(QueryParams.class), any(Consumer.class))).thenAnswer(new StreamAnswer<>(asList(recordOne)));
         when(dataService.retrieveAll()).thenReturn(asList(recordOne));
         when(dataService.findById(1l)).thenReturn(recordOne);
         when(dataService.create(recordOne)).thenReturn(recordOne);
@@ -156,7 +160,7 @@ public class MdsRestFacadeTest {
 
         RestResponse result = mdsRestFacade.get(queryParams, false);
 
-        verify(dataService).retrieveAll(queryParams);
+        verify(dataService).stream(eq(queryParams), any(Consumer.class));
 
         assertEquals(1, result.getData().size());
         assertEquals(3, result.getData().get(0).size());
@@ -225,7 +229,7 @@ public class MdsRestFacadeTest {
 
         RestResponse result = mdsRestFacade.get(queryParams, true);
 
-        verify(dataService).retrieveAll(queryParams);
+        verify(dataService).stream(eq(queryParams), any(Consumer.class));
 
         assertEquals(1, result.getData().size());
         assertEquals(3, result.getData().get(0).size());
@@ -0,0 +1,420 @@
+package org.motechproject.mds.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.entityinfo.EntityInfo;
+import org.motechproject.mds.entityinfo.EntityInfoReader;
+import org.motechproject.mds.entityinfo.FieldInfo;
+import org.motechproject.mds.event.CrudEventType;
+import org.motechproject.mds.exception.object.SecurityException;
+import org.motechproject.mds.query.QueryParams;
+import org.motechproject.mds.repository.MotechDataRepository;
+import org.motechproject.mds.testutil.records.Record;
+import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.InstanceSecurityRestriction;
+import org.motechproject.mds.util.Order;
+import org.motechproject.mds.util.SecurityMode;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.springframework.orm.jdo.JdoTransactionManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.jdo.PersistenceManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.motechproject.mds.event.CrudEventBuilder.buildEventParams;
+import static org.motechproject.mds.event.CrudEventBuilder.createSubject;
+import static org.motechproject.mds.event.CrudEventType.CREATE;
+import static org.motechproject.mds.event.CrudEventType.DELETE;
+import static org.motechproject.mds.event.CrudEventType.UPDATE;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultMotechDataServiceTest {
+
+    private static final String USERNAME = "motech";
+    private static final int CHUNK_SIZE = 2;
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    @Mock
+    private MotechDataRepository<Record> repository;
+
+    @Mock
+    private EntityInfoReader entityInfoReader;
+
+    @Mock
+    private EntityInfo entityInfo;
+
+    @Mock
+    private OsgiEventProxy osgiEventProxy;
+
+    @Mock
+    private MdsConfig mdsConfig;
+
+    @Mock
+    private PersistenceManager persistenceManager;
+
+    private DefaultMotechDataService<Record> dataService;
+
+    @Before
+    public void setUp() {
+        when(repository.getClassType()).thenReturn(Record.class);
+        when(entityInfoReader.getEntityInfo(Record.class.getName())).thenReturn(entityInfo);
+        when(entityInfo.getEntityName()).thenReturn("Record");
+        when(entityInfo.getModule()).thenReturn("mds");
+        when(entityInfo.getFieldsInfo()).thenReturn(Collections.<FieldInfo>emptyList());
+        when(entityInfo.isCreateEventFired()).thenReturn(true);
+        when(entityInfo.isUpdateEventFired()).thenReturn(true);
+        when(entityInfo.isDeleteEventFired()).thenReturn(true);
+
+        Properties properties = new Properties();
+        properties.setProperty(Constants.Config.MDS_BULK_CHUNK_SIZE, String.valueOf(CHUNK_SIZE));
+        when(mdsConfig.getProperties(Constants.Config.MODULE_FILE)).thenReturn(properties);
+
+        when(repository.createAll(anyCollection())).thenAnswer(new ReturnArgument());
+        when(repository.updateAll(anyCollection())).thenAnswer(new ReturnArgument());
+        when(repository.getPersistenceManager()).thenReturn(persistenceManager);
+
+        dataService = new DefaultMotechDataService<Record>() { };
+        dataService.setRepository(repository);
+        dataService.setEntityInfoReader(entityInfoReader);
+        dataService.setOsgiEventProxy(osgiEventProxy);
+        dataService.setTransactionManager(new SynchronizingTransactionManager());
+        dataService.setMdsConfig(mdsConfig);
+
+        SecurityContextImpl securityContext = new SecurityContextImpl();
+        securityContext.setAuthentication(new UsernamePasswordAuthenticationToken(
+                new User(USERNAME, USERNAME, asList(new SimpleGrantedAuthority("mdsDataAccess"))), null));
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void shouldCreateInstancesInChunks() {
+        dataService.init();
+        List<Record> records = records(1, 2, 3, 4, 5);
+
+        List<Record> created = dataService.createAll(records);
+
+        assertEquals(records, created);
+        assertEquals(asList(records.subList(0, 2), records.subList(2, 4), records.subList(4, 5)),
+                captureCreatedChunks());
+
+        // one batch of events for every chunk, a chunk of one instance sends a single event
+        verifyEventBatches(CREATE, 2, 2);
+        verify(osgiEventProxy).sendEvent(createSubject("mds", null, "Record", CREATE), crudEventParams(5L));
+    }
+
+    @Test
+    public void shouldNotCreateEmptyChunkAtChunkSizeBoundary() {
+        dataService.init();
+        List<Record> records = records(1, 2, 3, 4);
+
+        dataService.createAll(records);
+
+        assertEquals(asList(records.subList(0, 2), records.subList(2, 4)), captureCreatedChunks());
+        verifyEventBatches(CREATE, 2, 2);
+        verify(osgiEventProxy, never()).sendEvent(anyString(), anyMap());
+    }
+
+    @Test
+    public void shouldCheckCredentialsOfEveryUpdatedInstance() {
+        when(entityInfo.getSecurityMode()).thenReturn(SecurityMode.CREATOR);
+        dataService.init();
+        List<Record> records = records(1, 2, 3);
+        stubStoredInstances(records);
+
+        List<Record> updated = dataService.updateAll(records);
+
+        // the records are not enhanced, so they are updated as transient instances
+        assertEquals(records, updated);
+        for (Record record : records) {
+            verify(repository, atLeastOnce()).retrieve(record.getId());
+            assertEquals(USERNAME, record.getModifiedBy());
+        }
+        verifyEventBatches(UPDATE, 1, 2);
+        verify(osgiEventProxy).sendEvent(createSubject("mds", null, "Record", UPDATE), crudEventParams(3L));
+    }
+
+    @Test
+    public void shouldStopDeletingAtChunkWithInstanceOfAnotherOwner() {
+        when(entityInfo.getSecurityMode()).thenReturn(SecurityMode.OWNER);
+        dataService.init();
+        List<Record> records = records(1, 2, 3, 4, 5);
+        records.get(2).setOwner("someoneElse");
+        stubStoredInstances(records);
+        when(repository.retrieveAll(anyCollection())).thenAnswer(new Answer<List<Record>>() {
+            @Override
+            public List<Record> answer(InvocationOnMock invocation) {
+                List<Record> existing = new ArrayList<>();
+                for (Object id : (Collection) invocation.getArguments()[0]) {
+                    existing.add(record((Long) id));
+                }
+                return existing;
+            }
+        });
+
+        try {
+            dataService.deleteAll(records);
+            fail("Expected a security exception for the instance of another owner");
+        } catch (SecurityException e) {
+            // expected
+        }
+
+        // the first chunk is committed, the second is rolled back and the third is never processed
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).deleteAll(captor.capture());
+        assertEquals(asList(records.get(0).getId(), records.get(1).getId()), ids(captor.getValue()));
+        verify(repository, never()).retrieve(records.get(4).getId());
+        verifyEventBatches(DELETE, 1, 2);
+    }
+
+    @Test
+    public void shouldNotCheckInstancesOnCreateWithoutInstanceSecurity() {
+        dataService.init();
+
+        dataService.createAll(records(1, 2, 3));
+
+        verify(repository, never()).retrieve(any());
+    }
+
+    @Test
+    public void shouldStreamByIdUntilPageIsNotFull() {
+        dataService.init();
+        List<Record> firstPage = recordRange(1, STREAM_PAGE_SIZE);
+        List<Record> lastPage = recordRange(STREAM_PAGE_SIZE + 1, STREAM_PAGE_SIZE + 5);
+        when(repository.retrieveAllAfter((Long) isNull(), eq(STREAM_PAGE_SIZE),
+                any(InstanceSecurityRestriction.class))).thenReturn(firstPage);
+        when(repository.retrieveAllAfter(eq((long) STREAM_PAGE_SIZE), eq(STREAM_PAGE_SIZE),
+                any(InstanceSecurityRestriction.class))).thenReturn(lastPage);
+        RecordCollector collector = new RecordCollector();
+
+        long count = dataService.stream(null, collector);
+
+        // the next page starts after the id of the last instance of the previous page
+        assertEquals(STREAM_PAGE_SIZE + 5, count);
+        assertEquals(ids(recordRange(1, STREAM_PAGE_SIZE + 5)), ids(collector.records));
+        verify(repository, times(2)).retrieveAllAfter(any(Long.class), anyInt(),
+                any(InstanceSecurityRestriction.class));
+        verify(persistenceManager).evictAll(firstPage);
+        verify(persistenceManager).evictAll(lastPage);
+    }
+
+    @Test
+    public void shouldStopStreamingAtEmptyPageWhenLastPageIsFull() {
+        dataService.init();
+        when(repository.retrieveAllAfter((Long) isNull(), eq(STREAM_PAGE_SIZE),
+                any(InstanceSecurityRestriction.class))).thenReturn(recordRange(1, STREAM_PAGE_SIZE));
+        when(repository.retrieveAllAfter(eq((long) STREAM_PAGE_SIZE), eq(STREAM_PAGE_SIZE),
+                any(InstanceSecurityRestriction.class))).thenReturn(Collections.<Record>emptyList());
+        RecordCollector collector = new RecordCollector();
+
+        long count = dataService.stream(new QueryParams(new Order(Constants.Util.ID_FIELD_NAME)), collector);
+
+        assertEquals(STREAM_PAGE_SIZE, count);
+        assertEquals(STREAM_PAGE_SIZE, collector.records.size());
+        verify(repository, times(2)).retrieveAllAfter(any(Long.class), anyInt(),
+                any(InstanceSecurityRestriction.class));
+        verify(repository, never()).retrieveAll(any(QueryParams.class), any(InstanceSecurityRestriction.class));
+    }
+
+    @Test
+    public void shouldOrderStreamedPagesByIdWhenOrderedByOtherField() {
+        dataService.init();
+        when(repository.retrieveAll(any(QueryParams.class), any(InstanceSecurityRestriction.class)))
+                .thenReturn(recordRange(1, STREAM_PAGE_SIZE), recordRange(STREAM_PAGE_SIZE + 1, STREAM_PAGE_SIZE + 3));
+
+        long count = dataService.stream(new QueryParams(new Order("value", Order.Direction.DESC)),
+                new RecordCollector());
+
+        assertEquals(STREAM_PAGE_SIZE + 3, count);
+
+        ArgumentCaptor<QueryParams> captor = ArgumentCaptor.forClass(QueryParams.class);
+        verify(repository, times(2)).retrieveAll(captor.capture(), any(InstanceSecurityRestriction.class));
+        for (int i = 0; i < 2; i++) {
+            QueryParams queryParams = captor.getAllValues().get(i);
+            assertEquals(Integer.valueOf(i + 1), queryParams.getPage());
+            assertEquals(Integer.valueOf(STREAM_PAGE_SIZE), queryParams.getPageSize());
+
+            // the id is added as a tiebreaker, so that instances with the same value are not skipped between pages
+            List<Order> orderList = queryParams.getOrderList();
+            assertEquals(2, orderList.size());
+            assertEquals("value", orderList.get(0).getField());
+            assertEquals(Order.Direction.DESC, orderList.get(0).getDirection());
+            assertEquals(Constants.Util.ID_FIELD_NAME, orderList.get(1).getField());
+            assertEquals(Order.Direction.ASC, orderList.get(1).getDirection());
+        }
+        verify(repository, never()).retrieveAllAfter(anyLong(), anyInt(), any(InstanceSecurityRestriction.class));
+    }
+
+    @Test
+    public void shouldStreamExplicitPageWithSingleQuery() {
+        dataService.init();
+        QueryParams queryParams = new QueryParams(2, STREAM_PAGE_SIZE, new Order("value"));
+        when(repository.retrieveAll(eq(queryParams), any(InstanceSecurityRestriction.class)))
+                .thenReturn(recordRange(1, STREAM_PAGE_SIZE));
+
+        long count = dataService.stream(queryParams, new RecordCollector());
+
+        // a full page does not cause a query for the next one, since the caller asked for this page only
+        assertEquals(STREAM_PAGE_SIZE, count);
+        verify(repository).retrieveAll(eq(queryParams), any(InstanceSecurityRestriction.class));
+        verify(repository, never()).retrieveAllAfter(any(Long.class), anyInt(),
+                any(InstanceSecurityRestriction.class));
+    }
+
+    private List<List<Record>> captureCreatedChunks() {
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository, atLeastOnce()).createAll(captor.capture());
+
+        List<List<Record>> chunks = new ArrayList<>();
+        for (Collection chunk : captor.getAllValues()) {
+            chunks.add(new ArrayList<Record>(chunk));
+        }
+        return chunks;
+    }
+
+    private void verifyEventBatches(CrudEventType action, int batches, int eventsPerBatch) {
+        String subject = createSubject("mds", null, "Record", action);
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(osgiEventProxy, times(batches)).sendEvents(captor.capture());
+        for (List events : captor.getAllValues()) {
+            assertEquals(eventsPerBatch, events.size());
+            for (Object event : events) {
+                assertEquals(subject, ((Map) event).get(OsgiEventProxy.SUBJECT_PARAM));
+            }
+        }
+    }
+
+    private Map<String, Object> crudEventParams(Long id) {
+        return buildEventParams("mds", null, "Record", Record.class.getName(), id);
+    }
+
+    private void stubStoredInstances(List<Record> records) {
+        for (Record record : records) {
+            when(repository.retrieve(record.getId())).thenReturn(record);
+            when(repository.retrieve(Constants.Util.ID_FIELD_NAME, record.getId())).thenReturn(record);
+        }
+    }
+
+    private List<Record> records(long... ids) {
+        List<Record> records = new ArrayList<>();
+        for (long id : ids) {
+            records.add(record(id));
+        }
+        return records;
+    }
+
+    private List<Record> recordRange(long from, long to) {
+        List<Record> records = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            records.add(record(id));
+        }
+        return records;
+    }
+
+    private Record record(long id) {
+        Record record = new Record();
+        record.setId(id);
+        record.setCreator(USERNAME);
+        record.setOwner(USERNAME);
+        return record;
+    }
+
+    private List<Long> ids(Collection<Record> records) {
+        List<Long> ids = new ArrayList<>();
+        for (Record record : records) {
+            ids.add(record.getId());
+        }
+        return ids;
+    }
+
+    private static class RecordCollector implements Consumer<Record> {
+
+        private List<Record> records = new ArrayList<>();
+
+        @Override
+        public void accept(Record record) {
+            records.add(record);
+        }
+    }
+
+    private static class ReturnArgument implements Answer<List<Record>> {
+        @Override
+        public List<Record> answer(InvocationOnMock invocation) {
+            return new ArrayList<>((Collection<Record>) invocation.getArguments()[0]);
+        }
+    }
+
+    /**
+     * Runs the transaction synchronizations without a database, so that CRUD events are batched as in a real
+     * transaction.
+     */
+    private static class SynchronizingTransactionManager extends JdoTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return false;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+        }
+    }
+}
@@ -35,6 +35,8 @@ import static ch.lambdaj.Lambda.on;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -127,6 +129,27 @@ public class MdsLookupServiceTest {
         assertEquals(SINGLE_LOOKUP_VAL, recordByClassName.getValue());
     }
 
+    @Test
+    public void shouldCacheLookupExecutors() {
+        Map<String, Object> lookupMap = lookupMap();
+
+        mdsLookupService.findOne(Record.class, FIRST_LOOKUP_NAME, lookupMap);
+        mdsLookupService.findOne(Record.class, FIRST_LOOKUP_NAME, lookupMap);
+        mdsLookupService.count(Record.class, FIRST_LOOKUP_NAME, lookupMap);
+
+        verify(entityService).getEntityByClassName(ENTITY_CLASS_NAME);
+        verify(entityService).getLookupByName(ENTITY_ID, FIRST_LOOKUP_NAME);
+        verify(entityService).getLookupFieldsMapping(ENTITY_ID, FIRST_LOOKUP_NAME);
+
+        ((MdsLookupServiceImpl) mdsLookupService).clearLookupExecutors();
+        Record record = mdsLookupService.findOne(Record.class, FIRST_LOOKUP_NAME, lookupMap);
+
+        assertEquals(SINGLE_LOOKUP_VAL, record.getValue());
+        verify(entityService, times(2)).getEntityByClassName(ENTITY_CLASS_NAME);
+        verify(entityService, times(2)).getLookupByName(ENTITY_ID, FIRST_LOOKUP_NAME);
+        verify(entityService, times(2)).getLookupFieldsMapping(ENTITY_ID, FIRST_LOOKUP_NAME);
+    }
+
     @Test
     public void shouldExecuteMultiReturnLookups() {
         Map<String, Object> lookupMap = lookupMap();
@@ -122,6 +122,18 @@ public class CsvImportExportServiceTest {
         verifyImportSuccessEvent();
     }
 
+    @Test
+    public void shouldResumeImportById() {
+        CsvImportResults importResults = new CsvImportResults(entityDto, NEW_IDS, UPDATED_IDS, null);
+        DefaultCsvImportCustomizer importCustomizer = new DefaultCsvImportCustomizer();
+        when(csvImporterExporter.importCsv(ENTITY_ID, reader, importCustomizer, false, 1000)).thenReturn(importResults);
+
+        csvImportExportService.importCsv(ENTITY_ID, reader, FILE_NAME, importCustomizer, false, 1000);
+
+        verify(csvImporterExporter).importCsv(ENTITY_ID, reader, importCustomizer, false, 1000);
+        verifyImportSuccessEvent();
+    }
+
     @Test
     public void shouldThrowImportFailureExceptionWhenImportingById() {
         when(csvImporterExporter.importCsv(eq(ENTITY_ID), eq(reader), any(DefaultCsvImportCustomizer.class), eq(false), eq(false)))
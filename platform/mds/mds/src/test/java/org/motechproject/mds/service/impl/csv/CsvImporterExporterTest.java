@@ -10,6 +10,7 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import org.motechproject.mds.config.MdsConfig;
 import org.motechproject.mds.dto.AdvancedSettingsDto;
 import org.motechproject.mds.dto.BrowsingSettingsDto;
 import org.motechproject.mds.dto.CsvImportResults;
@@ -18,17 +19,22 @@ import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.dto.UIDisplayFieldComparator;
 import org.motechproject.mds.entityinfo.EntityInfo;
 import org.motechproject.mds.entityinfo.EntityInfoReader;
+import org.motechproject.mds.exception.csv.CsvImportException;
 import org.motechproject.mds.javassist.MotechClassPool;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.CsvImportCustomizer;
 import org.motechproject.mds.service.DefaultCsvExportCustomizer;
+import org.motechproject.mds.service.DefaultCsvImportCustomizer;
 import org.motechproject.mds.service.MDSLookupService;
 import org.motechproject.mds.service.MotechDataService;
+import org.motechproject.mds.testutil.StreamAnswer;
 import org.motechproject.mds.testutil.records.Record2;
 import org.motechproject.mds.testutil.records.RecordEnum;
 import org.motechproject.mds.testutil.records.RelatedClass;
+import org.motechproject.mds.util.Constants;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.springframework.transaction.support.TransactionCallback;
 
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -36,16 +42,21 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -123,6 +134,14 @@ public class CsvImporterExporterTest {
 
         when(relatedDataService.findById(0L)).thenReturn(new RelatedClass(0L));
         when(relatedDataService.findById(1L)).thenReturn(new RelatedClass(1L));
+        when(relatedDataService.findByIds(anyCollection())).thenReturn(Arrays.asList(new RelatedClass(0L), new RelatedClass(1L)));
+
+        when(motechDataService.doInTransaction(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((TransactionCallback) invocation.getArguments()[0]).doInTransaction(null);
+            }
+        });
 
         when(entityInfoReader.getEntityInfo(ENTITY_CLASSNAME)).thenReturn(entityInfo);
         when(entityInfoReader.getEntityInfo(ENTITY_ID)).thenReturn(entityInfo);
@@ -141,7 +160,8 @@ public class CsvImporterExporterTest {
 
     @Test
     public void shouldExportAllInstancesAsCsv() {
-        when(motechDataService.retrieveAll(any(QueryParams.class))).thenReturn(testInstances(IdMode.INCLUDE_ID));
+        when(motechDataService.stream(any(QueryParams.class), any(Consumer.class)))
+                .thenAnswer(new StreamAnswer<>(testInstances(IdMode.INCLUDE_ID)));
         StringWriter writer = new StringWriter();
 
         long result = csvImporterExporter.exportCsv(ENTITY_ID, writer);
@@ -152,7 +172,8 @@ public class CsvImporterExporterTest {
 
     @Test
     public void shouldUseExportCustomizer() {
-        when(motechDataService.retrieveAll(any(QueryParams.class))).thenReturn(testInstances(IdMode.INCLUDE_ID));
+        when(motechDataService.stream(any(QueryParams.class), any(Consumer.class)))
+                .thenAnswer(new StreamAnswer<>(testInstances(IdMode.INCLUDE_ID)));
         StringWriter writer = new StringWriter();
 
         long result = csvImporterExporter.exportCsv(ENTITY_ID, writer, csvExportCustomizer);
@@ -224,6 +245,81 @@ public class CsvImporterExporterTest {
         assertEquals(INSTANCE_COUNT, results.totalNumberOfImportedInstances());
     }
 
+    @Test
+    public void shouldCommitImportInChunks() {
+        MdsConfig mdsConfig = mock(MdsConfig.class);
+        Properties properties = new Properties();
+        properties.setProperty(Constants.Config.MDS_CSV_IMPORT_CHUNK_SIZE, "8");
+        when(mdsConfig.getProperties(Constants.Config.MODULE_FILE)).thenReturn(properties);
+        csvImporterExporter.setMdsConfig(mdsConfig);
+
+        when(motechDataService.create(any(Record2.class))).thenAnswer(new CreateAnswer());
+
+        StringReader reader = new StringReader(getTestEntityRecordsAsCsv(IdMode.EMPTY_ID_COLUMN));
+        CsvImportResults results = csvImporterExporter.importCsv(ENTITY_ID, reader, CONTINUE_ON_ERROR, false);
+
+        // 20 rows in chunks of 8 rows, related instances are retrieved once per chunk
+        verify(motechDataService, times(3)).doInTransaction(any(TransactionCallback.class));
+        verify(relatedDataService, times(3)).findByIds(anyCollection());
+        verify(relatedDataService, never()).findById(any(Long.class));
+
+        ArgumentCaptor<Record2> captor = ArgumentCaptor.forClass(Record2.class);
+        verify(motechDataService, times(INSTANCE_COUNT)).create(captor.capture());
+        assertEquals(testInstances(IdMode.EMPTY_ID_COLUMN), captor.getAllValues());
+
+        assertEquals(INSTANCE_COUNT, results.newInstanceCount());
+        assertEquals(listFromRangeInclusive(0, 19), results.getNewInstanceIDs());
+    }
+
+    @Test
+    public void shouldImportInSingleTransactionWhenClearingData() {
+        MdsConfig mdsConfig = mock(MdsConfig.class);
+        Properties properties = new Properties();
+        properties.setProperty(Constants.Config.MDS_CSV_IMPORT_CHUNK_SIZE, "8");
+        when(mdsConfig.getProperties(Constants.Config.MODULE_FILE)).thenReturn(properties);
+        csvImporterExporter.setMdsConfig(mdsConfig);
+
+        when(motechDataService.create(any(Record2.class))).thenAnswer(new CreateAnswer());
+
+        StringReader reader = new StringReader(getTestEntityRecordsAsCsv(IdMode.EMPTY_ID_COLUMN));
+        CsvImportResults results = csvImporterExporter.importCsv(ENTITY_ID, reader, CONTINUE_ON_ERROR, true);
+
+        // the delete is committed together with all 20 rows, regardless of the chunk size
+        verify(motechDataService).doInTransaction(any(TransactionCallback.class));
+        verify(motechDataService).deleteAll();
+        verify(motechDataService, times(INSTANCE_COUNT)).create(any(Record2.class));
+        assertEquals(INSTANCE_COUNT, results.newInstanceCount());
+    }
+
+    @Test
+    public void shouldReportImportedRowsAndResumeImport() {
+        MdsConfig mdsConfig = mock(MdsConfig.class);
+        Properties properties = new Properties();
+        properties.setProperty(Constants.Config.MDS_CSV_IMPORT_CHUNK_SIZE, "2");
+        when(mdsConfig.getProperties(Constants.Config.MODULE_FILE)).thenReturn(properties);
+        csvImporterExporter.setMdsConfig(mdsConfig);
+
+        when(motechDataService.create(any(Record2.class))).thenAnswer(new CreateAnswer());
+
+        // the invalid 4th row stops the import in the second chunk, the first chunk is committed
+        int importedRows = 0;
+        try {
+            csvImporterExporter.importCsv(ENTITY_ID, new StringReader(getTestEntityRecordsAsCsv(IdMode.INVALID)),
+                    new DefaultCsvImportCustomizer(), false, 0);
+        } catch (CsvImportException e) {
+            importedRows = e.getImportedRows();
+        }
+
+        assertEquals(2, importedRows);
+
+        CsvImportResults results = csvImporterExporter.importCsv(ENTITY_ID,
+                new StringReader(getTestEntityRecordsAsCsv(IdMode.EMPTY_ID_COLUMN)), new DefaultCsvImportCustomizer(),
+                CONTINUE_ON_ERROR, importedRows);
+
+        // only the rows after the imported ones are imported when resuming
+        assertEquals(INSTANCE_COUNT - importedRows, results.newInstanceCount());
+    }
+
     @Test
     public void testImportWithInvalidRows() {
         CsvImportResults results;
@@ -254,6 +350,58 @@ public class CsvImporterExporterTest {
         assertTrue(thrown);
     }
 
+    @Test
+    public void shouldClearDataInTransactionOfFailingImport() {
+        final List<String> calls = new ArrayList<>();
+        when(motechDataService.doInTransaction(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                calls.add("begin");
+                try {
+                    Object result = ((TransactionCallback) invocation.getArguments()[0]).doInTransaction(null);
+                    calls.add("commit");
+                    return result;
+                } catch (RuntimeException e) {
+                    calls.add("rollback");
+                    throw e;
+                }
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                calls.add("deleteAll");
+                return null;
+            }
+        }).when(motechDataService).deleteAll();
+        when(motechDataService.create(any(Record2.class))).thenAnswer(new CreateAnswer());
+
+        StringReader reader = new StringReader(getTestEntityRecordsAsCsv(IdMode.INVALID));
+        boolean thrown = false;
+        try {
+            csvImporterExporter.importCsv(ENTITY_ID, reader, false, true);
+        } catch (RuntimeException e) {
+            thrown = true;
+        }
+
+        // the data is cleared in the transaction of the import, which is rolled back
+        assertTrue(thrown);
+        assertEquals(Arrays.asList("begin", "deleteAll", "rollback"), calls);
+    }
+
+    @Test
+    public void shouldClearDataWhenImportingEmptyCsv() {
+        String csv = getTestEntityRecordsAsCsv(IdMode.EMPTY_ID_COLUMN);
+        // the header only
+        StringReader reader = new StringReader(csv.substring(0, csv.indexOf("\r\n") + 2));
+
+        CsvImportResults results = csvImporterExporter.importCsv(ENTITY_ID, reader, CONTINUE_ON_ERROR, true);
+
+        verify(motechDataService).doInTransaction(any(TransactionCallback.class));
+        verify(motechDataService).deleteAll();
+        assertEquals(0, results.totalNumberOfImportedInstances());
+    }
+
     private void testImport(IdMode idMode, boolean clearData) {
         StringReader reader = new StringReader(getTestEntityRecordsAsCsv(idMode));
         // if id provided, prepare entities that will be updated
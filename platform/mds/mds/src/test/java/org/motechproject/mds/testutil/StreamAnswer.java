@@ -0,0 +1,33 @@
+package org.motechproject.mds.testutil;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Answers calls to {@link org.motechproject.mds.service.MotechDataService#stream} on mocked data services by
+ * passing the given instances to the consumer.
+ *
+ * @param <T> the type of instances
+ */
+public class StreamAnswer<T> implements Answer<Long> {
+
+    private final List<T> instances;
+
+    public StreamAnswer(List<T> instances) {
+        this.instances = instances;
+    }
+
+    @Override
+    public Long answer(InvocationOnMock invocation) {
+        Consumer<T> consumer = (Consumer<T>) invocation.getArguments()[1];
+
+        for (T instance : instances) {
+            consumer.accept(instance);
+        }
+
+        return (long) instances.size();
+    }
+}
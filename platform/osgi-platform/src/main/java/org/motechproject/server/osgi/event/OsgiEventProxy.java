@@ -1,6 +1,7 @@
 package org.motechproject.server.osgi.event;
 
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,6 +17,7 @@ public interface OsgiEventProxy {
     String PARAMETERS_PARAM = "parameters";
     String BROADCAST_PARAM = "broadcast";
     String PROXY_ON_RECEIVING_END_PARAM = "proxyOnReceivingEnd";
+    String EVENTS_PARAM = "events";
 
     /**
      * Calling this method will result in sending an OSGi event that will be then relayed by the event module
@@ -52,4 +54,13 @@ public interface OsgiEventProxy {
      * @param proxyHandledEventInOSGi if true, the event will be also sent as an OSGi event upon being received by the event system
      */
     void broadcastEvent(String subject, Map<String, Object> parameters, boolean proxyHandledEventInOSGi);
+
+    /**
+     * Calling this method will result in sending a single OSGi event that will be then relayed by the event module
+     * as Motech Events through the event queue, all of them published together. Each element of the list describes
+     * one event - the {@link #SUBJECT_PARAM} entry holds its subject and the {@link #PARAMETERS_PARAM} entry holds
+     * its parameters map.
+     * @param events the events to send
+     */
+    void sendEvents(List<Map<String, Object>> events);
 }
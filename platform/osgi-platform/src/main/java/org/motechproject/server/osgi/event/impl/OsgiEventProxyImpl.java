@@ -5,6 +5,7 @@ import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,6 +42,17 @@ public class OsgiEventProxyImpl implements OsgiEventProxy {
         eventAdmin.postEvent(event);
     }
 
+    @Override
+    public void sendEvents(List<Map<String, Object>> events) {
+        Map<String, Object> properties = new HashMap<>();
+
+        // the events will be relayed together by the event module
+        properties.put(EVENTS_PARAM, events);
+        properties.put(BROADCAST_PARAM, false);
+
+        eventAdmin.postEvent(new Event(PROXY_EVENT_TOPIC, properties));
+    }
+
     private Event buildEvent(String subject, Map<String, Object> parameters, boolean proxyOnReceivingEnd, boolean broadcast) {
         Map<String, Object> properties = new HashMap<>();
 
@@ -11,7 +11,9 @@ import org.motechproject.server.osgi.event.impl.OsgiEventProxyImpl;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -58,6 +60,22 @@ public class OsgiEventProxyTest {
         verifyEvent(true, true, params);
     }
 
+    @Test
+    public void shouldProxyEventBatchForQueue() {
+        Map<String, Object> event = new HashMap<>();
+        event.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        event.put(OsgiEventProxy.PARAMETERS_PARAM, buildParams());
+        List<Map<String, Object>> events = Arrays.asList(event, event);
+
+        osgiEventProxy.sendEvents(events);
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventAdmin).postEvent(captor.capture());
+
+        assertEquals(OsgiEventProxy.PROXY_EVENT_TOPIC, captor.getValue().getTopic());
+        assertEquals(events, captor.getValue().getProperty(OsgiEventProxy.EVENTS_PARAM));
+        assertEquals(false, captor.getValue().getProperty(OsgiEventProxy.BROADCAST_PARAM));
+    }
 
     private Map<String, Object> buildParams() {
         Map<String, Object> params = new HashMap<>();
@@ -0,0 +1,96 @@
+package org.motechproject.osgi.web.tracker;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A tracker that keeps the services of the given class indexed by their names. The index is updated when services
+ * are registered and unregistered, so looking up a service by name is a map read that does not touch the OSGi service
+ * registry. The services are released when they are unregistered or when the tracker is closed.
+ * <p>
+ * If more services are registered under the same name, the one registered first is returned. Once it is unregistered,
+ * one of the remaining services with that name takes its place.
+ *
+ * @param <S> the type of the tracked services
+ */
+public abstract class NamedServiceTracker<S> extends ServiceTracker<S, S> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NamedServiceTracker.class);
+
+    private final ConcurrentMap<String, S> servicesByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ServiceReference<S>, String> namesByReference = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the tracker for services of the given class. The tracker must be opened before use.
+     *
+     * @param context the context used for tracking the services
+     * @param serviceClass the class of the services to track
+     */
+    public NamedServiceTracker(BundleContext context, Class<S> serviceClass) {
+        super(context, serviceClass, null);
+    }
+
+    /**
+     * Returns the service registered under the given name.
+     *
+     * @param name the name of the service
+     * @return the service, or {@code null} if no service with the given name is registered
+     */
+    public S getService(String name) {
+        return name == null ? null : servicesByName.get(name);
+    }
+
+    @Override
+    public S addingService(ServiceReference<S> reference) {
+        S service = super.addingService(reference);
+
+        if (service != null) {
+            String name = getServiceName(service);
+            if (name != null) {
+                namesByReference.put(reference, name);
+                servicesByName.putIfAbsent(name, service);
+                LOGGER.debug("Tracking service {} with name {}", service, name);
+            }
+        }
+
+        return service;
+    }
+
+    @Override
+    public void removedService(ServiceReference<S> reference, S service) {
+        String name = namesByReference.remove(reference);
+
+        if (name != null && servicesByName.remove(name, service)) {
+            LOGGER.debug("Service {} with name {} has been removed", service, name);
+            replaceService(name);
+        }
+
+        super.removedService(reference, service);
+    }
+
+    /**
+     * Returns the name under which the given service should be indexed.
+     *
+     * @param service the tracked service
+     * @return the name of the service, or {@code null} if the service should not be indexed
+     */
+    protected abstract String getServiceName(S service);
+
+    private void replaceService(String name) {
+        Map<ServiceReference<S>, S> tracked = getTracked();
+
+        for (Map.Entry<ServiceReference<S>, S> entry : tracked.entrySet()) {
+            if (name.equals(namesByReference.get(entry.getKey()))) {
+                servicesByName.putIfAbsent(name, entry.getValue());
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.motechproject.osgi.web.tracker;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NamedServiceTrackerTest {
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private ServiceReference<Runnable> firstReference;
+
+    @Mock
+    private ServiceReference<Runnable> secondReference;
+
+    @Mock
+    private Runnable firstService;
+
+    @Mock
+    private Runnable secondService;
+
+    private NamedServiceTracker<Runnable> tracker;
+
+    @Before
+    public void setUp() throws Exception {
+        when(bundleContext.getServiceReferences(Runnable.class.getName(), null))
+                .thenReturn(new ServiceReference[]{firstReference, secondReference});
+        when(bundleContext.getService(firstReference)).thenReturn(firstService);
+        when(bundleContext.getService(secondReference)).thenReturn(secondService);
+
+        tracker = new NamedServiceTracker<Runnable>(bundleContext, Runnable.class) {
+            @Override
+            protected String getServiceName(Runnable service) {
+                return "runnable";
+            }
+        };
+        tracker.open();
+    }
+
+    @Test
+    public void shouldFindServicesByName() {
+        assertEquals(firstService, tracker.getService("runnable"));
+        assertNull(tracker.getService("other"));
+        assertNull(tracker.getService((String) null));
+    }
+
+    @Test
+    public void shouldReplaceUnregisteredServiceWithAnotherServiceOfTheSameName() {
+        ArgumentCaptor<ServiceListener> listenerCaptor = ArgumentCaptor.forClass(ServiceListener.class);
+        verify(bundleContext).addServiceListener(listenerCaptor.capture(), anyString());
+
+        listenerCaptor.getValue().serviceChanged(new ServiceEvent(ServiceEvent.UNREGISTERING, firstReference));
+
+        assertEquals(secondService, tracker.getService("runnable"));
+        verify(bundleContext).ungetService(firstReference);
+        verify(bundleContext, never()).ungetService(secondReference);
+    }
+
+    @Test
+    public void shouldReleaseServicesWhenClosed() {
+        tracker.close();
+
+        assertNull(tracker.getService("runnable"));
+        verify(bundleContext).ungetService(firstReference);
+        verify(bundleContext).ungetService(secondReference);
+    }
+}
@@ -0,0 +1,75 @@
+package org.motechproject.config;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Utility methods for reading numeric settings. Values which are not set fall back to the given default, values which
+ * are not numbers are logged and fall back to the default as well.
+ */
+public final class SettingsUtils {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SettingsUtils.class);
+
+    /**
+     * This is a utility class and should not be instantiated.
+     */
+    private SettingsUtils() {
+    }
+
+    /**
+     * Returns the value of the given setting as an int.
+     *
+     * @param settings the settings to read from
+     * @param key the key of the setting
+     * @param defaultValue the value returned if the setting is not set or is not a number
+     * @return the value of the setting, or the default value
+     */
+    public static int getIntProperty(SettingsFacade settings, String key, int defaultValue) {
+        return (int) parse(settings.getProperty(key), key, defaultValue, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the value of the given setting as a long.
+     *
+     * @param settings the settings to read from
+     * @param key the key of the setting
+     * @param defaultValue the value returned if the setting is not set or is not a number
+     * @return the value of the setting, or the default value
+     */
+    public static long getLongProperty(SettingsFacade settings, String key, long defaultValue) {
+        return parse(settings.getProperty(key), key, defaultValue, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the value of the given property as an int.
+     *
+     * @param properties the properties to read from
+     * @param key the key of the property
+     * @param defaultValue the value returned if the property is not set or is not a number
+     * @return the value of the property, or the default value
+     */
+    public static int getIntProperty(Properties properties, String key, int defaultValue) {
+        return (int) parse(properties.getProperty(key), key, defaultValue, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static long parse(String value, String key, long defaultValue, long min, long max) {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+
+        try {
+            long result = Long.parseLong(value.trim());
+            if (result < min || result > max) {
+                throw new NumberFormatException("Out of range: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            LOGGER.error("The value of key: {} is not a number, using the default: {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.motechproject.config;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SettingsUtilsTest {
+
+    private static final String KEY = "test.key";
+
+    @Test
+    public void shouldReadIntAndLongSettings() {
+        SettingsFacade settings = mock(SettingsFacade.class);
+        when(settings.getProperty(KEY)).thenReturn(" 42 ");
+
+        assertEquals(42, SettingsUtils.getIntProperty(settings, KEY, 7));
+        assertEquals(42L, SettingsUtils.getLongProperty(settings, KEY, 7L));
+    }
+
+    @Test
+    public void shouldUseDefaultForMissingOrInvalidSettings() {
+        SettingsFacade settings = mock(SettingsFacade.class);
+        assertEquals(7, SettingsUtils.getIntProperty(settings, KEY, 7));
+
+        when(settings.getProperty(KEY)).thenReturn("  ");
+        assertEquals(7L, SettingsUtils.getLongProperty(settings, KEY, 7L));
+
+        when(settings.getProperty(KEY)).thenReturn("ten");
+        assertEquals(7, SettingsUtils.getIntProperty(settings, KEY, 7));
+
+        when(settings.getProperty(KEY)).thenReturn("10000000000");
+        assertEquals(7, SettingsUtils.getIntProperty(settings, KEY, 7));
+        assertEquals(10000000000L, SettingsUtils.getLongProperty(settings, KEY, 7L));
+    }
+
+    @Test
+    public void shouldReadIntProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(KEY, "-3");
+
+        assertEquals(-3, SettingsUtils.getIntProperty(properties, KEY, 7));
+        assertEquals(7, SettingsUtils.getIntProperty(properties, "missing.key", 7));
+    }
+}